@@ -0,0 +1,22 @@
+package graph;
+
+import java.math.BigDecimal;
+
+/**
+ * The number types the formulas can be sampled with.
+ */
+public enum Arithmetic {
+
+    /**
+     * {@link BigDecimal} with {@link MathUtil#FLOATING_POINT_PRECISION}
+     * digits, precise but slow
+     */
+    BIG_DECIMAL,
+
+    /**
+     * {@link DoubleDouble} with about 32 digits at a small multiple of the
+     * cost of a double
+     */
+    DOUBLE_DOUBLE
+
+}
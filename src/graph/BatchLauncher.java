@@ -0,0 +1,122 @@
+package graph;
+
+import graph.engine.PlotDefinition;
+import graph.engine.PlotDefinitionReader;
+import graph.engine.PlotEngine;
+import graph.function.concurrent.SampleCache;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class renders the plots of a definition file to PNG files without a
+ * display, see {@link PlotDefinitionReader} for the format. The plots are
+ * rendered in parallel on every core and the time of every plot is printed.
+ * The samples are shared with other processes through the default
+ * {@link SampleCache}.
+ * Usage: {@code BatchLauncher <definitions> [output directory]}
+ */
+public final class BatchLauncher {
+
+    /**
+     * Creates no instance, the class only contains the entry point.
+     */
+    private BatchLauncher() {
+    }
+
+    /**
+     * Renders the plots. The output directory defaults to the directory of
+     * the definition file and is created if it does not exist. The exit
+     * status is 1 if a plot failed.
+     *
+     * @param args the definition file and the output directory
+     * @throws IOException          if the definition file cannot be read or the output directory cannot be created
+     * @throws InterruptedException if the thread is interrupted while waiting for the plots
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: BatchLauncher <definitions> [output directory]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]).toAbsolutePath();
+        Path directory = (args.length > 1 ? Paths.get(args[1]).toAbsolutePath() : file.getParent()).normalize();
+        List<PlotDefinition> definitions;
+        try {
+            definitions = PlotDefinitionReader.read(file);
+        } catch (IllegalArgumentException e) {
+            System.err.println(file + ": " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        Files.createDirectories(directory);
+        SampleCache sampleCache = SampleCache.getDefault();
+        PlotEngine engine = new PlotEngine(PlotEngine.DEFAULT_BACKGROUND, true, false, sampleCache);
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CompletionService<String> completion = new ExecutorCompletionService<>(executor);
+        long startTime = System.nanoTime();
+        for (PlotDefinition definition : definitions) {
+            completion.submit(() -> render(engine, definition, directory));
+        }
+        int failed = 0;
+        for (int i = 0; i < definitions.size(); i++) {
+            try {
+                System.out.println(completion.take().get());
+            } catch (ExecutionException e) {
+                failed++;
+                e.getCause().printStackTrace();
+            }
+        }
+        executor.shutdown();
+        System.out.printf("%d plots, %d failed, %d threads, %.1f ms%n",
+                definitions.size(), failed, threads, (System.nanoTime() - startTime) / 1e6);
+        if (sampleCache != null) {
+            System.out.println(sampleCache);
+        }
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Renders a plot and writes it to a PNG file. The name of the plot must
+     * not lead out of the output directory.
+     *
+     * @param engine     the engine
+     * @param definition the plot
+     * @param directory  the absolute and normalized output directory
+     * @return the timing of the plot
+     * @throws IOException if the file cannot be written
+     */
+    private static String render(PlotEngine engine, PlotDefinition definition, Path directory) throws IOException {
+        Path target = directory.resolve(definition.getName()).normalize();
+        if (!target.startsWith(directory) || target.equals(directory)) {
+            throw new IllegalArgumentException("The plot name leads out of the output directory: " + definition.getName());
+        }
+        Files.createDirectories(target.getParent());
+        long startTime = System.nanoTime();
+        BufferedImage image = engine.render(
+                definition.createViewport(), definition.getFormulas(), definition.getParametricEquations()
+        );
+        long renderTime = System.nanoTime();
+        if (!ImageIO.write(image, "png", target.toFile())) {
+            throw new IOException("No PNG writer available");
+        }
+        long endTime = System.nanoTime();
+        return String.format("%s: %.1f ms render, %.1f ms encode",
+                target, (renderTime - startTime) / 1e6, (endTime - renderTime) / 1e6);
+    }
+
+}
@@ -0,0 +1,696 @@
+package graph;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * This class represents an immutable number as the unevaluated sum of two
+ * doubles, the second one being smaller than half an ulp of the first one.
+ * A double-double has about 32 significant digits, nearly as many as the
+ * {@link BigDecimal} calculations with {@link MathUtil#FLOATING_POINT_PRECISION}
+ * digits, at a small multiple of the cost of a double. Division by zero and
+ * the square root of a negative number throw an {@link ArithmeticException}
+ * like their {@link BigDecimal} counterparts, the other functions return a
+ * number that is not finite if they are undefined. Results that overflow are
+ * infinite like the ones of doubles.
+ */
+public final class DoubleDouble implements Comparable<DoubleDouble> {
+
+    /**
+     * Factor to split a double into two halves of 26 bits
+     */
+    private static final double SPLITTER = 134217729.0;
+
+    /**
+     * Doubles above this magnitude are scaled down before they are split,
+     * otherwise the split overflows
+     */
+    private static final double SPLIT_THRESHOLD = 6.69692879491417e+299;
+
+    /**
+     * The scale applied to large doubles before they are split, two to the power of 28
+     */
+    private static final double SPLIT_SCALE = 268435456.0;
+
+    /**
+     * Largest argument of the exponential function that does not overflow
+     */
+    private static final double EXP_MAX = 709.78;
+
+    /**
+     * Smallest argument of the exponential function that does not underflow
+     */
+    private static final double EXP_MIN = -745.2;
+
+    /**
+     * The exponential function is computed at the argument divided by two
+     * to the power of this value and squared as often afterwards
+     */
+    private static final int EXP_HALVINGS = 9;
+
+    /**
+     * Relative size of the first term of a series that is not added anymore
+     */
+    private static final double EPSILON = 1e-33;
+
+    /**
+     * Arguments of the hyperbolic tangent above this value return one
+     */
+    private static final double TANH_SATURATION = 40;
+
+    /**
+     * The double-double zero
+     */
+    public static final DoubleDouble ZERO = new DoubleDouble(0, 0);
+
+    /**
+     * The double-double one
+     */
+    public static final DoubleDouble ONE = new DoubleDouble(1, 0);
+
+    /**
+     * The double-double that is not a number
+     */
+    public static final DoubleDouble NaN = new DoubleDouble(Double.NaN, Double.NaN);
+
+    /**
+     * The value of <i>PI</i>
+     */
+    public static final DoubleDouble PI = valueOf(new BigDecimal("3.14159265358979323846264338327950288419716939937510"));
+
+    /**
+     * The value of <i>e</i>
+     */
+    public static final DoubleDouble E = valueOf(new BigDecimal("2.71828182845904523536028747135266249775724709369995"));
+
+    /**
+     * Half of <i>PI</i>
+     */
+    private static final DoubleDouble HALF_PI = PI.multiply(0.5);
+
+    /**
+     * The natural logarithm of two
+     */
+    private static final DoubleDouble LN2 = valueOf(new BigDecimal("0.69314718055994530941723212145817656807550013436026"));
+
+    /**
+     * The natural logarithm of ten
+     */
+    private static final DoubleDouble LN10 = valueOf(new BigDecimal("2.30258509299404568401799145468436420760110148862877"));
+
+    /**
+     * The inverse factorials 1 / n! of the Taylor series
+     */
+    private static final DoubleDouble[] INVERSE_FACTORIALS = new DoubleDouble[32];
+
+    static {
+        BigDecimal factorial = BigDecimal.ONE;
+        MathContext precision = new MathContext(40);
+        for (int n = 0; n < INVERSE_FACTORIALS.length; n++) {
+            if (n > 0) {
+                factorial = factorial.multiply(BigDecimal.valueOf(n));
+            }
+            INVERSE_FACTORIALS[n] = valueOf(BigDecimal.ONE.divide(factorial, precision));
+        }
+    }
+
+    /**
+     * The leading part of the number
+     */
+    private final double hi;
+
+    /**
+     * The trailing part of the number
+     */
+    private final double lo;
+
+    /**
+     * Creates a {@link DoubleDouble} object from its normalized parts.
+     *
+     * @param hi the leading part
+     * @param lo the trailing part
+     */
+    private DoubleDouble(double hi, double lo) {
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    /**
+     * Converts a double to a double-double.
+     *
+     * @param value the double
+     * @return the double-double with the same value
+     */
+    public static DoubleDouble valueOf(double value) {
+        return new DoubleDouble(value, 0);
+    }
+
+    /**
+     * Converts a {@link BigDecimal} to the nearest double-double.
+     *
+     * @param value the {@link BigDecimal}
+     * @return the nearest double-double
+     */
+    public static DoubleDouble valueOf(BigDecimal value) {
+        double hi = value.doubleValue();
+        if (Double.isInfinite(hi)) {
+            return new DoubleDouble(hi, 0);
+        }
+        return normalize(hi, value.subtract(new BigDecimal(hi)).doubleValue());
+    }
+
+    /**
+     * Converts this number to a {@link BigDecimal}.
+     *
+     * @return the exact value of this number
+     * @throws NumberFormatException if this number is not finite
+     */
+    public BigDecimal toBigDecimal() {
+        return new BigDecimal(hi).add(new BigDecimal(lo));
+    }
+
+    /**
+     * Returns the nearest double of this number.
+     *
+     * @return the nearest double
+     */
+    public double doubleValue() {
+        return hi + lo;
+    }
+
+    /**
+     * Returns the sum of two doubles whose first one is larger in magnitude.
+     *
+     * @param a the larger double
+     * @param b the smaller double
+     * @return the exact sum
+     */
+    private static DoubleDouble normalize(double a, double b) {
+        double s = a + b;
+        if (Double.isInfinite(s)) {
+            return new DoubleDouble(s, 0);
+        }
+        return new DoubleDouble(s, b - (s - a));
+    }
+
+    /**
+     * Returns the exact sum of two doubles.
+     *
+     * @param a the first double
+     * @param b the second double
+     * @return the exact sum
+     */
+    private static DoubleDouble sum(double a, double b) {
+        double s = a + b;
+        if (Double.isInfinite(s)) {
+            return new DoubleDouble(s, 0);
+        }
+        double v = s - a;
+        return new DoubleDouble(s, (a - (s - v)) + (b - v));
+    }
+
+    /**
+     * Returns the exact product of two doubles.
+     *
+     * @param a the first double
+     * @param b the second double
+     * @return the exact product
+     */
+    private static DoubleDouble product(double a, double b) {
+        double p = a * b;
+        if (!Double.isFinite(p)) {
+            return new DoubleDouble(p, 0);
+        }
+        double aHi = highHalf(a);
+        double aLo = a - aHi;
+        double bHi = highHalf(b);
+        double bLo = b - bHi;
+        return new DoubleDouble(p, ((aHi * bHi - p) + aHi * bLo + aLo * bHi) + aLo * bLo);
+    }
+
+    /**
+     * Returns the leading 26 bits of a double.
+     *
+     * @param a the double
+     * @return the leading half
+     */
+    private static double highHalf(double a) {
+        if (Math.abs(a) > SPLIT_THRESHOLD) {
+            double scaled = a / SPLIT_SCALE;
+            double t = SPLITTER * scaled;
+            return (t - (t - scaled)) * SPLIT_SCALE;
+        }
+        double t = SPLITTER * a;
+        return t - (t - a);
+    }
+
+    /**
+     * Returns {@code this + augend}.
+     *
+     * @param augend the value to add
+     * @return the sum
+     */
+    public DoubleDouble add(DoubleDouble augend) {
+        DoubleDouble s = sum(hi, augend.hi);
+        DoubleDouble t = sum(lo, augend.lo);
+        DoubleDouble u = normalize(s.hi, s.lo + t.hi);
+        return normalize(u.hi, u.lo + t.lo);
+    }
+
+    /**
+     * Returns {@code this - subtrahend}.
+     *
+     * @param subtrahend the value to subtract
+     * @return the difference
+     */
+    public DoubleDouble subtract(DoubleDouble subtrahend) {
+        return add(subtrahend.negate());
+    }
+
+    /**
+     * Returns {@code this * multiplicand}.
+     *
+     * @param multiplicand the value to multiply with
+     * @return the product
+     */
+    public DoubleDouble multiply(DoubleDouble multiplicand) {
+        DoubleDouble p = product(hi, multiplicand.hi);
+        return normalize(p.hi, p.lo + (hi * multiplicand.lo + lo * multiplicand.hi));
+    }
+
+    /**
+     * Returns {@code this * multiplicand}.
+     *
+     * @param multiplicand the value to multiply with
+     * @return the product
+     */
+    public DoubleDouble multiply(double multiplicand) {
+        DoubleDouble p = product(hi, multiplicand);
+        return normalize(p.hi, p.lo + lo * multiplicand);
+    }
+
+    /**
+     * Returns {@code this / divisor}.
+     *
+     * @param divisor the value to divide by
+     * @return the quotient
+     * @throws ArithmeticException if the divisor is zero
+     */
+    public DoubleDouble divide(DoubleDouble divisor) {
+        if (divisor.hi == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        double q1 = hi / divisor.hi;
+        if (!isFinite() || !divisor.isFinite() || Double.isInfinite(q1)) {
+            return valueOf(q1);
+        }
+        DoubleDouble r = subtract(divisor.multiply(q1));
+        double q2 = r.hi / divisor.hi;
+        r = r.subtract(divisor.multiply(q2));
+        double q3 = r.hi / divisor.hi;
+        return normalize(q1, q2).add(valueOf(q3));
+    }
+
+    /**
+     * Returns {@code this / divisor}.
+     *
+     * @param divisor the value to divide by
+     * @return the quotient
+     * @throws ArithmeticException if the divisor is zero
+     */
+    public DoubleDouble divide(double divisor) {
+        return divide(valueOf(divisor));
+    }
+
+    /**
+     * Returns {@code -this}.
+     *
+     * @return the negated number
+     */
+    public DoubleDouble negate() {
+        // 0.0 - lo keeps a zero trailing part positive, so |-1| equals 1
+        return new DoubleDouble(-hi, 0.0 - lo);
+    }
+
+    /**
+     * Returns the absolute value of this number.
+     *
+     * @return the absolute value
+     */
+    public DoubleDouble abs() {
+        return hi < 0 ? negate() : this;
+    }
+
+    /**
+     * Returns the sign of this number.
+     *
+     * @return -1, 0 or 1 as this number is negative, zero or positive
+     */
+    public int signum() {
+        return (int) Math.signum(hi);
+    }
+
+    /**
+     * Checks if this number is finite.
+     *
+     * @return true if this number is neither infinite nor not a number
+     */
+    public boolean isFinite() {
+        return !Double.isNaN(hi) && !Double.isInfinite(hi);
+    }
+
+    /**
+     * Checks if this number is an integer.
+     *
+     * @return true if this number is an integer
+     */
+    private boolean isInteger() {
+        return hi == Math.floor(hi) && lo == Math.floor(lo);
+    }
+
+    /**
+     * Returns the square root of this number.
+     *
+     * @return the square root
+     * @throws ArithmeticException if this number is negative
+     */
+    public DoubleDouble sqrt() {
+        if (hi == 0) {
+            return ZERO;
+        }
+        if (hi < 0) {
+            throw new ArithmeticException("Square root of a negative number");
+        }
+        if (!isFinite()) {
+            return valueOf(Math.sqrt(hi));
+        }
+        double x = Math.sqrt(hi);
+        return normalize(x, subtract(product(x, x)).hi / (2 * x));
+    }
+
+    /**
+     * Returns this number raised to the power of an exponent. Integer
+     * exponents are computed exactly by repeated squaring, other exponents
+     * require a non-negative base.
+     *
+     * @param exponent the exponent
+     * @return the power
+     * @throws ArithmeticException if a negative power of zero is computed or
+     *                             an integer exponent exceeds the range of an int
+     */
+    public DoubleDouble pow(DoubleDouble exponent) {
+        if (!exponent.isInteger()) {
+            if (hi < 0) {
+                return NaN;
+            }
+            return hi == 0 ? ZERO : exponent.multiply(log()).exp();
+        }
+        if (Math.abs(exponent.hi) > Integer.MAX_VALUE) {
+            throw new ArithmeticException("Exponent out of range");
+        }
+        int n = (int) exponent.hi + (int) exponent.lo;
+        DoubleDouble result = ONE;
+        DoubleDouble base = this;
+        for (int i = Math.abs(n); i > 0; i >>>= 1) {
+            if ((i & 1) != 0) {
+                result = result.multiply(base);
+            }
+            base = base.multiply(base);
+        }
+        return n < 0 ? ONE.divide(result) : result;
+    }
+
+    /**
+     * Returns <i>e</i> raised to the power of this number. The argument is
+     * reduced by multiples of ln(2) and by halving, the Taylor series of the
+     * reduced argument is squared back afterwards.
+     *
+     * @return the exponential of this number
+     */
+    public DoubleDouble exp() {
+        if (hi > EXP_MAX) {
+            return valueOf(Double.POSITIVE_INFINITY);
+        }
+        if (hi < EXP_MIN) {
+            return ZERO;
+        }
+        if (Double.isNaN(hi)) {
+            return NaN;
+        }
+        double m = Math.floor(hi / LN2.hi + 0.5);
+        DoubleDouble r = subtract(LN2.multiply(m)).multiply(Math.scalb(1.0, -EXP_HALVINGS));
+
+        // exp(r) - 1, squared as (1 + s)^2 - 1 = s * (2 + s)
+        DoubleDouble s = r;
+        DoubleDouble power = r;
+        for (int i = 2; i < INVERSE_FACTORIALS.length; i++) {
+            power = power.multiply(r);
+            DoubleDouble term = power.multiply(INVERSE_FACTORIALS[i]);
+            s = s.add(term);
+            if (Math.abs(term.hi) <= EPSILON * Math.abs(s.hi)) {
+                break;
+            }
+        }
+        for (int i = 0; i < EXP_HALVINGS; i++) {
+            s = s.multiply(s.add(valueOf(2)));
+        }
+        s = s.add(ONE);
+        return new DoubleDouble(Math.scalb(s.hi, (int) m), Math.scalb(s.lo, (int) m));
+    }
+
+    /**
+     * Returns the natural logarithm of this number. The double logarithm is
+     * improved by one Newton step.
+     *
+     * @return the natural logarithm, not a finite number if this number is
+     * not positive
+     */
+    public DoubleDouble log() {
+        if (!(hi > 0) || Double.isInfinite(hi)) {
+            return valueOf(Math.log(hi));
+        }
+        DoubleDouble y = valueOf(Math.log(hi));
+        return y.add(multiply(y.negate().exp())).subtract(ONE);
+    }
+
+    /**
+     * Returns the common logarithm of this number.
+     *
+     * @return the common logarithm, not a finite number if this number is
+     * not positive
+     */
+    public DoubleDouble log10() {
+        DoubleDouble log = log();
+        return log.isFinite() ? log.divide(LN10) : log;
+    }
+
+    /**
+     * Returns the trigonometric sine of this angle.
+     *
+     * @return the sine
+     */
+    public DoubleDouble sin() {
+        double n = Math.rint(hi / HALF_PI.hi);
+        DoubleDouble r = subtract(HALF_PI.multiply(n));
+        switch ((int) (((long) n % 4 + 4) % 4)) {
+            case 0:
+                return sinTaylor(r);
+            case 1:
+                return cosTaylor(r);
+            case 2:
+                return sinTaylor(r).negate();
+            default:
+                return cosTaylor(r).negate();
+        }
+    }
+
+    /**
+     * Returns the trigonometric cosine of this angle.
+     *
+     * @return the cosine
+     */
+    public DoubleDouble cos() {
+        double n = Math.rint(hi / HALF_PI.hi);
+        DoubleDouble r = subtract(HALF_PI.multiply(n));
+        switch ((int) (((long) n % 4 + 4) % 4)) {
+            case 0:
+                return cosTaylor(r);
+            case 1:
+                return sinTaylor(r).negate();
+            case 2:
+                return cosTaylor(r).negate();
+            default:
+                return sinTaylor(r);
+        }
+    }
+
+    /**
+     * Returns the trigonometric tangent of this angle.
+     *
+     * @return the tangent
+     */
+    public DoubleDouble tan() {
+        return sin().divide(cos());
+    }
+
+    /**
+     * Computes the sine with its Taylor series.
+     *
+     * @param x the angle, at most PI / 4 in magnitude
+     * @return the sine
+     */
+    private static DoubleDouble sinTaylor(DoubleDouble x) {
+        return series(x, x.multiply(x).negate(), 1);
+    }
+
+    /**
+     * Computes the cosine with its Taylor series.
+     *
+     * @param x the angle, at most PI / 4 in magnitude
+     * @return the cosine
+     */
+    private static DoubleDouble cosTaylor(DoubleDouble x) {
+        return series(ONE, x.multiply(x).negate(), 0);
+    }
+
+    /**
+     * Sums the Taylor series {@code first * (1 / n! + factor / (n + 2)! +
+     * factor^2 / (n + 4)! + ...)} of the sine, the cosine and their
+     * hyperbolic counterparts.
+     *
+     * @param first  the power of the argument in the first term
+     * @param factor the factor between the powers of two terms
+     * @param n      the exponent of the first term
+     * @return the sum of the series
+     */
+    private static DoubleDouble series(DoubleDouble first, DoubleDouble factor, int n) {
+        DoubleDouble power = first;
+        DoubleDouble s = first.multiply(INVERSE_FACTORIALS[n]);
+        for (int i = n + 2; i < INVERSE_FACTORIALS.length; i += 2) {
+            power = power.multiply(factor);
+            DoubleDouble term = power.multiply(INVERSE_FACTORIALS[i]);
+            s = s.add(term);
+            if (Math.abs(term.hi) <= EPSILON * Math.abs(s.hi)) {
+                break;
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Returns the angle whose tangent is this number. The double arc tangent
+     * is improved by one Newton step.
+     *
+     * @return the arc tangent in the range -PI / 2 to PI / 2
+     */
+    public DoubleDouble atan() {
+        if (!isFinite()) {
+            return valueOf(Math.atan(hi));
+        }
+        DoubleDouble y = valueOf(Math.atan(hi));
+        DoubleDouble sin = y.sin();
+        DoubleDouble cos = y.cos();
+        return y.subtract(sin.multiply(cos).subtract(multiply(cos).multiply(cos)));
+    }
+
+    /**
+     * Returns the angle whose sine is this number.
+     *
+     * @return the arc sine in the range -PI / 2 to PI / 2, not a finite
+     * number if the magnitude of this number is larger than one
+     */
+    public DoubleDouble asin() {
+        int comparison = abs().compareTo(ONE);
+        if (comparison > 0 || Double.isNaN(hi)) {
+            return NaN;
+        }
+        if (comparison == 0) {
+            return hi > 0 ? HALF_PI : HALF_PI.negate();
+        }
+        return divide(ONE.subtract(multiply(this)).sqrt()).atan();
+    }
+
+    /**
+     * Returns the angle whose cosine is this number.
+     *
+     * @return the arc cosine in the range 0 to PI, not a finite number if
+     * the magnitude of this number is larger than one
+     */
+    public DoubleDouble acos() {
+        return HALF_PI.subtract(asin());
+    }
+
+    /**
+     * Returns the hyperbolic sine of this number.
+     *
+     * @return the hyperbolic sine
+     */
+    public DoubleDouble sinh() {
+        if (Math.abs(hi) < 0.5) {
+            // the Taylor series avoids the cancellation of the exponentials
+            return series(this, multiply(this), 1);
+        }
+        if (Math.abs(hi) > EXP_MAX) {
+            return valueOf(Math.sinh(hi));
+        }
+        DoubleDouble exp = exp();
+        return exp.subtract(ONE.divide(exp)).multiply(0.5);
+    }
+
+    /**
+     * Returns the hyperbolic cosine of this number.
+     *
+     * @return the hyperbolic cosine
+     */
+    public DoubleDouble cosh() {
+        if (Math.abs(hi) > EXP_MAX) {
+            return valueOf(Math.cosh(hi));
+        }
+        DoubleDouble exp = exp();
+        return exp.add(ONE.divide(exp)).multiply(0.5);
+    }
+
+    /**
+     * Returns the hyperbolic tangent of this number.
+     *
+     * @return the hyperbolic tangent
+     */
+    public DoubleDouble tanh() {
+        if (Math.abs(hi) > TANH_SATURATION) {
+            return hi > 0 ? ONE : ONE.negate();
+        }
+        return sinh().divide(cosh());
+    }
+
+    @Override
+    public int compareTo(DoubleDouble o) {
+        int comparison = Double.compare(hi, o.hi);
+        if (comparison != 0) {
+            return comparison;
+        }
+        // the trailing parts are compared by value, -0.0 equals 0.0
+        return lo < o.lo ? -1 : lo > o.lo ? 1 : 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DoubleDouble)) return false;
+        DoubleDouble that = (DoubleDouble) o;
+        return Double.compare(hi, that.hi) == 0 && Double.compare(lo, that.lo) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(hi) + Double.hashCode(lo);
+    }
+
+    @Override
+    public String toString() {
+        if (!isFinite()) {
+            return Double.toString(hi);
+        }
+        return toBigDecimal().round(new MathContext(32)).stripTrailingZeros().toString();
+    }
+
+}
@@ -12,20 +12,6 @@ public class MathUtil {
      */
     public static final int FLOATING_POINT_PRECISION = 30;
 
-    /**
-     * Checks if the {@code bigDecimal} exceeds the limits of an {@link Integer}.
-     *
-     * @param bigDecimal the {@link BigDecimal} to check
-     * @return null if the {@code bigDecimal} exceeds the limits of an {@link Integer}
-     */
-    public static BigDecimal checkIntOverflow(BigDecimal bigDecimal) {
-        if (bigDecimal.compareTo(BigDecimal.valueOf(Integer.MAX_VALUE)) == 1
-                || bigDecimal.compareTo(BigDecimal.valueOf(Integer.MIN_VALUE)) == -1) {
-            return null;
-        }
-        return bigDecimal;
-    }
-
     /**
      * Checks if a line between two points is rising.
      *
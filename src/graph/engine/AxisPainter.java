@@ -0,0 +1,115 @@
+package graph.engine;
+
+import graph.render.axis.Stripe;
+import graph.render.axis.XAxis;
+import graph.render.axis.YAxis;
+
+import java.awt.*;
+
+/**
+ * This class draws the x-axis, the y-axis and their labels. The formatted
+ * labels are cached, so an instance must not be shared between threads.
+ */
+public final class AxisPainter {
+
+    /**
+     * The color of the x-axis and the y-axis
+     */
+    private static final Color AXIS_COLOR = new Color(0x1b1c1d);
+
+    /**
+     * The cached labels of the x-axis
+     */
+    private final TickLabels xLabels = new TickLabels(XAxis.X_AXIS_DISTRIBUTION);
+
+    /**
+     * The cached labels of the y-axis
+     */
+    private final TickLabels yLabels = new TickLabels(YAxis.Y_AXIS_DISTRIBUTION);
+
+    /**
+     * Draws the x-axis, the y-axis and the origin.
+     *
+     * @param g     graphics
+     * @param xAxis the x-axis
+     * @param yAxis the y-axis
+     * @param size  the size of the drawn area
+     */
+    public void paint(Graphics2D g, XAxis xAxis, YAxis yAxis, Dimension size) {
+        g.setColor(AXIS_COLOR);
+
+        if (yAxis.xAxisIsVisible()) {
+            paintXAxis(g, xAxis, yAxis.getXAxisPosition(), size);
+        }
+
+        if (xAxis.yAxisIsVisible()) {
+            paintYAxis(g, yAxis, xAxis.getYAxisPosition(), size);
+        }
+
+        // draws the indicator for the origin
+        if (xAxis.yAxisIsVisible() && yAxis.xAxisIsVisible()) {
+            g.drawString("o", xAxis.getYAxisPosition() - 9, yAxis.getXAxisPosition() + 11);
+        }
+    }
+
+    /**
+     * Draws the x-axis
+     *
+     * @param g              graphics
+     * @param xAxis          the x-axis
+     * @param xAxisYPosition the pixel row of the x-axis
+     * @param size           the size of the drawn area
+     */
+    private void paintXAxis(Graphics2D g, XAxis xAxis, int xAxisYPosition, Dimension size) {
+        // the axis
+        g.drawLine(0, xAxisYPosition, size.width, xAxisYPosition);
+        FontMetrics metrics = g.getFontMetrics();
+
+        // distribution on x-axis
+        for (Stripe horizontalStripe : xAxis.getStripes()) {
+            // draws the numbers
+            if (horizontalStripe.isOrigin()) {
+                continue; // skip the origin
+            }
+            TickLabels.Label label = xLabels.get(metrics, horizontalStripe.getValue());
+            g.drawString(label.getText(), horizontalStripe.getPosition() - (label.getWidth() / 2), xAxisYPosition + 15);
+
+            // draws the stripes
+            g.drawLine(horizontalStripe.getPosition(), xAxisYPosition + 3, horizontalStripe.getPosition(), xAxisYPosition - 3);
+        }
+
+        // draws the indicator for the x-axis
+        g.drawString("x", size.width - 15, xAxisYPosition + 23);
+    }
+
+    /**
+     * Draws the y-axis
+     *
+     * @param g              graphics
+     * @param yAxis          the y-axis
+     * @param yAxisXPosition the pixel column of the y-axis
+     * @param size           the size of the drawn area
+     */
+    private void paintYAxis(Graphics2D g, YAxis yAxis, int yAxisXPosition, Dimension size) {
+        // the axis
+        g.drawLine(yAxisXPosition, 0, yAxisXPosition, size.height);
+        FontMetrics metrics = g.getFontMetrics();
+
+        // distribution on y-axis
+        for (Stripe verticalStripe : yAxis.getStripes()) {
+            // draws the numbers
+            if (verticalStripe.isOrigin()) {
+                continue; // skip the origin
+            }
+            TickLabels.Label label = yLabels.get(metrics, verticalStripe.getValue());
+            g.drawString(label.getText(), yAxisXPosition - 6 - label.getWidth(), verticalStripe.getPosition() + 4);
+
+            // draws the stripes
+            g.drawLine(yAxisXPosition - 3, verticalStripe.getPosition(), yAxisXPosition + 3, verticalStripe.getPosition());
+        }
+
+        // draws the indicator for the y-axis
+        g.drawString("y", yAxisXPosition - 25, 15);
+    }
+
+}
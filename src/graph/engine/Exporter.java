@@ -0,0 +1,22 @@
+package graph.engine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.IntConsumer;
+
+/**
+ * Writes the graphs of a viewport to a file format.
+ */
+public interface Exporter {
+
+    /**
+     * Writes the export.
+     *
+     * @param out      the output, not closed
+     * @param progress receives the completed percentage
+     * @throws IOException          if the output fails
+     * @throws InterruptedException if the thread is interrupted, e.g. the export is cancelled
+     */
+    void export(OutputStream out, IntConsumer progress) throws IOException, InterruptedException;
+
+}
@@ -0,0 +1,133 @@
+package graph.engine;
+
+import graph.Arithmetic;
+import graph.function.GraphFormula;
+import graph.function.ParametricEquation;
+import graph.render.Viewport;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class describes one plot of a batch: the graphs, the visible area
+ * and the size of the rendered raster. A definition is immutable.
+ */
+public final class PlotDefinition {
+
+    /**
+     * The name of the plot, used as the file name of the raster
+     */
+    private final String name;
+
+    /**
+     * The width in pixels
+     */
+    private final int width;
+
+    /**
+     * The height in pixels
+     */
+    private final int height;
+
+    /**
+     * The graph coordinates of the center
+     */
+    private final BigDecimal centerX, centerY;
+
+    /**
+     * Pixels per unit
+     */
+    private final BigDecimal stretchX, stretchY;
+
+    /**
+     * The number type the formulas are sampled with
+     */
+    private final Arithmetic arithmetic;
+
+    /**
+     * The formulas of the plot
+     */
+    private final List<GraphFormula> formulas;
+
+    /**
+     * The parametric equations of the plot
+     */
+    private final List<ParametricEquation> parametricEquations;
+
+    /**
+     * Creates a {@link PlotDefinition} object.
+     *
+     * @param name                the name of the plot
+     * @param width               the width in pixels
+     * @param height              the height in pixels
+     * @param centerX             the graph x-coordinate of the center
+     * @param centerY             the graph y-coordinate of the center
+     * @param stretchX            pixels per unit in the horizontal direction
+     * @param stretchY            pixels per unit in the vertical direction
+     * @param arithmetic          the number type the formulas are sampled with
+     * @param formulas            the formulas of the plot
+     * @param parametricEquations the parametric equations of the plot
+     */
+    public PlotDefinition(String name, int width, int height, BigDecimal centerX, BigDecimal centerY,
+                          BigDecimal stretchX, BigDecimal stretchY, Arithmetic arithmetic,
+                          List<GraphFormula> formulas, List<ParametricEquation> parametricEquations) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("The name of the plot cannot be empty");
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("The size of the plot must be positive");
+        }
+        if (stretchX.signum() <= 0 || stretchY.signum() <= 0) {
+            throw new IllegalArgumentException("The stretch of the plot must be positive");
+        }
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.stretchX = stretchX;
+        this.stretchY = stretchY;
+        this.arithmetic = arithmetic;
+        this.formulas = Collections.unmodifiableList(new ArrayList<>(formulas));
+        this.parametricEquations = Collections.unmodifiableList(new ArrayList<>(parametricEquations));
+    }
+
+    /**
+     * Creates the viewport of the plot.
+     *
+     * @return the viewport
+     */
+    public Viewport createViewport() {
+        return PlotEngine.createViewport(width, height, centerX, centerY, stretchX, stretchY, arithmetic);
+    }
+
+    /**
+     * Returns the name of the plot.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the formulas of the plot.
+     *
+     * @return the formulas
+     */
+    public List<GraphFormula> getFormulas() {
+        return formulas;
+    }
+
+    /**
+     * Returns the parametric equations of the plot.
+     *
+     * @return the parametric equations
+     */
+    public List<ParametricEquation> getParametricEquations() {
+        return parametricEquations;
+    }
+
+}
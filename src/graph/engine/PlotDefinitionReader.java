@@ -0,0 +1,241 @@
+package graph.engine;
+
+import graph.Arithmetic;
+import graph.function.Formula;
+import graph.function.GraphFormula;
+import graph.function.ParametricEquation;
+import graph.parser.ExpressionParser;
+
+import java.awt.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class reads the plots of a batch from a text file. Every line holds
+ * one keyword and its values, empty lines and lines that start with
+ * {@code #} are ignored. A {@code plot} line starts a new plot, the
+ * following lines describe it:
+ * <pre>
+ * plot sine.png 320 200
+ * center 0 0
+ * stretch 20 10
+ * arithmetic double_double
+ * formula #c0392b sin(x)
+ * parametric #2980b9 3*cos(t); 2*sin(t)
+ * </pre>
+ * {@code center}, {@code stretch} and {@code arithmetic} are optional, the
+ * defaults are the origin, 10 pixels per unit and {@link Arithmetic#BIG_DECIMAL}.
+ * The stretch of the y-axis defaults to the stretch of the x-axis.
+ */
+public final class PlotDefinitionReader {
+
+    /**
+     * The default amount of pixels per unit, the initial zoom of the window
+     */
+    private static final BigDecimal DEFAULT_STRETCH = BigDecimal.TEN;
+
+    /**
+     * The name of the current plot, null before the first plot line
+     */
+    private String name;
+
+    /**
+     * The size of the current plot
+     */
+    private int width, height;
+
+    /**
+     * The center of the current plot
+     */
+    private BigDecimal centerX, centerY;
+
+    /**
+     * The stretch of the current plot
+     */
+    private BigDecimal stretchX, stretchY;
+
+    /**
+     * The arithmetic of the current plot
+     */
+    private Arithmetic arithmetic;
+
+    /**
+     * The formulas of the current plot
+     */
+    private final List<GraphFormula> formulas = new ArrayList<>();
+
+    /**
+     * The parametric equations of the current plot
+     */
+    private final List<ParametricEquation> parametricEquations = new ArrayList<>();
+
+    /**
+     * The completed plots
+     */
+    private final List<PlotDefinition> definitions = new ArrayList<>();
+
+    /**
+     * Creates a reader, use {@link #read(Path)}.
+     */
+    private PlotDefinitionReader() {
+    }
+
+    /**
+     * Reads the plots of a file.
+     *
+     * @param file the file, encoded in UTF-8
+     * @return the plots in the order of the file
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if a line is invalid, the message contains the line number
+     */
+    public static List<PlotDefinition> read(Path file) throws IOException {
+        PlotDefinitionReader reader = new PlotDefinitionReader();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = in.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    reader.parse(line);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Line " + number + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        reader.complete();
+        return reader.definitions;
+    }
+
+    /**
+     * Parses a line that is neither empty nor a comment.
+     *
+     * @param line the trimmed line
+     */
+    private void parse(String line) {
+        String[] words = line.split("\\s+", 2);
+        String keyword = words[0].toLowerCase(Locale.ROOT);
+        String rest = words.length > 1 ? words[1] : "";
+        if (keyword.equals("plot")) {
+            complete();
+            String[] values = values(rest, 3);
+            name = values[0];
+            width = Integer.parseInt(values[1]);
+            height = Integer.parseInt(values[2]);
+            centerX = BigDecimal.ZERO;
+            centerY = BigDecimal.ZERO;
+            stretchX = DEFAULT_STRETCH;
+            stretchY = DEFAULT_STRETCH;
+            arithmetic = Arithmetic.BIG_DECIMAL;
+            return;
+        }
+        if (name == null) {
+            throw new IllegalArgumentException("Expected a plot line before " + keyword);
+        }
+        switch (keyword) {
+            case "center": {
+                String[] values = values(rest, 2);
+                centerX = new BigDecimal(values[0]);
+                centerY = new BigDecimal(values[1]);
+                break;
+            }
+            case "stretch": {
+                String[] values = rest.split("\\s+");
+                stretchX = new BigDecimal(values[0]);
+                stretchY = values.length > 1 ? new BigDecimal(values[1]) : stretchX;
+                break;
+            }
+            case "arithmetic":
+                arithmetic = Arithmetic.valueOf(rest.toUpperCase(Locale.ROOT));
+                break;
+            case "formula": {
+                String[] values = rest.split("\\s+", 2);
+                Color color = color(values[0]);
+                Formula f = formula(values.length > 1 ? values[1] : "", "x");
+                formulas.add(new GraphFormula("f" + (formulas.size() + 1), f, color));
+                break;
+            }
+            case "parametric": {
+                String[] values = rest.split("\\s+", 2);
+                Color color = color(values[0]);
+                String[] coordinates = (values.length > 1 ? values[1] : "").split(";");
+                if (coordinates.length != 2) {
+                    throw new IllegalArgumentException("Expected two formulas separated by ;");
+                }
+                Formula x = formula(coordinates[0], "t");
+                Formula y = formula(coordinates[1], "t");
+                parametricEquations.add(new ParametricEquation(x, y, color, "p" + (parametricEquations.size() + 1)));
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown keyword: " + keyword);
+        }
+    }
+
+    /**
+     * Adds the current plot to the completed plots.
+     */
+    private void complete() {
+        if (name != null) {
+            definitions.add(new PlotDefinition(name, width, height, centerX, centerY, stretchX, stretchY,
+                    arithmetic, formulas, parametricEquations));
+            formulas.clear();
+            parametricEquations.clear();
+        }
+    }
+
+    /**
+     * Splits the values of a line.
+     *
+     * @param rest   the values
+     * @param amount the expected amount of values
+     * @return the values
+     */
+    private static String[] values(String rest, int amount) {
+        String[] values = rest.split("\\s+");
+        if (values.length != amount) {
+            throw new IllegalArgumentException("Expected " + amount + " values");
+        }
+        return values;
+    }
+
+    /**
+     * Decodes a color, e.g. {@code #ff8800}.
+     *
+     * @param value the color
+     * @return the decoded color
+     */
+    private static Color color(String value) {
+        try {
+            return Color.decode(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid color: " + value);
+        }
+    }
+
+    /**
+     * Parses a formula.
+     *
+     * @param expression   the expression
+     * @param variableName the name of the variable
+     * @return the formula
+     */
+    private static Formula formula(String expression, String variableName) {
+        Formula f = ExpressionParser.createFormula(expression.trim(), variableName);
+        if (f == null) {
+            throw new IllegalArgumentException("Invalid formula: " + expression.trim());
+        }
+        return f;
+    }
+
+}
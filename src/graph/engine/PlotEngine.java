@@ -0,0 +1,491 @@
+package graph.engine;
+
+import graph.Arithmetic;
+import graph.MathUtil;
+import graph.function.DataSeries;
+import graph.function.FiniteDomain;
+import graph.function.GraphFormula;
+import graph.function.ParametricEquation;
+import graph.function.StreamingSeries;
+import graph.function.concurrent.Cancellation;
+import graph.function.concurrent.ConcurrentCalculation;
+import graph.function.concurrent.CoordinateSet;
+import graph.function.concurrent.SampleCache;
+import graph.function.concurrent.Segment;
+import graph.render.PolylineRenderer;
+import graph.render.Viewport;
+import graph.render.axis.XAxis;
+import graph.render.axis.YAxis;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Collection;
+
+/**
+ * This class samples and renders graphs without a display. It takes the
+ * graph definitions and a {@link Viewport} and returns the sampled segments
+ * or a rendered raster, so it works under {@code java.awt.headless=true}.
+ * An engine only holds immutable settings and the samples are computed by
+ * the shared pool of {@link ConcurrentCalculation}, so one engine can be
+ * used by many threads at once. The graph definitions must not be changed
+ * while they are sampled. An engine with a {@link SampleCache} reuses the
+ * samples of formulas that any process sampled before.
+ */
+public final class PlotEngine {
+
+    /**
+     * The step size used for parametric equations
+     */
+    public static final BigDecimal PARAMETRIC_EQUATION_STEP_SIZE = new BigDecimal("0.05");
+
+    /**
+     * The default background, the background of a Swing panel
+     */
+    public static final Color DEFAULT_BACKGROUND = new Color(0xeeeeee);
+
+    /**
+     * Amount of formula samples across the width of the viewport
+     */
+    private static final int SAMPLES_PER_WIDTH = 4000;
+
+    /**
+     * Distance in pixels that the domain of a formula reaches beyond the
+     * viewport, so the lines that cross the border are drawn
+     */
+    private static final int DOMAIN_MARGIN = 4;
+
+    /**
+     * Precision of the step size
+     */
+    private static final MathContext PRECISION = new MathContext(MathUtil.FLOATING_POINT_PRECISION);
+
+    /**
+     * The background of rendered rasters
+     */
+    private final Color background;
+
+    /**
+     * Whether the axes are drawn
+     */
+    private final boolean axes;
+
+    /**
+     * Whether the graphs are anti-aliased
+     */
+    private final boolean antialiasing;
+
+    /**
+     * The cache of samples, may be null
+     */
+    private final SampleCache sampleCache;
+
+    /**
+     * Creates a {@link PlotEngine} that draws the axes on the default background.
+     */
+    public PlotEngine() {
+        this(DEFAULT_BACKGROUND, true, false);
+    }
+
+    /**
+     * Creates a {@link PlotEngine} object.
+     *
+     * @param background   the background of rendered rasters
+     * @param axes         whether the axes are drawn
+     * @param antialiasing whether the graphs are anti-aliased
+     */
+    public PlotEngine(Color background, boolean axes, boolean antialiasing) {
+        this(background, axes, antialiasing, null);
+    }
+
+    /**
+     * Creates a {@link PlotEngine} object that looks the samples of
+     * formulas up in a cache.
+     *
+     * @param background   the background of rendered rasters
+     * @param axes         whether the axes are drawn
+     * @param antialiasing whether the graphs are anti-aliased
+     * @param sampleCache  the cache of samples, may be null
+     */
+    public PlotEngine(Color background, boolean axes, boolean antialiasing, SampleCache sampleCache) {
+        if (background == null) {
+            throw new IllegalArgumentException("The background cannot be null");
+        }
+        this.background = background;
+        this.axes = axes;
+        this.antialiasing = antialiasing;
+        this.sampleCache = sampleCache;
+    }
+
+    /**
+     * Creates a viewport whose center shows the given graph coordinates.
+     *
+     * @param width      the width in pixels
+     * @param height     the height in pixels
+     * @param centerX    the graph x-coordinate of the center
+     * @param centerY    the graph y-coordinate of the center
+     * @param stretchX   pixels per unit in the horizontal direction
+     * @param stretchY   pixels per unit in the vertical direction
+     * @param arithmetic the number type the formulas are sampled with
+     * @return the viewport
+     */
+    public static Viewport createViewport(int width, int height, BigDecimal centerX, BigDecimal centerY,
+                                          BigDecimal stretchX, BigDecimal stretchY, Arithmetic arithmetic) {
+        return new Viewport(width, height, centerX, centerY, width / 2, height / 2,
+                stretchX.doubleValue(), stretchY.doubleValue(), arithmetic);
+    }
+
+    /**
+     * Returns the step size of formulas in a viewport. The smaller the
+     * visible width, the smaller the step size, so the graphs are never jagged.
+     *
+     * @param viewport the viewport
+     * @return the step size
+     */
+    public static BigDecimal formulaStepSize(Viewport viewport) {
+        return BigDecimal.valueOf(viewport.getWidth()).divide(
+                BigDecimal.valueOf(viewport.getTransform().getScaleX()).multiply(BigDecimal.valueOf(SAMPLES_PER_WIDTH)), PRECISION
+        );
+    }
+
+    /**
+     * Returns the domain of formulas in the local coordinates of a viewport.
+     * The domain is slightly larger than the visible area.
+     *
+     * @param viewport the viewport
+     * @return the domain of formulas
+     */
+    public static FiniteDomain formulaDomain(Viewport viewport) {
+        return new FiniteDomain(
+                BigDecimal.valueOf(viewport.toGraphX(-DOMAIN_MARGIN)), BigDecimal.valueOf(viewport.toGraphX(viewport.getWidth() + DOMAIN_MARGIN))
+        );
+    }
+
+    /**
+     * Returns the domain of the parameter of parametric equations.
+     *
+     * @param viewport the viewport
+     * @return the domain of the parameter
+     */
+    public static FiniteDomain parametricDomain(Viewport viewport) {
+        BigDecimal end = BigDecimal.valueOf(viewport.getWidth() / 3);
+        return new FiniteDomain(end.negate(), end);
+    }
+
+    /**
+     * Samples a formula at the default step size of the viewport.
+     *
+     * @param f        the formula
+     * @param viewport the viewport
+     * @return the computed coordinates, local to the anchor of the viewport
+     */
+    public CoordinateSet sample(GraphFormula f, Viewport viewport) {
+        return sample(f, viewport, formulaStepSize(viewport), null);
+    }
+
+    /**
+     * Samples a formula and reuses the samples of a previous call, e.g. after
+     * the viewport was moved.
+     *
+     * @param f        the formula
+     * @param viewport the viewport
+     * @param stepSize the step size
+     * @param previous the previous coordinates of the formula, may be null
+     * @return the computed coordinates, local to the anchor of the viewport
+     */
+    public CoordinateSet sample(GraphFormula f, Viewport viewport, BigDecimal stepSize, CoordinateSet previous) {
+        return sample(f, viewport, stepSize, previous, null);
+    }
+
+    /**
+     * Samples a formula like {@link #sample(GraphFormula, Viewport, BigDecimal, CoordinateSet)}
+     * until the sampling is cancelled.
+     *
+     * @param f            the formula
+     * @param viewport     the viewport
+     * @param stepSize     the step size
+     * @param previous     the previous coordinates of the formula, may be null
+     * @param cancellation stops the sampling, may be null
+     * @return the computed coordinates, local to the anchor of the viewport
+     * @throws java.util.concurrent.CancellationException if the sampling was cancelled
+     */
+    public CoordinateSet sample(GraphFormula f, Viewport viewport, BigDecimal stepSize, CoordinateSet previous, Cancellation cancellation) {
+        return ConcurrentCalculation.calculate(
+                f.getFormula(), formulaDomain(viewport), viewport, stepSize, f.autoDeleteSingularities(), f.autoCorrectLimits(), previous, sampleCache,
+                cancellation
+        );
+    }
+
+    /**
+     * Samples a data series at the resolution of the viewport.
+     *
+     * @param s        the data series
+     * @param viewport the viewport
+     * @return the computed coordinates, local to the anchor of the viewport
+     */
+    public CoordinateSet sample(DataSeries s, Viewport viewport) {
+        return sample(s, viewport, null);
+    }
+
+    /**
+     * Samples a data series at the resolution of the viewport. If the viewport
+     * was only moved since {@code previous} was sampled, the columns of the
+     * old domain are kept.
+     *
+     * @param s        the data series
+     * @param viewport the viewport
+     * @param previous the samples at the same zoom or {@code null}
+     * @return the computed coordinates or {@code previous} if the domain did not move
+     */
+    public CoordinateSet sample(DataSeries s, Viewport viewport, CoordinateSet previous) {
+        return ConcurrentCalculation.calculate(s, viewport, previous);
+    }
+
+    /**
+     * Samples the points a streaming series holds at the moment of the call
+     * at the resolution of the viewport.
+     *
+     * @param s        the streaming series
+     * @param viewport the viewport
+     * @return the computed coordinates, local to the anchor of the viewport
+     */
+    public CoordinateSet sample(StreamingSeries s, Viewport viewport) {
+        return ConcurrentCalculation.calculate(s, viewport);
+    }
+
+    /**
+     * Samples a parametric equation at the default step size.
+     *
+     * @param p        the parametric equation
+     * @param viewport the viewport
+     * @return the computed coordinates, local to the anchor of the viewport
+     */
+    public CoordinateSet sample(ParametricEquation p, Viewport viewport) {
+        return sample(p, viewport, PARAMETRIC_EQUATION_STEP_SIZE);
+    }
+
+    /**
+     * Samples a parametric equation.
+     *
+     * @param p        the parametric equation
+     * @param viewport the viewport
+     * @param stepSize the step size of the parameter
+     * @return the computed coordinates, local to the anchor of the viewport
+     */
+    public CoordinateSet sample(ParametricEquation p, Viewport viewport, BigDecimal stepSize) {
+        return sample(p, viewport, parametricDomain(viewport), stepSize);
+    }
+
+    /**
+     * Samples a parametric equation over the given domain of the parameter,
+     * e.g. the domain of a smaller viewport that is exported at a higher density.
+     *
+     * @param p        the parametric equation
+     * @param viewport the viewport
+     * @param domain   the domain of the parameter
+     * @param stepSize the step size of the parameter
+     * @return the computed coordinates, local to the anchor of the viewport
+     */
+    public CoordinateSet sample(ParametricEquation p, Viewport viewport, FiniteDomain domain, BigDecimal stepSize) {
+        return sample(p, viewport, domain, stepSize, null);
+    }
+
+    /**
+     * Samples a parametric equation like {@link #sample(ParametricEquation, Viewport, FiniteDomain, BigDecimal)}
+     * until the sampling is cancelled.
+     *
+     * @param p            the parametric equation
+     * @param viewport     the viewport
+     * @param domain       the domain of the parameter
+     * @param stepSize     the step size of the parameter
+     * @param cancellation stops the sampling, may be null
+     * @return the computed coordinates, local to the anchor of the viewport
+     * @throws java.util.concurrent.CancellationException if the sampling was cancelled
+     */
+    public CoordinateSet sample(ParametricEquation p, Viewport viewport, FiniteDomain domain, BigDecimal stepSize, Cancellation cancellation) {
+        return ConcurrentCalculation.calculate(
+                p, domain, viewport, stepSize, p.autoDeleteSingularities(), p.autoCorrectLimits(), sampleCache, cancellation
+        );
+    }
+
+    /**
+     * Refines the coordinates of a formula to twice the sample density.
+     *
+     * @param f        the formula
+     * @param coarse   the computed coordinates of the formula
+     * @param viewport the viewport
+     * @return the refined coordinates
+     */
+    public CoordinateSet refine(GraphFormula f, CoordinateSet coarse, Viewport viewport) {
+        return refine(f, coarse, viewport, null);
+    }
+
+    /**
+     * Refines the coordinates of a formula to twice the sample density until
+     * the refinement is cancelled.
+     *
+     * @param f            the formula
+     * @param coarse       the computed coordinates of the formula
+     * @param viewport     the viewport
+     * @param cancellation stops the refinement, may be null
+     * @return the refined coordinates
+     * @throws java.util.concurrent.CancellationException if the refinement was cancelled
+     */
+    public CoordinateSet refine(GraphFormula f, CoordinateSet coarse, Viewport viewport, Cancellation cancellation) {
+        return ConcurrentCalculation.refine(
+                f.getFormula(), formulaDomain(viewport), coarse, viewport, f.autoDeleteSingularities(), f.autoCorrectLimits(), cancellation
+        );
+    }
+
+    /**
+     * Refines the coordinates of a parametric equation to twice the sample density.
+     *
+     * @param p        the parametric equation
+     * @param coarse   the computed coordinates of the parametric equation
+     * @param viewport the viewport
+     * @return the refined coordinates
+     */
+    public CoordinateSet refine(ParametricEquation p, CoordinateSet coarse, Viewport viewport) {
+        return refine(p, coarse, viewport, null);
+    }
+
+    /**
+     * Refines the coordinates of a parametric equation to twice the sample
+     * density until the refinement is cancelled.
+     *
+     * @param p            the parametric equation
+     * @param coarse       the computed coordinates of the parametric equation
+     * @param viewport     the viewport
+     * @param cancellation stops the refinement, may be null
+     * @return the refined coordinates
+     * @throws java.util.concurrent.CancellationException if the refinement was cancelled
+     */
+    public CoordinateSet refine(ParametricEquation p, CoordinateSet coarse, Viewport viewport, Cancellation cancellation) {
+        return ConcurrentCalculation.refine(
+                p, parametricDomain(viewport), coarse, viewport, p.autoDeleteSingularities(), p.autoCorrectLimits(), cancellation
+        );
+    }
+
+    /**
+     * Derives the coordinates of the derivative of a formula from its samples.
+     *
+     * @param derivative the derivative of the formula, see {@link GraphFormula#differentiate()}
+     * @param samples    the computed coordinates of the formula
+     * @param viewport   the viewport
+     * @return the computed coordinates of the derivative
+     */
+    public CoordinateSet differentiate(GraphFormula derivative, CoordinateSet samples, Viewport viewport) {
+        return ConcurrentCalculation.differentiate(
+                samples, derivative.getFormula(), viewport, derivative.autoDeleteSingularities(), derivative.autoCorrectLimits()
+        );
+    }
+
+    /**
+     * Derives the coordinates of the derivative of a parametric equation
+     * from its samples.
+     *
+     * @param derivative the derivative of the parametric equation, see {@link ParametricEquation#differentiate()}
+     * @param samples    the computed coordinates of the parametric equation
+     * @param viewport   the viewport
+     * @return the computed coordinates of the derivative
+     */
+    public CoordinateSet differentiateParametric(GraphFormula derivative, CoordinateSet samples, Viewport viewport) {
+        return ConcurrentCalculation.differentiateParametric(
+                samples, derivative.getFormula(), viewport, derivative.autoDeleteSingularities(), derivative.autoCorrectLimits()
+        );
+    }
+
+    /**
+     * Renders graphs into a new raster of the size of the viewport.
+     *
+     * @param viewport            the viewport
+     * @param formulas            the formulas to draw
+     * @param parametricEquations the parametric equations to draw
+     * @return the rendered raster
+     */
+    public BufferedImage render(Viewport viewport, Collection<GraphFormula> formulas, Collection<ParametricEquation> parametricEquations) {
+        BufferedImage image = new BufferedImage(viewport.getWidth(), viewport.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        draw(g, viewport, formulas, parametricEquations);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Draws the background, the axes and the graphs of a viewport. The
+     * formulas are drawn first, the derivatives of the graphs are drawn if
+     * the graphs ask for them.
+     *
+     * @param g                   graphics whose origin is the top left corner of the viewport
+     * @param viewport            the viewport
+     * @param formulas            the formulas to draw
+     * @param parametricEquations the parametric equations to draw
+     */
+    public void draw(Graphics2D g, Viewport viewport, Collection<GraphFormula> formulas, Collection<ParametricEquation> parametricEquations) {
+        drawBackground(g, viewport);
+        PolylineRenderer renderer = new PolylineRenderer();
+        for (GraphFormula f : formulas) {
+            CoordinateSet samples = sample(f, viewport);
+            drawGraph(g, renderer, viewport, f.getColor(), samples);
+            if (f.drawDerivative()) {
+                drawGraph(g, renderer, viewport, f.getColor(), differentiate(f.differentiate(), samples, viewport));
+            }
+        }
+        for (ParametricEquation p : parametricEquations) {
+            CoordinateSet samples = sample(p, viewport);
+            drawGraph(g, renderer, viewport, p.getColor(), samples);
+            if (p.drawDerivative()) {
+                drawGraph(g, renderer, viewport, p.getColor(), differentiateParametric(p.differentiate(), samples, viewport));
+            }
+        }
+    }
+
+    /**
+     * Draws the background and, if enabled, the axes of a viewport.
+     *
+     * @param g        graphics whose origin is the top left corner of the viewport
+     * @param viewport the viewport
+     */
+    public void drawBackground(Graphics2D g, Viewport viewport) {
+        Dimension size = new Dimension(viewport.getWidth(), viewport.getHeight());
+        g.setColor(background);
+        g.fillRect(0, 0, size.width, size.height);
+        if (axes) {
+            new AxisPainter().paint(g, new XAxis(viewport), new YAxis(viewport), size);
+        }
+    }
+
+    /**
+     * Draws coordinates that were sampled before, e.g. cached samples.
+     *
+     * @param g             graphics whose origin is the top left corner of the viewport
+     * @param viewport      the viewport
+     * @param color         the color of the graph
+     * @param coordinateSet the coordinates, sampled for the viewport
+     */
+    public void drawGraph(Graphics2D g, Viewport viewport, Color color, CoordinateSet coordinateSet) {
+        drawGraph(g, new PolylineRenderer(), viewport, color, coordinateSet);
+    }
+
+    /**
+     * Draws the segments of a coordinate set.
+     *
+     * @param g             graphics
+     * @param renderer      the renderer of this call
+     * @param viewport      the viewport
+     * @param color         the color of the graph
+     * @param coordinateSet the coordinate set
+     */
+    private void drawGraph(Graphics2D g, PolylineRenderer renderer, Viewport viewport, Color color, CoordinateSet coordinateSet) {
+        if (antialiasing) {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        }
+        g.setColor(color);
+        Rectangle bounds = new Rectangle(viewport.getWidth(), viewport.getHeight());
+        for (Segment segment : coordinateSet.getSegments()) {
+            renderer.draw(g, segment, viewport.transformFor(coordinateSet.getAnchorX(), coordinateSet.getAnchorY()), bounds);
+        }
+    }
+
+}
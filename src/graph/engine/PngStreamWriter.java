@@ -0,0 +1,233 @@
+package graph.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * This class encodes an RGB image as PNG one row at a time, so an image
+ * never has to be held in memory as a whole. Every row is filtered against
+ * the row above it, which compresses the flat background and the vertical
+ * lines of plots well, and the compressed data is written in chunks of
+ * bounded size. An instance must not be shared between threads. The writer
+ * has to be closed to release the native memory of the compressor, also
+ * when the image is not finished.
+ */
+public final class PngStreamWriter implements Closeable {
+
+    /**
+     * The signature of every PNG file
+     */
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+    /**
+     * The maximum size of an IDAT chunk
+     */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * The filter type that subtracts the row above
+     */
+    private static final byte FILTER_UP = 2;
+
+    /**
+     * The output
+     */
+    private final OutputStream out;
+
+    /**
+     * The width in pixels
+     */
+    private final int width;
+
+    /**
+     * The height in pixels
+     */
+    private final int height;
+
+    /**
+     * Compresses the filtered rows
+     */
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+    /**
+     * The checksum of the current chunk
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * The unfiltered bytes of the previous row
+     */
+    private byte[] previous;
+
+    /**
+     * The unfiltered bytes of the current row
+     */
+    private byte[] current;
+
+    /**
+     * The filter type followed by the filtered bytes of the current row
+     */
+    private final byte[] filtered;
+
+    /**
+     * The compressed data of the next IDAT chunk
+     */
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    /**
+     * The amount of bytes in {@link #chunk}
+     */
+    private int chunkLength;
+
+    /**
+     * The amount of written rows
+     */
+    private int rows;
+
+    /**
+     * Creates a {@link PngStreamWriter} and writes the header.
+     *
+     * @param out    the output, not closed by the writer
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @throws IOException if the output fails
+     */
+    public PngStreamWriter(OutputStream out, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0 || (long) width * 3 + 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid image size: " + width + "x" + height);
+        }
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        previous = new byte[width * 3];
+        current = new byte[width * 3];
+        filtered = new byte[width * 3 + 1];
+        filtered[0] = FILTER_UP;
+
+        try {
+            out.write(SIGNATURE);
+            byte[] header = new byte[13];
+            writeInt(header, 0, width);
+            writeInt(header, 4, height);
+            header[8] = 8; // bits per sample
+            header[9] = 2; // RGB
+            writeChunk("IHDR", header, header.length);
+        } catch (IOException e) {
+            deflater.end();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the next row.
+     *
+     * @param rgb    the pixels in the format of {@link java.awt.image.BufferedImage#TYPE_INT_RGB}
+     * @param offset the index of the first pixel of the row
+     * @throws IOException if the output fails
+     */
+    public void writeRow(int[] rgb, int offset) throws IOException {
+        if (rows == height) {
+            throw new IllegalStateException("All rows have been written");
+        }
+        for (int i = 0, j = 0; i < width; i++) {
+            int pixel = rgb[offset + i];
+            current[j++] = (byte) (pixel >> 16);
+            current[j++] = (byte) (pixel >> 8);
+            current[j++] = (byte) pixel;
+        }
+        for (int i = 0; i < current.length; i++) {
+            filtered[i + 1] = (byte) (current[i] - previous[i]);
+        }
+        byte[] swap = previous;
+        previous = current;
+        current = swap;
+        rows++;
+
+        deflater.setInput(filtered);
+        while (!deflater.needsInput()) {
+            deflate();
+        }
+    }
+
+    /**
+     * Writes the remaining compressed data and the end of the image.
+     *
+     * @throws IOException if the output fails
+     */
+    public void finish() throws IOException {
+        if (rows != height) {
+            throw new IllegalStateException(rows + " of " + height + " rows have been written");
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflate();
+        }
+        if (chunkLength > 0) {
+            writeChunk("IDAT", chunk, chunkLength);
+        }
+        writeChunk("IEND", chunk, 0);
+        out.flush();
+    }
+
+    /**
+     * Releases the compressor. The output is not closed.
+     */
+    @Override
+    public void close() {
+        deflater.end();
+    }
+
+    /**
+     * Compresses into the current chunk and writes the chunk when it is full.
+     *
+     * @throws IOException if the output fails
+     */
+    private void deflate() throws IOException {
+        chunkLength += deflater.deflate(chunk, chunkLength, CHUNK_SIZE - chunkLength);
+        if (chunkLength == CHUNK_SIZE) {
+            writeChunk("IDAT", chunk, chunkLength);
+            chunkLength = 0;
+        }
+    }
+
+    /**
+     * Writes a chunk with its length and checksum.
+     *
+     * @param type   the type of the chunk
+     * @param data   the data
+     * @param length the length of the data
+     * @throws IOException if the output fails
+     */
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] word = new byte[4];
+        writeInt(word, 0, length);
+        out.write(word);
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        crc.reset();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        writeInt(word, 0, (int) crc.getValue());
+        out.write(word);
+    }
+
+    /**
+     * Stores a big-endian integer.
+     *
+     * @param bytes  the target
+     * @param offset the index of the first byte
+     * @param value  the integer
+     */
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+}
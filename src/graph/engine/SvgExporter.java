@@ -0,0 +1,107 @@
+package graph.engine;
+
+import graph.function.GraphFormula;
+import graph.function.ParametricEquation;
+import graph.function.concurrent.CoordinateSet;
+import graph.function.concurrent.SampleCache;
+import graph.render.Viewport;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * This class exports a viewport as an SVG document for print. Every graph
+ * is sampled like on the screen and streamed to a {@link SvgWriter} as soon
+ * as it is sampled, so only the samples of one graph are in memory.
+ */
+public final class SvgExporter implements Exporter {
+
+    /**
+     * Samples the graphs
+     */
+    private final PlotEngine engine = new PlotEngine(PlotEngine.DEFAULT_BACKGROUND, true, false, SampleCache.getDefault());
+
+    /**
+     * The exported viewport
+     */
+    private final Viewport viewport;
+
+    /**
+     * The formulas
+     */
+    private final List<GraphFormula> formulas;
+
+    /**
+     * The parametric equations
+     */
+    private final List<ParametricEquation> parametricEquations;
+
+    /**
+     * Creates a {@link SvgExporter} object.
+     *
+     * @param viewport            the exported viewport
+     * @param formulas            the formulas
+     * @param parametricEquations the parametric equations
+     */
+    public SvgExporter(Viewport viewport, Collection<GraphFormula> formulas, Collection<ParametricEquation> parametricEquations) {
+        this.viewport = viewport;
+        this.formulas = new ArrayList<>(formulas);
+        this.parametricEquations = new ArrayList<>(parametricEquations);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param out      {@inheritDoc}
+     * @param progress {@inheritDoc}
+     * @throws IOException          {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public void export(OutputStream out, IntConsumer progress) throws IOException, InterruptedException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        SvgWriter svg = new SvgWriter(writer, viewport);
+        svg.writeHeader(PlotEngine.DEFAULT_BACKGROUND, true);
+        int graphs = formulas.size() + parametricEquations.size();
+        int done = 0;
+        for (GraphFormula f : formulas) {
+            checkInterrupted();
+            CoordinateSet samples = engine.sample(f, viewport);
+            svg.writeGraph(f.getColor(), samples);
+            if (f.drawDerivative()) {
+                svg.writeGraph(f.getColor(), engine.differentiate(f.differentiate(), samples, viewport));
+            }
+            progress.accept(++done * 100 / graphs);
+        }
+        for (ParametricEquation p : parametricEquations) {
+            checkInterrupted();
+            CoordinateSet samples = engine.sample(p, viewport);
+            svg.writeGraph(p.getColor(), samples);
+            if (p.drawDerivative()) {
+                svg.writeGraph(p.getColor(), engine.differentiateParametric(p.differentiate(), samples, viewport));
+            }
+            progress.accept(++done * 100 / graphs);
+        }
+        svg.writeFooter();
+    }
+
+    /**
+     * Stops the export if the thread is interrupted.
+     *
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private static void checkInterrupted() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+}
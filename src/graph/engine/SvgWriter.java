@@ -0,0 +1,482 @@
+package graph.engine;
+
+import graph.function.concurrent.CoordinateSet;
+import graph.function.concurrent.Segment;
+import graph.render.LineClipper;
+import graph.render.ScreenTransform;
+import graph.render.Viewport;
+import graph.render.axis.Stripe;
+import graph.render.axis.XAxis;
+import graph.render.axis.YAxis;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * This class writes a viewport as an SVG document. The graphs are clipped
+ * to the viewport and every continuous run of points is written as a
+ * subpath of relative lines. Points that lie within a tolerance of the
+ * line through their neighbours are dropped and the coordinates are
+ * rounded to a fixed amount of decimals, which keeps densely sampled
+ * graphs small. The document is streamed to the writer point by point,
+ * so neither the document nor a path has to fit in memory. An instance
+ * must not be shared between threads.
+ */
+public final class SvgWriter {
+
+    /**
+     * Distance in pixels that lines are written beyond the viewport
+     */
+    private static final int CLIP_MARGIN = 2;
+
+    /**
+     * The color of the x-axis and the y-axis
+     */
+    private static final String AXIS_COLOR = "#1b1c1d";
+
+    /**
+     * The output
+     */
+    private final Writer out;
+
+    /**
+     * The viewport
+     */
+    private final Viewport viewport;
+
+    /**
+     * Clips the lines to the viewport
+     */
+    private final LineClipper clipper;
+
+    /**
+     * The default amount of decimals of the coordinates
+     */
+    public static final int DEFAULT_DECIMALS = 1;
+
+    /**
+     * The default distance in pixels that dropped points may have from the written lines
+     */
+    public static final double DEFAULT_TOLERANCE = 0.25;
+
+    /**
+     * Rounded units per pixel, 10 to the power of the decimals
+     */
+    private final long unitsPerPixel;
+
+    /**
+     * The distance in pixels that dropped points may have from the written lines
+     */
+    private final double tolerance;
+
+    /**
+     * Formats the current number
+     */
+    private final StringBuilder number = new StringBuilder();
+
+    /**
+     * Whether a path element is open
+     */
+    private boolean pathOpen;
+
+    /**
+     * The start of the current line
+     */
+    private double anchorX, anchorY;
+
+    /**
+     * Whether the anchor of the current run was written
+     */
+    private boolean anchorWritten;
+
+    /**
+     * The candidate end of the current line
+     */
+    private double candidateX, candidateY;
+
+    /**
+     * Whether the current line has a candidate end
+     */
+    private boolean hasCandidate;
+
+    /**
+     * Whether the allowed directions of the current line are constrained
+     */
+    private boolean coneConstrained;
+
+    /**
+     * The direction the bounds of the cone are relative to
+     */
+    private double coneDirection;
+
+    /**
+     * The bounds of the allowed directions relative to {@link #coneDirection}
+     */
+    private double coneLow, coneHigh;
+
+    /**
+     * Whether the next number must be separated from a previous number
+     */
+    private boolean separated;
+
+    /**
+     * The last written vertex in rounded units
+     */
+    private long lastX, lastY;
+
+    /**
+     * Creates a {@link SvgWriter} with the default precision and tolerance.
+     *
+     * @param out      the output
+     * @param viewport the viewport
+     */
+    public SvgWriter(Writer out, Viewport viewport) {
+        this(out, viewport, DEFAULT_DECIMALS, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * Creates a {@link SvgWriter} object.
+     *
+     * @param out       the output, preferably buffered
+     * @param viewport  the viewport
+     * @param decimals  the amount of decimals of the coordinates, from 0 to 6
+     * @param tolerance the distance in pixels that dropped points may have
+     *                  from the written lines, 0 only drops collinear points
+     */
+    public SvgWriter(Writer out, Viewport viewport, int decimals, double tolerance) {
+        if (decimals < 0 || decimals > 6) {
+            throw new IllegalArgumentException("The amount of decimals must be between 0 and 6");
+        }
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("The tolerance cannot be negative");
+        }
+        this.out = out;
+        this.viewport = viewport;
+        this.clipper = new LineClipper(-CLIP_MARGIN, -CLIP_MARGIN,
+                viewport.getWidth() + CLIP_MARGIN, viewport.getHeight() + CLIP_MARGIN);
+        long units = 1;
+        for (int i = 0; i < decimals; i++) {
+            units *= 10;
+        }
+        this.unitsPerPixel = units;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Writes the start of the document, the background and, if enabled, the axes.
+     *
+     * @param background the background
+     * @param axes       whether the axes are written
+     * @throws IOException if the output fails
+     */
+    public void writeHeader(Color background, boolean axes) throws IOException {
+        int width = viewport.getWidth();
+        int height = viewport.getHeight();
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + width + "\" height=\"" + height
+                + "\" viewBox=\"0 0 " + width + " " + height + "\">\n");
+        out.write("<rect width=\"100%\" height=\"100%\" fill=\"" + hex(background) + "\"/>\n");
+        if (axes) {
+            writeAxes(new XAxis(viewport), new YAxis(viewport));
+        }
+    }
+
+    /**
+     * Writes the axes, their stripes and their labels.
+     *
+     * @param xAxis the x-axis
+     * @param yAxis the y-axis
+     * @throws IOException if the output fails
+     */
+    private void writeAxes(XAxis xAxis, YAxis yAxis) throws IOException {
+        out.write("<g stroke=\"" + AXIS_COLOR + "\" fill=\"" + AXIS_COLOR
+                + "\" font-family=\"sans-serif\" font-size=\"11\" shape-rendering=\"crispEdges\">\n");
+        if (yAxis.xAxisIsVisible()) {
+            int y = yAxis.getXAxisPosition();
+            writeLine(0, y, viewport.getWidth(), y);
+            for (Stripe stripe : xAxis.getStripes()) {
+                if (!stripe.isOrigin()) {
+                    writeLine(stripe.getPosition(), y - 3, stripe.getPosition(), y + 3);
+                    writeText(TickLabels.format(stripe.getValue()), stripe.getPosition(), y + 15, "middle");
+                }
+            }
+            writeText("x", viewport.getWidth() - 15, y + 23, "start");
+        }
+        if (xAxis.yAxisIsVisible()) {
+            int x = xAxis.getYAxisPosition();
+            writeLine(x, 0, x, viewport.getHeight());
+            for (Stripe stripe : yAxis.getStripes()) {
+                if (!stripe.isOrigin()) {
+                    writeLine(x - 3, stripe.getPosition(), x + 3, stripe.getPosition());
+                    writeText(TickLabels.format(stripe.getValue()), x - 6, stripe.getPosition() + 4, "end");
+                }
+            }
+            writeText("y", x - 25, 15, "start");
+        }
+        if (xAxis.yAxisIsVisible() && yAxis.xAxisIsVisible()) {
+            writeText("o", xAxis.getYAxisPosition() - 9, yAxis.getXAxisPosition() + 11, "start");
+        }
+        out.write("</g>\n");
+    }
+
+    /**
+     * Writes the segments of a graph, one path per segment.
+     *
+     * @param color         the color of the graph
+     * @param coordinateSet the coordinates, sampled for the viewport
+     * @throws IOException if the output fails
+     */
+    public void writeGraph(Color color, CoordinateSet coordinateSet) throws IOException {
+        ScreenTransform transform = viewport.transformFor(coordinateSet.getAnchorX(), coordinateSet.getAnchorY());
+        out.write("<g fill=\"none\" stroke=\"" + hex(color) + "\" stroke-linejoin=\"round\">\n");
+        for (Segment segment : coordinateSet.getSegments()) {
+            writeSegment(segment, transform);
+        }
+        out.write("</g>\n");
+    }
+
+    /**
+     * Writes the continuous visible runs of a segment as the subpaths of a path.
+     *
+     * @param segment   the segment
+     * @param transform the transformation to screen coordinates
+     * @throws IOException if the output fails
+     */
+    private void writeSegment(Segment segment, ScreenTransform transform) throws IOException {
+        double[] x = segment.getX();
+        double[] y = segment.getY();
+        boolean run = false;
+        for (int i = 0; i < segment.size() - 1; i++) {
+            double ax = transform.toScreenX(x[i]);
+            double ay = transform.toScreenY(y[i]);
+            double bx = transform.toScreenX(x[i + 1]);
+            double by = transform.toScreenY(y[i + 1]);
+            if (!clipper.clip(ax, ay, bx, by)) {
+                run = endRun(run);
+                continue;
+            }
+            if (!run || clipper.isStartClipped()) {
+                endRun(run);
+                startRun(clipper.getX0(), clipper.getY0());
+                run = true;
+            }
+            addPoint(clipper.getX1(), clipper.getY1());
+            if (clipper.isEndClipped()) {
+                run = endRun(run);
+            }
+        }
+        endRun(run);
+        if (pathOpen) {
+            out.write("\"/>\n");
+            pathOpen = false;
+        }
+    }
+
+    /**
+     * Starts a run at a point. The point is written with the first vertex
+     * of the run, so runs without a line are not written.
+     *
+     * @param x the screen x-coordinate
+     * @param y the screen y-coordinate
+     */
+    private void startRun(double x, double y) {
+        anchorX = x;
+        anchorY = y;
+        anchorWritten = false;
+        hasCandidate = false;
+        coneConstrained = false;
+    }
+
+    /**
+     * Adds the next point of the run. The point replaces the candidate end
+     * of the current line if the line from the anchor to the point passes
+     * every skipped point within the tolerance, otherwise the candidate is
+     * written as a vertex and becomes the anchor. The allowed directions
+     * form a cone that narrows with every point, so the check is constant
+     * time per point.
+     *
+     * @param x the screen x-coordinate
+     * @param y the screen y-coordinate
+     * @throws IOException if the output fails
+     */
+    private void addPoint(double x, double y) throws IOException {
+        double dx = x - anchorX;
+        double dy = y - anchorY;
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        double angle = Math.atan2(dy, dx);
+        if (coneConstrained) {
+            double relative = wrap(angle - coneDirection);
+            if (relative < coneLow || relative > coneHigh) {
+                writeVertex(candidateX, candidateY);
+                anchorX = candidateX;
+                anchorY = candidateY;
+                coneConstrained = false;
+                dx = x - anchorX;
+                dy = y - anchorY;
+                distance = Math.sqrt(dx * dx + dy * dy);
+                angle = Math.atan2(dy, dx);
+            }
+        }
+        if (distance > tolerance) {
+            double halfWidth = Math.asin(tolerance / distance);
+            if (!coneConstrained) {
+                coneDirection = angle;
+                coneLow = -halfWidth;
+                coneHigh = halfWidth;
+                coneConstrained = true;
+            } else {
+                double relative = wrap(angle - coneDirection);
+                coneLow = Math.max(coneLow, relative - halfWidth);
+                coneHigh = Math.min(coneHigh, relative + halfWidth);
+            }
+        }
+        candidateX = x;
+        candidateY = y;
+        hasCandidate = true;
+    }
+
+    /**
+     * Ends the current run and writes its last point.
+     *
+     * @param run whether a run is open
+     * @return false, no run is open
+     * @throws IOException if the output fails
+     */
+    private boolean endRun(boolean run) throws IOException {
+        if (run && hasCandidate) {
+            writeVertex(candidateX, candidateY);
+        }
+        hasCandidate = false;
+        return false;
+    }
+
+    /**
+     * Writes a vertex of the current run as a relative line, preceded by
+     * the move to the anchor of the run if this is the first vertex.
+     * Coordinates are rounded to the precision, the relative lines are the
+     * differences of the rounded coordinates, so rounding errors do not add up.
+     *
+     * @param x the screen x-coordinate
+     * @param y the screen y-coordinate
+     * @throws IOException if the output fails
+     */
+    private void writeVertex(double x, double y) throws IOException {
+        long qx = Math.round(x * unitsPerPixel);
+        long qy = Math.round(y * unitsPerPixel);
+        if (!anchorWritten) {
+            if (!pathOpen) {
+                out.write("<path d=\"");
+                pathOpen = true;
+            }
+            lastX = Math.round(anchorX * unitsPerPixel);
+            lastY = Math.round(anchorY * unitsPerPixel);
+            out.write('M');
+            separated = false;
+            writeNumber(lastX);
+            writeNumber(lastY);
+            out.write('l');
+            separated = false;
+            anchorWritten = true;
+        } else if (qx == lastX && qy == lastY) {
+            return;
+        }
+        writeNumber(qx - lastX);
+        writeNumber(qy - lastY);
+        lastX = qx;
+        lastY = qy;
+    }
+
+    /**
+     * Writes a rounded coordinate with at most the decimals of the precision.
+     * A minus sign separates the number from the previous one, a space
+     * only if needed.
+     *
+     * @param units the coordinate in units of the precision
+     * @throws IOException if the output fails
+     */
+    private void writeNumber(long units) throws IOException {
+        number.setLength(0);
+        if (units < 0) {
+            number.append('-');
+            units = -units;
+        } else if (separated) {
+            number.append(' ');
+        }
+        separated = true;
+        number.append(units / unitsPerPixel);
+        long fraction = units % unitsPerPixel;
+        if (fraction != 0) {
+            number.append('.');
+            for (long digit = unitsPerPixel / 10; fraction != 0; digit /= 10) {
+                number.append(fraction / digit);
+                fraction %= digit;
+            }
+        }
+        out.append(number);
+    }
+
+    /**
+     * Wraps an angle to the range from -pi to pi.
+     *
+     * @param angle the angle in radians
+     * @return the wrapped angle
+     */
+    private static double wrap(double angle) {
+        if (angle > Math.PI) {
+            return angle - 2 * Math.PI;
+        }
+        if (angle < -Math.PI) {
+            return angle + 2 * Math.PI;
+        }
+        return angle;
+    }
+
+    /**
+     * Writes the end of the document and flushes the output.
+     *
+     * @throws IOException if the output fails
+     */
+    public void writeFooter() throws IOException {
+        out.write("</svg>\n");
+        out.flush();
+    }
+
+    /**
+     * Writes a line.
+     *
+     * @param x0 start x-coordinate
+     * @param y0 start y-coordinate
+     * @param x1 end x-coordinate
+     * @param y1 end y-coordinate
+     * @throws IOException if the output fails
+     */
+    private void writeLine(int x0, int y0, int x1, int y1) throws IOException {
+        // centered on the pixel row or column like a one pixel wide Java2D line
+        out.write("<line x1=\"" + (x0 + 0.5) + "\" y1=\"" + (y0 + 0.5) + "\" x2=\"" + (x1 + 0.5) + "\" y2=\"" + (y1 + 0.5) + "\"/>\n");
+    }
+
+    /**
+     * Writes a text without a stroke.
+     *
+     * @param text   the text, without characters that must be escaped
+     * @param x      the x-coordinate of the anchor
+     * @param y      the y-coordinate of the baseline
+     * @param anchor the SVG text anchor
+     * @throws IOException if the output fails
+     */
+    private void writeText(String text, int x, int y, String anchor) throws IOException {
+        out.write("<text x=\"" + x + "\" y=\"" + y + "\" text-anchor=\"" + anchor + "\" stroke=\"none\">" + text + "</text>\n");
+    }
+
+    /**
+     * Formats a color for SVG.
+     *
+     * @param color the color
+     * @return the color, e.g. {@code #ff8800}
+     */
+    private static String hex(Color color) {
+        return String.format("#%06x", color.getRGB() & 0xffffff);
+    }
+
+}
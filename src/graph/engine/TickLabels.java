@@ -0,0 +1,126 @@
+package graph.engine;
+
+import java.awt.*;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class caches the formatted and measured tick labels of one axis.
+ * Labels are only formatted and measured when their stripe appears for the
+ * first time, the least recently used labels are evicted. A number is
+ * written in scientific notation if that is shorter.
+ */
+final class TickLabels {
+
+    /**
+     * The amount of labels that are retained per visible stripe
+     */
+    private static final int CAPACITY_FACTOR = 4;
+
+    /**
+     * The cached labels by the graph coordinate of their stripe
+     */
+    private final LinkedHashMap<BigDecimal, Label> labels;
+
+    /**
+     * The font the labels were measured with
+     */
+    private Font font;
+
+    /**
+     * Creates an empty {@link TickLabels} object.
+     *
+     * @param distribution the maximum amount of stripes on the axis
+     */
+    TickLabels(int distribution) {
+        int capacity = distribution * CAPACITY_FACTOR;
+        labels = new LinkedHashMap<BigDecimal, Label>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BigDecimal, Label> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the label of a stripe. The cache is cleared if the font
+     * changed since the last call.
+     *
+     * @param metrics the metrics of the font the label is drawn with
+     * @param value   the graph coordinate of the stripe
+     * @return the label of the stripe
+     */
+    Label get(FontMetrics metrics, BigDecimal value) {
+        if (!metrics.getFont().equals(font)) {
+            labels.clear();
+            font = metrics.getFont();
+        }
+        Label label = labels.get(value);
+        if (label == null) {
+            String text = format(value);
+            label = new Label(text, metrics.stringWidth(text));
+            labels.put(value, label);
+        }
+        return label;
+    }
+
+    /**
+     * Formats the label of a stripe.
+     *
+     * @param value the graph coordinate of the stripe
+     * @return the plain or the scientific notation, whichever is shorter
+     */
+    static String format(BigDecimal value) {
+        String text = value.toPlainString();
+        String scientific = value.toString();
+        return scientific.length() < text.length() ? scientific : text;
+    }
+
+    /**
+     * A formatted tick label and its width.
+     */
+    static final class Label {
+
+        /**
+         * The formatted number
+         */
+        private final String text;
+
+        /**
+         * The width of the text in pixels
+         */
+        private final int width;
+
+        /**
+         * Creates a {@link Label} object.
+         *
+         * @param text  the formatted number
+         * @param width the width of the text in pixels
+         */
+        private Label(String text, int width) {
+            this.text = text;
+            this.width = width;
+        }
+
+        /**
+         * Returns the formatted number.
+         *
+         * @return the formatted number
+         */
+        String getText() {
+            return text;
+        }
+
+        /**
+         * Returns the width of the text in pixels.
+         *
+         * @return the width of the text
+         */
+        int getWidth() {
+            return width;
+        }
+
+    }
+
+}
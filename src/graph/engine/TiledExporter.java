@@ -0,0 +1,338 @@
+package graph.engine;
+
+import graph.MathUtil;
+import graph.function.GraphFormula;
+import graph.function.ParametricEquation;
+import graph.function.concurrent.CoordinateSet;
+import graph.function.concurrent.SampleCache;
+import graph.render.Viewport;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+/**
+ * This class exports a viewport as a PNG image of a higher resolution. The
+ * export shows the same area as the viewport, every length is multiplied
+ * by the density, i.e. the ratio of the exported width to the width of the
+ * viewport. The graphs are sampled again at the density of the export, in
+ * vertical bands that are sampled once. The image is rendered in tiles on
+ * every core and the tiles are assembled to strips of full rows that are
+ * streamed to a {@link PngStreamWriter}, so only a few strips are in memory
+ * at once, whatever the size of the export.
+ */
+public final class TiledExporter implements Exporter {
+
+    /**
+     * The width of a tile and of a band of samples in pixels
+     */
+    private static final int TILE_WIDTH = 2048;
+
+    /**
+     * The height of a strip of tiles in pixels
+     */
+    private static final int STRIP_HEIGHT = 256;
+
+    /**
+     * The amount of strips that are rendered ahead of the encoder
+     */
+    private static final int STRIPS_AHEAD = 2;
+
+    /**
+     * The amount of formula samples per exported pixel
+     */
+    private static final int SAMPLES_PER_PIXEL = 2;
+
+    /**
+     * Precision of the step sizes
+     */
+    private static final MathContext PRECISION = new MathContext(MathUtil.FLOATING_POINT_PRECISION);
+
+    /**
+     * Samples and draws the graphs, anti-aliased
+     */
+    private final PlotEngine engine = new PlotEngine(PlotEngine.DEFAULT_BACKGROUND, true, true, SampleCache.getDefault());
+
+    /**
+     * The exported viewport
+     */
+    private final Viewport source;
+
+    /**
+     * The formulas
+     */
+    private final List<GraphFormula> formulas;
+
+    /**
+     * The parametric equations
+     */
+    private final List<ParametricEquation> parametricEquations;
+
+    /**
+     * The size of the exported image
+     */
+    private final int width, height;
+
+    /**
+     * Exported pixels per pixel of the viewport
+     */
+    private final double density;
+
+    /**
+     * Creates a {@link TiledExporter} object. The height of the export
+     * follows from the aspect ratio of the viewport.
+     *
+     * @param source              the exported viewport
+     * @param formulas            the formulas
+     * @param parametricEquations the parametric equations
+     * @param width               the width of the exported image
+     */
+    public TiledExporter(Viewport source, Collection<GraphFormula> formulas,
+                         Collection<ParametricEquation> parametricEquations, int width) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("The width of the export must be positive");
+        }
+        this.source = source;
+        this.formulas = new ArrayList<>(formulas);
+        this.parametricEquations = new ArrayList<>(parametricEquations);
+        this.width = width;
+        this.density = (double) width / source.getWidth();
+        this.height = Math.max(1, (int) Math.round(source.getHeight() * density));
+    }
+
+    /**
+     * Returns the height of the exported image.
+     *
+     * @return the height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * The calling thread encodes, the tiles are rendered by a pool that
+     * lives as long as the export.
+     *
+     * @param out      {@inheritDoc}
+     * @param progress {@inheritDoc}
+     * @throws IOException          {@inheritDoc}
+     * @throws InterruptedException {@inheritDoc}
+     */
+    @Override
+    public void export(OutputStream out, IntConsumer progress) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            int bands = (width + TILE_WIDTH - 1) / TILE_WIDTH;
+            List<Future<List<Layer>>> bandLayers = new ArrayList<>();
+            for (int band = 0; band < bands; band++) {
+                Viewport viewport = viewport(band * TILE_WIDTH, 0, Math.min(TILE_WIDTH, width - band * TILE_WIDTH), height);
+                bandLayers.add(pool.submit(() -> sampleFormulas(viewport)));
+            }
+            List<Layer> parametricLayers = sampleParametricEquations();
+
+            try (PngStreamWriter png = new PngStreamWriter(out, width, height)) {
+                int strips = (height + STRIP_HEIGHT - 1) / STRIP_HEIGHT;
+                List<List<Future<BufferedImage>>> pending = new ArrayList<>();
+                int[] row = new int[width];
+                for (int strip = 0; strip < strips; strip++) {
+                    while (pending.size() < strips && pending.size() <= strip + STRIPS_AHEAD) {
+                        pending.add(submitStrip(pool, pending.size(), bandLayers, parametricLayers));
+                    }
+                    int y = strip * STRIP_HEIGHT;
+                    int stripHeight = Math.min(STRIP_HEIGHT, height - y);
+                    List<int[]> tiles = new ArrayList<>();
+                    for (Future<BufferedImage> tile : pending.get(strip)) {
+                        tiles.add(((DataBufferInt) get(tile).getRaster().getDataBuffer()).getData());
+                    }
+                    pending.set(strip, null);
+                    for (int r = 0; r < stripHeight; r++) {
+                        for (int band = 0; band < bands; band++) {
+                            int tileWidth = Math.min(TILE_WIDTH, width - band * TILE_WIDTH);
+                            System.arraycopy(tiles.get(band), r * tileWidth, row, band * TILE_WIDTH, tileWidth);
+                        }
+                        png.writeRow(row, 0);
+                    }
+                    progress.accept((int) ((long) (y + stripHeight) * 100 / height));
+                }
+                png.finish();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Submits the tiles of a strip.
+     *
+     * @param pool             the pool
+     * @param strip            the index of the strip
+     * @param bandLayers       the sampled formulas of every band
+     * @param parametricLayers the sampled parametric equations
+     * @return the tiles from left to right
+     */
+    private List<Future<BufferedImage>> submitStrip(ExecutorService pool, int strip, List<Future<List<Layer>>> bandLayers,
+                                                    List<Layer> parametricLayers) {
+        List<Future<BufferedImage>> tiles = new ArrayList<>();
+        int y = strip * STRIP_HEIGHT;
+        for (int band = 0; band < bandLayers.size(); band++) {
+            int x = band * TILE_WIDTH;
+            Viewport viewport = viewport(x, y, Math.min(TILE_WIDTH, width - x), Math.min(STRIP_HEIGHT, height - y));
+            Future<List<Layer>> layers = bandLayers.get(band);
+            tiles.add(pool.submit(() -> renderTile(viewport, x, y, get(layers), parametricLayers)));
+        }
+        return tiles;
+    }
+
+    /**
+     * Renders a tile.
+     *
+     * @param viewport         the viewport of the tile
+     * @param x                the x-coordinate of the tile in the export
+     * @param y                the y-coordinate of the tile in the export
+     * @param bandLayers       the sampled formulas of the band of the tile
+     * @param parametricLayers the sampled parametric equations
+     * @return the tile
+     */
+    private BufferedImage renderTile(Viewport viewport, int x, int y, List<Layer> bandLayers, List<Layer> parametricLayers) {
+        BufferedImage tile = new BufferedImage(viewport.getWidth(), viewport.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = tile.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        // the axes and their labels are drawn like on the screen, only larger
+        Graphics2D scaled = (Graphics2D) g.create();
+        scaled.translate(-x, -y);
+        scaled.scale(density, density);
+        engine.drawBackground(scaled, source);
+        scaled.dispose();
+
+        g.setStroke(new BasicStroke((float) Math.max(1, density), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        for (Layer layer : bandLayers) {
+            engine.drawGraph(g, viewport, layer.color, layer.coordinateSet);
+        }
+        for (Layer layer : parametricLayers) {
+            engine.drawGraph(g, viewport, layer.color, layer.coordinateSet);
+        }
+        g.dispose();
+        return tile;
+    }
+
+    /**
+     * Samples the formulas and their derivatives in a band.
+     *
+     * @param viewport the viewport of the band
+     * @return the sampled formulas
+     */
+    private List<Layer> sampleFormulas(Viewport viewport) {
+        BigDecimal stepSize = BigDecimal.ONE.divide(
+                BigDecimal.valueOf(viewport.getTransform().getScaleX() * SAMPLES_PER_PIXEL), PRECISION
+        );
+        List<Layer> layers = new ArrayList<>();
+        for (GraphFormula f : formulas) {
+            CoordinateSet samples = engine.sample(f, viewport, stepSize, null);
+            layers.add(new Layer(f.getColor(), samples));
+            if (f.drawDerivative()) {
+                layers.add(new Layer(f.getColor(), engine.differentiate(f.differentiate(), samples, viewport)));
+            }
+        }
+        return layers;
+    }
+
+    /**
+     * Samples the parametric equations and their derivatives over the
+     * domain of the exported viewport.
+     *
+     * @return the sampled parametric equations
+     */
+    private List<Layer> sampleParametricEquations() {
+        Viewport viewport = viewport(0, 0, width, height);
+        BigDecimal stepSize = PlotEngine.PARAMETRIC_EQUATION_STEP_SIZE.divide(BigDecimal.valueOf(density), PRECISION);
+        List<Layer> layers = new ArrayList<>();
+        for (ParametricEquation p : parametricEquations) {
+            CoordinateSet samples = engine.sample(p, viewport, PlotEngine.parametricDomain(source), stepSize);
+            layers.add(new Layer(p.getColor(), samples));
+            if (p.drawDerivative()) {
+                layers.add(new Layer(p.getColor(), engine.differentiateParametric(p.differentiate(), samples, viewport)));
+            }
+        }
+        return layers;
+    }
+
+    /**
+     * Returns the viewport of a rectangle of the export. All viewports share
+     * the anchors of the source, so samples can be drawn in any of them.
+     *
+     * @param x      the x-coordinate of the rectangle
+     * @param y      the y-coordinate of the rectangle
+     * @param width  the width of the rectangle
+     * @param height the height of the rectangle
+     * @return the viewport
+     */
+    private Viewport viewport(int x, int y, int width, int height) {
+        return new Viewport(width, height, source.getAnchorX(), source.getAnchorY(),
+                source.getTransform().getOriginX() * density - x, source.getTransform().getOriginY() * density - y,
+                source.getTransform().getScaleX() * density, source.getTransform().getScaleY() * density,
+                source.getArithmetic());
+    }
+
+    /**
+     * Waits for a task of the pool.
+     *
+     * @param future the task
+     * @param <T>    the type of the result
+     * @return the result
+     * @throws InterruptedException if the thread is interrupted
+     */
+    private static <T> T get(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * A sampled graph and its color.
+     */
+    private static final class Layer {
+
+        /**
+         * The color of the graph
+         */
+        private final Color color;
+
+        /**
+         * The coordinates of the graph
+         */
+        private final CoordinateSet coordinateSet;
+
+        /**
+         * Creates a {@link Layer} object.
+         *
+         * @param color         the color of the graph
+         * @param coordinateSet the coordinates of the graph
+         */
+        private Layer(Color color, CoordinateSet coordinateSet) {
+            this.color = color;
+            this.coordinateSet = coordinateSet;
+        }
+
+    }
+
+}
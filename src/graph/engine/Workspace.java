@@ -0,0 +1,557 @@
+package graph.engine;
+
+import graph.Arithmetic;
+import graph.function.Formula;
+import graph.function.GraphFormula;
+import graph.function.ParametricEquation;
+import graph.parser.ExpressionFormula;
+import graph.render.Viewport;
+
+import java.awt.*;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class describes a workspace: the graphs with their colors, flags and
+ * transformations and the visible area. A workspace is immutable and is
+ * stored in a compact binary file:
+ * <pre>
+ * int    magic "GPWS"
+ * short  version
+ * view   horizontal stretch, vertical stretch, x-anchor, x-anchor pixel,
+ *        y-anchor, y-anchor pixel, arithmetic
+ * int    amount of formulas, then every formula:
+ *        name, color, flags, formula
+ * int    amount of parametric equations, then every equation:
+ *        name, color, flags, x-formula, y-formula
+ * </pre>
+ * A formula is its expression, its variable and its transformations, the
+ * amount of transformations is a byte in version 1 and an int since version 2.
+ * Strings are stored as UTF-8 after their length, a {@link BigDecimal} as
+ * its scale and the bytes of its unscaled value. The whole file is read
+ * with one call and the expressions are compiled on their first
+ * evaluation, so loading is dominated by reading the file.
+ */
+public final class Workspace {
+
+    /**
+     * The first four bytes of every workspace file
+     */
+    private static final int MAGIC = 0x47505753;
+
+    /**
+     * The version of the format that is written
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * The initial size of the write buffer
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Flags of a graph
+     */
+    private static final int DRAW_DERIVATIVE = 1, DELETE_SINGULARITIES = 2, CORRECT_LIMITS = 4;
+
+    /**
+     * Pixels per unit
+     */
+    private final BigDecimal stretchX, stretchY;
+
+    /**
+     * The graph coordinates of the anchors
+     */
+    private final BigDecimal anchorX, anchorY;
+
+    /**
+     * The pixels of the anchors
+     */
+    private final int anchorPositionX, anchorPositionY;
+
+    /**
+     * The number type the formulas are sampled with
+     */
+    private final Arithmetic arithmetic;
+
+    /**
+     * The formulas
+     */
+    private final List<GraphFormula> formulas;
+
+    /**
+     * The parametric equations
+     */
+    private final List<ParametricEquation> parametricEquations;
+
+    /**
+     * Creates a {@link Workspace} object.
+     *
+     * @param stretchX            pixels per unit in the horizontal direction
+     * @param stretchY            pixels per unit in the vertical direction
+     * @param anchorX             the graph x-coordinate of the horizontal anchor
+     * @param anchorPositionX     the pixel of the horizontal anchor
+     * @param anchorY             the graph y-coordinate of the vertical anchor
+     * @param anchorPositionY     the pixel of the vertical anchor
+     * @param arithmetic          the number type the formulas are sampled with
+     * @param formulas            the formulas
+     * @param parametricEquations the parametric equations
+     */
+    public Workspace(BigDecimal stretchX, BigDecimal stretchY, BigDecimal anchorX, int anchorPositionX,
+                     BigDecimal anchorY, int anchorPositionY, Arithmetic arithmetic,
+                     Collection<GraphFormula> formulas, Collection<ParametricEquation> parametricEquations) {
+        if (stretchX.signum() <= 0 || stretchY.signum() <= 0) {
+            throw new IllegalArgumentException("The stretch of the workspace must be positive");
+        }
+        this.stretchX = stretchX;
+        this.stretchY = stretchY;
+        this.anchorX = anchorX;
+        this.anchorPositionX = anchorPositionX;
+        this.anchorY = anchorY;
+        this.anchorPositionY = anchorPositionY;
+        this.arithmetic = arithmetic;
+        this.formulas = Collections.unmodifiableList(new ArrayList<>(formulas));
+        this.parametricEquations = Collections.unmodifiableList(new ArrayList<>(parametricEquations));
+    }
+
+    /**
+     * Reads a workspace. The expressions of the formulas are not parsed.
+     *
+     * @param path the file
+     * @return the workspace
+     * @throws IOException if the file cannot be read or is not a workspace
+     *                     of a supported version
+     */
+    public static Workspace read(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("The workspace is too large: " + path);
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read until the buffer is full
+            }
+        }
+        buffer.flip();
+        try {
+            return decode(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("The workspace is truncated: " + path);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("The workspace is corrupt: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the workspace. The file is replaced only after the workspace
+     * has been written completely.
+     *
+     * @param path the file
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a formula was not created from an
+     *                                  expression
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = encode();
+        Path absolute = path.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Creates a viewport of the workspace. The anchors are drawn at their
+     * stored pixels.
+     *
+     * @param width  the width in pixels
+     * @param height the height in pixels
+     * @return the viewport
+     */
+    public Viewport createViewport(int width, int height) {
+        return new Viewport(width, height, anchorX, anchorY, anchorPositionX, anchorPositionY,
+                stretchX.doubleValue(), stretchY.doubleValue(), arithmetic);
+    }
+
+    /**
+     * Returns the horizontal stretch.
+     *
+     * @return pixels per unit in the horizontal direction
+     */
+    public BigDecimal getStretchX() {
+        return stretchX;
+    }
+
+    /**
+     * Returns the vertical stretch.
+     *
+     * @return pixels per unit in the vertical direction
+     */
+    public BigDecimal getStretchY() {
+        return stretchY;
+    }
+
+    /**
+     * Returns the graph coordinate of the horizontal anchor.
+     *
+     * @return the graph x-coordinate of the anchor
+     */
+    public BigDecimal getAnchorX() {
+        return anchorX;
+    }
+
+    /**
+     * Returns the pixel of the horizontal anchor.
+     *
+     * @return the pixel of the anchor
+     */
+    public int getAnchorPositionX() {
+        return anchorPositionX;
+    }
+
+    /**
+     * Returns the graph coordinate of the vertical anchor.
+     *
+     * @return the graph y-coordinate of the anchor
+     */
+    public BigDecimal getAnchorY() {
+        return anchorY;
+    }
+
+    /**
+     * Returns the pixel of the vertical anchor.
+     *
+     * @return the pixel of the anchor
+     */
+    public int getAnchorPositionY() {
+        return anchorPositionY;
+    }
+
+    /**
+     * Returns the number type the formulas are sampled with.
+     *
+     * @return the number type
+     */
+    public Arithmetic getArithmetic() {
+        return arithmetic;
+    }
+
+    /**
+     * Returns the formulas.
+     *
+     * @return the formulas
+     */
+    public List<GraphFormula> getFormulas() {
+        return formulas;
+    }
+
+    /**
+     * Returns the parametric equations.
+     *
+     * @return the parametric equations
+     */
+    public List<ParametricEquation> getParametricEquations() {
+        return parametricEquations;
+    }
+
+    /**
+     * Encodes the workspace.
+     *
+     * @return the encoded workspace, ready to be written
+     */
+    private ByteBuffer encode() {
+        Encoder out = new Encoder();
+        out.ensure(6);
+        out.buffer.putInt(MAGIC).putShort((short) VERSION);
+        out.putDecimal(stretchX);
+        out.putDecimal(stretchY);
+        out.putDecimal(anchorX);
+        out.putInt(anchorPositionX);
+        out.putDecimal(anchorY);
+        out.putInt(anchorPositionY);
+        out.putString(arithmetic.name());
+
+        out.putInt(formulas.size());
+        for (GraphFormula f : formulas) {
+            out.putGraph(f.getName(), f.getColor(), flags(f.drawDerivative(), f.autoDeleteSingularities(), f.autoCorrectLimits()));
+            out.putFormula(f.getName(), f.getFormula());
+        }
+        out.putInt(parametricEquations.size());
+        for (ParametricEquation p : parametricEquations) {
+            out.putGraph(p.getName(), p.getColor(), flags(p.drawDerivative(), p.autoDeleteSingularities(), p.autoCorrectLimits()));
+            out.putFormula(p.getName(), p.getX());
+            out.putFormula(p.getName(), p.getY());
+        }
+        out.buffer.flip();
+        return out.buffer;
+    }
+
+    /**
+     * Decodes a workspace.
+     *
+     * @param in the encoded workspace
+     * @return the workspace
+     * @throws IOException if the buffer is not a workspace of a supported version
+     */
+    private static Workspace decode(ByteBuffer in) throws IOException {
+        if (in.remaining() < 6 || in.getInt() != MAGIC) {
+            throw new IOException("Not a workspace file");
+        }
+        int version = in.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported workspace version " + version);
+        }
+        BigDecimal stretchX = getDecimal(in);
+        BigDecimal stretchY = getDecimal(in);
+        BigDecimal anchorX = getDecimal(in);
+        int anchorPositionX = in.getInt();
+        BigDecimal anchorY = getDecimal(in);
+        int anchorPositionY = in.getInt();
+        Arithmetic arithmetic = Arithmetic.valueOf(getString(in));
+
+        int count = getCount(in);
+        List<GraphFormula> formulas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = getString(in);
+            Color color = new Color(in.getInt(), true);
+            int flags = checkFlags(name, in.get());
+            GraphFormula f = new GraphFormula(name, getFormula(in, version), color);
+            f.drawDerivative((flags & DRAW_DERIVATIVE) != 0);
+            f.autoDeleteSingularities((flags & DELETE_SINGULARITIES) != 0);
+            f.autoCorrectLimits((flags & CORRECT_LIMITS) != 0);
+            formulas.add(f);
+        }
+        count = getCount(in);
+        List<ParametricEquation> parametricEquations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = getString(in);
+            Color color = new Color(in.getInt(), true);
+            int flags = checkFlags(name, in.get());
+            ParametricEquation p = new ParametricEquation(getFormula(in, version), getFormula(in, version), color, name);
+            p.drawDerivative((flags & DRAW_DERIVATIVE) != 0);
+            p.autoDeleteSingularities((flags & DELETE_SINGULARITIES) != 0);
+            p.autoCorrectLimits((flags & CORRECT_LIMITS) != 0);
+            parametricEquations.add(p);
+        }
+        return new Workspace(stretchX, stretchY, anchorX, anchorPositionX, anchorY, anchorPositionY, arithmetic,
+                formulas, parametricEquations);
+    }
+
+    /**
+     * Combines the flags of a graph.
+     *
+     * @param drawDerivative      whether the derivative is drawn
+     * @param deleteSingularities whether singularities are deleted
+     * @param correctLimits       whether limits are extended towards infinity
+     * @return the flags
+     */
+    private static int flags(boolean drawDerivative, boolean deleteSingularities, boolean correctLimits) {
+        return (drawDerivative ? DRAW_DERIVATIVE : 0) | (deleteSingularities ? DELETE_SINGULARITIES : 0)
+                | (correctLimits ? CORRECT_LIMITS : 0);
+    }
+
+    /**
+     * Rejects unknown flags of a graph.
+     *
+     * @param name  the name of the graph
+     * @param flags the flags
+     * @return the flags
+     */
+    private static int checkFlags(String name, int flags) {
+        if ((flags & ~(DRAW_DERIVATIVE | DELETE_SINGULARITIES | CORRECT_LIMITS)) != 0) {
+            throw new IllegalArgumentException("Unknown flags of graph " + name + ": " + flags);
+        }
+        return flags;
+    }
+
+    /**
+     * Reads a formula. The expression is compiled on the first evaluation.
+     *
+     * @param in      the buffer
+     * @param version the version of the format
+     * @return the formula
+     */
+    private static Formula getFormula(ByteBuffer in, int version) {
+        String expression = getString(in);
+        String variableName = getString(in);
+        int count = version == 1 ? in.get() : getCount(in);
+        List<ExpressionFormula.Transform> transforms = new ArrayList<>(count);
+        ExpressionFormula.Transform.Kind[] kinds = ExpressionFormula.Transform.Kind.values();
+        for (int i = 0; i < count; i++) {
+            int kind = in.get();
+            if (kind < 0 || kind >= kinds.length) {
+                throw new IllegalArgumentException("Unknown transformation " + kind);
+            }
+            BigDecimal[] arguments = new BigDecimal[kinds[kind].getArguments()];
+            for (int j = 0; j < arguments.length; j++) {
+                arguments[j] = getDecimal(in);
+            }
+            transforms.add(new ExpressionFormula.Transform(kinds[kind], arguments));
+        }
+        return new ExpressionFormula(expression, variableName, transforms);
+    }
+
+    /**
+     * Reads an amount of elements.
+     *
+     * @param in the buffer
+     * @return the amount
+     */
+    private static int getCount(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining()) {
+            throw new IllegalArgumentException("Invalid amount " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param in the buffer
+     * @return the string
+     */
+    private static String getString(ByteBuffer in) {
+        int length = getCount(in);
+        String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return s;
+    }
+
+    /**
+     * Reads a {@link BigDecimal}.
+     *
+     * @param in the buffer
+     * @return the number
+     */
+    private static BigDecimal getDecimal(ByteBuffer in) {
+        int scale = in.getInt();
+        byte[] unscaled = new byte[in.get() & 0xff];
+        if (unscaled.length == 0) {
+            throw new IllegalArgumentException("Invalid number");
+        }
+        in.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    /**
+     * Encodes into a buffer that grows as needed.
+     */
+    private static final class Encoder {
+
+        /**
+         * The buffer
+         */
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        /**
+         * Grows the buffer if it cannot take {@code bytes} more bytes.
+         *
+         * @param bytes the amount of bytes to write
+         */
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+
+        /**
+         * Writes an integer.
+         *
+         * @param value the integer
+         */
+        private void putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        /**
+         * Writes a string.
+         *
+         * @param s the string
+         */
+        private void putString(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + bytes.length);
+            buffer.putInt(bytes.length).put(bytes);
+        }
+
+        /**
+         * Writes a {@link BigDecimal}.
+         *
+         * @param value the number
+         */
+        private void putDecimal(BigDecimal value) {
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            if (unscaled.length > 255) {
+                throw new IllegalArgumentException("Number too precise to be stored: " + value);
+            }
+            ensure(5 + unscaled.length);
+            buffer.putInt(value.scale()).put((byte) unscaled.length).put(unscaled);
+        }
+
+        /**
+         * Writes the properties every graph has.
+         *
+         * @param name  the name
+         * @param color the color
+         * @param flags the flags
+         */
+        private void putGraph(String name, Color color, int flags) {
+            putString(name);
+            ensure(5);
+            buffer.putInt(color.getRGB()).put((byte) flags);
+        }
+
+        /**
+         * Writes a formula.
+         *
+         * @param name    the name of the graph of the formula
+         * @param formula the formula
+         */
+        private void putFormula(String name, Formula formula) {
+            if (!(formula instanceof ExpressionFormula)) {
+                throw new IllegalArgumentException("The graph " + name + " was not created from an expression");
+            }
+            ExpressionFormula f = (ExpressionFormula) formula;
+            putString(f.getExpression());
+            putString(f.getVariableName());
+            putInt(f.getTransforms().size());
+            for (ExpressionFormula.Transform transform : f.getTransforms()) {
+                ensure(1);
+                buffer.put((byte) transform.getKind().ordinal());
+                for (BigDecimal argument : transform.getArguments()) {
+                    putDecimal(argument);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * This package contains the headless engine that samples and renders graphs.
+ */
+package graph.engine;
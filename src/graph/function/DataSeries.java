@@ -0,0 +1,56 @@
+package graph.function;
+
+import java.awt.*;
+
+/**
+ * This class represents a series of measured points that is drawn beside
+ * the formulas. The points stay in their memory-mapped file, only the
+ * extent of the points of every visible pixel column is read.
+ */
+public class DataSeries extends Graph {
+
+    /**
+     * The points
+     */
+    private final MappedSeries data;
+
+    /**
+     * Creates a {@link DataSeries}.
+     *
+     * @param data  the points
+     * @param color the color of the series
+     * @param name  the name of the series
+     */
+    public DataSeries(MappedSeries data, Color color, String name) {
+        super(name, color);
+        if (data == null) {
+            throw new IllegalArgumentException("The points of the series cannot be null");
+        }
+        this.data = data;
+    }
+
+    /**
+     * Returns the points of the series.
+     *
+     * @return the points
+     */
+    public MappedSeries getData() {
+        return data;
+    }
+
+    /**
+     * Compares this series to the specified object.  The result is {@code
+     * true} if and only if the argument is not {@code null} and is a {@link
+     * DataSeries} object with the same {@code name} as this
+     * object.
+     *
+     * @param o the object to compare this {@link DataSeries} against
+     * @return {@code true} if the given object represents a {@link DataSeries}
+     * equivalent to this {@link DataSeries}, {@code false} otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DataSeries && super.equals(o);
+    }
+
+}
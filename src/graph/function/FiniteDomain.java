@@ -1,4 +1,4 @@
-package graph.gui.axis;
+package graph.function;
 
 import java.math.BigDecimal;
 
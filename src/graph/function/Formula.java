@@ -1,5 +1,6 @@
 package graph.function;
 
+import graph.DoubleDouble;
 import graph.MathUtil;
 
 import java.math.BigDecimal;
@@ -8,7 +9,8 @@ import java.util.function.DoubleFunction;
 
 /**
  * Represents a formula that accepts a {@link BigDecimal} argument
- * and produces a result.
+ * and produces a result. The transformed formulas evaluate double-doubles
+ * with double-doubles as long as this formula does.
  */
 @FunctionalInterface
 public interface Formula {
@@ -26,6 +28,17 @@ public interface Formula {
      */
     BigDecimal calculate(BigDecimal x);
 
+    /**
+     * Applies this formula to a {@link DoubleDouble} argument. Formulas
+     * that cannot be evaluated with double-doubles are evaluated with
+     * {@link BigDecimal} numbers.
+     *
+     * @param x the argument of the formula
+     * @return the result of the formula
+     */
+    default DoubleDouble calculate(DoubleDouble x) {
+        return DoubleDouble.valueOf(calculate(x.toBigDecimal()));
+    }
 
     /**
      * Reflects the formula to the horizontal direction.
@@ -33,7 +46,7 @@ public interface Formula {
      * @return the reflected {@link Formula}
      */
     default Formula negateHorizontal() {
-        return x -> multiplyYAxis(BigDecimal.valueOf(-1)).calculate(x);
+        return multiplyYAxis(BigDecimal.valueOf(-1));
     }
 
     /**
@@ -42,7 +55,7 @@ public interface Formula {
      * @return the reflected {@link Formula}
      */
     default Formula negateVertical() {
-        return x -> multiplyXAxis(BigDecimal.valueOf(-1)).calculate(x);
+        return multiplyXAxis(BigDecimal.valueOf(-1));
     }
 
     /**
@@ -53,7 +66,20 @@ public interface Formula {
      * @return the translated {@link Formula}
      */
     default Formula translate(BigDecimal dx, BigDecimal dy) {
-        return x -> calculate(x.add(dx)).add(dy);
+        Formula f = this;
+        DoubleDouble doubleDoubleDx = DoubleDouble.valueOf(dx);
+        DoubleDouble doubleDoubleDy = DoubleDouble.valueOf(dy);
+        return new Formula() {
+            @Override
+            public BigDecimal calculate(BigDecimal x) {
+                return f.calculate(x.add(dx)).add(dy);
+            }
+
+            @Override
+            public DoubleDouble calculate(DoubleDouble x) {
+                return f.calculate(x.add(doubleDoubleDx)).add(doubleDoubleDy);
+            }
+        };
     }
 
     /**
@@ -64,7 +90,19 @@ public interface Formula {
      * @return {@code this * multiplicand}
      */
     default Formula multiplyXAxis(BigDecimal multiplicand) {
-        return x -> calculate(x).multiply(multiplicand);
+        Formula f = this;
+        DoubleDouble doubleDoubleMultiplicand = DoubleDouble.valueOf(multiplicand);
+        return new Formula() {
+            @Override
+            public BigDecimal calculate(BigDecimal x) {
+                return f.calculate(x).multiply(multiplicand);
+            }
+
+            @Override
+            public DoubleDouble calculate(DoubleDouble x) {
+                return f.calculate(x).multiply(doubleDoubleMultiplicand);
+            }
+        };
     }
 
     /**
@@ -74,7 +112,25 @@ public interface Formula {
      * @return the transformed {@link Formula}
      */
     default Formula multiplyYAxis(BigDecimal multiplicand) {
-        return x -> calculate(x.multiply(BigDecimal.ONE.divide(multiplicand, MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP)));
+        if (multiplicand.signum() == 0) {
+            return x -> {
+                throw new ArithmeticException("Division by zero");
+            };
+        }
+        Formula f = this;
+        BigDecimal reciprocal = BigDecimal.ONE.divide(multiplicand, MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP);
+        DoubleDouble doubleDoubleReciprocal = DoubleDouble.valueOf(reciprocal);
+        return new Formula() {
+            @Override
+            public BigDecimal calculate(BigDecimal x) {
+                return f.calculate(x.multiply(reciprocal));
+            }
+
+            @Override
+            public DoubleDouble calculate(DoubleDouble x) {
+                return f.calculate(x.multiply(doubleDoubleReciprocal));
+            }
+        };
     }
 
     /**
@@ -84,7 +140,18 @@ public interface Formula {
      * @return {@code this * multiplicand}
      */
     default Formula multiply(Formula multiplicand) {
-        return x -> calculate(x).multiply(multiplicand.calculate(x));
+        Formula f = this;
+        return new Formula() {
+            @Override
+            public BigDecimal calculate(BigDecimal x) {
+                return f.calculate(x).multiply(multiplicand.calculate(x));
+            }
+
+            @Override
+            public DoubleDouble calculate(DoubleDouble x) {
+                return f.calculate(x).multiply(multiplicand.calculate(x));
+            }
+        };
     }
 
     /**
@@ -93,7 +160,31 @@ public interface Formula {
      * @return the derivative
      */
     default Formula differentiate() {
-        return x -> (calculate(x.add(LIMIT)).subtract(calculate(x))).divide(LIMIT, MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP);
+        Formula f = this;
+        DoubleDouble doubleDoubleLimit = DoubleDouble.valueOf(LIMIT);
+        return new Formula() {
+            @Override
+            public BigDecimal calculate(BigDecimal x) {
+                return (f.calculate(x.add(LIMIT)).subtract(f.calculate(x))).divide(LIMIT, MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP);
+            }
+
+            @Override
+            public DoubleDouble calculate(DoubleDouble x) {
+                return f.calculate(x.add(doubleDoubleLimit)).subtract(f.calculate(x)).divide(doubleDoubleLimit);
+            }
+        };
+    }
+
+    /**
+     * Returns a key that is equal for formulas that compute the same values,
+     * e.g. two parses of the same expression, so their samples can be
+     * reused across sessions. Formulas without such a key, like lambdas or
+     * formulas with random values, return {@code null}.
+     *
+     * @return the structural key or {@code null}
+     */
+    default String getStructuralKey() {
+        return null;
     }
 
     /**
@@ -127,4 +218,23 @@ public interface Formula {
         }
     }
 
+    /**
+     * Calculates the y value with a {@link DoubleDouble} x value. This
+     * calculation returns null when an exception occurs or the result
+     * is not finite.
+     *
+     * @param f the formula
+     * @param x the x value
+     * @return the calculated value or null when an exception
+     * occurs (e.g. division by zero)
+     */
+    static DoubleDouble calculateSafe(Formula f, DoubleDouble x) {
+        try {
+            DoubleDouble y = f.calculate(x);
+            return y.isFinite() ? y : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
 }
@@ -15,6 +15,11 @@ public class GraphFormula extends Graph {
      */
     private Formula formula;
 
+    /**
+     * The memoized derivative of the formula
+     */
+    private GraphFormula derivative;
+
     /**
      * Creates a {@link GraphFormula}.
      *
@@ -47,15 +52,23 @@ public class GraphFormula extends Graph {
             throw new IllegalArgumentException("The formula of the graph cannot be null");
         }
         this.formula = formula;
+        this.derivative = null;
     }
 
     /**
      * Finds the derivative of the formula and wraps it in a {@link GraphFormula}.
+     * The derivative is memoized until the formula changes, the memo is
+     * guarded so headless renders can share the graph.
      *
      * @return the derivative as a {@link GraphFormula}
      */
-    public GraphFormula differentiate() {
-        return new GraphFormula("[" + getName() + "]'", formula.differentiate(), getColor());
+    public synchronized GraphFormula differentiate() {
+        String name = "[" + getName() + "]'";
+        if (derivative == null || !derivative.getName().equals(name)) {
+            derivative = new GraphFormula(name, formula.differentiate(), getColor());
+        }
+        derivative.setColor(getColor());
+        return derivative;
     }
 
     /**
@@ -0,0 +1,598 @@
+package graph.function;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+/**
+ * This class gives access to a series of measured points in a binary file
+ * of fixed-size records without loading it into the heap. The file is
+ * memory-mapped, the x-values must not decrease. A min/max pyramid of the
+ * y-values is built once and stored beside the file, so the extent of any
+ * range of points is found by reading a few dozen values, whatever the size
+ * of the series. A series is immutable and can be read by many threads at once.
+ */
+public final class MappedSeries implements Series {
+
+    /**
+     * The types of the values in the records.
+     */
+    public enum ValueType {
+
+        /**
+         * 32-bit floating point numbers
+         */
+        FLOAT(4),
+
+        /**
+         * 64-bit floating point numbers
+         */
+        DOUBLE(8);
+
+        /**
+         * The size of a value in bytes
+         */
+        private final int size;
+
+        /**
+         * Creates a value type.
+         *
+         * @param size the size of a value in bytes
+         */
+        ValueType(int size) {
+            this.size = size;
+        }
+
+    }
+
+    /**
+     * The amount of points summarized by an entry of the lowest level of the pyramid
+     */
+    private static final int BLOCK_SIZE = 64;
+
+    /**
+     * The first four bytes of every index file
+     */
+    private static final int INDEX_MAGIC = 0x47505349;
+
+    /**
+     * The version of the index format
+     */
+    private static final int INDEX_VERSION = 1;
+
+    /**
+     * The size of the header of an index file
+     */
+    private static final int INDEX_HEADER_SIZE = 64;
+
+    /**
+     * The size of an entry of the pyramid: the minimum and the maximum
+     */
+    private static final int ENTRY_SIZE = 16;
+
+    /**
+     * The maximum size of one mapped region
+     */
+    private static final long MAX_CHUNK_SIZE = 1 << 30;
+
+    /**
+     * Separates the values of a line of a CSV file
+     */
+    private static final Pattern SEPARATOR = Pattern.compile("\\s*[,;\\t]\\s*");
+
+    /**
+     * The records
+     */
+    private final Mapping data;
+
+    /**
+     * The type of the values
+     */
+    private final ValueType type;
+
+    /**
+     * The size of a record in bytes
+     */
+    private final int recordSize;
+
+    /**
+     * The byte offsets of the x-value and the y-value in a record, -1 if the
+     * x-value is the index of the record
+     */
+    private final int xOffset, yOffset;
+
+    /**
+     * The amount of points
+     */
+    private final long size;
+
+    /**
+     * The pyramid
+     */
+    private final Mapping index;
+
+    /**
+     * The index of the first entry of every level of the pyramid
+     */
+    private final long[] levels;
+
+    /**
+     * Creates a {@link MappedSeries} object.
+     *
+     * @param data       the records
+     * @param type       the type of the values
+     * @param recordSize the size of a record in bytes
+     * @param xOffset    the byte offset of the x-value or -1
+     * @param yOffset    the byte offset of the y-value
+     * @param size       the amount of points
+     * @param index      the pyramid
+     * @param levels     the index of the first entry of every level
+     */
+    private MappedSeries(Mapping data, ValueType type, int recordSize, int xOffset, int yOffset, long size,
+                         Mapping index, long[] levels) {
+        this.data = data;
+        this.type = type;
+        this.recordSize = recordSize;
+        this.xOffset = xOffset;
+        this.yOffset = yOffset;
+        this.size = size;
+        this.index = index;
+        this.levels = levels;
+    }
+
+    /**
+     * Opens a binary file of records. Every record consists of {@code columns}
+     * values of the same type. The pyramid is read from the index file beside
+     * the data file if it belongs to the current data, otherwise it is built
+     * with one pass over the data and stored.
+     *
+     * @param path    the data file
+     * @param type    the type of the values
+     * @param order   the byte order of the values
+     * @param columns the amount of values in a record
+     * @param xColumn the column of the x-values or -1 if the index of the
+     *                record is the x-value
+     * @param yColumn the column of the y-values
+     * @return the series
+     * @throws IOException if a file cannot be read or written
+     * @throws IllegalArgumentException if the columns are invalid or the
+     *                                  x-values decrease
+     */
+    public static MappedSeries open(Path path, ValueType type, ByteOrder order, int columns, int xColumn, int yColumn)
+            throws IOException {
+        if (columns <= 0 || xColumn < -1 || xColumn >= columns || yColumn < 0 || yColumn >= columns) {
+            throw new IllegalArgumentException("Invalid columns: " + columns + ", x: " + xColumn + ", y: " + yColumn);
+        }
+        int recordSize = columns * type.size;
+        long fileSize = Files.size(path);
+        if (fileSize % recordSize != 0) {
+            throw new IllegalArgumentException("The file size " + fileSize + " is not a multiple of the record size " + recordSize);
+        }
+        long size = fileSize / recordSize;
+        if (size == 0) {
+            throw new IllegalArgumentException("The series is empty");
+        }
+        Mapping data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = new Mapping(channel, FileChannel.MapMode.READ_ONLY, fileSize, recordSize, order);
+        }
+        long[] levels = levels(size);
+        MappedSeries series = new MappedSeries(data, type, recordSize, xColumn < 0 ? -1 : xColumn * type.size, yColumn * type.size,
+                size, null, levels);
+
+        ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+        header.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(fileSize)
+                .putLong(Files.getLastModifiedTime(path).toMillis()).putInt(type.ordinal())
+                .putInt(order == ByteOrder.BIG_ENDIAN ? 1 : 0).putInt(columns).putInt(xColumn).putInt(yColumn)
+                .putInt(BLOCK_SIZE);
+        header.clear();
+        Path indexPath = path.resolveSibling(path.getFileName() + ".pyramid");
+        long indexSize = INDEX_HEADER_SIZE + levels[levels.length - 1] * ENTRY_SIZE;
+        if (!validIndex(indexPath, header, indexSize)) {
+            series.buildIndex(indexPath, header, indexSize);
+        }
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            Mapping index = new Mapping(channel, FileChannel.MapMode.READ_ONLY, indexSize, ENTRY_SIZE, ByteOrder.BIG_ENDIAN);
+            return new MappedSeries(data, type, recordSize, series.xOffset, series.yOffset, size, index, levels);
+        }
+    }
+
+    /**
+     * Imports a CSV file. The columns are separated by commas, semicolons or
+     * tabs, a first line that is not numeric is skipped. The points are
+     * converted once to a binary file of doubles beside the CSV file, which is
+     * reused as long as it is newer than the CSV file. The name of the binary
+     * file contains the columns, e.g. {@code data.csv.x0y1.series}, so other
+     * columns of the same file are converted to another file.
+     *
+     * @param path    the CSV file
+     * @param xColumn the column of the x-values or -1 if the number of the
+     *                point is the x-value
+     * @param yColumn the column of the y-values
+     * @return the series
+     * @throws IOException if a file cannot be read or written or a line is invalid
+     */
+    public static MappedSeries importCsv(Path path, int xColumn, int yColumn) throws IOException {
+        int columns = xColumn < 0 ? 1 : 2;
+        String columnNames = (xColumn < 0 ? "" : "x" + xColumn) + "y" + yColumn;
+        Path binary = path.resolveSibling(path.getFileName() + "." + columnNames + ".series");
+        if (!Files.exists(binary) || Files.getLastModifiedTime(binary).compareTo(Files.getLastModifiedTime(path)) < 0) {
+            Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                convertCsv(path, temporary, xColumn, yColumn);
+                Files.move(temporary, binary, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        return open(binary, ValueType.DOUBLE, ByteOrder.LITTLE_ENDIAN, columns, xColumn < 0 ? -1 : 0, columns - 1);
+    }
+
+    /**
+     * Converts a CSV file to a binary file of doubles.
+     *
+     * @param csv     the CSV file
+     * @param binary  the binary file
+     * @param xColumn the column of the x-values or -1
+     * @param yColumn the column of the y-values
+     * @throws IOException if a file cannot be read or written or a line is invalid
+     */
+    private static void convertCsv(Path csv, Path binary, int xColumn, int yColumn) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             FileChannel channel = FileChannel.open(binary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] values = SEPARATOR.split(line);
+                double x, y;
+                try {
+                    x = xColumn < 0 ? 0 : Double.parseDouble(values[xColumn]);
+                    y = Double.parseDouble(values[yColumn]);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    if (number == 1) {
+                        continue; // the header
+                    }
+                    throw new IOException("Line " + number + ": invalid point: " + line);
+                }
+                if (buffer.remaining() < 16) {
+                    write(channel, buffer);
+                }
+                if (xColumn >= 0) {
+                    buffer.putDouble(x);
+                }
+                buffer.putDouble(y);
+            }
+            write(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes the content of a buffer and clears it.
+     *
+     * @param channel the channel
+     * @param buffer  the buffer
+     * @throws IOException if the channel fails
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Returns the index of the first entry of every level of the pyramid,
+     * followed by the total amount of entries. An entry of a level
+     * summarizes two entries of the level below.
+     *
+     * @param size the amount of points
+     * @return the indices of the levels
+     */
+    private static long[] levels(long size) {
+        long count = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int levels = 1;
+        for (long c = count; c > 1; c = (c + 1) / 2) {
+            levels++;
+        }
+        long[] result = new long[levels + 1];
+        for (int level = 0; level < levels; level++) {
+            result[level + 1] = result[level] + count;
+            count = (count + 1) / 2;
+        }
+        return result;
+    }
+
+    /**
+     * Tests if an index file belongs to the current data.
+     *
+     * @param path   the index file
+     * @param header the expected header
+     * @param size   the expected size
+     * @return {@code true} if the index can be used
+     * @throws IOException if the index file cannot be read
+     */
+    private static boolean validIndex(Path path, ByteBuffer header, long size) throws IOException {
+        if (!Files.exists(path) || Files.size(path) != size) {
+            return false;
+        }
+        ByteBuffer stored = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (stored.hasRemaining() && channel.read(stored) >= 0) {
+                // read the whole header
+            }
+        }
+        stored.flip();
+        return stored.equals(header);
+    }
+
+    /**
+     * Builds the pyramid with one pass over the data and stores it. The
+     * header is written last, so an interrupted build is never used.
+     *
+     * @param path   the index file
+     * @param header the header
+     * @param size   the size of the index file
+     * @throws IOException if the index file cannot be written
+     */
+    private void buildIndex(Path path, ByteBuffer header, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Mapping pyramid = new Mapping(channel, FileChannel.MapMode.READ_WRITE, size, ENTRY_SIZE, ByteOrder.BIG_ENDIAN);
+
+            // the lowest level summarizes blocks of points
+            double previous = Double.NEGATIVE_INFINITY;
+            for (long block = 0; block < levels[1]; block++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (long i = block * BLOCK_SIZE, end = Math.min(size(), i + BLOCK_SIZE); i < end; i++) {
+                    double x = getX(i);
+                    if (!(x >= previous)) {
+                        throw new IllegalArgumentException("The x-values decrease at point " + i);
+                    }
+                    previous = x;
+                    double y = getY(i);
+                    if (y < min) {
+                        min = y;
+                    }
+                    if (y > max) {
+                        max = y;
+                    }
+                }
+                putEntry(pyramid, block, min, max);
+            }
+            // every higher level summarizes pairs of the level below
+            for (int level = 1; level < levels.length - 1; level++) {
+                long below = levels[level - 1];
+                long count = levels[level] - below;
+                for (long entry = 0; levels[level] + entry < levels[level + 1]; entry++) {
+                    long left = INDEX_HEADER_SIZE + (below + 2 * entry) * ENTRY_SIZE;
+                    double min = pyramid.getDouble(left);
+                    double max = pyramid.getDouble(left + 8);
+                    if (2 * entry + 1 < count) {
+                        min = Math.min(min, pyramid.getDouble(left + ENTRY_SIZE));
+                        max = Math.max(max, pyramid.getDouble(left + ENTRY_SIZE + 8));
+                    }
+                    putEntry(pyramid, levels[level] + entry, min, max);
+                }
+            }
+            pyramid.force();
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Stores an entry of the pyramid.
+     *
+     * @param pyramid the pyramid
+     * @param entry   the index of the entry
+     * @param min     the minimum
+     * @param max     the maximum
+     */
+    private static void putEntry(Mapping pyramid, long entry, double min, double max) {
+        pyramid.putDouble(INDEX_HEADER_SIZE + entry * ENTRY_SIZE, min);
+        pyramid.putDouble(INDEX_HEADER_SIZE + entry * ENTRY_SIZE + 8, max);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public long size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param i {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public double getX(long i) {
+        return xOffset < 0 ? i : get(i * recordSize + xOffset);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param i {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public double getY(long i) {
+        return get(i * recordSize + yOffset);
+    }
+
+    /**
+     * Reads a value of the data.
+     *
+     * @param offset the byte offset of the value
+     * @return the value
+     */
+    private double get(long offset) {
+        return type == ValueType.DOUBLE ? data.getDouble(offset) : data.getFloat(offset);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * Only the points at the ends of the range that do not fill a block of
+     * the pyramid are read.
+     *
+     * @param from   {@inheritDoc}
+     * @param to     {@inheritDoc}
+     * @param result {@inheritDoc}
+     */
+    @Override
+    public void extent(long from, long to, double[] result) {
+        result[0] = Double.POSITIVE_INFINITY;
+        result[1] = Double.NEGATIVE_INFINITY;
+        long low = (from + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        long high = to / BLOCK_SIZE;
+        if (low >= high) {
+            scan(from, to, result);
+            return;
+        }
+        scan(from, low * BLOCK_SIZE, result);
+        scan(high * BLOCK_SIZE, to, result);
+        for (int level = 0; low < high; level++, low >>= 1, high >>= 1) {
+            if ((low & 1) != 0) {
+                include(levels[level] + low++, result);
+            }
+            if ((high & 1) != 0) {
+                include(levels[level] + --high, result);
+            }
+        }
+    }
+
+    /**
+     * Includes the y-values of points in an extent.
+     *
+     * @param from   the index of the first point
+     * @param to     the index after the last point
+     * @param result the extent
+     */
+    private void scan(long from, long to, double[] result) {
+        for (long i = from; i < to; i++) {
+            double y = getY(i);
+            if (y < result[0]) {
+                result[0] = y;
+            }
+            if (y > result[1]) {
+                result[1] = y;
+            }
+        }
+    }
+
+    /**
+     * Includes an entry of the pyramid in an extent.
+     *
+     * @param entry  the index of the entry
+     * @param result the extent
+     */
+    private void include(long entry, double[] result) {
+        result[0] = Math.min(result[0], index.getDouble(INDEX_HEADER_SIZE + entry * ENTRY_SIZE));
+        result[1] = Math.max(result[1], index.getDouble(INDEX_HEADER_SIZE + entry * ENTRY_SIZE + 8));
+    }
+
+    /**
+     * A file mapped in regions of at most {@link #MAX_CHUNK_SIZE} bytes. A
+     * region always holds whole records, so a value never spans two regions.
+     */
+    private static final class Mapping {
+
+        /**
+         * The mapped regions
+         */
+        private final MappedByteBuffer[] chunks;
+
+        /**
+         * The size of every region but the last
+         */
+        private final long chunkSize;
+
+        /**
+         * Maps a file.
+         *
+         * @param channel    the channel of the file, may be closed afterwards
+         * @param mode       the mode of the mapping
+         * @param size       the size of the mapped part of the file
+         * @param recordSize the size of a record
+         * @param order      the byte order
+         * @throws IOException if the file cannot be mapped
+         */
+        private Mapping(FileChannel channel, FileChannel.MapMode mode, long size, int recordSize, ByteOrder order)
+                throws IOException {
+            chunkSize = MAX_CHUNK_SIZE / recordSize * recordSize;
+            chunks = new MappedByteBuffer[(int) ((size + chunkSize - 1) / chunkSize)];
+            for (int i = 0; i < chunks.length; i++) {
+                long position = i * chunkSize;
+                chunks[i] = channel.map(mode, position, Math.min(chunkSize, size - position));
+                chunks[i].order(order);
+            }
+        }
+
+        /**
+         * Reads a double.
+         *
+         * @param offset the byte offset
+         * @return the double
+         */
+        private double getDouble(long offset) {
+            return chunks[(int) (offset / chunkSize)].getDouble((int) (offset % chunkSize));
+        }
+
+        /**
+         * Reads a float.
+         *
+         * @param offset the byte offset
+         * @return the float
+         */
+        private float getFloat(long offset) {
+            return chunks[(int) (offset / chunkSize)].getFloat((int) (offset % chunkSize));
+        }
+
+        /**
+         * Writes a double.
+         *
+         * @param offset the byte offset
+         * @param value  the double
+         */
+        private void putDouble(long offset, double value) {
+            chunks[(int) (offset / chunkSize)].putDouble((int) (offset % chunkSize), value);
+        }
+
+        /**
+         * Writes the changes to the file.
+         */
+        private void force() {
+            for (MappedByteBuffer chunk : chunks) {
+                chunk.force();
+            }
+        }
+
+    }
+
+}
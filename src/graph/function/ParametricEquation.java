@@ -21,6 +21,11 @@ public class ParametricEquation extends Graph {
      */
     private Formula y;
 
+    /**
+     * The memoized derivative of the parametric equation
+     */
+    private GraphFormula derivative;
+
     /**
      * Creates a {@link ParametricEquation}.
      *
@@ -55,6 +60,7 @@ public class ParametricEquation extends Graph {
             throw new IllegalArgumentException("The formula of the x cannot be null");
         }
         this.x = x;
+        this.derivative = null;
     }
 
     /**
@@ -77,6 +83,7 @@ public class ParametricEquation extends Graph {
             throw new IllegalArgumentException("The formula of the y cannot be null");
         }
         this.y = y;
+        this.derivative = null;
     }
 
     /**
@@ -88,19 +95,29 @@ public class ParametricEquation extends Graph {
     public void translate(BigDecimal dx, BigDecimal dy) {
         x = x.translate(BigDecimal.ZERO, dx);
         y = y.translate(BigDecimal.ZERO, dy);
+        derivative = null;
     }
 
     /**
      * Finds the derivative of the parametric equation using the limit definition
-     * and wraps it in a {@link GraphFormula}.
+     * and wraps it in a {@link GraphFormula}. The derivative is memoized until
+     * one of the formulas changes, the memo is guarded so headless renders
+     * can share the graph.
      *
      * @return the derivative as a {@link GraphFormula}
      */
-    public GraphFormula differentiate() {
-        Formula derivative = a -> getY().differentiate().calculate(a).divide(
-                getX().differentiate().calculate(a), MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP
-        );
-        return new GraphFormula("[" + getName() + "]'", derivative, getColor());
+    public synchronized GraphFormula differentiate() {
+        String name = "[" + getName() + "]'";
+        if (derivative == null || !derivative.getName().equals(name)) {
+            Formula dx = x.differentiate();
+            Formula dy = y.differentiate();
+            Formula f = a -> dy.calculate(a).divide(
+                    dx.calculate(a), MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP
+            );
+            derivative = new GraphFormula(name, f, getColor());
+        }
+        derivative.setColor(getColor());
+        return derivative;
     }
 
     /**
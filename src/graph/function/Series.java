@@ -0,0 +1,77 @@
+package graph.function;
+
+/**
+ * Represents a series of points whose x-values do not decrease. The points
+ * are addressed by their index, unmeasured points have a y-value of
+ * {@link Double#NaN}.
+ */
+public interface Series {
+
+    /**
+     * Returns the amount of points.
+     *
+     * @return the amount of points
+     */
+    long size();
+
+    /**
+     * Returns the x-value of a point.
+     *
+     * @param i the index of the point
+     * @return the x-value
+     */
+    double getX(long i);
+
+    /**
+     * Returns the y-value of a point.
+     *
+     * @param i the index of the point
+     * @return the y-value, {@link Double#NaN} if the point was not measured
+     */
+    double getY(long i);
+
+    /**
+     * Returns the index of the first point whose x-value is not less than
+     * {@code x}.
+     *
+     * @param x the x-value
+     * @return the index of the point or {@link #size()} if every point lies before {@code x}
+     */
+    default long lowerBound(double x) {
+        long low = 0;
+        long high = size();
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (getX(middle) < x) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the smallest and the largest y-value of a range of points.
+     * Unmeasured points are ignored.
+     *
+     * @param from   the index of the first point
+     * @param to     the index after the last point
+     * @param result receives the minimum and the maximum, infinite with the
+     *               wrong sign if no point of the range was measured
+     */
+    default void extent(long from, long to, double[] result) {
+        result[0] = Double.POSITIVE_INFINITY;
+        result[1] = Double.NEGATIVE_INFINITY;
+        for (long i = from; i < to; i++) {
+            double y = getY(i);
+            if (y < result[0]) {
+                result[0] = y;
+            }
+            if (y > result[1]) {
+                result[1] = y;
+            }
+        }
+    }
+
+}
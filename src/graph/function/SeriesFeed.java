@@ -0,0 +1,278 @@
+package graph.function;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class feeds a {@link StreamingSeries} with points read from a text
+ * source in a thread of its own. Every line holds a point: an x-value and
+ * a y-value separated by white space, a comma or a semicolon, or only a
+ * y-value, which is then placed at the seconds since the feed was started.
+ * Invalid lines and points whose x-value lies before the previous point
+ * are skipped.
+ */
+public final class SeriesFeed implements Closeable {
+
+    /**
+     * The longest accepted line, longer lines are skipped
+     */
+    private static final int MAX_LINE_LENGTH = 256;
+
+    /**
+     * The time between two checks of a tailed file for new content in milliseconds
+     */
+    private static final long POLL_INTERVAL = 50;
+
+    /**
+     * The fed series
+     */
+    private final StreamingSeries series;
+
+    /**
+     * The time the feed was started in nanoseconds
+     */
+    private final long startTime = System.nanoTime();
+
+    /**
+     * The current line
+     */
+    private final byte[] line = new byte[MAX_LINE_LENGTH];
+
+    /**
+     * The length of the current line, -1 while a too long line is skipped
+     */
+    private int length;
+
+    /**
+     * The amount of skipped lines
+     */
+    private volatile long skipped;
+
+    /**
+     * Closes the source
+     */
+    private volatile Closeable source;
+
+    /**
+     * The connection that is read from, closed together with the source
+     */
+    private volatile Socket connection;
+
+    /**
+     * Whether the feed was closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates a {@link SeriesFeed} object.
+     *
+     * @param series the fed series
+     */
+    private SeriesFeed(StreamingSeries series) {
+        this.series = series;
+    }
+
+    /**
+     * Accepts connections on a port of the loopback interface and reads
+     * points from one connection at a time. A connection that fails is
+     * reported and the next one is accepted.
+     *
+     * @param series the fed series
+     * @param port   the port
+     * @return the running feed
+     * @throws IOException if the port cannot be bound
+     */
+    public static SeriesFeed listen(StreamingSeries series, int port) throws IOException {
+        SeriesFeed feed = new SeriesFeed(series);
+        ServerSocket serverSocket = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+        feed.source = serverSocket;
+        feed.start("Feed of port " + port, () -> {
+            while (!feed.closed) {
+                Socket socket = serverSocket.accept();
+                feed.connection = socket;
+                // closing the stream closes the socket
+                try (InputStream in = socket.getInputStream()) {
+                    feed.read(in);
+                } catch (IOException e) {
+                    if (!feed.closed) {
+                        e.printStackTrace();
+                    }
+                } finally {
+                    feed.connection = null;
+                }
+            }
+        });
+        return feed;
+    }
+
+    /**
+     * Reads the points of a file and follows the file as it grows, like
+     * {@code tail -f}. A file that is truncated is read again from the start.
+     *
+     * @param series the fed series
+     * @param path   the file
+     * @return the running feed
+     * @throws IOException if the file cannot be opened
+     */
+    public static SeriesFeed tail(StreamingSeries series, Path path) throws IOException {
+        SeriesFeed feed = new SeriesFeed(series);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        feed.source = channel;
+        feed.start("Feed of " + path.getFileName(), () -> {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            while (!feed.closed) {
+                if (channel.size() < channel.position()) {
+                    channel.position(0);
+                    feed.length = 0;
+                }
+                buffer.clear();
+                int read = channel.read(buffer);
+                if (read > 0) {
+                    feed.parse(buffer.array(), read);
+                } else {
+                    try {
+                        Thread.sleep(POLL_INTERVAL);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        });
+        return feed;
+    }
+
+    /**
+     * Returns the amount of lines that were skipped.
+     *
+     * @return the amount of skipped lines
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Stops the feed and closes its source.
+     *
+     * @throws IOException if the source cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            source.close();
+        } finally {
+            Socket socket = connection;
+            if (socket != null) {
+                socket.close();
+            }
+        }
+    }
+
+    /**
+     * Starts the thread of the feed.
+     *
+     * @param name the name of the thread
+     * @param task reads the source until the feed is closed
+     */
+    private void start(String name, Task task) {
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                if (!closed) {
+                    e.printStackTrace();
+                }
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reads points from a stream until it ends.
+     *
+     * @param in the stream
+     * @throws IOException if the stream fails
+     */
+    private void read(InputStream in) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        length = 0;
+        for (int read; (read = in.read(buffer)) >= 0; ) {
+            parse(buffer, read);
+        }
+    }
+
+    /**
+     * Splits bytes into lines and appends their points.
+     *
+     * @param bytes  the bytes
+     * @param amount the amount of bytes
+     */
+    private void parse(byte[] bytes, int amount) {
+        for (int i = 0; i < amount; i++) {
+            byte b = bytes[i];
+            if (b == '\n') {
+                if (length > 0) {
+                    append(new String(line, 0, length, StandardCharsets.US_ASCII).trim());
+                } else if (length < 0) {
+                    skipped++;
+                }
+                length = 0;
+            } else if (length >= 0) {
+                if (length == line.length) {
+                    length = -1;
+                } else {
+                    line[length++] = b;
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the point of a line.
+     *
+     * @param text the line
+     */
+    private void append(String text) {
+        if (text.isEmpty()) {
+            return;
+        }
+        String[] values = text.split("\\s*[,;\\s]\\s*");
+        try {
+            if (values.length == 1) {
+                series.append((System.nanoTime() - startTime) / 1e9, Double.parseDouble(values[0]));
+            } else if (values.length == 2) {
+                series.append(Double.parseDouble(values[0]), Double.parseDouble(values[1]));
+            } else {
+                skipped++;
+            }
+        } catch (IllegalArgumentException e) {
+            skipped++;
+        }
+    }
+
+    /**
+     * Reads a source until the feed is closed.
+     */
+    @FunctionalInterface
+    private interface Task {
+
+        /**
+         * Runs the task.
+         *
+         * @throws IOException if the source fails
+         */
+        void run() throws IOException;
+
+    }
+
+}
@@ -0,0 +1,206 @@
+package graph.function;
+
+import java.awt.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * This class represents a series of points that are appended while it is
+ * drawn, e.g. telemetry. The latest points are kept in a ring buffer of a
+ * fixed capacity, older points are overwritten, so the memory stays the
+ * same however long the series is fed.
+ * <br>
+ * One producer thread appends without locks: a point is stored in the
+ * ring and then published by advancing a counter. Readers copy the points
+ * that were published since their last read into a mirror of the ring and
+ * drop the points the producer may have overwritten while they copied.
+ * The x-values must not decrease.
+ */
+public class StreamingSeries extends Graph {
+
+    /**
+     * The default amount of points that are kept
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    /**
+     * The amount of points that are kept
+     */
+    private final int capacity;
+
+    /**
+     * The ring of x-values, written by the producer
+     */
+    private final double[] x;
+
+    /**
+     * The ring of y-values, written by the producer
+     */
+    private final double[] y;
+
+    /**
+     * The amount of published points
+     */
+    private final AtomicLong published = new AtomicLong();
+
+    /**
+     * The last appended x-value, only used by the producer
+     */
+    private double lastX = Double.NEGATIVE_INFINITY;
+
+    /**
+     * The copies of the rings, only used by readers
+     */
+    private final double[] mirrorX, mirrorY;
+
+    /**
+     * The amount of points copied to the mirror
+     */
+    private long copied;
+
+    /**
+     * The index of the first valid point of the mirror
+     */
+    private long start;
+
+    /**
+     * The points of the mirror as a {@link Series}
+     */
+    private final Series window = new Window();
+
+    /**
+     * Creates a {@link StreamingSeries}.
+     *
+     * @param capacity the amount of points that are kept
+     * @param color    the color of the series
+     * @param name     the name of the series
+     */
+    public StreamingSeries(int capacity, Color color, String name) {
+        super(name, color);
+        if (capacity <= 1) {
+            throw new IllegalArgumentException("The capacity of the series must be greater than 1");
+        }
+        this.capacity = capacity;
+        x = new double[capacity];
+        y = new double[capacity];
+        mirrorX = new double[capacity];
+        mirrorY = new double[capacity];
+    }
+
+    /**
+     * Appends a point. This method must only be called by one thread at a
+     * time and does not block.
+     *
+     * @param x the x-value, not less than the previous one
+     * @param y the y-value, {@link Double#NaN} for a gap
+     */
+    public void append(double x, double y) {
+        if (!(x >= lastX)) {
+            throw new IllegalArgumentException("The x-value " + x + " is less than the previous x-value " + lastX);
+        }
+        long n = published.get();
+        int i = (int) (n % capacity);
+        this.x[i] = x;
+        this.y[i] = y;
+        lastX = x;
+        published.lazySet(n + 1);
+    }
+
+    /**
+     * Returns the amount of points that have been appended so far. The
+     * amount changes whenever a point is appended.
+     *
+     * @return the amount of appended points
+     */
+    public long getVersion() {
+        return published.get();
+    }
+
+    /**
+     * Returns the amount of points that are kept.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Reads the points that have been published at the moment of the call.
+     * The series passed to the reader must not be used after it returns.
+     *
+     * @param reader reads the points
+     * @param <T>    the type of the result
+     * @return the result of the reader
+     */
+    public synchronized <T> T read(Function<Series, T> reader) {
+        long end = published.get();
+        for (long i = Math.max(copied, end - capacity); i < end; ) {
+            int from = (int) (i % capacity);
+            int length = (int) Math.min(end - i, capacity - from);
+            System.arraycopy(x, from, mirrorX, from, length);
+            System.arraycopy(y, from, mirrorY, from, length);
+            i += length;
+        }
+        copied = end;
+        // the slot of a point is reused by the point that comes capacity points
+        // later, which may have been written during the copy
+        start = Math.max(0, published.get() - capacity + 1);
+        return reader.apply(window);
+    }
+
+    /**
+     * Compares this series to the specified object.  The result is {@code
+     * true} if and only if the argument is not {@code null} and is a {@link
+     * StreamingSeries} object with the same {@code name} as this
+     * object.
+     *
+     * @param o the object to compare this {@link StreamingSeries} against
+     * @return {@code true} if the given object represents a {@link StreamingSeries}
+     * equivalent to this {@link StreamingSeries}, {@code false} otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof StreamingSeries && super.equals(o);
+    }
+
+    /**
+     * The valid points of the mirror.
+     */
+    private final class Window implements Series {
+
+        /**
+         * {@inheritDoc}
+         *
+         * @return {@inheritDoc}
+         */
+        @Override
+        public long size() {
+            return Math.max(0, copied - start);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param i {@inheritDoc}
+         * @return {@inheritDoc}
+         */
+        @Override
+        public double getX(long i) {
+            return mirrorX[(int) ((start + i) % capacity)];
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @param i {@inheritDoc}
+         * @return {@inheritDoc}
+         */
+        @Override
+        public double getY(long i) {
+            return mirrorY[(int) ((start + i) % capacity)];
+        }
+
+    }
+
+}
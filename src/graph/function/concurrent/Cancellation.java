@@ -0,0 +1,47 @@
+package graph.function.concurrent;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * This class stops a running calculation. The workers of a calculation
+ * check the cancellation before every chunk, so a calculation that is no
+ * longer needed stops within one chunk instead of computing all of its
+ * samples. A cancelled calculation throws a {@link CancellationException}
+ * and does not store its samples in the {@link SampleCache}.
+ */
+public final class Cancellation {
+
+    /**
+     * Whether the calculation was cancelled
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Cancels the calculations that use this object. This method can be
+     * called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Determines whether the calculations were cancelled.
+     *
+     * @return true if {@link #cancel()} was called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Throws a {@link CancellationException} if the calculations were cancelled.
+     *
+     * @throws CancellationException if {@link #cancel()} was called
+     */
+    void check() {
+        if (cancelled) {
+            throw new CancellationException("The calculation was cancelled");
+        }
+    }
+
+}
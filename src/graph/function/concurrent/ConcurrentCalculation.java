@@ -1,16 +1,29 @@
 package graph.function.concurrent;
 
 
+import graph.Arithmetic;
 import graph.MathUtil;
+import graph.function.DataSeries;
+import graph.function.FiniteDomain;
 import graph.function.Formula;
+import graph.function.GraphFormula;
+import graph.function.Series;
+import graph.function.StreamingSeries;
 import graph.function.ParametricEquation;
-import graph.gui.GraphPanel;
-import graph.gui.ZoomHandler;
-import graph.gui.axis.FiniteDomain;
+import graph.render.Viewport;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 
 /**
  * This class is responsible for concurrent calculations.
@@ -18,161 +31,864 @@ import java.util.ArrayList;
 public class ConcurrentCalculation {
 
     /**
-     * Calculates the coordinates of a formula. This method splits the
-     * workload over two threads.
+     * Minimum amount of samples per chunk of the singularity filter
+     */
+    private static final int MIN_FILTER_CHUNK_SIZE = 1024;
+
+    /**
+     * The value used as infinity when limits are extended. Lines towards this
+     * value are clipped to the visible area when they are drawn.
+     */
+    private static final double EXTENDED_LIMIT = 1e100;
+
+    /**
+     * Amount of samples that are computed to estimate the cost of a formula
+     */
+    private static final int PROBE_SIZE = 32;
+
+    /**
+     * Estimated computation time in nanoseconds below which a formula is
+     * sampled in the calling thread
+     */
+    private static final long PARALLEL_THRESHOLD_NANOS = 2_000_000;
+
+    /**
+     * Estimated computation time of a tile in nanoseconds below which the
+     * tile is not stored in a {@link SampleCache}, cheap formulas would only
+     * evict the expensive ones
+     */
+    private static final long MIN_CACHED_TILE_NANOS = 250_000;
+
+    /**
+     * Binary digits between the visible height and the unit the value origin
+     * of cached tiles is rounded to. Values up to 2^10 heights away from the
+     * anchor keep far more precision than a pixel needs.
+     */
+    private static final int VALUE_UNIT_DIGITS = 10;
+
+    /**
+     * Pixel columns beyond the edges of the panel in which data series are sampled
+     */
+    private static final int SERIES_MARGIN = 2;
+
+    /**
+     * The work-stealing pool that uses every core
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Calculates the coordinates of a formula. The workload is split
+     * according to the measured cost of the formula.
      *
      * @param f                    the formula
      * @param d                    the domain
-     * @param zoomHandler          the {@link ZoomHandler}
+     * @param viewport             the current {@link Viewport}
      * @param stepSize             the step size
      * @param correctSingularities auto correct singularities?
      * @param extendLimits         auto extend limits?
      * @return the computed coordinates of this formula
      */
-    public static CoordinateSet calculate(Formula f, FiniteDomain d, ZoomHandler zoomHandler, BigDecimal stepSize, boolean correctSingularities, boolean extendLimits) {
+    public static CoordinateSet calculate(Formula f, FiniteDomain d, Viewport viewport, BigDecimal stepSize, boolean correctSingularities, boolean extendLimits) {
+        return calculate(f, d, viewport, stepSize, correctSingularities, extendLimits, null);
+    }
+
+    /**
+     * Calculates the coordinates of a formula and reuses the samples of a
+     * previous calculation with the same step size and anchor. The
+     * coordinates are local to the anchor of the viewport. Only the samples of the
+     * domain that {@code previous} does not cover are computed, e.g. the
+     * exposed strip after the viewport was moved horizontally.
+     *
+     * @param f                    the formula
+     * @param d                    the domain
+     * @param viewport             the current {@link Viewport}
+     * @param stepSize             the step size
+     * @param correctSingularities auto correct singularities?
+     * @param extendLimits         auto extend limits?
+     * @param previous             the previous coordinates of this formula, may be null
+     * @return the computed coordinates of this formula, {@code previous} itself
+     * if it covers exactly the same samples
+     */
+    public static CoordinateSet calculate(Formula f, FiniteDomain d, Viewport viewport, BigDecimal stepSize, boolean correctSingularities, boolean extendLimits, CoordinateSet previous) {
+        return calculate(f, d, viewport, stepSize, correctSingularities, extendLimits, previous, null);
+    }
+
+    /**
+     * Calculates the coordinates of a formula like
+     * {@link #calculate(Formula, FiniteDomain, Viewport, BigDecimal, boolean, boolean, CoordinateSet)}
+     * and looks the samples that {@code previous} does not cover up in a
+     * {@link SampleCache} first. Formulas without a structural key are
+     * sampled without the cache.
+     *
+     * @param f                    the formula
+     * @param d                    the domain
+     * @param viewport             the current {@link Viewport}
+     * @param stepSize             the step size
+     * @param correctSingularities auto correct singularities?
+     * @param extendLimits         auto extend limits?
+     * @param previous             the previous coordinates of this formula, may be null
+     * @param cache                the cache of samples, may be null
+     * @return the computed coordinates of this formula, {@code previous} itself
+     * if it covers exactly the same samples
+     */
+    public static CoordinateSet calculate(Formula f, FiniteDomain d, Viewport viewport, BigDecimal stepSize, boolean correctSingularities, boolean extendLimits,
+                                          CoordinateSet previous, SampleCache cache) {
+        return calculate(f, d, viewport, stepSize, correctSingularities, extendLimits, previous, cache, null);
+    }
+
+    /**
+     * Calculates the coordinates of a formula like
+     * {@link #calculate(Formula, FiniteDomain, Viewport, BigDecimal, boolean, boolean, CoordinateSet, SampleCache)}
+     * and stops as soon as the calculation is cancelled.
+     *
+     * @param f                    the formula
+     * @param d                    the domain
+     * @param viewport             the current {@link Viewport}
+     * @param stepSize             the step size
+     * @param correctSingularities auto correct singularities?
+     * @param extendLimits         auto extend limits?
+     * @param previous             the previous coordinates of this formula, may be null
+     * @param cache                the cache of samples, may be null
+     * @param cancellation         stops the calculation, may be null
+     * @return the computed coordinates of this formula, {@code previous} itself
+     * if it covers exactly the same samples
+     * @throws java.util.concurrent.CancellationException if the calculation was cancelled
+     */
+    public static CoordinateSet calculate(Formula f, FiniteDomain d, Viewport viewport, BigDecimal stepSize, boolean correctSingularities, boolean extendLimits,
+                                          CoordinateSet previous, SampleCache cache, Cancellation cancellation) {
+        CostModel costModel = new CostModel(cancellation);
+        BigDecimal anchorX = viewport.getAnchorX();
+        BigDecimal anchorY = viewport.getAnchorY();
+        Arithmetic arithmetic = viewport.getArithmetic();
+        BigDecimal valueUnit = valueUnit(viewport.getCurrentHeight());
+        BigDecimal origin = origin(anchorX, stepSize);
+        BigDecimal shift = origin.subtract(anchorX);
+        int firstIndex = firstIndex(d, shift, stepSize);
+        int lastIndex = lastIndex(d, shift, stepSize);
+        double[] yValues = new double[Math.max(lastIndex - firstIndex, 0)];
+        if (previous != null && previous.getStepSize().compareTo(stepSize) == 0
+                && previous.getAnchorX().equals(anchorX) && previous.getAnchorY().equals(anchorY)) {
+            if (previous.getFirstIndex() == firstIndex && previous.getY().length == yValues.length) {
+                return previous;
+            }
+            // copy the overlap, compute the samples before and after it
+            int previousFirst = Math.toIntExact(previous.getFirstIndex());
+            int from = Math.max(firstIndex, previousFirst);
+            int to = Math.min(lastIndex, previousFirst + previous.getY().length);
+            if (from < to) {
+                System.arraycopy(previous.getY(), from - previousFirst, yValues, from - firstIndex, to - from);
+                double[] before = calculateValues(f, firstIndex, stepSize, origin, anchorY, valueUnit, arithmetic, from - firstIndex, costModel, cache);
+                System.arraycopy(before, 0, yValues, 0, before.length);
+                double[] after = calculateValues(f, to, stepSize, origin, anchorY, valueUnit, arithmetic, lastIndex - to, costModel, cache);
+                System.arraycopy(after, 0, yValues, to - firstIndex, after.length);
+            } else {
+                yValues = calculateValues(f, firstIndex, stepSize, origin, anchorY, valueUnit, arithmetic, yValues.length, costModel, cache);
+            }
+        } else {
+            yValues = calculateValues(f, firstIndex, stepSize, origin, anchorY, valueUnit, arithmetic, yValues.length, costModel, cache);
+        }
         CoordinateSet coordinateSet = new CoordinateSet();
-        ArrayList<BigDecimal> yValues = calculateYValues(f, d, zoomHandler, stepSize, correctSingularities, extendLimits);
         coordinateSet.setY(yValues);
+        coordinateSet.setMetrics(costModel.toMetrics());
 
-        // calculate and add the x values
-        int domainStart = d.getStart().divide(stepSize, MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP).intValue();
-        int domainEnd = d.getEnd().divide(stepSize, MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP).intValue();
-        ArrayList<BigDecimal> xValues = new ArrayList<>(yValues.size());
-        for (int i = domainStart; i < domainEnd; i++) {
-            xValues.add(BigDecimal.valueOf(i).multiply(stepSize));
-        }
-        coordinateSet.setX(xValues);
+        // calculate the x values
+        coordinateSet.setX(xValues(shift, firstIndex, stepSize, yValues.length));
+        coordinateSet.setGrid(firstIndex, stepSize, origin);
+        coordinateSet.setAnchor(anchorX, anchorY);
 
+        coordinateSet.setSegments(filter(coordinateSet.getX(), yValues, viewport, false, correctSingularities, extendLimits));
         return coordinateSet;
     }
 
     /**
-     * Calculates the coordinates of a parametric equation. This method
-     * splits the workload over four threads.
+     * Calculates the coordinates of a parametric equation. Both formulas
+     * are sampled at the same time, the workload is split according to the
+     * measured cost of the formulas. The coordinates are local to the anchor
+     * of the viewport, the parameter is not.
      *
      * @param p                    the parametric equation
      * @param d                    the domain
-     * @param zoomHandler          the {@link ZoomHandler}
+     * @param viewport             the current {@link Viewport}
+     * @param stepSize             the step size of the parameter
      * @param correctSingularities auto correct singularities?
      * @param extendLimits         auto extend limits?
      * @return the computed coordinates of this parametric equation
      */
-    public static CoordinateSet calculate(ParametricEquation p, FiniteDomain d, ZoomHandler zoomHandler, boolean correctSingularities, boolean extendLimits) {
+    public static CoordinateSet calculate(ParametricEquation p, FiniteDomain d, Viewport viewport, BigDecimal stepSize, boolean correctSingularities, boolean extendLimits) {
+        return calculate(p, d, viewport, stepSize, correctSingularities, extendLimits, null);
+    }
+
+    /**
+     * Calculates the coordinates of a parametric equation like
+     * {@link #calculate(ParametricEquation, FiniteDomain, Viewport, BigDecimal, boolean, boolean)}
+     * and looks the samples of both formulas up in a {@link SampleCache} first.
+     *
+     * @param p                    the parametric equation
+     * @param d                    the domain
+     * @param viewport             the current {@link Viewport}
+     * @param stepSize             the step size of the parameter
+     * @param correctSingularities auto correct singularities?
+     * @param extendLimits         auto extend limits?
+     * @param cache                the cache of samples, may be null
+     * @return the computed coordinates of this parametric equation
+     */
+    public static CoordinateSet calculate(ParametricEquation p, FiniteDomain d, Viewport viewport, BigDecimal stepSize, boolean correctSingularities, boolean extendLimits,
+                                          SampleCache cache) {
+        return calculate(p, d, viewport, stepSize, correctSingularities, extendLimits, cache, null);
+    }
+
+    /**
+     * Calculates the coordinates of a parametric equation like
+     * {@link #calculate(ParametricEquation, FiniteDomain, Viewport, BigDecimal, boolean, boolean, SampleCache)}
+     * and stops as soon as the calculation is cancelled.
+     *
+     * @param p                    the parametric equation
+     * @param d                    the domain
+     * @param viewport             the current {@link Viewport}
+     * @param stepSize             the step size of the parameter
+     * @param correctSingularities auto correct singularities?
+     * @param extendLimits         auto extend limits?
+     * @param cache                the cache of samples, may be null
+     * @param cancellation         stops the calculation, may be null
+     * @return the computed coordinates of this parametric equation
+     * @throws java.util.concurrent.CancellationException if the calculation was cancelled
+     */
+    public static CoordinateSet calculate(ParametricEquation p, FiniteDomain d, Viewport viewport, BigDecimal stepSize, boolean correctSingularities, boolean extendLimits,
+                                          SampleCache cache, Cancellation cancellation) {
         CoordinateSet coordinateSet = new CoordinateSet();
-        Thread t1 = new Thread(() -> coordinateSet.setX(calculateYValues(p.getX(), d, zoomHandler, GraphPanel.PARAMETRIC_EQUATION_STEP_SIZE, correctSingularities, extendLimits)));
-        Thread t2 = new Thread(() -> coordinateSet.setY(calculateYValues(p.getY(), d, zoomHandler, GraphPanel.PARAMETRIC_EQUATION_STEP_SIZE, correctSingularities, extendLimits)));
-        t1.start();
-        t2.start();
-        try {
-            t1.join();
-            t2.join();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        CostModel xCostModel = new CostModel(cancellation);
+        CostModel yCostModel = new CostModel(cancellation);
+        BigDecimal anchorX = viewport.getAnchorX();
+        BigDecimal anchorY = viewport.getAnchorY();
+        Arithmetic arithmetic = viewport.getArithmetic();
+        BigDecimal xUnit = valueUnit(viewport.getCurrentWidth());
+        BigDecimal yUnit = valueUnit(viewport.getCurrentHeight());
+        int firstIndex = firstIndex(d, BigDecimal.ZERO, stepSize);
+        int count = Math.max(lastIndex(d, BigDecimal.ZERO, stepSize) - firstIndex, 0);
+        ForkJoinTask<double[]> xValues = POOL.submit(() -> calculateValues(
+                p.getX(), firstIndex, stepSize, BigDecimal.ZERO, anchorX, xUnit, arithmetic, count, xCostModel, cache
+        ));
+        coordinateSet.setY(calculateValues(p.getY(), firstIndex, stepSize, BigDecimal.ZERO, anchorY, yUnit, arithmetic, count, yCostModel, cache));
+        coordinateSet.setX(xValues.join());
+        coordinateSet.setMetrics(SamplingMetrics.combine(xCostModel.toMetrics(), yCostModel.toMetrics()));
+        coordinateSet.setGrid(firstIndex, stepSize);
+        coordinateSet.setAnchor(anchorX, anchorY);
+        coordinateSet.setSegments(filter(coordinateSet.getX(), coordinateSet.getY(), viewport, correctSingularities, correctSingularities, extendLimits));
+        return coordinateSet;
+    }
+
+    /**
+     * Calculates the coordinates of a data series. The points are reduced to
+     * at most four per pixel column: the first and the last point of the
+     * column and the extent of the points in between, found in the pyramid
+     * of the series. Columns of a few points keep their points. The columns
+     * are aligned to the pixels of the anchor, so after a move by whole
+     * pixels the columns of the old domain are unchanged.
+     *
+     * @param s        the data series
+     * @param viewport the current {@link Viewport}
+     * @param previous the coordinates at the same zoom or {@code null}, returned
+     *                 unchanged if the domain did not move
+     * @return the computed coordinates of the data series
+     */
+    public static CoordinateSet calculate(DataSeries s, Viewport viewport, CoordinateSet previous) {
+        return calculate(s.getData(), viewport, previous);
+    }
+
+    /**
+     * Calculates the coordinates of a streaming series from the points it
+     * holds at the moment of the call, in the same way as the coordinates
+     * of a {@link DataSeries}.
+     *
+     * @param s        the streaming series
+     * @param viewport the current {@link Viewport}
+     * @return the computed coordinates of the streaming series
+     */
+    public static CoordinateSet calculate(StreamingSeries s, Viewport viewport) {
+        return s.read(data -> calculate(data, viewport, null));
+    }
+
+    /**
+     * Reduces a series to the pixel columns of a viewport.
+     *
+     * @param data     the points
+     * @param viewport the current {@link Viewport}
+     * @param previous the coordinates at the same zoom or {@code null}
+     * @return the computed coordinates or {@code previous} if the domain did not move
+     */
+    private static CoordinateSet calculate(Series data, Viewport viewport, CoordinateSet previous) {
+        BigDecimal anchorX = viewport.getAnchorX();
+        BigDecimal anchorY = viewport.getAnchorY();
+        double offsetX = anchorX.doubleValue();
+        double offsetY = anchorY.doubleValue();
+        double scale = viewport.getTransform().getScaleX();
+        long firstColumn = (long) Math.floor(viewport.toGraphX(-SERIES_MARGIN) * scale);
+        long lastColumn = (long) Math.ceil(viewport.toGraphX(viewport.getWidth() + SERIES_MARGIN) * scale);
+        if (previous != null && previous.getFirstIndex() == firstColumn) {
+            return previous;
         }
+
+        int capacity = (int) Math.min(Integer.MAX_VALUE / 2, (lastColumn - firstColumn) * 4 + 2);
+        double[] x = new double[capacity];
+        double[] y = new double[capacity];
+        int count = 0;
+        double[] extent = new double[2];
+        long from = data.lowerBound(offsetX + firstColumn / scale);
+        // the point before the domain connects the graph to the left edge
+        if (from > 0) {
+            x[count] = data.getX(from - 1) - offsetX;
+            y[count++] = data.getY(from - 1) - offsetY;
+        }
+        for (long column = firstColumn; column < lastColumn && from < data.size(); column++) {
+            long to = data.lowerBound(offsetX + (column + 1) / scale);
+            if (to - from <= 4) {
+                for (long i = from; i < to; i++) {
+                    x[count] = data.getX(i) - offsetX;
+                    y[count++] = data.getY(i) - offsetY;
+                }
+            } else {
+                data.extent(from + 1, to - 1, extent);
+                double center = (column + 0.5) / scale;
+                x[count] = data.getX(from) - offsetX;
+                y[count++] = data.getY(from) - offsetY;
+                x[count] = center;
+                y[count++] = extent[0] <= extent[1] ? extent[0] - offsetY : Double.NaN;
+                x[count] = center;
+                y[count++] = extent[0] <= extent[1] ? extent[1] - offsetY : Double.NaN;
+                x[count] = data.getX(to - 1) - offsetX;
+                y[count++] = data.getY(to - 1) - offsetY;
+            }
+            from = to;
+        }
+        // the point after the domain connects the graph to the right edge
+        if (from < data.size()) {
+            x[count] = data.getX(from) - offsetX;
+            y[count++] = data.getY(from) - offsetY;
+        }
+
+        CoordinateSet coordinateSet = new CoordinateSet();
+        coordinateSet.setX(Arrays.copyOf(x, count));
+        coordinateSet.setY(Arrays.copyOf(y, count));
+        coordinateSet.setGrid(firstColumn, BigDecimal.ONE.divide(BigDecimal.valueOf(scale), MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP));
+        coordinateSet.setAnchor(anchorX, anchorY);
+        coordinateSet.setSegments(filter(coordinateSet.getX(), coordinateSet.getY(), viewport, false, false, false));
         return coordinateSet;
     }
 
     /**
-     * Calculates the y-coordinates of a {@link Formula}. This method
-     * splits the workload over two threads.
+     * Refines the coordinates of a formula to twice the sample density. The
+     * refined grid is the grid of the domain at half the step size, so the
+     * result is identical to sampling at that step size directly. The
+     * samples of {@code coarse} are reused where the grids coincide, only
+     * the midpoints between them and the samples at the edges of the domain
+     * are computed.
      *
      * @param f                    the formula
-     * @param d                    the domain
-     * @param zoomHandler          the {@link ZoomHandler}
-     * @param stepSize             the step size
+     * @param d                    the domain the coarse coordinates were computed for
+     * @param coarse               the computed coordinates of the formula
+     * @param viewport             the current {@link Viewport}
      * @param correctSingularities auto correct singularities?
      * @param extendLimits         auto extend limits?
-     * @return an {@link ArrayList} with computed the y-coordinates
-     */
-    private static ArrayList<BigDecimal> calculateYValues(Formula f, FiniteDomain d, ZoomHandler zoomHandler, BigDecimal stepSize, boolean correctSingularities, boolean extendLimits) {
-        BigDecimal workLoad = d.getStart().add(d.getDistance().divide(BigDecimal.valueOf(2), MathUtil.FLOATING_POINT_PRECISION, RoundingMode.UP));
-        ArrayList<BigDecimal> values = new ArrayList<>(d.getDistance().intValue());
-        Worker worker1 = new Worker(f, new FiniteDomain(d.getStart(), workLoad), stepSize);
-        Worker worker2 = new Worker(f, new FiniteDomain(workLoad, d.getEnd()), stepSize);
-        Thread t1 = new Thread(worker1);
-        Thread t2 = new Thread(worker2);
-
-        t1.start();
-        t2.start();
-        try {
-            t1.join();
-            t2.join();
-            values.addAll(worker1.getValues());
-            values.addAll(worker2.getValues());
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-
-        // filter singularities
-        if (correctSingularities) {
-            for (int i = 1; i < values.size() - 3; i++) {
-                int j = i + 1;
-                BigDecimal y1 = values.get(i);
-                BigDecimal y2 = values.get(j);
-                if (y1 != null && y2 != null) {
-                    ArrayList<BigDecimal> filtered = filter(values, i, y1, y2, zoomHandler, extendLimits);
-                    if (filtered != null) {
-                        values = filtered;
-                    }
-                }
+     * @return the refined coordinates of this formula
+     */
+    public static CoordinateSet refine(Formula f, FiniteDomain d, CoordinateSet coarse, Viewport viewport, boolean correctSingularities, boolean extendLimits) {
+        return refine(f, d, coarse, viewport, correctSingularities, extendLimits, null);
+    }
+
+    /**
+     * Refines the coordinates of a formula like
+     * {@link #refine(Formula, FiniteDomain, CoordinateSet, Viewport, boolean, boolean)}
+     * and stops as soon as the refinement is cancelled.
+     *
+     * @param f                    the formula
+     * @param d                    the domain the coarse coordinates were computed for
+     * @param coarse               the computed coordinates of the formula
+     * @param viewport             the current {@link Viewport}
+     * @param correctSingularities auto correct singularities?
+     * @param extendLimits         auto extend limits?
+     * @param cancellation         stops the refinement, may be null
+     * @return the refined coordinates of this formula
+     * @throws java.util.concurrent.CancellationException if the refinement was cancelled
+     */
+    public static CoordinateSet refine(Formula f, FiniteDomain d, CoordinateSet coarse, Viewport viewport, boolean correctSingularities, boolean extendLimits,
+                                       Cancellation cancellation) {
+        CoordinateSet coordinateSet = new CoordinateSet();
+        BigDecimal stepSize = coarse.getStepSize().divide(BigDecimal.valueOf(2));
+        BigDecimal origin = origin(coarse.getAnchorX(), stepSize);
+        BigDecimal shift = origin.subtract(coarse.getAnchorX());
+        int firstIndex = firstIndex(d, shift, stepSize);
+        int lastIndex = lastIndex(d, shift, stepSize);
+        int offset = coarse.getOrigin().subtract(origin).divide(stepSize).intValueExact();
+        CostModel costModel = new CostModel(cancellation);
+        double[] yValues = refineValues(f, coarse, coarse.getY(), offset, firstIndex, lastIndex, stepSize, origin, coarse.getAnchorY(),
+                viewport.getArithmetic(), costModel);
+        coordinateSet.setY(yValues);
+        coordinateSet.setMetrics(costModel.toMetrics());
+
+        coordinateSet.setX(xValues(shift, firstIndex, stepSize, yValues.length));
+        coordinateSet.setGrid(firstIndex, stepSize, origin);
+        coordinateSet.setAnchor(coarse.getAnchorX(), coarse.getAnchorY());
+
+        coordinateSet.setSegments(filter(coordinateSet.getX(), yValues, viewport, false, correctSingularities, extendLimits));
+        return coordinateSet;
+    }
+
+    /**
+     * Refines the coordinates of a parametric equation to twice the sample
+     * density like {@link #refine(Formula, FiniteDomain, CoordinateSet, Viewport, boolean, boolean)}.
+     *
+     * @param p                    the parametric equation
+     * @param d                    the domain of the parameter the coarse coordinates were computed for
+     * @param coarse               the computed coordinates of the parametric equation
+     * @param viewport             the current {@link Viewport}
+     * @param correctSingularities auto correct singularities?
+     * @param extendLimits         auto extend limits?
+     * @return the refined coordinates of this parametric equation
+     */
+    public static CoordinateSet refine(ParametricEquation p, FiniteDomain d, CoordinateSet coarse, Viewport viewport, boolean correctSingularities, boolean extendLimits) {
+        return refine(p, d, coarse, viewport, correctSingularities, extendLimits, null);
+    }
+
+    /**
+     * Refines the coordinates of a parametric equation like
+     * {@link #refine(ParametricEquation, FiniteDomain, CoordinateSet, Viewport, boolean, boolean)}
+     * and stops as soon as the refinement is cancelled.
+     *
+     * @param p                    the parametric equation
+     * @param d                    the domain of the parameter the coarse coordinates were computed for
+     * @param coarse               the computed coordinates of the parametric equation
+     * @param viewport             the current {@link Viewport}
+     * @param correctSingularities auto correct singularities?
+     * @param extendLimits         auto extend limits?
+     * @param cancellation         stops the refinement, may be null
+     * @return the refined coordinates of this parametric equation
+     * @throws java.util.concurrent.CancellationException if the refinement was cancelled
+     */
+    public static CoordinateSet refine(ParametricEquation p, FiniteDomain d, CoordinateSet coarse, Viewport viewport, boolean correctSingularities, boolean extendLimits,
+                                       Cancellation cancellation) {
+        CoordinateSet coordinateSet = new CoordinateSet();
+        BigDecimal stepSize = coarse.getStepSize().divide(BigDecimal.valueOf(2));
+        int firstIndex = firstIndex(d, BigDecimal.ZERO, stepSize);
+        int lastIndex = lastIndex(d, BigDecimal.ZERO, stepSize);
+        CostModel xCostModel = new CostModel(cancellation);
+        CostModel yCostModel = new CostModel(cancellation);
+        Arithmetic arithmetic = viewport.getArithmetic();
+        ForkJoinTask<double[]> xValues = POOL.submit(() -> refineValues(
+                p.getX(), coarse, coarse.getX(), 0, firstIndex, lastIndex, stepSize, BigDecimal.ZERO, coarse.getAnchorX(), arithmetic, xCostModel
+        ));
+        coordinateSet.setY(refineValues(
+                p.getY(), coarse, coarse.getY(), 0, firstIndex, lastIndex, stepSize, BigDecimal.ZERO, coarse.getAnchorY(), arithmetic, yCostModel
+        ));
+        coordinateSet.setX(xValues.join());
+        coordinateSet.setMetrics(SamplingMetrics.combine(xCostModel.toMetrics(), yCostModel.toMetrics()));
+        coordinateSet.setGrid(firstIndex, stepSize);
+        coordinateSet.setAnchor(coarse.getAnchorX(), coarse.getAnchorY());
+        coordinateSet.setSegments(filter(coordinateSet.getX(), coordinateSet.getY(), viewport, correctSingularities, correctSingularities, extendLimits));
+        return coordinateSet;
+    }
+
+    /**
+     * Calculates the values of a {@link Formula} on the grid of the domain
+     * at half the step size of coarse coordinates. Every second sample of the
+     * refined grid coincides with a coarse sample and is copied, unless the
+     * start value that is added to the arguments differs between both step
+     * sizes. The samples in between and the samples that the coarse grid does
+     * not cover are computed.
+     *
+     * @param f              the formula
+     * @param coarse         the coarse coordinates
+     * @param coarseValues   the coarse values of {@code f}
+     * @param offset         the refined index of the coarse sample with index zero
+     * @param firstIndex     the index of the first refined sample in the domain
+     * @param lastIndex      the index after the last refined sample in the domain
+     * @param stepSize       the refined step size
+     * @param argumentOffset the argument of the sample with index zero
+     * @param valueOffset    the offset that is subtracted from the values
+     * @param arithmetic     the number type the formula is evaluated with
+     * @param costModel      the cost model that records the measured cost
+     * @return an array with the refined values, {@link Double#NaN}
+     * where the formula is undefined
+     */
+    private static double[] refineValues(Formula f, CoordinateSet coarse, double[] coarseValues, int offset, int firstIndex, int lastIndex,
+                                         BigDecimal stepSize, BigDecimal argumentOffset, BigDecimal valueOffset, Arithmetic arithmetic,
+                                         CostModel costModel) {
+        double[] values = new double[Math.max(lastIndex - firstIndex, 0)];
+        int firstCoarse = firstIndex + Math.floorMod(offset - firstIndex, 2);
+        int coarseFirst = Math.toIntExact(coarse.getFirstIndex());
+        int from = Math.max(firstCoarse, offset + 2 * coarseFirst);
+        int to = Math.min(lastIndex, offset + 2 * (coarseFirst + coarseValues.length));
+        if (Worker.startValue(stepSize).compareTo(Worker.startValue(coarse.getStepSize())) != 0 || from >= to) {
+            from = firstCoarse;
+            to = firstCoarse;
+        }
+        for (int i = from; i < to; i += 2) {
+            values[i - firstIndex] = coarseValues[(i - offset) / 2 - coarseFirst];
+        }
+        int firstMidpoint = firstIndex + Math.floorMod(offset + 1 - firstIndex, 2);
+        calculateValues(f, values, firstIndex, firstMidpoint, lastIndex, stepSize, argumentOffset, valueOffset, arithmetic, costModel);
+        calculateValues(f, values, firstIndex, firstCoarse, from, stepSize, argumentOffset, valueOffset, arithmetic, costModel);
+        calculateValues(f, values, firstIndex, to, lastIndex, stepSize, argumentOffset, valueOffset, arithmetic, costModel);
+        return values;
+    }
+
+    /**
+     * Calculates the values of a {@link Formula} at every second sample
+     * {@code from}, {@code from + 2}, ... before {@code to} and stores them
+     * in an array of consecutive samples.
+     *
+     * @param f              the formula
+     * @param values         the values of the samples from {@code firstIndex} on
+     * @param firstIndex     the index of the first sample of {@code values}
+     * @param from           the index of the first sample to compute
+     * @param to             the index after the last sample to compute
+     * @param stepSize       the step size
+     * @param argumentOffset the argument of the sample with index zero
+     * @param valueOffset    the offset that is subtracted from the values
+     * @param arithmetic     the number type the formula is evaluated with
+     * @param costModel      the cost model that records the measured cost
+     */
+    private static void calculateValues(Formula f, double[] values, int firstIndex, int from, int to, BigDecimal stepSize,
+                                        BigDecimal argumentOffset, BigDecimal valueOffset, Arithmetic arithmetic, CostModel costModel) {
+        if (from >= to) {
+            return;
+        }
+        double[] computed = calculateValues(f, from, 2, stepSize, argumentOffset, valueOffset, arithmetic, (to - from + 1) / 2, costModel);
+        for (int i = 0; i < computed.length; i++) {
+            values[from - firstIndex + 2 * i] = computed[i];
+        }
+    }
+
+    /**
+     * Calculates the coordinates of the derivative of a formula from the
+     * already computed coordinates of the formula. The derivative is
+     * approximated with finite difference stencils. The {@code derivative}
+     * formula is only evaluated where no stencil is valid, e.g. near holes.
+     *
+     * @param coordinateSet        the computed coordinates of the formula
+     * @param derivative           the exact derivative of the formula
+     * @param viewport             the current {@link Viewport}
+     * @param correctSingularities auto correct singularities?
+     * @param extendLimits         auto extend limits?
+     * @return the computed coordinates of the derivative
+     */
+    public static CoordinateSet differentiate(CoordinateSet coordinateSet, Formula derivative, Viewport viewport, boolean correctSingularities, boolean extendLimits) {
+        double[] values = coordinateSet.getY();
+        double h = coordinateSet.getStepSize().doubleValue();
+        double height = viewport.getCurrentHeight();
+        double offset = coordinateSet.getAnchorY().doubleValue();
+        double[] derivativeValues = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            derivativeValues[i] = FiniteDifference.derivative(values, i, h, height) - offset;
+            if (Double.isNaN(derivativeValues[i]) && Double.isFinite(values[i])) {
+                derivativeValues[i] = Worker.calculate(derivative, Math.toIntExact(coordinateSet.getFirstIndex()) + i, coordinateSet.getStepSize(),
+                        coordinateSet.getOrigin(), coordinateSet.getAnchorY(), viewport.getArithmetic());
             }
         }
 
+        CoordinateSet result = new CoordinateSet();
+        result.setX(coordinateSet.getX());
+        result.setY(derivativeValues);
+        result.setGrid(coordinateSet.getFirstIndex(), coordinateSet.getStepSize(), coordinateSet.getOrigin());
+        result.setAnchor(coordinateSet.getAnchorX(), coordinateSet.getAnchorY());
+        result.setSegments(filter(result.getX(), derivativeValues, viewport, false, correctSingularities, extendLimits));
+        return result;
+    }
+
+    /**
+     * Calculates the coordinates of the derivative of a parametric equation from
+     * the already computed coordinates of the parametric equation. The derivative
+     * dy/dx is plotted against the parameter, like the {@link GraphFormula}
+     * created by {@link ParametricEquation#differentiate()}. The {@code derivative}
+     * formula is only evaluated where no stencil is valid, e.g. near holes.
+     *
+     * @param coordinateSet        the computed coordinates of the parametric equation
+     * @param derivative           the exact derivative of the parametric equation
+     * @param viewport             the current {@link Viewport}
+     * @param correctSingularities auto correct singularities?
+     * @param extendLimits         auto extend limits?
+     * @return the computed coordinates of the derivative
+     */
+    public static CoordinateSet differentiateParametric(CoordinateSet coordinateSet, Formula derivative, Viewport viewport, boolean correctSingularities, boolean extendLimits) {
+        double[] x = coordinateSet.getX();
+        double[] y = coordinateSet.getY();
+        int firstIndex = Math.toIntExact(coordinateSet.getFirstIndex());
+        BigDecimal stepSize = coordinateSet.getStepSize();
+        double h = stepSize.doubleValue();
+        double height = viewport.getCurrentHeight();
+        BigDecimal anchorX = coordinateSet.getAnchorX();
+        BigDecimal anchorY = coordinateSet.getAnchorY();
+        double parameterOffset = anchorX.doubleValue();
+        double offset = anchorY.doubleValue();
+        double[] parameters = new double[x.length];
+        double[] derivativeValues = new double[x.length];
+        for (int i = 0; i < x.length; i++) {
+            parameters[i] = (firstIndex + i) * h - parameterOffset;
+            derivativeValues[i] = FiniteDifference.derivative(y, i, h, height) / FiniteDifference.derivative(x, i, h, height) - offset;
+            if (Double.isNaN(derivativeValues[i]) && Double.isFinite(x[i]) && Double.isFinite(y[i])) {
+                derivativeValues[i] = Worker.calculate(derivative, firstIndex + i, stepSize, BigDecimal.ZERO, anchorY, viewport.getArithmetic());
+            }
+        }
+
+        CoordinateSet result = new CoordinateSet();
+        result.setX(parameters);
+        result.setY(derivativeValues);
+        result.setGrid(firstIndex, stepSize);
+        result.setAnchor(anchorX, anchorY);
+        result.setSegments(filter(parameters, derivativeValues, viewport, false, correctSingularities, extendLimits));
+        return result;
+    }
+
+    /**
+     * Returns the index of the first sample in the domain.
+     *
+     * @param d        the domain, relative to the anchor
+     * @param shift    the distance of the origin of the grid from the anchor
+     * @param stepSize the step size
+     * @return the index of the first sample
+     */
+    private static int firstIndex(FiniteDomain d, BigDecimal shift, BigDecimal stepSize) {
+        return d.getStart().subtract(shift).divide(stepSize, MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP).intValue();
+    }
+
+    /**
+     * Returns the index after the last sample in the domain.
+     *
+     * @param d        the domain, relative to the anchor
+     * @param shift    the distance of the origin of the grid from the anchor
+     * @param stepSize the step size
+     * @return the index after the last sample
+     */
+    private static int lastIndex(FiniteDomain d, BigDecimal shift, BigDecimal stepSize) {
+        return d.getEnd().subtract(shift).divide(stepSize, MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP).intValue();
+    }
+
+    /**
+     * Returns the origin of the grid of a formula, the multiple of a whole
+     * tile of samples closest to the anchor. The arguments of the samples
+     * only depend on the step size, not on the anchor, so the samples of
+     * different anchors are the same tiles of a {@link SampleCache}.
+     *
+     * @param anchorX  the graph x-coordinate of the anchor
+     * @param stepSize the step size
+     * @return the argument of the sample with index zero
+     */
+    private static BigDecimal origin(BigDecimal anchorX, BigDecimal stepSize) {
+        BigDecimal tile = stepSize.multiply(BigDecimal.valueOf(SampleCache.TILE_SIZE));
+        return anchorX.divide(tile, 0, RoundingMode.HALF_UP).multiply(tile);
+    }
+
+    /**
+     * Calculates the x-coordinates of a formula, local to the anchor.
+     *
+     * @param shift      the distance of the origin of the grid from the anchor
+     * @param firstIndex the index of the first sample in the domain
+     * @param stepSize   the step size
+     * @param count      the amount of samples
+     * @return the x-coordinates
+     */
+    private static double[] xValues(BigDecimal shift, int firstIndex, BigDecimal stepSize, int count) {
+        double offset = shift.doubleValue();
+        double step = stepSize.doubleValue();
+        double[] xValues = new double[count];
+        for (int i = 0; i < count; i++) {
+            xValues[i] = offset + (firstIndex + i) * step;
+        }
+        return xValues;
+    }
+
+    /**
+     * Returns the unit the value origin of cached tiles is rounded to, a power
+     * of two far larger than the visible extent of the values.
+     *
+     * @param extent the visible extent of the values
+     * @return the unit of the value origin
+     */
+    private static BigDecimal valueUnit(double extent) {
+        int exponent = Double.isFinite(extent) && extent > 0 ? Math.getExponent(extent) : 0;
+        return new BigDecimal(Math.scalb(1.0, exponent + VALUE_UNIT_DIGITS));
+    }
+
+    /**
+     * Calculates the values of a {@link Formula} at consecutive samples of
+     * the domain and looks them up in a {@link SampleCache} first. The cache
+     * holds tiles of samples, a tile that is not cached is computed as a
+     * whole, together with the other missing tiles next to it, so the samples
+     * around the requested ones are cached for the next move of the viewport.
+     * The tiles are keyed by the step size and their position on the grid of
+     * all arguments, their values are stored relative to a multiple of
+     * {@code valueUnit}, so they do not depend on the anchor. A few samples
+     * are computed first, the cache is only used if a tile of the formula is
+     * expensive enough, and the computed samples are copied into their tile.
+     *
+     * @param f              the formula
+     * @param firstIndex     the index of the first sample in the domain
+     * @param stepSize       the step size
+     * @param argumentOffset the argument of the sample with index zero, a multiple of a whole tile
+     * @param valueOffset    the offset that is subtracted from the values
+     * @param valueUnit      the unit the value origin of the tiles is rounded to
+     * @param arithmetic     the number type the formula is evaluated with
+     * @param count          the amount of values to compute
+     * @param costModel      the cost model that records the measured cost
+     * @param cache          the cache of samples, may be null
+     * @return an array with the computed values, {@link Double#NaN}
+     * where the formula is undefined
+     */
+    private static double[] calculateValues(Formula f, int firstIndex, BigDecimal stepSize, BigDecimal argumentOffset, BigDecimal valueOffset,
+                                            BigDecimal valueUnit, Arithmetic arithmetic, int count, CostModel costModel, SampleCache cache) {
+        String key = cache == null || count == 0 ? null : f.getStructuralKey();
+        BigInteger tileOffset = argumentOffset.divide(stepSize.multiply(BigDecimal.valueOf(SampleCache.TILE_SIZE))).toBigIntegerExact();
+        if (key == null || tileOffset.bitLength() >= Long.SIZE - 1) {
+            return calculateValues(f, firstIndex, 1, stepSize, argumentOffset, valueOffset, arithmetic, count, costModel);
+        }
+        // cheap formulas are computed faster than a tile is looked up
+        double[] values = new double[count];
+        int probe = 0;
+        if (costModel.nanosPerSample() == 0) {
+            probe = Math.min(PROBE_SIZE, count);
+            new Worker(f, firstIndex, 1, stepSize, argumentOffset, valueOffset, arithmetic, values, 0, probe, costModel).calculate();
+        }
+        if (costModel.nanosPerSample() * SampleCache.TILE_SIZE < MIN_CACHED_TILE_NANOS) {
+            double[] rest = calculateValues(f, firstIndex + probe, 1, stepSize, argumentOffset, valueOffset, arithmetic, count - probe, costModel);
+            System.arraycopy(rest, 0, values, probe, rest.length);
+            return values;
+        }
+
+        BigDecimal valueOrigin = valueOffset.divide(valueUnit, 0, RoundingMode.HALF_UP).multiply(valueUnit);
+        double valueShift = valueOrigin.subtract(valueOffset).doubleValue();
+        key += "\n" + arithmetic + "\n" + stepSize + "\n" + valueOrigin;
+        int firstTile = Math.floorDiv(firstIndex, SampleCache.TILE_SIZE);
+        int lastTile = Math.floorDiv(firstIndex + count - 1, SampleCache.TILE_SIZE);
+        double[][] tiles = new double[lastTile - firstTile + 1][];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = cache.get(key, tileOffset.longValue() + firstTile + i);
+        }
+        for (int start = 0; start < tiles.length; start++) {
+            if (tiles[start] != null) {
+                continue;
+            }
+            int end = start;
+            while (end < tiles.length && tiles[end] == null) {
+                end++;
+            }
+            int runStart = (firstTile + start) * SampleCache.TILE_SIZE;
+            int runEnd = (firstTile + end) * SampleCache.TILE_SIZE;
+            double[] missing = new double[runEnd - runStart];
+            // the probed samples are reused, only the samples around them are computed
+            int probeStart = Math.max(firstIndex, runStart);
+            int probeEnd = Math.max(probeStart, Math.min(firstIndex + probe, runEnd));
+            for (int j = probeStart; j < probeEnd; j++) {
+                missing[j - runStart] = values[j - firstIndex] - valueShift;
+            }
+            double[] before = calculateValues(f, runStart, 1, stepSize, argumentOffset, valueOrigin,
+                    arithmetic, probeStart - runStart, costModel);
+            System.arraycopy(before, 0, missing, 0, before.length);
+            double[] after = calculateValues(f, probeEnd, 1, stepSize, argumentOffset, valueOrigin,
+                    arithmetic, runEnd - probeEnd, costModel);
+            System.arraycopy(after, 0, missing, probeEnd - runStart, after.length);
+            for (int i = start; i < end; i++) {
+                int from = (i - start) * SampleCache.TILE_SIZE;
+                tiles[i] = Arrays.copyOfRange(missing, from, from + SampleCache.TILE_SIZE);
+                cache.put(key, tileOffset.longValue() + firstTile + i, tiles[i]);
+            }
+            start = end - 1;
+        }
+        for (int i = 0; i < tiles.length; i++) {
+            int tileStart = (firstTile + i) * SampleCache.TILE_SIZE;
+            int from = Math.max(firstIndex, tileStart);
+            int to = Math.min(firstIndex + count, tileStart + SampleCache.TILE_SIZE);
+            for (int j = from; j < to; j++) {
+                values[j - firstIndex] = tiles[i][j - tileStart] + valueShift;
+            }
+        }
         return values;
     }
 
     /**
-     * Filters the y-coordinates. This method removes the singularities from the graph.
-     * It also can auto extend limits towards infinity.
-     *
-     * @param yValues      the y-coordinates
-     * @param index        the index of the current coordinate
-     * @param y1           y1
-     * @param y2           y2
-     * @param zoomHandler  the {@link ZoomHandler}
-     * @param extendLimits auto extend limits?
-     * @return null if the filter did not catch anything, else the filtered {@link ArrayList}
-     */
-    private static ArrayList<BigDecimal> filter(ArrayList<BigDecimal> yValues, int index, BigDecimal y1, BigDecimal y2, ZoomHandler zoomHandler, boolean extendLimits) {
-        BigDecimal previousY = yValues.get(index - 1);
-        BigDecimal nextY = yValues.get(index + 2);
-        if (previousY != null && nextY != null) {
-            boolean leftRising = MathUtil.isRising(previousY, y1);
-            boolean rightRising = MathUtil.isRising(y2, nextY);
-            int maxValue = Integer.MAX_VALUE / (zoomHandler.getVerticalStretch().intValue() + 10);
-            if (leftRising && rightRising) {
-                if (!MathUtil.isRising(y1, y2)) {
-                    BigDecimal difference = y2.subtract(y1);
-                    if (difference.compareTo(zoomHandler.getCurrentHeight()) == -1) {
-                        yValues.set(index + 1, y1);
-                        if (extendLimits) {
-                            yValues.set(index + 1, BigDecimal.valueOf(maxValue));
-                            yValues.set(index + 2, null);
-                            yValues.set(index + 3, BigDecimal.valueOf(-maxValue));
-                        } else {
-                            yValues.set(index + 2, null);
-                        }
-                        return yValues;
-                    }
-                }
-            } else if (!leftRising && !rightRising) {
-                if (MathUtil.isRising(y1, y2)) {
-                    BigDecimal difference = y2.subtract(y1);
-                    if (difference.compareTo(zoomHandler.getCurrentHeight()) == 1) {
-                        yValues.set(index + 1, y1);
-                        if (extendLimits) {
-                            yValues.set(index + 1, BigDecimal.valueOf(-maxValue));
-                            yValues.set(index + 2, null);
-                            yValues.set(index + 3, BigDecimal.valueOf(maxValue));
-                        } else {
-                            yValues.set(index + 2, null);
-                        }
-                        return yValues;
-                    }
+     * Calculates the values of a {@link Formula} at the samples
+     * {@code firstIndex + i * stride} of the domain.
+     *
+     * @param f              the formula
+     * @param firstIndex     the index of the first sample in the domain
+     * @param stride         the distance between two computed samples
+     * @param stepSize       the step size
+     * @param argumentOffset the argument of the sample with index zero
+     * @param valueOffset    the offset that is subtracted from the values
+     * @param arithmetic     the number type the formula is evaluated with
+     * @param count          the amount of values to compute
+     * @param costModel      the cost model that records the measured cost
+     * @return an array with the computed values, {@link Double#NaN}
+     * where the formula is undefined
+     */
+    private static double[] calculateValues(Formula f, int firstIndex, int stride, BigDecimal stepSize, BigDecimal argumentOffset,
+                                            BigDecimal valueOffset, Arithmetic arithmetic, int count, CostModel costModel) {
+        double[] values = new double[count];
+
+        int probe = Math.min(PROBE_SIZE, values.length);
+        new Worker(f, firstIndex, stride, stepSize, argumentOffset, valueOffset, arithmetic, values, 0, probe, costModel).calculate();
+
+        Worker worker = new Worker(
+                f, firstIndex, stride, stepSize, argumentOffset, valueOffset, arithmetic, values, probe, values.length, costModel
+        );
+        double estimatedNanos = costModel.nanosPerSample() * (values.length - probe);
+        if (estimatedNanos < PARALLEL_THRESHOLD_NANOS || POOL.getParallelism() == 1) {
+            worker.calculate();
+        } else {
+            costModel.setParallelism(POOL.getParallelism());
+            POOL.invoke(worker);
+        }
+        return values;
+    }
+
+    /**
+     * Splits the samples into continuous segments. This method removes the
+     * singularities from the graph and can auto extend limits towards infinity.
+     * The samples are split into chunks that are filtered concurrently.
+     *
+     * @param x                    the sampled x-coordinates
+     * @param y                    the sampled y-coordinates
+     * @param viewport             the current {@link Viewport}
+     * @param filterX              detect singularities in the x-coordinates?
+     * @param correctSingularities auto correct singularities?
+     * @param extendLimits         auto extend limits?
+     * @return the continuous segments
+     */
+    private static ArrayList<Segment> filter(double[] x, double[] y, Viewport viewport, boolean filterX, boolean correctSingularities, boolean extendLimits) {
+        double height = viewport.getCurrentHeight();
+        int chunks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), x.length / MIN_FILTER_CHUNK_SIZE));
+
+        DiscontinuityFilter[] filters = new DiscontinuityFilter[chunks];
+        List<Callable<Object>> tasks = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            int from = (int) ((long) x.length * i / chunks);
+            int to = (int) ((long) x.length * (i + 1) / chunks);
+            filters[i] = new DiscontinuityFilter(x, y, from, to, filterX && correctSingularities, correctSingularities, extendLimits, height, EXTENDED_LIMIT);
+            tasks.add(Executors.callable(filters[i]));
+        }
+        if (chunks == 1) {
+            filters[0].run();
+        } else {
+            try {
+                for (Future<Object> future : POOL.invokeAll(tasks)) {
+                    future.get();
                 }
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+
+        // join the segments at the chunk boundaries
+        ArrayList<Segment> segments = new ArrayList<>();
+        for (DiscontinuityFilter filter : filters) {
+            ArrayList<Segment> chunk = filter.getSegments();
+            int start = 0;
+            if (filter.continuesPrevious() && !segments.isEmpty() && !chunk.isEmpty()) {
+                int last = segments.size() - 1;
+                segments.set(last, Segment.join(segments.get(last), chunk.get(0)));
+                start = 1;
             }
+            segments.addAll(chunk.subList(start, chunk.size()));
         }
-        return null;
+        return segments;
     }
 
 }
@@ -4,50 +4,197 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 
 /**
- * This class represents two sets of coordinates.
+ * This class represents the sampled coordinates of a graph. The raw
+ * samples contain {@link Double#NaN} where the graph is undefined, the
+ * segments contain the continuous parts of the graph. The coordinates are
+ * local to an anchor, a point of the graph in arbitrary precision.
  */
 public final class CoordinateSet {
 
     /**
-     * The set of x-coordinates
+     * The sampled x-coordinates
      */
-    private ArrayList<BigDecimal> x;
+    private double[] x;
 
     /**
-     * The set of y-coordinates
+     * The sampled y-coordinates
      */
-    private ArrayList<BigDecimal> y;
+    private double[] y;
 
     /**
-     * Returns the set of x-coordinates.
-     * @return the set of x-coordinates
+     * The continuous segments of the graph
      */
-    public ArrayList<BigDecimal> getX() {
+    private ArrayList<Segment> segments;
+
+    /**
+     * The index of the first sample in the domain
+     */
+    private long firstIndex;
+
+    /**
+     * The step size between two samples
+     */
+    private BigDecimal stepSize;
+
+    /**
+     * The argument of the sample with index zero
+     */
+    private BigDecimal origin = BigDecimal.ZERO;
+
+    /**
+     * The graph x-coordinate of the anchor
+     */
+    private BigDecimal anchorX = BigDecimal.ZERO;
+
+    /**
+     * The graph y-coordinate of the anchor
+     */
+    private BigDecimal anchorY = BigDecimal.ZERO;
+
+    /**
+     * The metrics of the sampling
+     */
+    private SamplingMetrics metrics;
+
+    /**
+     * Returns the sampled x-coordinates.
+     * @return the sampled x-coordinates
+     */
+    public double[] getX() {
         return x;
     }
 
     /**
-     * Changes the set of x-coordinates.
-     * @param x the new set of x-coordinates
+     * Changes the sampled x-coordinates.
+     * @param x the new sampled x-coordinates
      */
-    void setX(ArrayList<BigDecimal> x) {
+    void setX(double[] x) {
         this.x = x;
     }
 
     /**
-     * Returns the set of y-coordinates.
-     * @return the set of y-coordinates
+     * Returns the sampled y-coordinates.
+     * @return the sampled y-coordinates
      */
-    public ArrayList<BigDecimal> getY() {
+    public double[] getY() {
         return y;
     }
 
     /**
-     * Changes the set of y-coordinates.
-     * @param y the new set of y-coordinates
+     * Changes the sampled y-coordinates.
+     * @param y the new sampled y-coordinates
      */
-    public void setY(ArrayList<BigDecimal> y) {
+    void setY(double[] y) {
         this.y = y;
     }
 
+    /**
+     * Returns the continuous segments of the graph.
+     * @return the continuous segments
+     */
+    public ArrayList<Segment> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Changes the continuous segments of the graph.
+     * @param segments the new continuous segments
+     */
+    void setSegments(ArrayList<Segment> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Returns the index of the first sample in the domain. The argument of
+     * sample {@code i} is {@code origin + (firstIndex + i) * stepSize}. The
+     * indices of formulas and parametric equations fit into an int, the
+     * pixel columns of series may not at deep zooms.
+     * @return the index of the first sample
+     */
+    public long getFirstIndex() {
+        return firstIndex;
+    }
+
+    /**
+     * Returns the step size between two samples.
+     * @return the step size
+     */
+    public BigDecimal getStepSize() {
+        return stepSize;
+    }
+
+    /**
+     * Returns the argument of the sample with index zero. For formulas it is
+     * a multiple of the step size close to the anchor, so the grid of the
+     * samples does not depend on the anchor.
+     * @return the argument of the sample with index zero
+     */
+    public BigDecimal getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Changes the sampling grid of the coordinates. The sample with index
+     * zero lies at argument zero.
+     * @param firstIndex the index of the first sample in the domain
+     * @param stepSize   the step size between two samples
+     */
+    void setGrid(long firstIndex, BigDecimal stepSize) {
+        setGrid(firstIndex, stepSize, BigDecimal.ZERO);
+    }
+
+    /**
+     * Changes the sampling grid of the coordinates.
+     * @param firstIndex the index of the first sample in the domain
+     * @param stepSize   the step size between two samples
+     * @param origin     the argument of the sample with index zero
+     */
+    void setGrid(long firstIndex, BigDecimal stepSize, BigDecimal origin) {
+        this.firstIndex = firstIndex;
+        this.stepSize = stepSize;
+        this.origin = origin;
+    }
+
+    /**
+     * Returns the graph x-coordinate of the anchor.
+     * @return the graph x-coordinate of the anchor
+     */
+    public BigDecimal getAnchorX() {
+        return anchorX;
+    }
+
+    /**
+     * Returns the graph y-coordinate of the anchor.
+     * @return the graph y-coordinate of the anchor
+     */
+    public BigDecimal getAnchorY() {
+        return anchorY;
+    }
+
+    /**
+     * Changes the anchor the coordinates are local to.
+     * @param anchorX the graph x-coordinate of the anchor
+     * @param anchorY the graph y-coordinate of the anchor
+     */
+    void setAnchor(BigDecimal anchorX, BigDecimal anchorY) {
+        this.anchorX = anchorX;
+        this.anchorY = anchorY;
+    }
+
+    /**
+     * Returns the metrics of the sampling.
+     * @return the metrics of the sampling
+     */
+    public SamplingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Changes the metrics of the sampling.
+     * @param metrics the new metrics of the sampling
+     */
+    void setMetrics(SamplingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
 }
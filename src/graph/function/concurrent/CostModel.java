@@ -0,0 +1,140 @@
+package graph.function.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class measures the cost of sampling a formula online. The workers of
+ * one sampling share a cost model and use it to choose their chunk size and
+ * to check whether the sampling was cancelled.
+ */
+final class CostModel {
+
+    /**
+     * Preferred computation time of one chunk in nanoseconds
+     */
+    private static final long TARGET_CHUNK_NANOS = 500_000;
+
+    /**
+     * Minimum amount of samples per chunk
+     */
+    private static final int MIN_CHUNK_SIZE = 8;
+
+    /**
+     * Maximum amount of samples per chunk
+     */
+    private static final int MAX_CHUNK_SIZE = 8192;
+
+    /**
+     * Amount of measured samples
+     */
+    private final AtomicLong samples = new AtomicLong();
+
+    /**
+     * Total measured time in nanoseconds
+     */
+    private final AtomicLong nanos = new AtomicLong();
+
+    /**
+     * Amount of computed chunks
+     */
+    private final AtomicInteger chunks = new AtomicInteger();
+
+    /**
+     * Start time of the sampling
+     */
+    private final long startTime = System.nanoTime();
+
+    /**
+     * The amount of threads used by the sampling
+     */
+    private volatile int parallelism = 1;
+
+    /**
+     * The cancellation of the sampling, may be null
+     */
+    private final Cancellation cancellation;
+
+    /**
+     * Creates a {@link CostModel} for a sampling that cannot be cancelled.
+     */
+    CostModel() {
+        this(null);
+    }
+
+    /**
+     * Creates a {@link CostModel} object.
+     *
+     * @param cancellation the cancellation of the sampling, may be null
+     */
+    CostModel(Cancellation cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Stops the sampling if it was cancelled. Called before every chunk.
+     *
+     * @throws java.util.concurrent.CancellationException if the sampling was cancelled
+     */
+    void checkCancelled() {
+        if (cancellation != null) {
+            cancellation.check();
+        }
+    }
+
+    /**
+     * Records the measured cost of a chunk.
+     *
+     * @param count       amount of computed samples
+     * @param elapsedTime the computation time in nanoseconds
+     */
+    void record(int count, long elapsedTime) {
+        samples.addAndGet(count);
+        nanos.addAndGet(elapsedTime);
+        chunks.incrementAndGet();
+    }
+
+    /**
+     * Returns the average cost of one sample measured so far.
+     *
+     * @return the average cost of one sample in nanoseconds
+     */
+    double nanosPerSample() {
+        long count = samples.get();
+        return count == 0 ? 0 : (double) nanos.get() / count;
+    }
+
+    /**
+     * Returns the chunk size that matches the measured cost. Expensive formulas
+     * get small chunks to balance the work over all threads, cheap formulas
+     * get large chunks to reduce the scheduling overhead.
+     *
+     * @return the amount of samples per chunk
+     */
+    int chunkSize() {
+        double cost = nanosPerSample();
+        if (cost <= 0) {
+            return MIN_CHUNK_SIZE;
+        }
+        return (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, TARGET_CHUNK_NANOS / cost));
+    }
+
+    /**
+     * Changes the amount of threads used by the sampling.
+     *
+     * @param parallelism the amount of threads
+     */
+    void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Creates a snapshot of the measured values.
+     *
+     * @return the {@link SamplingMetrics}
+     */
+    SamplingMetrics toMetrics() {
+        return new SamplingMetrics(samples.get(), nanosPerSample(), chunkSize(), chunks.get(), parallelism, System.nanoTime() - startTime);
+    }
+
+}
@@ -0,0 +1,252 @@
+package graph.function.concurrent;
+
+import java.util.ArrayList;
+
+/**
+ * Worker class that splits a chunk of samples into continuous segments.
+ * Singularities are detected from the raw samples only, so every chunk
+ * can be processed independently. The neighbouring samples of another
+ * chunk are read, but never written.
+ */
+class DiscontinuityFilter implements Runnable {
+
+    /**
+     * The sampled x-coordinates
+     */
+    private final double[] x;
+
+    /**
+     * The sampled y-coordinates
+     */
+    private final double[] y;
+
+    /**
+     * The index of the first sample of the chunk
+     */
+    private final int from;
+
+    /**
+     * The index after the last sample of the chunk
+     */
+    private final int to;
+
+    /**
+     * Detect singularities in the x-coordinates?
+     */
+    private final boolean filterX;
+
+    /**
+     * Detect singularities in the y-coordinates?
+     */
+    private final boolean filterY;
+
+    /**
+     * Auto extend limits?
+     */
+    private final boolean extendLimits;
+
+    /**
+     * The visible height of the graph
+     */
+    private final double height;
+
+    /**
+     * The value used as infinity when extending limits
+     */
+    private final double limit;
+
+    /**
+     * The segments of this chunk
+     */
+    private final ArrayList<Segment> segments = new ArrayList<>();
+
+    /**
+     * Whether the first segment continues the last segment of the previous chunk
+     */
+    private boolean continuesPrevious;
+
+    /**
+     * Creates a {@link DiscontinuityFilter} for the samples
+     * {@code from} (inclusive) {@code to} (exclusive).
+     *
+     * @param x            the sampled x-coordinates
+     * @param y            the sampled y-coordinates
+     * @param from         the index of the first sample
+     * @param to           the index after the last sample
+     * @param filterX      detect singularities in the x-coordinates?
+     * @param filterY      detect singularities in the y-coordinates?
+     * @param extendLimits auto extend limits?
+     * @param height       the visible height of the graph
+     * @param limit        the value used as infinity when extending limits
+     */
+    DiscontinuityFilter(double[] x, double[] y, int from, int to, boolean filterX, boolean filterY,
+                        boolean extendLimits, double height, double limit) {
+        this.x = x;
+        this.y = y;
+        this.from = from;
+        this.to = to;
+        this.filterX = filterX;
+        this.filterY = filterY;
+        this.extendLimits = extendLimits;
+        this.height = height;
+        this.limit = limit;
+    }
+
+    @Override
+    public void run() {
+        int start = -1;
+        double leadX = Double.NaN, leadY = Double.NaN;
+
+        if (from > 0 && isValid(from - 1) && isValid(from)) {
+            int jump = jump(from - 1);
+            if (jump == 0) {
+                continuesPrevious = true;
+            } else if (extendLimits) {
+                leadX = (x[from - 1] + x[from]) / 2;
+                leadY = -jump * limit;
+            }
+        }
+
+        for (int i = from; i < to; i++) {
+            if (!isValid(i)) {
+                if (start != -1) {
+                    segments.add(createSegment(start, i, leadX, leadY, Double.NaN, Double.NaN));
+                    start = -1;
+                    leadX = Double.NaN;
+                }
+                continue;
+            }
+            if (start == -1) {
+                start = i;
+            }
+            if (i + 1 < x.length && isValid(i + 1)) {
+                int jump = jump(i);
+                if (jump != 0) {
+                    if (extendLimits) {
+                        double middle = (x[i] + x[i + 1]) / 2;
+                        segments.add(createSegment(start, i + 1, leadX, leadY, middle, jump * limit));
+                        leadX = middle;
+                        leadY = -jump * limit;
+                    } else {
+                        segments.add(createSegment(start, i + 1, leadX, leadY, Double.NaN, Double.NaN));
+                    }
+                    start = -1;
+                }
+            }
+        }
+        if (start != -1) {
+            segments.add(createSegment(start, to, leadX, leadY, Double.NaN, Double.NaN));
+        }
+    }
+
+    /**
+     * Checks if the sample at {@code i} is defined.
+     *
+     * @param i the index of the sample
+     * @return true if the sample is defined
+     */
+    private boolean isValid(int i) {
+        return Double.isFinite(x[i]) && Double.isFinite(y[i]);
+    }
+
+    /**
+     * Checks if there is a singularity between the samples {@code i} and {@code i + 1}.
+     *
+     * @param i the index of the sample
+     * @return 1 if the graph approaches positive infinity on the left side, -1 if
+     * it approaches negative infinity on the left side, else 0
+     */
+    private int jump(int i) {
+        if (filterY) {
+            int jump = jump(y, i, height);
+            if (jump != 0) {
+                return jump;
+            }
+        }
+        return filterX ? jump(x, i, height) : 0;
+    }
+
+    /**
+     * Checks if there is a singularity between the values {@code i} and {@code i + 1}.
+     * A singularity is detected when a rising graph suddenly drops or a falling
+     * graph suddenly rises by more than the visible height.
+     *
+     * @param v      the values
+     * @param i      the index of the value
+     * @param height the visible height of the graph
+     * @return 1 if the values approach positive infinity on the left side, -1 if
+     * they approach negative infinity on the left side, else 0
+     */
+    static int jump(double[] v, int i, double height) {
+        if (i < 1 || i + 2 >= v.length) {
+            return 0;
+        }
+        double previous = v[i - 1];
+        double y1 = v[i];
+        double y2 = v[i + 1];
+        double next = v[i + 2];
+        if (!Double.isFinite(previous) || !Double.isFinite(next)) {
+            return 0;
+        }
+        boolean leftRising = previous < y1;
+        boolean rightRising = y2 < next;
+        if (leftRising && rightRising && y2 < y1) {
+            return 1;
+        }
+        if (!leftRising && !rightRising && y2 - y1 > height) {
+            return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Creates a segment of the samples {@code start} (inclusive) {@code end} (exclusive).
+     * The lead and trail points are added when they are not {@link Double#NaN}.
+     *
+     * @param start  the index of the first sample
+     * @param end    the index after the last sample
+     * @param leadX  the x-coordinate of the point in front of the samples
+     * @param leadY  the y-coordinate of the point in front of the samples
+     * @param trailX the x-coordinate of the point after the samples
+     * @param trailY the y-coordinate of the point after the samples
+     * @return the segment
+     */
+    private Segment createSegment(int start, int end, double leadX, double leadY, double trailX, double trailY) {
+        int lead = Double.isNaN(leadX) ? 0 : 1;
+        int trail = Double.isNaN(trailX) ? 0 : 1;
+        int n = end - start;
+        double[] sx = new double[lead + n + trail];
+        double[] sy = new double[lead + n + trail];
+        if (lead == 1) {
+            sx[0] = leadX;
+            sy[0] = leadY;
+        }
+        System.arraycopy(x, start, sx, lead, n);
+        System.arraycopy(y, start, sy, lead, n);
+        if (trail == 1) {
+            sx[lead + n] = trailX;
+            sy[lead + n] = trailY;
+        }
+        return new Segment(sx, sy);
+    }
+
+    /**
+     * Returns the segments of this chunk.
+     *
+     * @return the segments of this chunk
+     */
+    ArrayList<Segment> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Determines whether the first segment continues the last segment of the
+     * previous chunk.
+     *
+     * @return {@code true} if the segments have to be joined
+     */
+    boolean continuesPrevious() {
+        return continuesPrevious;
+    }
+
+}
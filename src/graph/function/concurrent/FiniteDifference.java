@@ -0,0 +1,61 @@
+package graph.function.concurrent;
+
+/**
+ * This class approximates derivatives from equally spaced samples with
+ * fourth-order finite difference stencils.
+ */
+final class FiniteDifference {
+
+    /**
+     * Approximates the derivative at sample {@code i}. The central stencil is
+     * preferred, the one-sided stencils are used near holes and the ends of the
+     * samples. A stencil is invalid if it contains an undefined sample or spans
+     * a singularity.
+     *
+     * @param v      the samples
+     * @param i      the index of the sample
+     * @param h      the distance between two samples
+     * @param height the visible height of the graph
+     * @return the approximated derivative or {@link Double#NaN} if no stencil is valid
+     */
+    static double derivative(double[] v, int i, double h, double height) {
+        if (isValid(v, i - 2, i + 2, height)) {
+            return (v[i - 2] - 8 * v[i - 1] + 8 * v[i + 1] - v[i + 2]) / (12 * h);
+        }
+        if (isValid(v, i, i + 4, height)) {
+            return (-25 * v[i] + 48 * v[i + 1] - 36 * v[i + 2] + 16 * v[i + 3] - 3 * v[i + 4]) / (12 * h);
+        }
+        if (isValid(v, i - 4, i, height)) {
+            return (25 * v[i] - 48 * v[i - 1] + 36 * v[i - 2] - 16 * v[i - 3] + 3 * v[i - 4]) / (12 * h);
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Checks if the samples {@code from} (inclusive) {@code to} (inclusive) are
+     * defined and do not contain a singularity.
+     *
+     * @param v      the samples
+     * @param from   the index of the first sample
+     * @param to     the index of the last sample
+     * @param height the visible height of the graph
+     * @return true if the samples can be used for a stencil
+     */
+    private static boolean isValid(double[] v, int from, int to, double height) {
+        if (from < 0 || to >= v.length) {
+            return false;
+        }
+        for (int j = from; j <= to; j++) {
+            if (!Double.isFinite(v[j])) {
+                return false;
+            }
+        }
+        for (int j = from; j < to; j++) {
+            if (DiscontinuityFilter.jump(v, j, height) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,490 @@
+package graph.function.concurrent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * This class is a cache of sampled values on disk that outlives the process
+ * and is shared by every process that opens the same file, e.g. the GUI and
+ * the batch renderer. The values of a formula are stored in tiles of
+ * {@link #TILE_SIZE} consecutive samples of its grid. A tile is found by a
+ * hash of the structural key of the formula, the number type, the anchors,
+ * the step size and the index of the tile.
+ * <br>
+ * The file is memory-mapped and keeps its size: a header, an index and the
+ * tiles. The tiles are grouped into sets of {@link #WAYS} tiles, a hash
+ * belongs to one set, and a full set evicts its least recently used tile.
+ * Every set is guarded by a file lock on its part of the index, shared for
+ * lookups and exclusive for stores, so processes only wait for each other
+ * if they use the same set. The tiles have a checksum, so a tile that was
+ * torn by a crash is ignored.
+ */
+public final class SampleCache {
+
+    /**
+     * The amount of samples of a tile
+     */
+    static final int TILE_SIZE = 256;
+
+    /**
+     * The default size of the file in bytes
+     */
+    public static final long DEFAULT_SIZE = 256L << 20;
+
+    /**
+     * The system property with the file of the default cache, an empty
+     * value disables the default cache
+     */
+    public static final String FILE_PROPERTY = "graph.sampleCache";
+
+    /**
+     * The system property with the size of the default cache in megabytes
+     */
+    public static final String SIZE_PROPERTY = "graph.sampleCacheSize";
+
+    /**
+     * The magic number at the start of the file, "GPSC"
+     */
+    private static final int MAGIC = 0x47505343;
+
+    /**
+     * The version of the file format, changes whenever samples of the same
+     * key may differ from the ones of an older version
+     */
+    private static final short VERSION = 1;
+
+    /**
+     * The size of the header in bytes
+     */
+    private static final int HEADER_SIZE = 64;
+
+    /**
+     * The amount of tiles of a set
+     */
+    private static final int WAYS = 16;
+
+    /**
+     * The size of an index entry in bytes: the hash, the time of the last
+     * use, the checksum and the state
+     */
+    private static final int ENTRY_SIZE = 32;
+
+    /**
+     * The size of a tile in bytes
+     */
+    private static final int TILE_BYTES = TILE_SIZE * Double.BYTES;
+
+    /**
+     * The state of an index entry that holds a tile
+     */
+    private static final int VALID = 1;
+
+    /**
+     * The amount of monitors that serialize the file locks of this process
+     */
+    private static final int STRIPES = 64;
+
+    /**
+     * The caches opened by this process by their file, a process must not
+     * lock the same region of a file twice
+     */
+    private static final Map<Path, SampleCache> OPEN = new HashMap<>();
+
+    /**
+     * The hash function of every thread
+     */
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    /**
+     * Whether the default cache was opened
+     */
+    private static boolean defaultOpened;
+
+    /**
+     * The default cache, {@code null} if it is disabled or cannot be opened
+     */
+    private static SampleCache defaultCache;
+
+    /**
+     * The file
+     */
+    private final Path file;
+
+    /**
+     * The channel of the file, used for the locks
+     */
+    private final FileChannel channel;
+
+    /**
+     * The mapped file
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The amount of sets
+     */
+    private final int sets;
+
+    /**
+     * The position of the first tile
+     */
+    private final int dataStart;
+
+    /**
+     * The monitors that serialize the file locks of this process, a set is
+     * always guarded by the same monitor
+     */
+    private final Object[] stripes = new Object[STRIPES];
+
+    /**
+     * The amount of lookups that found a tile
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The amount of lookups that found no tile
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The amount of stored tiles
+     */
+    private final AtomicLong stores = new AtomicLong();
+
+    /**
+     * Creates a {@link SampleCache} object.
+     *
+     * @param file    the file
+     * @param channel the channel of the file
+     * @param buffer  the mapped file
+     * @param sets    the amount of sets
+     */
+    private SampleCache(Path file, FileChannel channel, MappedByteBuffer buffer, int sets) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.sets = sets;
+        this.dataStart = HEADER_SIZE + sets * WAYS * ENTRY_SIZE;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Opens a cache and creates the file if it does not exist. The size of
+     * a new file is at most {@code maxBytes}, an existing file keeps the
+     * size it was created with. A file that is already open in this process
+     * is not opened again.
+     *
+     * @param file     the file
+     * @param maxBytes the maximum size of a new file in bytes
+     * @return the cache
+     * @throws IOException if the file cannot be opened or is no cache of this version
+     */
+    public static SampleCache open(Path file, long maxBytes) throws IOException {
+        int sets = (int) Math.min(Integer.MAX_VALUE, (maxBytes - HEADER_SIZE) / (WAYS * (ENTRY_SIZE + TILE_BYTES)));
+        if (sets <= 0 || maxBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The size of a sample cache must be between "
+                    + (HEADER_SIZE + WAYS * (ENTRY_SIZE + TILE_BYTES)) + " and " + Integer.MAX_VALUE + " bytes");
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        synchronized (OPEN) {
+            // closing a second channel of the file would release the locks of the first one
+            SampleCache cache = Files.exists(file) ? OPEN.get(file.toRealPath()) : null;
+            if (cache != null) {
+                return cache;
+            }
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                cache = open(file.toRealPath(), channel, sets);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            OPEN.put(cache.getFile(), cache);
+            return cache;
+        }
+    }
+
+    /**
+     * Returns the default cache of this process, which is opened on the
+     * first call. The file is {@code .graph/samples.cache} in the home
+     * directory of the user unless the system property {@value #FILE_PROPERTY}
+     * names another file.
+     *
+     * @return the default cache or {@code null} if it is disabled or cannot be opened
+     */
+    public static synchronized SampleCache getDefault() {
+        if (!defaultOpened) {
+            defaultOpened = true;
+            String property = System.getProperty(FILE_PROPERTY,
+                    Paths.get(System.getProperty("user.home"), ".graph", "samples.cache").toString());
+            if (!property.isEmpty()) {
+                try {
+                    defaultCache = open(Paths.get(property), Long.getLong(SIZE_PROPERTY, DEFAULT_SIZE >> 20) << 20);
+                } catch (IOException | IllegalArgumentException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Maps a file and writes the header if the file is new. The header is
+     * written under an exclusive lock, so processes that open a new file at
+     * the same time agree on its size.
+     *
+     * @param file    the file
+     * @param channel the channel of the file
+     * @param sets    the amount of sets of a new file
+     * @return the cache
+     * @throws IOException if the file cannot be mapped or is no cache of this version
+     */
+    private static SampleCache open(Path file, FileChannel channel, int sets) throws IOException {
+        FileLock lock = channel.lock(0, HEADER_SIZE, false);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.size() >= HEADER_SIZE) {
+                channel.read(header, 0);
+            }
+            if (header.getInt(0) == 0) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size(sets));
+                buffer.putShort(4, VERSION);
+                buffer.putShort(6, (short) WAYS);
+                buffer.putInt(8, TILE_SIZE);
+                buffer.putInt(12, sets);
+                buffer.putInt(0, MAGIC);
+                return new SampleCache(file, channel, buffer, sets);
+            }
+            if (header.getInt(0) != MAGIC || header.getShort(4) != VERSION
+                    || header.getShort(6) != WAYS || header.getInt(8) != TILE_SIZE) {
+                throw new IOException(file + " is no sample cache of version " + VERSION);
+            }
+            int existingSets = header.getInt(12);
+            if (existingSets <= 0 || size(existingSets) > Integer.MAX_VALUE) {
+                throw new IOException(file + " has an invalid header");
+            }
+            return new SampleCache(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size(existingSets)), existingSets);
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Returns the size of a file.
+     *
+     * @param sets the amount of sets
+     * @return the size in bytes
+     */
+    private static long size(int sets) {
+        return HEADER_SIZE + (long) sets * WAYS * (ENTRY_SIZE + TILE_BYTES);
+    }
+
+    /**
+     * Returns the values of a tile.
+     *
+     * @param key  the key of the samples without the tile
+     * @param tile the index of the tile
+     * @return the values or {@code null} if the tile is not cached
+     */
+    double[] get(String key, long tile) {
+        long[] hash = hash(key, tile);
+        int set = set(hash);
+        synchronized (stripes[set % STRIPES]) {
+            try {
+                FileLock lock = channel.lock(entry(set, 0), WAYS * ENTRY_SIZE, true);
+                try {
+                    for (int way = 0; way < WAYS; way++) {
+                        int entry = entry(set, way);
+                        if (buffer.getInt(entry + 28) == VALID && buffer.getLong(entry) == hash[0] && buffer.getLong(entry + 8) == hash[1]) {
+                            byte[] bytes = new byte[TILE_BYTES];
+                            ByteBuffer data = buffer.duplicate();
+                            data.position(tile(set, way));
+                            data.get(bytes);
+                            if (checksum(bytes) != buffer.getInt(entry + 24)) {
+                                break;
+                            }
+                            // other readers may touch the entry at the same time,
+                            // which only blurs the order of the evictions
+                            buffer.putLong(entry + 16, System.currentTimeMillis());
+                            hits.incrementAndGet();
+                            double[] values = new double[TILE_SIZE];
+                            ByteBuffer.wrap(bytes).asDoubleBuffer().get(values);
+                            return values;
+                        }
+                    }
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores the values of a tile. The tile replaces an older tile with the
+     * same hash, an empty tile or the least recently used tile of its set.
+     *
+     * @param key    the key of the samples without the tile
+     * @param tile   the index of the tile
+     * @param values the {@link #TILE_SIZE} values of the tile
+     */
+    void put(String key, long tile, double[] values) {
+        long[] hash = hash(key, tile);
+        int set = set(hash);
+        byte[] bytes = new byte[TILE_BYTES];
+        ByteBuffer.wrap(bytes).asDoubleBuffer().put(values, 0, TILE_SIZE);
+        synchronized (stripes[set % STRIPES]) {
+            try {
+                FileLock lock = channel.lock(entry(set, 0), WAYS * ENTRY_SIZE, false);
+                try {
+                    int victim = 0;
+                    long oldest = Long.MAX_VALUE;
+                    for (int way = 0; way < WAYS; way++) {
+                        int entry = entry(set, way);
+                        if (buffer.getInt(entry + 28) != VALID) {
+                            victim = way;
+                            oldest = Long.MIN_VALUE;
+                        } else if (buffer.getLong(entry) == hash[0] && buffer.getLong(entry + 8) == hash[1]) {
+                            victim = way;
+                            break;
+                        } else if (buffer.getLong(entry + 16) < oldest) {
+                            victim = way;
+                            oldest = buffer.getLong(entry + 16);
+                        }
+                    }
+                    int entry = entry(set, victim);
+                    buffer.putInt(entry + 28, 0);
+                    ByteBuffer data = buffer.duplicate();
+                    data.position(tile(set, victim));
+                    data.put(bytes);
+                    buffer.putLong(entry, hash[0]);
+                    buffer.putLong(entry + 8, hash[1]);
+                    buffer.putLong(entry + 16, System.currentTimeMillis());
+                    buffer.putInt(entry + 24, checksum(bytes));
+                    buffer.putInt(entry + 28, VALID);
+                    stores.incrementAndGet();
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Returns the file of this cache.
+     *
+     * @return the file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the amount of tiles this cache can hold.
+     *
+     * @return the capacity in tiles
+     */
+    public long getCapacity() {
+        return (long) sets * WAYS;
+    }
+
+    /**
+     * Describes the size and the hit rate of the cache in this process.
+     *
+     * @return the statistics
+     */
+    @Override
+    public String toString() {
+        return file + ": " + getCapacity() + " tiles, " + hits + " hits, " + misses + " misses, " + stores + " stores";
+    }
+
+    /**
+     * Returns the hash of a tile, the first 128 bits of its SHA-256 digest.
+     *
+     * @param key  the key of the samples without the tile
+     * @param tile the index of the tile
+     * @return the hash as two longs
+     */
+    private static long[] hash(String key, long tile) {
+        MessageDigest digest = DIGEST.get();
+        digest.update(key.getBytes(StandardCharsets.UTF_8));
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(tile).array());
+        ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+        return new long[]{hash.getLong(), hash.getLong()};
+    }
+
+    /**
+     * Returns the set of a hash.
+     *
+     * @param hash the hash
+     * @return the index of the set
+     */
+    private int set(long[] hash) {
+        return (int) Long.remainderUnsigned(hash[1], sets);
+    }
+
+    /**
+     * Returns the position of an index entry.
+     *
+     * @param set the set
+     * @param way the way within the set
+     * @return the position in the file
+     */
+    private static int entry(int set, int way) {
+        return HEADER_SIZE + (set * WAYS + way) * ENTRY_SIZE;
+    }
+
+    /**
+     * Returns the position of a tile.
+     *
+     * @param set the set
+     * @param way the way within the set
+     * @return the position in the file
+     */
+    private int tile(int set, int way) {
+        return dataStart + (set * WAYS + way) * TILE_BYTES;
+    }
+
+    /**
+     * Returns the checksum of the bytes of a tile.
+     *
+     * @param bytes the bytes
+     * @return the checksum
+     */
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+}
@@ -0,0 +1,137 @@
+package graph.function.concurrent;
+
+/**
+ * This class contains the measured cost and the chosen scheduling parameters
+ * of a sampling.
+ */
+public final class SamplingMetrics {
+
+    /**
+     * Amount of computed samples
+     */
+    private final long samples;
+
+    /**
+     * Average cost of one sample in nanoseconds
+     */
+    private final double nanosPerSample;
+
+    /**
+     * The last chosen amount of samples per chunk
+     */
+    private final int chunkSize;
+
+    /**
+     * Amount of computed chunks
+     */
+    private final int chunks;
+
+    /**
+     * The amount of threads used
+     */
+    private final int parallelism;
+
+    /**
+     * Wall clock time of the sampling in nanoseconds
+     */
+    private final long elapsedNanos;
+
+    /**
+     * Creates a {@link SamplingMetrics} object.
+     *
+     * @param samples        amount of computed samples
+     * @param nanosPerSample average cost of one sample in nanoseconds
+     * @param chunkSize      the last chosen amount of samples per chunk
+     * @param chunks         amount of computed chunks
+     * @param parallelism    the amount of threads used
+     * @param elapsedNanos   wall clock time of the sampling in nanoseconds
+     */
+    SamplingMetrics(long samples, double nanosPerSample, int chunkSize, int chunks, int parallelism, long elapsedNanos) {
+        this.samples = samples;
+        this.nanosPerSample = nanosPerSample;
+        this.chunkSize = chunkSize;
+        this.chunks = chunks;
+        this.parallelism = parallelism;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Combines the metrics of two samplings that ran at the same time.
+     *
+     * @param a the first metrics
+     * @param b the second metrics
+     * @return the combined metrics
+     */
+    static SamplingMetrics combine(SamplingMetrics a, SamplingMetrics b) {
+        long samples = a.samples + b.samples;
+        double nanosPerSample = samples == 0 ? 0 : (a.nanosPerSample * a.samples + b.nanosPerSample * b.samples) / samples;
+        return new SamplingMetrics(
+                samples, nanosPerSample, Math.max(a.chunkSize, b.chunkSize), a.chunks + b.chunks,
+                Math.max(a.parallelism, b.parallelism), Math.max(a.elapsedNanos, b.elapsedNanos)
+        );
+    }
+
+    /**
+     * Returns the amount of computed samples.
+     *
+     * @return the amount of computed samples
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns the average cost of one sample.
+     *
+     * @return the average cost of one sample in nanoseconds
+     */
+    public double getNanosPerSample() {
+        return nanosPerSample;
+    }
+
+    /**
+     * Returns the last chosen amount of samples per chunk.
+     *
+     * @return the amount of samples per chunk
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the amount of computed chunks.
+     *
+     * @return the amount of computed chunks
+     */
+    public int getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Returns the amount of threads used. This is 1 if the sampling was
+     * too cheap to be split.
+     *
+     * @return the amount of threads used
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the wall clock time of the sampling.
+     *
+     * @return the wall clock time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d samples, %.0f ns/sample, %d chunks of %d samples, %d threads, %.2f ms",
+                samples, nanosPerSample, chunks, chunkSize, parallelism, elapsedNanos / 1e6
+        );
+    }
+
+}
@@ -0,0 +1,145 @@
+package graph.function.concurrent;
+
+/**
+ * This class represents a continuous part of a graph. A graph is
+ * split into several segments at its holes and singularities.
+ */
+public final class Segment {
+
+    /**
+     * The x-coordinates of the segment
+     */
+    private final double[] x;
+
+    /**
+     * The y-coordinates of the segment
+     */
+    private final double[] y;
+
+    /**
+     * Whether the x-coordinates never decrease, null until it was determined
+     */
+    private Boolean increasing;
+
+    /**
+     * Creates a {@link Segment} object. Both arrays must have the same length.
+     *
+     * @param x the x-coordinates
+     * @param y the y-coordinates
+     */
+    public Segment(double[] x, double[] y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Joins two segments. The last point of {@code first} is connected to the
+     * first point of {@code second}.
+     *
+     * @param first  the first segment
+     * @param second the second segment
+     * @return the joined segment
+     */
+    static Segment join(Segment first, Segment second) {
+        int n = first.size();
+        int m = second.size();
+        double[] x = new double[n + m];
+        double[] y = new double[n + m];
+        System.arraycopy(first.x, 0, x, 0, n);
+        System.arraycopy(second.x, 0, x, n, m);
+        System.arraycopy(first.y, 0, y, 0, n);
+        System.arraycopy(second.y, 0, y, n, m);
+        return new Segment(x, y);
+    }
+
+    /**
+     * Returns the x-coordinates of the segment.
+     *
+     * @return the x-coordinates
+     */
+    public double[] getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y-coordinates of the segment.
+     *
+     * @return the y-coordinates
+     */
+    public double[] getY() {
+        return y;
+    }
+
+    /**
+     * Determines whether the x-coordinates never decrease, like the samples of
+     * a formula. The result is cached, the coordinates must not be changed.
+     *
+     * @return true if the x-coordinates are sorted
+     */
+    public boolean isIncreasing() {
+        if (increasing == null) {
+            boolean sorted = true;
+            for (int i = 1; i < x.length && sorted; i++) {
+                sorted = x[i - 1] <= x[i];
+            }
+            increasing = sorted;
+        }
+        return increasing;
+    }
+
+    /**
+     * Finds the index of the last point whose x-coordinate is at most the
+     * given value with a binary search, so the line into a range starting at
+     * the value is included. The x-coordinates have to be sorted.
+     *
+     * @param x the x-coordinate
+     * @return the index of the point, 0 if all points lie after the value
+     * @see #isIncreasing()
+     */
+    public int floorIndex(double x) {
+        int low = 0;
+        int high = this.x.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (this.x[middle] <= x) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the index of the first point whose x-coordinate is at least the
+     * given value with a binary search, so the line out of a range ending at
+     * the value is included. The x-coordinates have to be sorted.
+     *
+     * @param x the x-coordinate
+     * @return the index of the point, the last index if all points lie before the value
+     * @see #isIncreasing()
+     */
+    public int ceilingIndex(double x) {
+        int low = 0;
+        int high = this.x.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.x[middle] >= x) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the amount of points in the segment.
+     *
+     * @return the amount of points
+     */
+    public int size() {
+        return x.length;
+    }
+
+}
@@ -1,75 +1,271 @@
 package graph.function.concurrent;
 
-import graph.MathUtil;
+import graph.Arithmetic;
+import graph.DoubleDouble;
 import graph.function.Formula;
-import graph.gui.axis.FiniteDomain;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.ArrayList;
+import java.util.concurrent.RecursiveAction;
 
 /**
- * Worker class to divide the workload.
+ * Worker class to divide the workload. A worker splits itself in halves
+ * until its chunk matches the measured cost of the formula, idle threads
+ * steal the remaining halves. Every chunk checks first whether the sampling
+ * was cancelled.
  */
-class Worker implements Runnable {
+class Worker extends RecursiveAction {
+
+    /**
+     * The version of the serialized form
+     */
+    private static final long serialVersionUID = 1L;
 
     /**
      * Start value to mitigate division by zero
      */
     private static final BigDecimal START_VALUE = new BigDecimal("0.000001");
 
+    /**
+     * The start value is at most the step size shifted by this many digits,
+     * so it stays invisible at deep zooms
+     */
+    private static final int START_VALUE_DIGITS = 3;
+
     /**
      * The formula to compute values for
      */
     private final Formula f;
 
     /**
-     * The domain of the formula
+     * The index of the first sample in the domain
+     */
+    private final int firstIndex;
+
+    /**
+     * The distance between two computed samples in the domain
      */
-    private final FiniteDomain d;
+    private final int stride;
+
+    /**
+     * The index of the first value to compute
+     */
+    private final int from;
+
+    /**
+     * The index after the last value to compute
+     */
+    private final int to;
 
     /**
      * the computed values
      */
-    private final ArrayList<BigDecimal> values;
+    private final double[] values;
 
     /**
      * The step size
      */
-    private BigDecimal stepSize;
+    private final BigDecimal stepSize;
+
+    /**
+     * The argument of the sample with index zero
+     */
+    private final BigDecimal argumentOffset;
+
+    /**
+     * The offset that is subtracted from the values
+     */
+    private final BigDecimal valueOffset;
+
+    /**
+     * The number type the formula is evaluated with
+     */
+    private final Arithmetic arithmetic;
+
+    /**
+     * The step size as a double-double, null unless double-doubles are used
+     */
+    private final DoubleDouble doubleDoubleStepSize;
+
+    /**
+     * The argument of the sample with index zero including the start value
+     * as a double-double, null unless double-doubles are used
+     */
+    private final DoubleDouble doubleDoubleArgument;
+
+    /**
+     * The offset that is subtracted from the values as a double-double,
+     * null unless double-doubles are used
+     */
+    private final DoubleDouble doubleDoubleValueOffset;
+
+    /**
+     * The measured cost of the formula
+     */
+    private final CostModel costModel;
 
     /**
-     * Creates a {@link Worker} object that computes value for a
-     * formula.
+     * Creates a {@link Worker} object that computes the values
+     * {@code from} (inclusive) {@code to} (exclusive) of a formula. Value
+     * {@code i} is computed at the sample {@code firstIndex + i * stride}.
+     * The values are stored relative to {@code valueOffset}, so they keep
+     * their precision if the offset is close to them.
      *
-     * @param f        the formula
-     * @param d        the domain of the formula
-     * @param stepSize the step size
+     * @param f              the formula
+     * @param firstIndex     the index of the first sample in the domain
+     * @param stride         the distance between two computed samples in the domain
+     * @param stepSize       the step size
+     * @param argumentOffset the argument of the sample with index zero
+     * @param valueOffset    the offset that is subtracted from the values
+     * @param arithmetic     the number type the formula is evaluated with
+     * @param values         the array to store the computed values in
+     * @param from           the index of the first value to compute
+     * @param to             the index after the last value to compute
+     * @param costModel      the measured cost of the formula
      */
-    Worker(Formula f, FiniteDomain d, BigDecimal stepSize) {
+    Worker(Formula f, int firstIndex, int stride, BigDecimal stepSize, BigDecimal argumentOffset, BigDecimal valueOffset,
+           Arithmetic arithmetic, double[] values, int from, int to, CostModel costModel) {
         this.f = f;
-        this.d = d;
+        this.firstIndex = firstIndex;
+        this.stride = stride;
         this.stepSize = stepSize;
-
-        // reduce growing time
-        values = new ArrayList<>(d.getDistance().intValue());
+        this.argumentOffset = argumentOffset;
+        this.valueOffset = valueOffset;
+        this.arithmetic = arithmetic;
+        if (arithmetic == Arithmetic.DOUBLE_DOUBLE) {
+            doubleDoubleStepSize = DoubleDouble.valueOf(stepSize);
+            doubleDoubleArgument = DoubleDouble.valueOf(argumentOffset.add(startValue(stepSize)));
+            doubleDoubleValueOffset = DoubleDouble.valueOf(valueOffset);
+        } else {
+            doubleDoubleStepSize = null;
+            doubleDoubleArgument = null;
+            doubleDoubleValueOffset = null;
+        }
+        this.values = values;
+        this.from = from;
+        this.to = to;
+        this.costModel = costModel;
     }
 
     @Override
-    public void run() {
-        int max = d.getEnd().divide(stepSize, MathUtil.FLOATING_POINT_PRECISION, RoundingMode.UP).intValue();
-        for (int i = d.getStart().divide(stepSize, MathUtil.FLOATING_POINT_PRECISION, RoundingMode.UP).intValue(); i < max; i++) {
-            BigDecimal x = BigDecimal.valueOf(i).multiply(stepSize).add(START_VALUE);
-            values.add(Formula.calculateSafe(f, x));
+    protected void compute() {
+        if (to - from > costModel.chunkSize()) {
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new Worker(f, firstIndex, stride, stepSize, argumentOffset, valueOffset, arithmetic, values, from, middle, costModel),
+                    new Worker(f, firstIndex, stride, stepSize, argumentOffset, valueOffset, arithmetic, values, middle, to, costModel)
+            );
+        } else {
+            calculate();
+        }
+    }
+
+    /**
+     * Computes all the values of this worker in the current thread chunk by
+     * chunk and records the cost of every chunk.
+     *
+     * @throws java.util.concurrent.CancellationException if the sampling was cancelled
+     */
+    void calculate() {
+        for (int start = from; start < to; ) {
+            int end = (int) Math.min(to, (long) start + costModel.chunkSize());
+            calculate(start, end);
+            start = end;
         }
     }
 
     /**
-     * Returns the computed values.
+     * Computes the values {@code start} (inclusive) to {@code end}
+     * (exclusive) in the current thread and records the cost.
      *
-     * @return the computed values
+     * @param start the index of the first value to compute
+     * @param end   the index after the last value to compute
+     * @throws java.util.concurrent.CancellationException if the sampling was cancelled
      */
-    ArrayList<BigDecimal> getValues() {
-        return values;
+    private void calculate(int start, int end) {
+        costModel.checkCancelled();
+        long startTime = System.nanoTime();
+        if (arithmetic == Arithmetic.DOUBLE_DOUBLE) {
+            for (int i = start; i < end; i++) {
+                values[i] = calculate(f, firstIndex + i * stride, doubleDoubleStepSize, doubleDoubleArgument, doubleDoubleValueOffset);
+            }
+        } else {
+            for (int i = start; i < end; i++) {
+                values[i] = calculate(f, firstIndex + i * stride, stepSize, argumentOffset, valueOffset);
+            }
+        }
+        costModel.record(end - start, System.nanoTime() - startTime);
     }
+
+    /**
+     * Returns the start value that is added to every argument.
+     *
+     * @param stepSize the step size
+     * @return the start value
+     */
+    static BigDecimal startValue(BigDecimal stepSize) {
+        return START_VALUE.min(stepSize.movePointLeft(START_VALUE_DIGITS));
+    }
+
+    /**
+     * Calculates the value of a formula at a sample of the domain with
+     * the given number type.
+     *
+     * @param f              the formula
+     * @param index          the index of the sample in the domain
+     * @param stepSize       the step size
+     * @param argumentOffset the argument of the sample with index zero
+     * @param valueOffset    the offset that is subtracted from the value
+     * @param arithmetic     the number type the formula is evaluated with
+     * @return the value relative to {@code valueOffset} or {@link Double#NaN}
+     * if the formula is undefined
+     */
+    static double calculate(Formula f, int index, BigDecimal stepSize, BigDecimal argumentOffset, BigDecimal valueOffset,
+                            Arithmetic arithmetic) {
+        if (arithmetic == Arithmetic.DOUBLE_DOUBLE) {
+            return calculate(f, index, DoubleDouble.valueOf(stepSize),
+                    DoubleDouble.valueOf(argumentOffset.add(startValue(stepSize))), DoubleDouble.valueOf(valueOffset));
+        }
+        return calculate(f, index, stepSize, argumentOffset, valueOffset);
+    }
+
+    /**
+     * Calculates the value of a formula at a sample of the domain.
+     *
+     * @param f              the formula
+     * @param index          the index of the sample in the domain
+     * @param stepSize       the step size
+     * @param argumentOffset the argument of the sample with index zero
+     * @param valueOffset    the offset that is subtracted from the value
+     * @return the value relative to {@code valueOffset} or {@link Double#NaN}
+     * if the formula is undefined
+     */
+    private static double calculate(Formula f, int index, BigDecimal stepSize, BigDecimal argumentOffset, BigDecimal valueOffset) {
+        BigDecimal x = argumentOffset.add(BigDecimal.valueOf(index).multiply(stepSize)).add(startValue(stepSize));
+        BigDecimal y = Formula.calculateSafe(f, x);
+        if (y == null) {
+            return Double.NaN;
+        }
+        return valueOffset.signum() == 0 ? y.doubleValue() : y.subtract(valueOffset).doubleValue();
+    }
+
+    /**
+     * Calculates the value of a formula at a sample of the domain with
+     * double-doubles.
+     *
+     * @param f           the formula
+     * @param index       the index of the sample in the domain
+     * @param stepSize    the step size
+     * @param argument    the argument of the sample with index zero including the start value
+     * @param valueOffset the offset that is subtracted from the value
+     * @return the value relative to {@code valueOffset} or {@link Double#NaN}
+     * if the formula is undefined
+     */
+    private static double calculate(Formula f, int index, DoubleDouble stepSize, DoubleDouble argument, DoubleDouble valueOffset) {
+        DoubleDouble y = Formula.calculateSafe(f, argument.add(stepSize.multiply(index)));
+        if (y == null) {
+            return Double.NaN;
+        }
+        return y.subtract(valueOffset).doubleValue();
+    }
+
 }
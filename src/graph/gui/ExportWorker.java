@@ -0,0 +1,118 @@
+package graph.gui;
+
+import graph.engine.Exporter;
+
+import javax.swing.*;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * This class writes an export of the graph panel to a file in the
+ * background. The progress is shown in a {@link ProgressMonitor}, cancelling
+ * the monitor stops the export and deletes the incomplete file.
+ */
+class ExportWorker extends SwingWorker<Void, Void> {
+
+    /**
+     * Time in milliseconds between two checks whether the monitor was cancelled
+     */
+    private static final int CANCEL_POLL_INTERVAL = 100;
+
+    /**
+     * The {@link GraphPanel} instance
+     */
+    private final GraphPanel graphPanel;
+
+    /**
+     * Writes the export
+     */
+    private final Exporter exporter;
+
+    /**
+     * The exported file
+     */
+    private final File file;
+
+    /**
+     * Shows the progress
+     */
+    private final ProgressMonitor monitor;
+
+    /**
+     * Checks whether the monitor was cancelled, also while the progress stalls
+     */
+    private final Timer cancelTimer;
+
+    /**
+     * Creates an {@link ExportWorker} object. Must be called on the event
+     * dispatch thread.
+     *
+     * @param graphPanel  the graph panel
+     * @param exporter    writes the export
+     * @param file        the exported file
+     * @param description describes the export in the progress monitor
+     */
+    ExportWorker(GraphPanel graphPanel, Exporter exporter, File file, String description) {
+        this.graphPanel = graphPanel;
+        this.exporter = exporter;
+        this.file = file;
+        monitor = new ProgressMonitor(graphPanel, description, file.getName(), 0, 100);
+        monitor.setMillisToDecideToPopup(0);
+        addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                monitor.setProgress((Integer) e.getNewValue());
+            }
+        });
+        cancelTimer = new Timer(CANCEL_POLL_INTERVAL, e -> {
+            if (monitor.isCanceled()) {
+                cancel(true);
+            }
+        });
+        cancelTimer.start();
+    }
+
+    /**
+     * Writes the export. An incomplete file is deleted.
+     *
+     * @return nothing
+     * @throws IOException          if the file cannot be written
+     * @throws InterruptedException if the export is cancelled
+     */
+    @Override
+    protected Void doInBackground() throws IOException, InterruptedException {
+        boolean complete = false;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()))) {
+            exporter.export(out, this::setProgress);
+            complete = true;
+        } finally {
+            if (!complete && !file.delete() && file.exists()) {
+                System.err.println("Failed to delete incomplete export: " + file.getAbsolutePath());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reports the result of the export.
+     */
+    @Override
+    protected void done() {
+        cancelTimer.stop();
+        monitor.close();
+        try {
+            get();
+            JOptionPane.showConfirmDialog(graphPanel, "Saved export to: " + file.getAbsolutePath(), "Confirmation", JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE);
+        } catch (CancellationException | InterruptedException e) {
+            // the export was cancelled by the user
+        } catch (ExecutionException e) {
+            JOptionPane.showConfirmDialog(graphPanel, "Failed to export: " + e.getCause().getMessage(), "Error", JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE);
+            e.getCause().printStackTrace();
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+package graph.gui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+/**
+ * This class coalesces changes of the viewport into frames. Zoom and move
+ * requests are accumulated and applied at once, at most one frame is
+ * rendered per frame interval. Intermediate viewports are never rendered.
+ * All methods must be called on the event dispatch thread.
+ */
+class FrameScheduler implements ActionListener {
+
+    /**
+     * The default amount of frames per second
+     */
+    static final int DEFAULT_TARGET_FPS = 60;
+
+    /**
+     * The amount of frames per second in which appended points of streaming
+     * series are shown
+     */
+    static final int STREAMING_FPS = 30;
+
+    /**
+     * The graph panel instance
+     */
+    private final GraphPanel graphPanel;
+
+    /**
+     * Timer that fires when the next frame is due
+     */
+    private final Timer timer;
+
+    /**
+     * Timer that checks the streaming series for appended points
+     */
+    private final Timer streamingTimer;
+
+    /**
+     * The minimum time between two frames in milliseconds
+     */
+    private int frameInterval;
+
+    /**
+     * The time of the last frame in milliseconds
+     */
+    private long lastFrame;
+
+    /**
+     * The accumulated zoom steps, positive values zoom in
+     */
+    private int zoomSteps;
+
+    /**
+     * The point of the panel to zoom at
+     */
+    private Point zoomAnchor;
+
+    /**
+     * The accumulated horizontal steps, positive values move to the right
+     */
+    private int horizontalSteps;
+
+    /**
+     * The accumulated vertical steps, positive values move up
+     */
+    private int verticalSteps;
+
+    /**
+     * Creates a {@link FrameScheduler} object.
+     *
+     * @param graphPanel the graph panel
+     * @param targetFps  the maximum amount of frames per second
+     */
+    FrameScheduler(GraphPanel graphPanel, int targetFps) {
+        this.graphPanel = graphPanel;
+        timer = new Timer(0, this);
+        timer.setRepeats(false);
+        streamingTimer = new Timer(1000 / STREAMING_FPS, e -> graphPanel.showAppendedPoints());
+        setTargetFps(targetFps);
+    }
+
+    /**
+     * Starts or stops checking the streaming series for appended points.
+     * Points that are appended faster are shown together in the next frame.
+     *
+     * @param flag whether streaming series are drawn
+     */
+    void streaming(boolean flag) {
+        if (flag && !streamingTimer.isRunning()) {
+            streamingTimer.start();
+        } else if (!flag) {
+            streamingTimer.stop();
+        }
+    }
+
+    /**
+     * Changes the maximum amount of frames per second.
+     *
+     * @param targetFps the maximum amount of frames per second
+     */
+    void setTargetFps(int targetFps) {
+        if (targetFps <= 0) {
+            throw new IllegalArgumentException("The target frame rate must be positive");
+        }
+        frameInterval = 1000 / targetFps;
+    }
+
+    /**
+     * Requests zoom steps for the next frame. The last requested point to
+     * zoom at is used for all the steps of a frame.
+     *
+     * @param steps  the amount of steps, positive values zoom in
+     * @param anchor the point of the panel to zoom at
+     */
+    void zoom(int steps, Point anchor) {
+        zoomSteps += steps;
+        zoomAnchor = anchor;
+        requestFrame();
+    }
+
+    /**
+     * Requests move steps for the next frame.
+     *
+     * @param horizontal the horizontal steps, positive values move to the right
+     * @param vertical   the vertical steps, positive values move up
+     */
+    void move(int horizontal, int vertical) {
+        horizontalSteps += horizontal;
+        verticalSteps += vertical;
+        requestFrame();
+    }
+
+    /**
+     * Schedules the next frame if it is not scheduled yet.
+     */
+    private void requestFrame() {
+        if (!timer.isRunning()) {
+            long wait = lastFrame + frameInterval - System.currentTimeMillis();
+            timer.setInitialDelay((int) Math.max(0, wait));
+            timer.start();
+        }
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        lastFrame = System.currentTimeMillis();
+        int zoom = zoomSteps;
+        int horizontal = horizontalSteps;
+        int vertical = verticalSteps;
+        zoomSteps = horizontalSteps = verticalSteps = 0;
+        if (zoom != 0 || horizontal != 0 || vertical != 0) {
+            graphPanel.applyViewChange(zoom, zoomAnchor, horizontal, vertical);
+        }
+    }
+
+}
@@ -47,7 +47,7 @@ public class GraphFrame extends JFrame {
         inputPanel = new InputPanel(INPUT_PANEL_DIMENSION, this);
         add(inputPanel, BorderLayout.WEST);
         add(graphPanel, BorderLayout.EAST);
-        setJMenuBar(new MenuBar(graphPanel));
+        setJMenuBar(new MenuBar(graphPanel, inputPanel));
 
         // add input listeners
         MouseEventDispatcher mouseEventDispatcher = new MouseEventDispatcher(this, graphPanel);
@@ -0,0 +1,430 @@
+package graph.gui;
+
+import graph.function.concurrent.CoordinateSet;
+import graph.render.Viewport;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * This class represents the cached layer of one graph. It retains the
+ * computed samples of the graph and the rendered image. The samples are
+ * only recomputed when the formula or the viewport changes, the image is
+ * only rendered again when the samples or the style of the graph change.
+ * A shared layer has no image of its own, it is drawn into an image that
+ * it shares with other layers.
+ */
+final class GraphLayer {
+
+    /**
+     * Draws the coordinate sets of a layer into its image.
+     */
+    @FunctionalInterface
+    interface Painter {
+
+        /**
+         * Draws coordinate sets into a cleared image.
+         *
+         * @param image          the image of the layer
+         * @param offset         the position of the image on the panel
+         * @param color          the color of the graph
+         * @param antialiasing   whether the coordinate sets may be anti-aliased
+         * @param coordinateSets the coordinate sets to draw
+         */
+        void paint(BufferedImage image, Point offset, Color color, boolean antialiasing, CoordinateSet... coordinateSets);
+
+    }
+
+    /**
+     * The identity of the sampled formulas and their sampling properties
+     */
+    private Object[] key;
+
+    /**
+     * The version of the zoom that was sampled
+     */
+    private long zoomVersion = -1;
+
+    /**
+     * The quality tier the samples were computed at
+     */
+    private QualityTier tier = QualityTier.FULL;
+
+    /**
+     * The computed coordinates of the graph
+     */
+    private CoordinateSet coordinateSet;
+
+    /**
+     * The viewport the samples were computed or extended for
+     */
+    private Viewport viewport;
+
+    /**
+     * The computed coordinates of the derivative
+     */
+    private CoordinateSet derivativeSet;
+
+    /**
+     * Whether the derivative was derived from the samples
+     */
+    private boolean derivativeFromSamples;
+
+    /**
+     * Whether the derivative has to be computed again for extended samples
+     */
+    private boolean derivativeExtended;
+
+    /**
+     * The size of the image of the layer
+     */
+    private final Dimension size;
+
+    /**
+     * The rendered image of the layer, created when it is rendered first
+     */
+    private BufferedImage image;
+
+    /**
+     * Whether the layer is drawn into a shared image instead of its own
+     */
+    private boolean shared;
+
+    /**
+     * Whether the image has to be rendered again
+     */
+    private boolean dirty = true;
+
+    /**
+     * Whether the image is outdated because the viewport was moved
+     */
+    private boolean stale;
+
+    /**
+     * The color of the rendered image
+     */
+    private Color color;
+
+    /**
+     * Whether the rendered image contains the derivative
+     */
+    private boolean derivativeDrawn;
+
+    /**
+     * The color the graph should be drawn with
+     */
+    private Color requestedColor;
+
+    /**
+     * Whether the derivative should be drawn
+     */
+    private boolean requestedDerivative;
+
+    /**
+     * Whether the layer was used in the last frame
+     */
+    private boolean used;
+
+    /**
+     * Creates an empty {@link GraphLayer} object.
+     *
+     * @param size the size of the layer
+     */
+    GraphLayer(Dimension size) {
+        this.size = size;
+    }
+
+    /**
+     * Checks if the cached samples are still valid. The layer is marked as
+     * used in the current frame.
+     *
+     * @param key         the identity of the formulas and their sampling properties
+     * @param zoomVersion the current version of the zoom
+     * @return true if the samples are valid
+     */
+    boolean hasSamples(Object[] key, long zoomVersion) {
+        used = true;
+        return this.zoomVersion == zoomVersion && Arrays.equals(this.key, key);
+    }
+
+    /**
+     * Checks if the layer has samples at the current zoom, possibly of
+     * formulas that changed since. Only such layers can be drawn.
+     *
+     * @param zoomVersion the current version of the zoom
+     * @return true if the samples can be drawn
+     */
+    boolean isCurrent(long zoomVersion) {
+        return coordinateSet != null && this.zoomVersion == zoomVersion;
+    }
+
+    /**
+     * Changes the cached samples. The cached derivative is discarded.
+     *
+     * @param key           the identity of the formulas and their sampling properties
+     * @param zoomVersion   the current version of the zoom
+     * @param tier          the quality tier the samples were computed at
+     * @param coordinateSet the computed coordinates of the graph
+     */
+    void setSamples(Object[] key, long zoomVersion, QualityTier tier, CoordinateSet coordinateSet) {
+        this.key = key;
+        this.zoomVersion = zoomVersion;
+        refineSamples(tier, coordinateSet);
+    }
+
+    /**
+     * Replaces the cached samples with refined samples of the same formulas
+     * and viewport. The cached derivative is discarded.
+     *
+     * @param tier          the quality tier the samples were computed at
+     * @param coordinateSet the refined coordinates of the graph
+     */
+    void refineSamples(QualityTier tier, CoordinateSet coordinateSet) {
+        this.tier = tier;
+        this.coordinateSet = coordinateSet;
+        this.derivativeSet = null;
+        derivativeExtended = false;
+        dirty = true;
+    }
+
+    /**
+     * Replaces the cached samples with samples that were extended to a moved
+     * domain. The samples in the old domain are unchanged, but the exposed
+     * samples arrive after the image was moved, so the image is outdated.
+     * The derivative has to be computed again.
+     *
+     * @param coordinateSet the extended coordinates of the graph
+     */
+    void extendSamples(CoordinateSet coordinateSet) {
+        this.coordinateSet = coordinateSet;
+        derivativeExtended = derivativeSet != null;
+        derivativeSet = null;
+        stale = true;
+    }
+
+    /**
+     * Returns the viewport the cached samples were computed or extended for.
+     *
+     * @return the viewport of the samples, null if it is unknown
+     */
+    Viewport getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Changes the viewport the cached samples were computed or extended for.
+     *
+     * @param viewport the viewport of the samples
+     */
+    void setViewport(Viewport viewport) {
+        this.viewport = viewport;
+    }
+
+    /**
+     * Returns the quality tier the cached samples were computed at.
+     *
+     * @return the quality tier of the samples
+     */
+    QualityTier getTier() {
+        return tier;
+    }
+
+    /**
+     * Returns the cached coordinates of the graph.
+     *
+     * @return the cached coordinates of the graph
+     */
+    CoordinateSet getSamples() {
+        return coordinateSet;
+    }
+
+    /**
+     * Checks if the cached derivative is valid.
+     *
+     * @param fromSamples whether the derivative has to be derived from the samples
+     * @return true if the derivative is valid
+     */
+    boolean hasDerivative(boolean fromSamples) {
+        return derivativeSet != null && derivativeFromSamples == fromSamples;
+    }
+
+    /**
+     * Returns the cached derivative.
+     *
+     * @param fromSamples whether the derivative has to be derived from the samples
+     * @return the computed coordinates of the derivative, null if it is not valid
+     */
+    CoordinateSet getDerivative(boolean fromSamples) {
+        return hasDerivative(fromSamples) ? derivativeSet : null;
+    }
+
+    /**
+     * Changes the cached derivative. The image stays valid if the derivative
+     * was only computed again for extended samples.
+     *
+     * @param fromSamples   whether the derivative was derived from the samples
+     * @param derivativeSet the computed coordinates of the derivative
+     */
+    void setDerivative(boolean fromSamples, CoordinateSet derivativeSet) {
+        dirty |= !derivativeExtended || derivativeFromSamples != fromSamples;
+        this.derivativeFromSamples = fromSamples;
+        this.derivativeSet = derivativeSet;
+        derivativeExtended = false;
+    }
+
+    /**
+     * Determines whether the samples or the style changed since the image was
+     * rendered. A layer whose image is only outdated because the viewport was
+     * moved can still draw regions. The style is remembered for drawing a
+     * shared layer.
+     *
+     * @param color      the color of the graph
+     * @param derivative whether the derivative should be drawn
+     * @return true if the samples or the style changed
+     */
+    boolean needsRender(Color color, boolean derivative) {
+        requestedColor = color;
+        requestedDerivative = derivative;
+        return dirty || !color.equals(this.color) || derivative != derivativeDrawn;
+    }
+
+    /**
+     * Determines whether the layer has to be drawn again with the style of
+     * the last call of {@link #needsRender(Color, boolean)}, because the
+     * samples or the style changed or the viewport was moved.
+     *
+     * @return true if the layer has to be drawn again
+     */
+    boolean isOutdated() {
+        return stale || needsRender(requestedColor, requestedDerivative);
+    }
+
+    /**
+     * Determines whether the layer is drawn into a shared image.
+     *
+     * @return true if the layer has no image of its own
+     */
+    boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Changes whether the layer is drawn into a shared image. The own image
+     * of a shared layer is released.
+     *
+     * @param shared whether the layer has no image of its own
+     */
+    void setShared(boolean shared) {
+        if (shared && image != null) {
+            image = null;
+        }
+        if (shared != this.shared) {
+            dirty = true;
+        }
+        this.shared = shared;
+    }
+
+    /**
+     * Renders the layer if the samples or the style changed or the viewport
+     * was moved. The graph is only anti-aliased if the tier of the samples
+     * allows it. Shared layers are not rendered, see {@link #paint}.
+     *
+     * @param color      the color of the graph
+     * @param derivative whether the derivative should be drawn
+     * @param painter    draws the coordinate sets
+     * @return true if the image was rendered again
+     */
+    boolean render(Color color, boolean derivative, Painter painter) {
+        if (shared || !stale && !needsRender(color, derivative)) {
+            return false;
+        }
+        if (image == null) {
+            image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        Graphics2D g = image.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.dispose();
+        draw(image, color, derivative, painter);
+        return true;
+    }
+
+    /**
+     * Draws the layer into a shared image with the style of the last call of
+     * {@link #needsRender(Color, boolean)}. The image is not cleared.
+     *
+     * @param target  the shared image
+     * @param painter draws the coordinate sets
+     */
+    void paint(BufferedImage target, Painter painter) {
+        draw(target, requestedColor, requestedDerivative, painter);
+    }
+
+    /**
+     * Draws the layer into an image at the origin of the panel.
+     *
+     * @param target     the image
+     * @param color      the color of the graph
+     * @param derivative whether the derivative should be drawn
+     * @param painter    draws the coordinate sets
+     */
+    private void draw(BufferedImage target, Color color, boolean derivative, Painter painter) {
+        if (derivative && derivativeSet != null) {
+            painter.paint(target, new Point(), color, tier.antialiasing(), coordinateSet, derivativeSet);
+        } else {
+            painter.paint(target, new Point(), color, tier.antialiasing(), coordinateSet);
+        }
+
+        this.color = color;
+        this.derivativeDrawn = derivative;
+        dirty = false;
+        stale = false;
+    }
+
+    /**
+     * Draws a region of the layer at the current viewport into an image
+     * without rendering the whole layer. The own image of the layer becomes
+     * outdated and is rendered again when it is needed.
+     *
+     * @param target  the cleared image that covers the region
+     * @param offset  the position of the region on the panel
+     * @param painter draws the coordinate sets
+     */
+    void renderRegion(BufferedImage target, Point offset, Painter painter) {
+        if (derivativeDrawn && derivativeSet != null) {
+            painter.paint(target, offset, color, tier.antialiasing(), coordinateSet, derivativeSet);
+        } else {
+            painter.paint(target, offset, color, tier.antialiasing(), coordinateSet);
+        }
+        stale = true;
+    }
+
+    /**
+     * Forces the image to be rendered again, e.g. after the renderer changed.
+     */
+    void invalidate() {
+        dirty = true;
+    }
+
+    /**
+     * Returns the rendered image of the layer.
+     *
+     * @return the rendered image, null for shared layers
+     */
+    BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Determines whether the layer was used since the last call and resets the state.
+     *
+     * @return true if the layer was used
+     */
+    boolean resetUsed() {
+        boolean result = used;
+        used = false;
+        return result;
+    }
+
+}
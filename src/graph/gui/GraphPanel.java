@@ -1,22 +1,34 @@
 package graph.gui;
 
-import graph.MathUtil;
+import graph.Arithmetic;
+import graph.engine.AxisPainter;
+import graph.engine.PlotEngine;
+import graph.engine.Workspace;
+import graph.function.DataSeries;
 import graph.function.GraphFormula;
 import graph.function.ParametricEquation;
-import graph.function.concurrent.ConcurrentCalculation;
+import graph.function.StreamingSeries;
+import graph.function.concurrent.Cancellation;
 import graph.function.concurrent.CoordinateSet;
-import graph.gui.axis.FiniteDomain;
-import graph.gui.axis.Stripe;
-import graph.gui.axis.XAxis;
-import graph.gui.axis.YAxis;
+import graph.function.concurrent.SampleCache;
+import graph.function.concurrent.Segment;
+import graph.render.PolylineRenderer;
+import graph.render.ScreenTransform;
+import graph.render.SoftwareRasterizer;
+import graph.render.Viewport;
+import graph.render.axis.XAxis;
+import graph.render.axis.YAxis;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * This class represents the panel that contains all the graphs.
@@ -24,14 +36,35 @@ import java.util.Iterator;
 public class GraphPanel extends JPanel {
 
     /**
-     * The step size used for parametric equations
+     * Pixels next to the exposed strip that are composited again when the
+     * frame is scrolled. The graphs may change near the old edge of the domain.
      */
-    public static final BigDecimal PARAMETRIC_EQUATION_STEP_SIZE = new BigDecimal("0.05");
+    private static final int SCROLL_SEAM = 4;
 
     /**
-     * The color of the x-axis and the y-axis
+     * Size in pixels of the regions around the axes at the edges that are
+     * composited again when the frame is scrolled. Axis labels appear and
+     * disappear there and the axis indicators stay at the edges.
      */
-    private static final Color AXIS_COLOR = new Color(0x1b1c1d);
+    private static final int SCROLL_AXIS_MARGIN = 40;
+
+    /**
+     * The maximum width in pixels of the labels of the y-axis
+     */
+    private static final int Y_AXIS_LABEL_WIDTH = 100;
+
+    /**
+     * The maximum number of graph layers with an image of their own. The
+     * other layers are drawn into one shared image, so many graphs do not
+     * need an image of the size of the panel each.
+     */
+    private static final int MAX_LAYER_IMAGES = 16;
+
+    /**
+     * Pixels beyond the left and right edge of an image whose points are
+     * still drawn into it, so lines that are wider than one pixel are complete
+     */
+    private static final int REGION_MARGIN = 2;
 
 
     /**
@@ -44,6 +77,11 @@ public class GraphPanel extends JPanel {
      */
     private final Point ORIGIN;
 
+    /**
+     * The current viewport, replaced as a whole when the view changes
+     */
+    private volatile Viewport viewport;
+
     /**
      * The x-axis
      */
@@ -54,6 +92,30 @@ public class GraphPanel extends JPanel {
      */
     private final YAxis yAxis;
 
+    /**
+     * The {@link FrameScheduler} that coalesces zooming and moving
+     */
+    private final FrameScheduler frameScheduler;
+
+    /**
+     * Selects the quality tier from the measured frame times
+     */
+    private final QualityController qualityController;
+
+    /**
+     * The quality tier of the current frame
+     */
+    private QualityTier tier = QualityTier.FULL;
+
+    /**
+     * Whether the graphs are refined progressively from a coarse first pass
+     */
+    private boolean progressive = true;
+
+    /**
+     * The version of the viewport whose frame time was measured last
+     */
+    private long measuredVersion;
 
     /**
      * This set contains all the formulas.
@@ -66,9 +128,121 @@ public class GraphPanel extends JPanel {
     private HashSet<ParametricEquation> parametricEquations = new HashSet<>();
 
     /**
-     * The variable step size used for formulas
+     * This set contains all the data series.
+     */
+    private HashSet<DataSeries> dataSeries = new HashSet<>();
+
+    /**
+     * This set contains all the streaming series.
+     */
+    private final HashSet<StreamingSeries> streamingSeries = new HashSet<>();
+
+    /**
+     * The sum of the versions of the streaming series in the last frame
+     */
+    private long streamingVersion;
+
+    /**
+     * Condition to derive the derivatives from the computed samples
+     */
+    private boolean derivativeFromSamples = true;
+
+    /**
+     * The number type the formulas are sampled with
+     */
+    private Arithmetic arithmetic = Arithmetic.BIG_DECIMAL;
+
+    /**
+     * The version of the viewport, incremented on every zoom or move
+     */
+    private long viewVersion;
+
+    /**
+     * The version of the zoom, incremented on every zoom
+     */
+    private long zoomVersion;
+
+    /**
+     * The cached layers of the graphs
+     */
+    private final LinkedHashMap<String, GraphLayer> layers = new LinkedHashMap<>();
+
+    /**
+     * The image the layers without an image of their own are drawn into
+     */
+    private BufferedImage sharedLayer;
+
+    /**
+     * The layers drawn into the shared image
+     */
+    private List<GraphLayer> sharedLayers = new ArrayList<>();
+
+    /**
+     * The cached layer of the axes
+     */
+    private final BufferedImage axesLayer;
+
+    /**
+     * The version of the viewport drawn on the axes layer
+     */
+    private long axesVersion = -1;
+
+    /**
+     * Draws the axes and caches their labels
+     */
+    private final AxisPainter axisPainter = new AxisPainter();
+
+    /**
+     * The engine that samples the graphs
+     */
+    private final PlotEngine engine = new PlotEngine(PlotEngine.DEFAULT_BACKGROUND, true, false, SampleCache.getDefault());
+
+    /**
+     * The renderer that draws the segments of the graphs
+     */
+    private final PolylineRenderer polylineRenderer = new PolylineRenderer();
+
+    /**
+     * The renderer that draws anti-aliased segments into the pixels of the layers
+     */
+    private final SoftwareRasterizer softwareRasterizer = new SoftwareRasterizer();
+
+    /**
+     * Whether the graphs are drawn by the software rasterizer instead of Java2D
+     */
+    private boolean softwareRendering;
+
+    /**
+     * The back buffer that contains the composited layers
+     */
+    private VolatileImage backBuffer;
+
+    /**
+     * The back buffer used when the panel is not displayable
+     */
+    private BufferedImage fallbackBuffer;
+
+    /**
+     * The viewport of the frame in the back buffer
+     */
+    private Viewport frameViewport;
+
+    /**
+     * The reused image that the layers draw a region of the panel into
+     */
+    private BufferedImage regionImage;
+
+    /**
+     * Whether the frames show the scaled previous frame after a zoom until
+     * the graphs are sampled at the new zoom
+     */
+    private boolean previewPending;
+
+    /**
+     * The worker that samples the formulas and parametric equations, null if
+     * all graphs are sampled at the current tier
      */
-    private BigDecimal formulaStepSize;
+    private SamplingWorker samplingWorker;
 
     /**
      * Creates a panel that contains all the graphs.
@@ -79,9 +253,12 @@ public class GraphPanel extends JPanel {
         setPreferredSize(panelSize);
         ORIGIN = new Point(panelSize.width / 2, panelSize.height / 2);
         zoomHandler = new ZoomHandler(panelSize);
-        xAxis = new XAxis(panelSize);
-        yAxis = new YAxis(panelSize);
-        updateStepSize();
+        xAxis = new XAxis(panelSize, zoomHandler.getHorizontalStretch());
+        yAxis = new YAxis(panelSize, zoomHandler.getVerticalStretch());
+        updateViewport();
+        frameScheduler = new FrameScheduler(this, FrameScheduler.DEFAULT_TARGET_FPS);
+        qualityController = new QualityController(this::repaint, QualityController.DEFAULT_FRAME_BUDGET);
+        axesLayer = new BufferedImage(panelSize.width, panelSize.height, BufferedImage.TYPE_INT_ARGB);
     }
 
     /**
@@ -112,6 +289,36 @@ public class GraphPanel extends JPanel {
         return result;
     }
 
+    /**
+     * Adds a {@link DataSeries} to draw.
+     *
+     * @param s the data series to draw
+     * @return true if the {@link DataSeries} was successfully added.
+     */
+    boolean add(DataSeries s) {
+        boolean result = dataSeries.add(s);
+        if (result) {
+            repaint();
+        }
+        return result;
+    }
+
+    /**
+     * Adds a {@link StreamingSeries} to draw. Appended points are shown at
+     * most {@link FrameScheduler#STREAMING_FPS} times per second.
+     *
+     * @param s the streaming series to draw
+     * @return true if the {@link StreamingSeries} was successfully added.
+     */
+    boolean add(StreamingSeries s) {
+        boolean result = streamingSeries.add(s);
+        if (result) {
+            frameScheduler.streaming(true);
+            repaint();
+        }
+        return result;
+    }
+
     /**
      * Removes a {@link GraphFormula} from the drawing panel.
      *
@@ -144,6 +351,31 @@ public class GraphPanel extends JPanel {
         repaint();
     }
 
+    /**
+     * Removes all data series and streaming series from the drawing panel.
+     */
+    void clearDataSeries() {
+        dataSeries.clear();
+        streamingSeries.clear();
+        frameScheduler.streaming(false);
+        repaint();
+    }
+
+    /**
+     * Repaints the panel if points were appended to a streaming series since
+     * the last frame.
+     */
+    void showAppendedPoints() {
+        long version = 0;
+        for (StreamingSeries s : streamingSeries) {
+            version += s.getVersion();
+        }
+        if (version != streamingVersion) {
+            streamingVersion = version;
+            repaint();
+        }
+    }
+
     /**
      * Retrieves a {@link GraphFormula} by name.
      *
@@ -199,264 +431,1011 @@ public class GraphPanel extends JPanel {
     }
 
     /**
-     * Zooms in on the graph.
+     * Returns a set({@link HashSet}) of data series that are currently being
+     * drawn on the panel.
+     *
+     * @return a set of data series that are currently being drawn on the panel.
+     */
+    HashSet<DataSeries> getDataSeries() {
+        return dataSeries;
+    }
+
+    /**
+     * Determines whether data series or streaming series are drawn.
+     *
+     * @return true if a series is drawn
+     */
+    boolean hasDataSeries() {
+        return !dataSeries.isEmpty() || !streamingSeries.isEmpty();
+    }
+
+    /**
+     * Returns the graphs and the visible area as a workspace. Data series
+     * and streaming series are not part of a workspace.
+     *
+     * @return the workspace
+     */
+    Workspace getWorkspace() {
+        return new Workspace(zoomHandler.getHorizontalStretch(), zoomHandler.getVerticalStretch(),
+                xAxis.getAnchor(), xAxis.getAnchorPosition(), yAxis.getAnchor(), yAxis.getAnchorPosition(),
+                arithmetic, formulas, parametricEquations);
+    }
+
+    /**
+     * Replaces the graphs and the visible area with those of a workspace.
+     * Data series and streaming series are removed, a workspace does not
+     * contain them.
+     *
+     * @param workspace the workspace
+     */
+    void setWorkspace(Workspace workspace) {
+        zoomHandler.setStretch(workspace.getStretchX(), workspace.getStretchY());
+        xAxis.moveTo(workspace.getStretchX(), workspace.getAnchorX(), workspace.getAnchorPositionX());
+        yAxis.moveTo(workspace.getStretchY(), workspace.getAnchorY(), workspace.getAnchorPositionY());
+        arithmetic = workspace.getArithmetic();
+        formulas = new HashSet<>(workspace.getFormulas());
+        parametricEquations = new HashSet<>(workspace.getParametricEquations());
+        dataSeries.clear();
+        streamingSeries.clear();
+        frameScheduler.streaming(false);
+        layers.clear();
+        previewPending = false;
+        zoomVersion++;
+        viewVersion++;
+        updateViewport();
+        repaint();
+    }
+
+    /**
+     * Zooms in on the center of the graph. The zoom is applied with the next frame.
      */
     public void zoomIn() {
-        if (zoomHandler.zoomIn()) {
-            updateStepSize();
-            repaint();
-        }
+        zoom(1, ORIGIN);
     }
 
     /**
-     * Zooms out on the graph.
+     * Zooms out of the center of the graph. The zoom is applied with the next frame.
      */
     public void zoomOut() {
-        if (zoomHandler.zoomOut()) {
-            updateStepSize();
-            repaint();
-        }
+        zoom(-1, ORIGIN);
     }
 
     /**
-     * Updates the step size of the formulas. The step size is dependent on the
-     * current width and height. The smaller the current width and current
-     * height, the smaller the step size. This dynamic step size eliminates
-     * jagged graphs.
+     * Zooms the graph at a point of the panel, the graph coordinates at the
+     * point stay in place. Points outside of the panel are moved to its
+     * border. The zoom is applied with the next frame.
+     *
+     * @param steps  the amount of zoom steps, positive values zoom in
+     * @param anchor the point of the panel to zoom at
      */
-    private void updateStepSize() {
-        formulaStepSize = zoomHandler.getCurrentWidth().divide(
-                BigDecimal.valueOf(2000), MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP
-        );
+    public void zoom(int steps, Point anchor) {
+        Dimension size = getPreferredSize();
+        frameScheduler.zoom(steps, new Point(
+                Math.max(0, Math.min(anchor.x, size.width - 1)), Math.max(0, Math.min(anchor.y, size.height - 1))
+        ));
+    }
+
+    /**
+     * Changes the maximum amount of frames per second while zooming and moving.
+     *
+     * @param targetFps the maximum amount of frames per second
+     */
+    public void setTargetFps(int targetFps) {
+        frameScheduler.setTargetFps(targetFps);
+    }
+
+    /**
+     * Changes the frame budget. While the viewport is changed, the quality of
+     * the graphs is lowered until a frame fits into the budget.
+     *
+     * @param frameBudget the frame budget in milliseconds
+     */
+    public void setFrameBudget(int frameBudget) {
+        qualityController.setFrameBudget(frameBudget);
+    }
+
+    /**
+     * Applies the accumulated zoom and move steps of a frame at once and
+     * repaints the graph.
+     *
+     * @param zoomSteps       the zoom steps, positive values zoom in
+     * @param zoomAnchor      the point of the panel to zoom at
+     * @param horizontalSteps the horizontal steps, positive values move to the right
+     * @param verticalSteps   the vertical steps, positive values move up
+     */
+    void applyViewChange(int zoomSteps, Point zoomAnchor, int horizontalSteps, int verticalSteps) {
+        boolean changed = false;
+        for (int i = 0; i < zoomSteps && zoomHandler.zoomIn(); i++) {
+            changed = true;
+        }
+        for (int i = 0; i > zoomSteps && zoomHandler.zoomOut(); i--) {
+            changed = true;
+        }
+        if (changed) {
+            xAxis.zoom(zoomHandler.getHorizontalStretch(), zoomAnchor.x);
+            yAxis.zoom(zoomHandler.getVerticalStretch(), zoomAnchor.y);
+            zoomVersion++;
+            previewPending = true;
+        }
+        for (int i = 0; i < Math.abs(horizontalSteps); i++) {
+            xAxis.move(horizontalSteps > 0 ? XAxis.HorizontalDirection.RIGHT : XAxis.HorizontalDirection.LEFT);
+            changed = true;
+        }
+        for (int i = 0; i < Math.abs(verticalSteps); i++) {
+            yAxis.move(verticalSteps > 0 ? YAxis.VerticalDirection.UP : YAxis.VerticalDirection.DOWN);
+            changed = true;
+        }
+        if (changed) {
+            updateViewport();
+            qualityController.interaction();
+            viewVersion++;
+            repaint();
+        }
     }
 
     /**
      * {@inheritDoc}
+     * <br>
+     * The graphs are rendered in cached layers. Only the layers whose samples or
+     * style changed are rendered again, the layers are composited into a reused
+     * back buffer. The formulas and parametric equations are sampled by a
+     * {@link SamplingWorker} in the background; after a zoom the previous frame
+     * is shown scaled to the new viewport until the first samples at the new
+     * zoom arrive, after a move the previous samples are shown moved until the
+     * exposed samples arrive. While the viewport is changed, the graphs are rendered at
+     * the quality tier chosen from the measured frame and sampling times. In
+     * progressive mode the graphs are first sampled at 1/8 of the density and
+     * refined by one pass at a time, every pass is shown as soon as it is
+     * computed. The remaining passes are dropped when the zoom changes.
      *
      * @param graphics {@inheritDoc}
      */
     @Override
     protected void paintComponent(Graphics graphics) {
-        Dimension size = getPreferredSize();
-        Graphics2D background = (Graphics2D) graphics;
-        BufferedImage buffer = new BufferedImage(size.width, size.height, BufferedImage.TYPE_4BYTE_ABGR);
-        Graphics2D g = (Graphics2D) buffer.getGraphics();
-        graphics.clearRect(0, 0, size.width, size.height);
-
-        drawPrimaryAxes(g);
-        for (GraphFormula graphFormula : formulas) {
-            g.setColor(graphFormula.getColor());
-            drawGraph(g, computeCoordinateSet(graphFormula));
-            if (graphFormula.drawDerivative()) {
-                drawGraph(g, computeCoordinateSet(graphFormula.differentiate()));
+        long startTime = System.nanoTime();
+        tier = qualityController.getTier();
+        // show the previous frame scaled to the new viewport until the samples arrive
+        boolean sampled = scheduleSampling();
+        if (previewPending) {
+            if (!sampled && drawPreview(graphics)) {
+                return;
             }
+            previewPending = false;
+        }
+        boolean dirty = false;
+        if (axesVersion != viewVersion) {
+            Graphics2D g = clearLayer(axesLayer);
+            axisPainter.paint(g, xAxis, yAxis, getPreferredSize());
+            g.dispose();
+            axesVersion = viewVersion;
+            dirty = true;
+        }
+        for (DataSeries series : dataSeries) {
+            sampleLayer(series);
+        }
+        for (StreamingSeries series : streamingSeries) {
+            sampleLayer(series);
+        }
+        // discard the layers of removed graphs
+        int layerCount = layers.size();
+        layers.values().removeIf(layer -> !layer.resetUsed());
+        boolean changed = layers.size() != layerCount;
+        int index = 0;
+        for (GraphLayer layer : layers.values()) {
+            layer.setShared(index++ >= MAX_LAYER_IMAGES);
+        }
+        for (GraphFormula graphFormula : formulas) {
+            changed |= prepareLayer(graphFormula);
         }
         for (ParametricEquation parametricEquation : parametricEquations) {
-            g.setColor(parametricEquation.getColor());
-            drawGraph(g, computeCoordinateSet(parametricEquation));
-            if (parametricEquation.drawDerivative()) {
-                drawGraph(g, computeCoordinateSet(parametricEquation.differentiate()));
+            changed |= prepareLayer(parametricEquation);
+        }
+        for (DataSeries series : dataSeries) {
+            changed |= prepareLayer(series);
+        }
+        for (StreamingSeries series : streamingSeries) {
+            changed |= prepareLayer(series);
+        }
+
+        // a pure pan scrolls the previous frame, only the exposed strips are drawn
+        Point pan = changed ? null : panOffset();
+        if (pan == null || !scrollBackBuffer(graphics, pan)) {
+            dirty |= changed || pan != null;
+            for (GraphFormula graphFormula : formulas) {
+                dirty |= renderLayer(graphFormula);
+            }
+            for (ParametricEquation parametricEquation : parametricEquations) {
+                dirty |= renderLayer(parametricEquation);
+            }
+            for (DataSeries series : dataSeries) {
+                dirty |= renderLayer(series);
+            }
+            for (StreamingSeries series : streamingSeries) {
+                dirty |= renderLayer(series);
             }
+            dirty |= renderSharedLayer();
+            drawBackBuffer(graphics, dirty);
         }
 
-        // double buffering
-        background.drawImage(buffer, 0, 0, null);
+        // only frames of a changed viewport are measured, cached frames are always fast
+        if (measuredVersion != viewVersion) {
+            measuredVersion = viewVersion;
+            qualityController.frameRendered(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Starts a {@link SamplingWorker} for the formulas and parametric equations
+     * whose formulas, sampling properties or zoom changed or whose samples are
+     * coarser than the current tier. In progressive mode the first pass is
+     * computed at the lowest sample density, otherwise at the density of the
+     * current tier. The samples of formulas whose viewport was moved are
+     * extended to the new domain by the worker as well. A running worker is
+     * stopped unless it already samples the same graphs, a worker at a moved
+     * viewport keeps running and the samples are extended once it finished.
+     *
+     * @return true if all graphs have samples at the current zoom
+     */
+    private boolean scheduleSampling() {
+        QualityTier start = progressive ? QualityTier.DRAFT : tier;
+        List<SamplingWorker.Request> requests = new ArrayList<>();
+        boolean sampled = true;
+        for (GraphFormula f : formulas) {
+            GraphLayer layer = layers.computeIfAbsent("f:" + f.getName(), name -> new GraphLayer(getPreferredSize()));
+            Object[] key = key(f);
+            if (!layer.hasSamples(key, zoomVersion) || !progressive && layer.getTier().compareTo(tier) > 0) {
+                requests.add(new SamplingWorker.Request(f, key, start, null, f.drawDerivative(), null));
+            } else if (layer.getTier().compareTo(tier) > 0 || layer.getViewport() != viewport || lacksDerivative(layer, f.drawDerivative())) {
+                requests.add(new SamplingWorker.Request(
+                        f, key, layer.getTier(), layer.getSamples(), f.drawDerivative(), layer.getDerivative(derivativeFromSamples)
+                ));
+            }
+            sampled &= layer.isCurrent(zoomVersion);
+        }
+        for (ParametricEquation p : parametricEquations) {
+            GraphLayer layer = layers.computeIfAbsent("p:" + p.getName(), name -> new GraphLayer(getPreferredSize()));
+            Object[] key = key(p);
+            if (!layer.hasSamples(key, zoomVersion) || !progressive && layer.getTier().compareTo(tier) > 0) {
+                requests.add(new SamplingWorker.Request(p, key, start, null, p.drawDerivative(), null));
+            } else if (layer.getTier().compareTo(tier) > 0 || lacksDerivative(layer, p.drawDerivative())) {
+                requests.add(new SamplingWorker.Request(
+                        p, key, layer.getTier(), layer.getSamples(), p.drawDerivative(), layer.getDerivative(derivativeFromSamples)
+                ));
+            }
+            sampled &= layer.isCurrent(zoomVersion);
+        }
+        if (!requests.isEmpty() && (samplingWorker == null || !samplingWorker.covers(zoomVersion, start, tier, derivativeFromSamples, requests))) {
+            if (samplingWorker != null) {
+                samplingWorker.stop();
+            }
+            samplingWorker = new SamplingWorker(this, viewport, zoomVersion, start, tier, derivativeFromSamples, requests);
+            samplingWorker.execute();
+        }
+        return sampled;
+    }
+
+    /**
+     * Stores samples computed by the current {@link SamplingWorker} in the
+     * layer of their graph and repaints the panel. Samples of another zoom
+     * or of changed formulas are discarded, refined and extended samples only
+     * replace the samples they were computed from. The derivative computed
+     * with the samples is stored as well.
+     *
+     * @param worker  the worker that computed the samples
+     * @param samples the computed samples
+     */
+    void applySamples(SamplingWorker worker, SamplingWorker.Samples samples) {
+        GraphLayer layer = layers.get(samples.layerName);
+        if (worker != samplingWorker || layer == null || worker.getZoomVersion() != zoomVersion) {
+            return;
+        }
+        if (samples.refinedTier == null) {
+            layer.setSamples(samples.key, zoomVersion, samples.tier, samples.coordinateSet);
+        } else if (!layer.hasSamples(samples.key, zoomVersion) || layer.getTier() != samples.refinedTier) {
+            return;
+        } else if (samples.tier != samples.refinedTier) {
+            layer.refineSamples(samples.tier, samples.coordinateSet);
+        } else if (samples.coordinateSet != layer.getSamples()) {
+            layer.extendSamples(samples.coordinateSet);
+        }
+        if (samples.derivativeSet != null && !layer.hasDerivative(worker.derivativeFromSamples())) {
+            layer.setDerivative(worker.derivativeFromSamples(), samples.derivativeSet);
+        }
+        layer.setViewport(worker.getViewport());
+        repaint();
+    }
+
+    /**
+     * Hands the time a {@link SamplingWorker} took to sample the graphs to
+     * the quality controller, unless the worker was replaced.
+     *
+     * @param worker the worker that sampled the graphs
+     * @param tier   the tier the graphs were sampled at
+     * @param nanos  the time of the sampling in nanoseconds
+     */
+    void samplesComputed(SamplingWorker worker, QualityTier tier, long nanos) {
+        if (worker == samplingWorker && !worker.isCancelled()) {
+            qualityController.samplesComputed(tier, nanos);
+        }
     }
 
     /**
-     * Computes a {@link CoordinateSet} for a {@link ParametricEquation}.
+     * Forgets a finished {@link SamplingWorker}. The panel is repainted, so
+     * a new worker is started if graphs changed while it was running.
+     *
+     * @param worker the finished worker
+     */
+    void samplingFinished(SamplingWorker worker) {
+        if (worker == samplingWorker) {
+            samplingWorker = null;
+            repaint();
+        }
+    }
+
+    /**
+     * Returns the identity of a {@link GraphFormula} and its sampling properties.
+     *
+     * @param f the formula
+     * @return the identity of the samples of the formula
+     */
+    private Object[] key(GraphFormula f) {
+        return new Object[]{f.getFormula(), f.autoDeleteSingularities(), f.autoCorrectLimits(), viewport.getArithmetic()};
+    }
+
+    /**
+     * Returns the identity of a {@link ParametricEquation} and its sampling properties.
      *
      * @param p the parametric equation
-     * @return the computed {@link CoordinateSet}
+     * @return the identity of the samples of the parametric equation
      */
-    private CoordinateSet computeCoordinateSet(ParametricEquation p) {
-        FiniteDomain d = new FiniteDomain(
-                BigDecimal.valueOf(getPreferredSize().width / 3).negate(), BigDecimal.valueOf(getPreferredSize().width / 3)
-        );
-        return ConcurrentCalculation.calculate(p, d, zoomHandler, p.autoDeleteSingularities(), p.autoCorrectLimits());
+    private Object[] key(ParametricEquation p) {
+        return new Object[]{p.getX(), p.getY(), p.autoDeleteSingularities(), p.autoCorrectLimits(), viewport.getArithmetic()};
+    }
+
+    /**
+     * Samples a {@link DataSeries} if the series or the zoom changed. The
+     * series is reduced to the pixel columns at once, so it is never refined.
+     * If the viewport was only moved, the columns of the new domain are read.
+     *
+     * @param s the data series
+     */
+    private void sampleLayer(DataSeries s) {
+        GraphLayer layer = layers.computeIfAbsent("d:" + s.getName(), name -> new GraphLayer(getPreferredSize()));
+        Object[] key = {s.getData()};
+        if (!layer.hasSamples(key, zoomVersion) || layer.getTier() != tier) {
+            layer.setSamples(key, zoomVersion, tier, engine.sample(s, viewport));
+        } else {
+            CoordinateSet samples = engine.sample(s, viewport, layer.getSamples());
+            if (samples != layer.getSamples()) {
+                layer.extendSamples(samples);
+            }
+        }
+    }
+
+    /**
+     * Samples a {@link StreamingSeries} if points were appended or the
+     * viewport changed. The series is reduced to the pixel columns at once.
+     *
+     * @param s the streaming series
+     */
+    private void sampleLayer(StreamingSeries s) {
+        GraphLayer layer = layers.computeIfAbsent("s:" + s.getName(), name -> new GraphLayer(getPreferredSize()));
+        Object[] key = {s, s.getVersion(), viewport};
+        if (!layer.hasSamples(key, zoomVersion) || layer.getTier() != tier) {
+            layer.setSamples(key, zoomVersion, tier, engine.sample(s, viewport));
+        }
+    }
+
+    /**
+     * Determines whether the derivative of a graph is drawn, but was not
+     * computed by the {@link SamplingWorker} yet.
+     *
+     * @param layer          the layer of the graph
+     * @param drawDerivative whether the derivative of the graph should be drawn
+     * @return true if the derivative has to be computed
+     */
+    private boolean lacksDerivative(GraphLayer layer, boolean drawDerivative) {
+        return drawDerivative && layer.getTier().derivatives() && !layer.hasDerivative(derivativeFromSamples);
+    }
+
+    /**
+     * Determines whether the derivative of a graph is drawn. The derivative
+     * is only drawn if the tier of the samples allows it and once it was computed.
+     *
+     * @param layer          the layer of the graph
+     * @param drawDerivative whether the derivative of the graph should be drawn
+     * @return true if the derivative is drawn
+     */
+    private boolean drawsDerivative(GraphLayer layer, boolean drawDerivative) {
+        return drawDerivative && layer.getTier().derivatives() && layer.hasDerivative(derivativeFromSamples);
     }
 
     /**
-     * Computes a {@link CoordinateSet} for a {@link GraphFormula}.
+     * Determines whether the layer of a {@link GraphFormula} has to be
+     * rendered again. Layers without samples at the current zoom are not drawn.
      *
      * @param f the formula
-     * @return the computed {@link CoordinateSet}
+     * @return true if the samples or the style of the layer changed
      */
-    private CoordinateSet computeCoordinateSet(GraphFormula f) {
-        FiniteDomain d = xAxis.getCurrentDomain(zoomHandler);
-        return ConcurrentCalculation.calculate(
-                f.getFormula(), d, zoomHandler, formulaStepSize, f.autoDeleteSingularities(), f.autoCorrectLimits()
-        );
+    private boolean prepareLayer(GraphFormula f) {
+        GraphLayer layer = layers.get("f:" + f.getName());
+        return layer.isCurrent(zoomVersion) && layer.needsRender(f.getColor(), drawsDerivative(layer, f.drawDerivative()));
+    }
+
+    /**
+     * Renders the layer of a {@link GraphFormula} if its samples or its style
+     * changed or the viewport was moved.
+     *
+     * @param f the formula
+     * @return true if the layer was rendered again
+     */
+    private boolean renderLayer(GraphFormula f) {
+        GraphLayer layer = layers.get("f:" + f.getName());
+        return layer.isCurrent(zoomVersion) && layer.render(f.getColor(), drawsDerivative(layer, f.drawDerivative()), this::paintLayer);
+    }
+
+    /**
+     * Determines whether the layer of a {@link ParametricEquation} has to be
+     * rendered again. Layers without samples at the current zoom are not drawn.
+     *
+     * @param p the parametric equation
+     * @return true if the samples or the style of the layer changed
+     */
+    private boolean prepareLayer(ParametricEquation p) {
+        GraphLayer layer = layers.get("p:" + p.getName());
+        return layer.isCurrent(zoomVersion) && layer.needsRender(p.getColor(), drawsDerivative(layer, p.drawDerivative()));
+    }
+
+    /**
+     * Renders the layer of a {@link ParametricEquation} if its samples or its style
+     * changed or the viewport was moved.
+     *
+     * @param p the parametric equation
+     * @return true if the layer was rendered again
+     */
+    private boolean renderLayer(ParametricEquation p) {
+        GraphLayer layer = layers.get("p:" + p.getName());
+        return layer.isCurrent(zoomVersion) && layer.render(p.getColor(), drawsDerivative(layer, p.drawDerivative()), this::paintLayer);
+    }
+
+    /**
+     * Determines whether the layer of a {@link DataSeries} has to be rendered again.
+     *
+     * @param s the data series
+     * @return true if the samples or the style of the layer changed
+     */
+    private boolean prepareLayer(DataSeries s) {
+        return layers.get("d:" + s.getName()).needsRender(s.getColor(), false);
     }
 
     /**
-     * Draws a graph of a given {@link CoordinateSet}.
+     * Renders the layer of a {@link DataSeries} if its samples or its style
+     * changed or the viewport was moved.
      *
-     * @param g             graphics
-     * @param coordinateSet the coordinate set
+     * @param s the data series
+     * @return true if the layer was rendered again
      */
-    private void drawGraph(Graphics2D g, CoordinateSet coordinateSet) {
-        for (int i = 0; i < coordinateSet.getX().size() - 1; i++) {
-            int j = i + 1;
-            BigDecimal x1 = coordinateSet.getX().get(i);
-            BigDecimal y1 = coordinateSet.getY().get(i);
-            BigDecimal x2 = coordinateSet.getX().get(j);
-            BigDecimal y2 = coordinateSet.getY().get(j);
+    private boolean renderLayer(DataSeries s) {
+        return layers.get("d:" + s.getName()).render(s.getColor(), false, this::paintLayer);
+    }
 
-            if (x1 != null && y1 != null && x2 != null && y2 != null) {
-                drawGraphLine(g, x1, y1, x2, y2);
+    /**
+     * Determines whether the layer of a {@link StreamingSeries} has to be rendered again.
+     *
+     * @param s the streaming series
+     * @return true if the samples or the style of the layer changed
+     */
+    private boolean prepareLayer(StreamingSeries s) {
+        return layers.get("s:" + s.getName()).needsRender(s.getColor(), false);
+    }
+
+    /**
+     * Renders the layer of a {@link StreamingSeries} if its samples or its
+     * style changed or the viewport was moved.
+     *
+     * @param s the streaming series
+     * @return true if the layer was rendered again
+     */
+    private boolean renderLayer(StreamingSeries s) {
+        return layers.get("s:" + s.getName()).render(s.getColor(), false, this::paintLayer);
+    }
+
+    /**
+     * Draws the shared layers into the shared image again if one of them
+     * changed or the viewport was moved, or if other layers are shared now.
+     *
+     * @return true if the shared image was drawn again
+     */
+    private boolean renderSharedLayer() {
+        List<GraphLayer> shared = new ArrayList<>();
+        boolean outdated = false;
+        for (GraphLayer layer : layers.values()) {
+            if (layer.isShared() && layer.isCurrent(zoomVersion)) {
+                shared.add(layer);
+                outdated |= layer.isOutdated();
             }
         }
+        if (!outdated && shared.equals(sharedLayers)) {
+            return false;
+        }
+        sharedLayers = shared;
+        if (shared.isEmpty()) {
+            sharedLayer = null;
+            return true;
+        }
+        if (sharedLayer == null) {
+            Dimension size = getPreferredSize();
+            sharedLayer = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        clearLayer(sharedLayer).dispose();
+        for (GraphLayer layer : shared) {
+            layer.paint(sharedLayer, this::paintLayer);
+        }
+        return true;
     }
 
     /**
-     * Draws one line of the graph.
+     * Clears a transparent layer.
      *
-     * @param g  graphics
-     * @param x1 the first x-coordinate
-     * @param y1 the first y-coordinate
-     * @param x2 the second x-coordinate
-     * @param y2 the second y-coordinate
+     * @param layer the layer to clear
+     * @return the graphics of the cleared layer
      */
-    private void drawGraphLine(Graphics2D g, BigDecimal x1, BigDecimal y1, BigDecimal x2, BigDecimal y2) {
-        int baseX = ORIGIN.x;
-        int baseY = ORIGIN.y;
-        int movingX = xAxis.getCurrentXOrigin();
-        int movingY = yAxis.getCurrentYOrigin();
+    private Graphics2D clearLayer(BufferedImage layer) {
+        Graphics2D g = layer.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, layer.getWidth(), layer.getHeight());
+        g.setComposite(AlphaComposite.SrcOver);
+        return g;
+    }
 
-        x1 = MathUtil.checkIntOverflow(
-                BigDecimal.valueOf(baseX).add(x1.multiply(zoomHandler.getHorizontalStretch())).add(BigDecimal.valueOf(movingX))
-        );
-        y1 = MathUtil.checkIntOverflow(
-                BigDecimal.valueOf(baseY).subtract(y1.multiply(zoomHandler.getVerticalStretch())).add(BigDecimal.valueOf(movingY))
-        );
-        x2 = MathUtil.checkIntOverflow(
-                BigDecimal.valueOf(baseX).add(x2.multiply(zoomHandler.getHorizontalStretch())).add(BigDecimal.valueOf(movingX))
-        );
-        y2 = MathUtil.checkIntOverflow(
-                BigDecimal.valueOf(baseY).subtract(y2.multiply(zoomHandler.getVerticalStretch())).add(BigDecimal.valueOf(movingY))
-        );
+    /**
+     * Draws the back buffer on the panel. The layers are composited into the back
+     * buffer again if a layer changed or the contents of the back buffer were lost.
+     * A {@link VolatileImage} is used when the panel is displayable.
+     *
+     * @param graphics the graphics of the panel
+     * @param dirty    whether a layer changed
+     */
+    private void drawBackBuffer(Graphics graphics, boolean dirty) {
+        Dimension size = getPreferredSize();
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null) {
+            if (fallbackBuffer == null) {
+                fallbackBuffer = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+                dirty = true;
+            }
+            if (dirty) {
+                composite(fallbackBuffer.createGraphics());
+            }
+            graphics.drawImage(fallbackBuffer, 0, 0, null);
+            return;
+        }
+        do {
+            if (backBuffer == null) {
+                backBuffer = configuration.createCompatibleVolatileImage(size.width, size.height);
+                dirty = true;
+            }
+            int status = backBuffer.validate(configuration);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                backBuffer = configuration.createCompatibleVolatileImage(size.width, size.height);
+                dirty = true;
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                dirty = true;
+            }
+            if (dirty) {
+                composite(backBuffer.createGraphics());
+                dirty = false;
+            }
+            graphics.drawImage(backBuffer, 0, 0, null);
+        } while (backBuffer.contentsLost());
+    }
 
-        if (x1 != null && x2 != null && y1 != null && y2 != null) {
-            int ix1 = x1.intValue();
-            int iy1 = y1.intValue();
-            int ix2 = x2.intValue();
-            int iy2 = y2.intValue();
+    /**
+     * Composites the background, the axes and all the graph layers.
+     *
+     * @param g the graphics of the back buffer
+     */
+    private void composite(Graphics2D g) {
+        frameViewport = viewport;
+        Dimension size = getPreferredSize();
+        g.setColor(getBackground());
+        g.fillRect(0, 0, size.width, size.height);
+        g.drawImage(axesLayer, 0, 0, null);
+        for (GraphLayer layer : layers.values()) {
+            if (layer.isCurrent(zoomVersion) && !layer.isShared()) {
+                g.drawImage(layer.getImage(), 0, 0, null);
+            }
+        }
+        if (sharedLayer != null) {
+            g.drawImage(sharedLayer, 0, 0, null);
+        }
+        g.dispose();
+    }
 
-            g.drawLine(ix1, iy1, ix2, iy2);
+    /**
+     * Returns the engine that samples the graphs. The engine can be used
+     * from any thread.
+     *
+     * @return the engine
+     */
+    PlotEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Computes a {@link CoordinateSet} for a {@link ParametricEquation}. This
+     * method can be called from any thread.
+     *
+     * @param p            the parametric equation
+     * @param viewport     the viewport to sample at
+     * @param tier         the quality tier that determines the sample density
+     * @param cancellation stops the sampling, may be null
+     * @return the computed {@link CoordinateSet}
+     */
+    CoordinateSet computeCoordinateSet(ParametricEquation p, Viewport viewport, QualityTier tier, Cancellation cancellation) {
+        BigDecimal stepSize = PlotEngine.PARAMETRIC_EQUATION_STEP_SIZE.multiply(BigDecimal.valueOf(tier.getStepFactor()));
+        return engine.sample(p, viewport, PlotEngine.parametricDomain(viewport), stepSize, cancellation);
+    }
+
+    /**
+     * Computes a {@link CoordinateSet} for a {@link GraphFormula}. This method
+     * can be called from any thread.
+     *
+     * @param f            the formula
+     * @param viewport     the viewport to sample at
+     * @param tier         the quality tier that determines the sample density
+     * @param previous     the previous coordinates whose samples are reused, may be null
+     * @param cancellation stops the sampling, may be null
+     * @return the computed {@link CoordinateSet}
+     */
+    CoordinateSet computeCoordinateSet(GraphFormula f, Viewport viewport, QualityTier tier, CoordinateSet previous, Cancellation cancellation) {
+        BigDecimal stepSize = PlotEngine.formulaStepSize(viewport).multiply(BigDecimal.valueOf(tier.getStepFactor()));
+        return engine.sample(f, viewport, stepSize, previous, cancellation);
+    }
+
+    /**
+     * Computes a {@link CoordinateSet} for the derivative of a {@link GraphFormula}.
+     * The derivative is derived from the samples of the formula if enabled.
+     * This method can be called from any thread.
+     *
+     * @param f                     the formula
+     * @param coordinateSet         the computed coordinates of the formula
+     * @param viewport              the viewport the coordinates were computed at
+     * @param tier                  the quality tier of the computed coordinates
+     * @param derivativeFromSamples whether the derivative is derived from the samples
+     * @param cancellation          stops the sampling, may be null
+     * @return the computed {@link CoordinateSet}
+     */
+    CoordinateSet computeDerivativeCoordinateSet(GraphFormula f, CoordinateSet coordinateSet, Viewport viewport, QualityTier tier,
+                                                 boolean derivativeFromSamples, Cancellation cancellation) {
+        GraphFormula derivative = f.differentiate();
+        if (!derivativeFromSamples) {
+            return computeCoordinateSet(derivative, viewport, tier, null, cancellation);
         }
+        return engine.differentiate(derivative, coordinateSet, viewport);
     }
 
     /**
-     * Moves the graph horizontally
+     * Computes a {@link CoordinateSet} for the derivative of a {@link ParametricEquation}.
+     * The derivative is derived from the samples of the parametric equation if enabled.
+     * This method can be called from any thread.
      *
-     * @param direction the horizontal direction to move towards
+     * @param p                     the parametric equation
+     * @param coordinateSet         the computed coordinates of the parametric equation
+     * @param viewport              the viewport the coordinates were computed at
+     * @param tier                  the quality tier of the computed coordinates
+     * @param derivativeFromSamples whether the derivative is derived from the samples
+     * @param cancellation          stops the sampling, may be null
+     * @return the computed {@link CoordinateSet}
      */
-    public void move(XAxis.HorizontalDirection direction) {
-        xAxis.move(direction);
+    CoordinateSet computeDerivativeCoordinateSet(ParametricEquation p, CoordinateSet coordinateSet, Viewport viewport, QualityTier tier,
+                                                 boolean derivativeFromSamples, Cancellation cancellation) {
+        GraphFormula derivative = p.differentiate();
+        if (!derivativeFromSamples) {
+            return computeCoordinateSet(derivative, viewport, tier, null, cancellation);
+        }
+        return engine.differentiateParametric(derivative, coordinateSet, viewport);
+    }
+
+    /**
+     * Determines whether the derivatives are derived from the computed samples.
+     *
+     * @return {@code true} if the derivatives are derived from the samples,
+     * {@code false} if they are sampled from the derivative formulas
+     */
+    boolean derivativeFromSamples() {
+        return derivativeFromSamples;
+    }
+
+    /**
+     * Sets the state whether the derivatives are derived from the computed samples.
+     *
+     * @param flag whether the derivatives are derived from the computed samples
+     */
+    void derivativeFromSamples(boolean flag) {
+        this.derivativeFromSamples = flag;
         repaint();
     }
 
     /**
-     * Moves the graph vertically.
+     * Returns the number type the formulas are sampled with.
      *
-     * @param direction the vertical direction to move towards
+     * @return the number type of the samples
      */
-    public void move(YAxis.VerticalDirection direction) {
-        yAxis.move(direction);
+    Arithmetic arithmetic() {
+        return arithmetic;
+    }
+
+    /**
+     * Sets the number type the formulas are sampled with. The graphs are
+     * sampled again.
+     *
+     * @param arithmetic the number type of the samples
+     */
+    void arithmetic(Arithmetic arithmetic) {
+        this.arithmetic = arithmetic;
+        updateViewport();
         repaint();
     }
 
     /**
-     * Draws the x-axis, the y-axis and the origin.
+     * Determines whether the graphs are refined progressively.
      *
-     * @param g graphics
+     * @return {@code true} if the graphs are shown at 1/8, 1/4, 1/2 and then
+     * full sample density, {@code false} if only complete graphs are shown
      */
-    private void drawPrimaryAxes(Graphics2D g) {
-        g.setColor(AXIS_COLOR);
+    boolean progressive() {
+        return progressive;
+    }
 
-        if (yAxis.xAxisIsVisible()) {
-            drawXAxis(g);
-        }
+    /**
+     * Sets the state whether the graphs are refined progressively.
+     *
+     * @param flag whether the graphs are refined progressively
+     */
+    void progressive(boolean flag) {
+        this.progressive = flag;
+        repaint();
+    }
 
-        if (xAxis.yAxisIsVisible()) {
-            drawYAxis(g);
-        }
+    /**
+     * Determines whether the graphs are drawn by the software rasterizer.
+     *
+     * @return {@code true} if the software rasterizer is used,
+     * {@code false} if Java2D is used
+     */
+    boolean softwareRendering() {
+        return softwareRendering;
+    }
 
-        // draws the indicator for the origin
-        if (xAxis.yAxisIsVisible() && yAxis.xAxisIsVisible()) {
-            g.drawString("o", xAxis.getYAxisPosition() - 9, yAxis.getXAxisPosition() + 11);
+    /**
+     * Sets the state whether the graphs are drawn by the software rasterizer.
+     *
+     * @param flag whether the software rasterizer is used
+     */
+    void softwareRendering(boolean flag) {
+        this.softwareRendering = flag;
+        layers.values().forEach(GraphLayer::invalidate);
+        repaint();
+    }
+
+    /**
+     * Determines whether the viewport was only moved by whole pixels since the
+     * frame in the back buffer was composited.
+     *
+     * @return the distance the frame has to be moved or null if the frame
+     * cannot be scrolled
+     */
+    private Point panOffset() {
+        if (frameViewport == null) {
+            return null;
+        }
+        ScreenTransform frameTransform = frameViewport.getTransform();
+        ScreenTransform transform = viewport.transformFor(frameViewport.getAnchorX(), frameViewport.getAnchorY());
+        if (transform.getScaleX() != frameTransform.getScaleX() || transform.getScaleY() != frameTransform.getScaleY()) {
+            return null;
         }
+        int x = (int) (transform.getOriginX() - frameTransform.getOriginX());
+        int y = (int) (transform.getOriginY() - frameTransform.getOriginY());
+        Dimension size = getPreferredSize();
+        if (x == 0 && y == 0 || Math.abs(x) >= size.width || Math.abs(y) >= size.height) {
+            return null;
+        }
+        return new Point(x, y);
     }
 
     /**
-     * Draws the x-axis
+     * Moves the frame in the back buffer and composites only the exposed strips
+     * and the axes at the edges again. The layers draw only these regions, their
+     * own images are rendered again when the next frame is not a pure pan.
      *
-     * @param g graphics
+     * @param graphics the graphics of the panel
+     * @param pan      the distance the frame is moved
+     * @return true if the frame was scrolled, false if the back buffer has
+     * to be composited completely
      */
-    private void drawXAxis(Graphics2D g) {
-        int xAxisYPosition = yAxis.getXAxisPosition();
-        // the axis
-        g.drawLine(0, xAxisYPosition, getPreferredSize().width, xAxisYPosition);
+    private boolean scrollBackBuffer(Graphics graphics, Point pan) {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        Image buffer;
+        if (configuration == null) {
+            buffer = fallbackBuffer;
+        } else {
+            buffer = backBuffer != null && backBuffer.validate(configuration) == VolatileImage.IMAGE_OK ? backBuffer : null;
+        }
+        if (buffer == null) {
+            return false;
+        }
+        Dimension size = getPreferredSize();
+        Graphics2D g = (Graphics2D) buffer.getGraphics();
+        g.copyArea(0, 0, size.width, size.height, pan.x, pan.y);
+        Rectangle bounds = new Rectangle(size);
+        if (pan.x != 0) {
+            int strip = Math.abs(pan.x) + SCROLL_SEAM;
+            compositeRegion(g, new Rectangle(pan.x > 0 ? 0 : size.width - strip, 0, strip, size.height).intersection(bounds));
+            int y = yAxis.getXAxisPosition() - SCROLL_AXIS_MARGIN / 4;
+            compositeRegion(g, new Rectangle(0, y, SCROLL_AXIS_MARGIN, SCROLL_AXIS_MARGIN).intersection(bounds));
+            compositeRegion(g, new Rectangle(size.width - SCROLL_AXIS_MARGIN, y, SCROLL_AXIS_MARGIN, SCROLL_AXIS_MARGIN).intersection(bounds));
+        }
+        if (pan.y != 0) {
+            int strip = Math.abs(pan.y) + SCROLL_SEAM;
+            compositeRegion(g, new Rectangle(0, pan.y > 0 ? 0 : size.height - strip, size.width, strip).intersection(bounds));
+            int x = xAxis.getYAxisPosition() - Y_AXIS_LABEL_WIDTH;
+            int width = Y_AXIS_LABEL_WIDTH + SCROLL_AXIS_MARGIN / 4;
+            compositeRegion(g, new Rectangle(x, 0, width, SCROLL_AXIS_MARGIN).intersection(bounds));
+            compositeRegion(g, new Rectangle(x, size.height - SCROLL_AXIS_MARGIN, width, SCROLL_AXIS_MARGIN).intersection(bounds));
+        }
+        g.dispose();
+        frameViewport = viewport;
+        graphics.drawImage(buffer, 0, 0, null);
+        return buffer != backBuffer || !backBuffer.contentsLost();
+    }
 
-        // distribution on x-axis
-        for (Stripe horizontalStripe : xAxis.getStripes()) {
-            // draws the numbers
-            if (horizontalStripe.getId() == XAxis.Y_AXIS_ID) {
-                continue; // skip the origin
+    /**
+     * Composites a region of the back buffer. Every layer draws the region
+     * into an image of the size of the region.
+     *
+     * @param g      the graphics of the back buffer
+     * @param region the region
+     */
+    private void compositeRegion(Graphics2D g, Rectangle region) {
+        if (region.isEmpty()) {
+            return;
+        }
+        g.setColor(getBackground());
+        g.fillRect(region.x, region.y, region.width, region.height);
+        int x2 = region.x + region.width;
+        int y2 = region.y + region.height;
+        g.drawImage(axesLayer, region.x, region.y, x2, y2, region.x, region.y, x2, y2, null);
+        if (regionImage == null || regionImage.getWidth() != region.width || regionImage.getHeight() != region.height) {
+            regionImage = new BufferedImage(region.width, region.height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        for (GraphLayer layer : layers.values()) {
+            if (!layer.isCurrent(zoomVersion)) {
+                continue;
             }
-            BigDecimal step = zoomHandler.getCurrentWidth().divide(
-                    BigDecimal.valueOf(XAxis.X_AXIS_DISTRIBUTION).divide(
-                            BigDecimal.valueOf(2), MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP
-                    ), MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP
-            );
-            BigDecimal number = step.multiply(BigDecimal.valueOf((horizontalStripe.getId())))
-                    .setScale(2, RoundingMode.HALF_UP).stripTrailingZeros();
-            String formattedNumber = number.toPlainString();
-            int numberWidth = g.getFontMetrics().stringWidth(formattedNumber);
-            g.drawString(formattedNumber, horizontalStripe.getPosition() - (numberWidth / 2), xAxisYPosition + 15);
+            clearLayer(regionImage).dispose();
+            layer.renderRegion(regionImage, region.getLocation(), this::paintLayer);
+            g.drawImage(regionImage, region.x, region.y, null);
+        }
+    }
 
-            // draws the stripes
-            g.drawLine(horizontalStripe.getPosition(), xAxisYPosition + 3, horizontalStripe.getPosition(), xAxisYPosition - 3);
+    /**
+     * Draws the frame in the back buffer scaled and translated to the current
+     * viewport. The preview is not drawn if the back buffer contains no frame.
+     *
+     * @param graphics the graphics of the panel
+     * @return true if the preview was drawn
+     */
+    private boolean drawPreview(Graphics graphics) {
+        Image frame = backBuffer != null ? backBuffer : fallbackBuffer;
+        if (frame == null || frameViewport == null || backBuffer != null && backBuffer.contentsLost()) {
+            return false;
         }
+        // a point moves from o + s * p to o' + s' * p, i.e. it is scaled by s' / s around the origins
+        ScreenTransform frameTransform = frameViewport.getTransform();
+        ScreenTransform transform = viewport.transformFor(frameViewport.getAnchorX(), frameViewport.getAnchorY());
+        double scaleX = transform.getScaleX() / frameTransform.getScaleX();
+        double scaleY = transform.getScaleY() / frameTransform.getScaleY();
+        double x = transform.getOriginX() - scaleX * frameTransform.getOriginX();
+        double y = transform.getOriginY() - scaleY * frameTransform.getOriginY();
 
-        // draws the indicator for the x-axis
-        g.drawString("x", ORIGIN.x + getPreferredSize().width / 2 - 15, yAxis.getXAxisPosition() + 23);
+        Dimension size = getPreferredSize();
+        Graphics2D g = (Graphics2D) graphics.create();
+        g.setColor(getBackground());
+        g.fillRect(0, 0, size.width, size.height);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(frame, (int) Math.round(x), (int) Math.round(y),
+                (int) Math.round(size.width * scaleX), (int) Math.round(size.height * scaleY), null);
+        g.dispose();
+        return true;
     }
 
     /**
-     * Draws the y-axis
+     * Replaces the viewport with the current zoom and position of the axes.
+     */
+    private void updateViewport() {
+        Dimension size = getPreferredSize();
+        viewport = new Viewport(size.width, size.height, xAxis.getAnchor(), yAxis.getAnchor(),
+                xAxis.getAnchorPosition(), yAxis.getAnchorPosition(),
+                zoomHandler.getHorizontalStretch().doubleValue(), zoomHandler.getVerticalStretch().doubleValue(), arithmetic
+        );
+    }
+
+    /**
+     * Returns the current viewport. This method can be called from any thread.
      *
-     * @param g graphics
+     * @return the current viewport
      */
-    private void drawYAxis(Graphics2D g) {
-        int yAxisXPosition = xAxis.getYAxisPosition();
-        // the axis
-        g.drawLine(yAxisXPosition, 0, yAxisXPosition, getPreferredSize().height);
+    Viewport getViewport() {
+        return viewport;
+    }
 
-        // distribution on y-axis
-        for (Stripe verticalStripe : yAxis.getStripes()) {
-            // draws the numbers
-            if (verticalStripe.getId() == YAxis.X_AXIS_ID) {
-                continue; // skip the origin
+    /**
+     * Draws the coordinate sets of a graph into the image of its layer. Lines
+     * are clipped to the panel rather than to the image, so a region gets the
+     * same pixels as the corresponding part of the whole layer. Of segments
+     * with sorted x-coordinates only the points near the image are drawn,
+     * they are found with a binary search.
+     *
+     * @param image          the image of the layer
+     * @param offset         the position of the image on the panel
+     * @param color          the color of the graph
+     * @param antialiasing   whether the coordinate sets may be anti-aliased
+     * @param coordinateSets the coordinate sets
+     */
+    private void paintLayer(BufferedImage image, Point offset, Color color, boolean antialiasing, CoordinateSet... coordinateSets) {
+        ScreenTransform transform = viewport.getTransform().translate(-offset.x, -offset.y);
+        // the graph x-coordinates of the image, widened by the width of the lines
+        double x1 = transform.toGraphX(-REGION_MARGIN);
+        double x2 = transform.toGraphX(image.getWidth() + REGION_MARGIN);
+        double minX = Math.min(x1, x2);
+        double maxX = Math.max(x1, x2);
+        if (softwareRendering && antialiasing) {
+            softwareRasterizer.begin(image);
+            for (CoordinateSet coordinateSet : coordinateSets) {
+                for (Segment segment : coordinateSet.getSegments()) {
+                    if (segment.size() > 1 && segment.isIncreasing()) {
+                        softwareRasterizer.add(color, segment, segment.floorIndex(minX), segment.ceilingIndex(maxX) + 1, transform);
+                    } else {
+                        softwareRasterizer.add(color, segment, transform);
+                    }
+                }
             }
-            BigDecimal step = zoomHandler.getCurrentHeight().divide(
-                    BigDecimal.valueOf(YAxis.Y_AXIS_DISTRIBUTION).divide(
-                            BigDecimal.valueOf(2), MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP
-                    ), MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP
-            );
-            BigDecimal number = step.multiply(BigDecimal.valueOf((verticalStripe.getId())))
-                    .setScale(2, RoundingMode.HALF_UP).stripTrailingZeros();
-            String formattedNumber = number.toPlainString();
-            int numberWidth = g.getFontMetrics().stringWidth(formattedNumber);
-            g.drawString(formattedNumber, yAxisXPosition - 6 - (numberWidth), verticalStripe.getPosition() + 4);
-
-            // draws the stripes
-            g.drawLine(yAxisXPosition - 3, verticalStripe.getPosition(), yAxisXPosition + 3, verticalStripe.getPosition());
-        }
-
-        // draws the indicator for the y-axis
-        g.drawString("y", xAxis.getYAxisPosition() - 25, ORIGIN.y - getPreferredSize().height / 2 + 15);
+            softwareRasterizer.finish();
+        } else {
+            Dimension size = getPreferredSize();
+            Rectangle bounds = new Rectangle(-offset.x, -offset.y, size.width, size.height);
+            Graphics2D g = image.createGraphics();
+            g.setColor(color);
+            for (CoordinateSet coordinateSet : coordinateSets) {
+                for (Segment segment : coordinateSet.getSegments()) {
+                    if (segment.size() > 1 && segment.isIncreasing()) {
+                        polylineRenderer.draw(g, segment, segment.floorIndex(minX), segment.ceilingIndex(maxX) + 1, transform, bounds);
+                    } else {
+                        polylineRenderer.draw(g, segment, transform, bounds);
+                    }
+                }
+            }
+            g.dispose();
+        }
+    }
+
+    /**
+     * Moves the graph horizontally. The move is applied with the next frame.
+     *
+     * @param direction the horizontal direction to move towards
+     */
+    public void move(XAxis.HorizontalDirection direction) {
+        frameScheduler.move(direction.equals(XAxis.HorizontalDirection.RIGHT) ? 1 : -1, 0);
+    }
+
+    /**
+     * Moves the graph vertically. The move is applied with the next frame.
+     *
+     * @param direction the vertical direction to move towards
+     */
+    public void move(YAxis.VerticalDirection direction) {
+        frameScheduler.move(0, direction.equals(YAxis.VerticalDirection.UP) ? 1 : -1);
     }
 
 }
@@ -1,17 +1,31 @@
 package graph.gui;
 
+import graph.Arithmetic;
+import graph.engine.SvgExporter;
+import graph.engine.TiledExporter;
+import graph.engine.Workspace;
+import graph.function.DataSeries;
+import graph.function.MappedSeries;
+import graph.function.SeriesFeed;
+import graph.function.StreamingSeries;
 import graph.gui.input.WindowEventDispatcher;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
+import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * This class constructs a menu bar.
@@ -23,24 +37,72 @@ class MenuBar extends JMenuBar implements ActionListener {
      */
     private static final DateFormat dateFormat = new SimpleDateFormat("HH-mm-ss_dd-MM-yyyy");
 
+    /**
+     * The suggested name of a saved workspace
+     */
+    private static final String WORKSPACE_FILE_NAME = "workspace.gpw";
+
+    /**
+     * The color of imported data series
+     */
+    private static final Color DATA_SERIES_COLOR = new Color(0x1f77b4);
+
+    /**
+     * The suggested port of a streaming series
+     */
+    private static final int STREAMING_PORT = 5555;
+
     /**
      * The {@link GraphPanel} instance
      */
     private final GraphPanel graphPanel;
 
+    /**
+     * The {@link InputPanel} instance
+     */
+    private final InputPanel inputPanel;
+
+    /**
+     * The check box of the double-double sampling
+     */
+    private final JCheckBoxMenuItem doubleDoubleItem;
+
+    /**
+     * The feeds of the streaming series
+     */
+    private final List<SeriesFeed> feeds = new ArrayList<>();
+
     /**
      * Creates a {@link MenuBar} object.
      *
      * @param graphPanel the graph panel
+     * @param inputPanel the input panel
      */
-    MenuBar(GraphPanel graphPanel) {
+    MenuBar(GraphPanel graphPanel, InputPanel inputPanel) {
         this.graphPanel = graphPanel;
+        this.inputPanel = inputPanel;
 
         JMenu file = new JMenu("File");
+        file.add(createItem("Open workspace"));
+        file.add(createItem("Save workspace"));
+        file.add(createItem("Import data series"));
+        file.add(createItem("Stream from port"));
+        file.add(createItem("Stream from file"));
+        file.add(createItem("Remove data series"));
         file.add(createItem("Save"));
+        file.add(createItem("Export high resolution"));
+        file.add(createItem("Export SVG"));
         file.add(createItem("Quit"));
 
+        JMenu view = new JMenu("View");
+        view.add(createCheckBoxItem("Derivatives from samples", graphPanel.derivativeFromSamples()));
+        view.add(createCheckBoxItem("Software renderer", graphPanel.softwareRendering()));
+        view.add(createCheckBoxItem("Progressive refinement", graphPanel.progressive()));
+        doubleDoubleItem = createCheckBoxItem("Double-double sampling", graphPanel.arithmetic() == Arithmetic.DOUBLE_DOUBLE);
+        view.add(doubleDoubleItem);
+
         add(file);
+        add(view);
     }
 
     /**
@@ -56,6 +118,186 @@ class MenuBar extends JMenuBar implements ActionListener {
         return menuItem;
     }
 
+    /**
+     * Creates a menu item with a check box.
+     *
+     * @param name     name of the menu item
+     * @param selected the initial state of the check box
+     * @return a menu item with a check box
+     */
+    private JCheckBoxMenuItem createCheckBoxItem(String name, boolean selected) {
+        JCheckBoxMenuItem menuItem = new JCheckBoxMenuItem(name, selected);
+        menuItem.addActionListener(this);
+        menuItem.setActionCommand(name);
+        return menuItem;
+    }
+
+    /**
+     * Asks for a workspace file and replaces the graphs and the visible area
+     * with its content. The data series are removed and their feeds stopped.
+     */
+    private void openWorkspace() {
+        JFileChooser fileChooser = new JFileChooser(new File(System.getProperty("user.dir")));
+        if (fileChooser.showOpenDialog(graphPanel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            Workspace workspace = Workspace.read(fileChooser.getSelectedFile().toPath());
+            removeDataSeries();
+            graphPanel.setWorkspace(workspace);
+            doubleDoubleItem.setSelected(graphPanel.arithmetic() == Arithmetic.DOUBLE_DOUBLE);
+            inputPanel.updateGraphList();
+        } catch (IOException | IllegalArgumentException e) {
+            JOptionPane.showConfirmDialog(graphPanel, "Failed to open workspace: " + e.getMessage(), "Error", JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Asks for a file and saves the graphs and the visible area in it. The
+     * user is told that data series are not saved.
+     */
+    private void saveWorkspace() {
+        JFileChooser fileChooser = new JFileChooser(new File(System.getProperty("user.dir")));
+        fileChooser.setSelectedFile(new File(WORKSPACE_FILE_NAME));
+        if (fileChooser.showSaveDialog(graphPanel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            graphPanel.getWorkspace().write(fileChooser.getSelectedFile().toPath());
+            if (graphPanel.hasDataSeries()) {
+                JOptionPane.showConfirmDialog(graphPanel, "Data series are not saved in workspaces, import them again after opening the workspace", "Information", JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            JOptionPane.showConfirmDialog(graphPanel, "Failed to save workspace: " + e.getMessage(), "Error", JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Asks for a CSV file or a binary file of records and its columns and
+     * adds it as a data series. The file is indexed in the background.
+     */
+    private void importDataSeries() {
+        JFileChooser fileChooser = new JFileChooser(new File(System.getProperty("user.dir")));
+        if (fileChooser.showOpenDialog(graphPanel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path path = fileChooser.getSelectedFile().toPath();
+        boolean csv = path.getFileName().toString().toLowerCase().endsWith(".csv");
+        String layout = JOptionPane.showInputDialog(graphPanel, csv
+                ? "Columns of x and y (x = -1: the number of the line):"
+                : "Type, columns per record, columns of x and y (x = -1: the number of the record), byte order:",
+                csv ? "0 1" : "double 2 0 1 little");
+        if (layout == null) {
+            return;
+        }
+        new SwingWorker<MappedSeries, Void>() {
+            @Override
+            protected MappedSeries doInBackground() throws IOException {
+                String[] values = layout.trim().split("\\s+");
+                try {
+                    if (csv) {
+                        return MappedSeries.importCsv(path, Integer.parseInt(values[0]), Integer.parseInt(values[1]));
+                    }
+                    return MappedSeries.open(path, MappedSeries.ValueType.valueOf(values[0].toUpperCase()),
+                            values[4].equalsIgnoreCase("big") ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN,
+                            Integer.parseInt(values[1]), Integer.parseInt(values[2]), Integer.parseInt(values[3]));
+                } catch (ArrayIndexOutOfBoundsException e) {
+                    throw new IllegalArgumentException("Invalid layout: " + layout);
+                }
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    String name = path.getFileName().toString();
+                    if (!graphPanel.add(new DataSeries(get(), DATA_SERIES_COLOR, name))) {
+                        JOptionPane.showConfirmDialog(graphPanel, "A data series named " + name + " is already shown", "Error", JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    JOptionPane.showConfirmDialog(graphPanel, "Failed to import data series: " + e.getCause().getMessage(), "Error", JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE);
+                    e.getCause().printStackTrace();
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Asks for a port and the capacity of a streaming series and feeds the
+     * series with the points sent to the port.
+     */
+    private void streamFromPort() {
+        String input = JOptionPane.showInputDialog(graphPanel, "Port and amount of kept points:",
+                STREAMING_PORT + " " + StreamingSeries.DEFAULT_CAPACITY);
+        if (input == null) {
+            return;
+        }
+        try {
+            String[] values = input.trim().split("\\s+");
+            int port = Integer.parseInt(values[0]);
+            StreamingSeries series = createStreamingSeries(values.length > 1 ? values[1] : null, "Port " + port);
+            feeds.add(SeriesFeed.listen(series, port));
+            graphPanel.add(series);
+        } catch (IOException | IllegalArgumentException e) {
+            JOptionPane.showConfirmDialog(graphPanel, "Failed to stream: " + e.getMessage(), "Error", JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Asks for a file and the capacity of a streaming series and feeds the
+     * series with the points of the file as it grows.
+     */
+    private void streamFromFile() {
+        JFileChooser fileChooser = new JFileChooser(new File(System.getProperty("user.dir")));
+        if (fileChooser.showOpenDialog(graphPanel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        String capacity = JOptionPane.showInputDialog(graphPanel, "Amount of kept points:", StreamingSeries.DEFAULT_CAPACITY);
+        if (capacity == null) {
+            return;
+        }
+        try {
+            Path path = fileChooser.getSelectedFile().toPath();
+            StreamingSeries series = createStreamingSeries(capacity, path.getFileName().toString());
+            feeds.add(SeriesFeed.tail(series, path));
+            graphPanel.add(series);
+        } catch (IOException | IllegalArgumentException e) {
+            JOptionPane.showConfirmDialog(graphPanel, "Failed to stream: " + e.getMessage(), "Error", JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Creates a streaming series.
+     *
+     * @param capacity the amount of kept points or {@code null} for the default
+     * @param name     the name of the series
+     * @return the streaming series
+     */
+    private static StreamingSeries createStreamingSeries(String capacity, String name) {
+        int points = capacity == null ? StreamingSeries.DEFAULT_CAPACITY : Integer.parseInt(capacity.trim());
+        return new StreamingSeries(points, DATA_SERIES_COLOR, name);
+    }
+
+    /**
+     * Stops the feeds and removes all data series.
+     */
+    private void removeDataSeries() {
+        for (SeriesFeed feed : feeds) {
+            try {
+                feed.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        feeds.clear();
+        graphPanel.clearDataSeries();
+    }
+
     /**
      * Takes a screenshot of the graphs and saves them on the disk.
      */
@@ -85,12 +327,102 @@ class MenuBar extends JMenuBar implements ActionListener {
         }
     }
 
+    /**
+     * Asks for the width and the file of a high resolution image and exports
+     * the graphs in the background.
+     */
+    private void exportImage() {
+        String width = JOptionPane.showInputDialog(graphPanel, "Width of the image in pixels:", graphPanel.getWidth() * 4);
+        if (width == null) {
+            return;
+        }
+        int imageWidth;
+        try {
+            imageWidth = Integer.parseInt(width.trim());
+        } catch (NumberFormatException e) {
+            imageWidth = 0;
+        }
+        if (imageWidth <= 0) {
+            JOptionPane.showConfirmDialog(graphPanel, "Invalid width: " + width, "Error", JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        JFileChooser fileChooser = new JFileChooser(new File(System.getProperty("user.dir")));
+        fileChooser.setSelectedFile(new File(dateFormat.format(new Date()) + ".png"));
+        if (fileChooser.showSaveDialog(graphPanel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File imageFile = fileChooser.getSelectedFile();
+        if (imageFile.exists()) {
+            JOptionPane.showConfirmDialog(graphPanel, "Image already exists!", "Error", JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        TiledExporter exporter = new TiledExporter(
+                graphPanel.getViewport(), graphPanel.getFormulas(), graphPanel.getParametricEquations(), imageWidth
+        );
+        new ExportWorker(graphPanel, exporter, imageFile, "Exporting " + imageWidth + "x" + exporter.getHeight() + " image").execute();
+    }
+
+    /**
+     * Asks for a file and exports the graphs as an SVG document in the background.
+     */
+    private void exportSvg() {
+        JFileChooser fileChooser = new JFileChooser(new File(System.getProperty("user.dir")));
+        fileChooser.setSelectedFile(new File(dateFormat.format(new Date()) + ".svg"));
+        if (fileChooser.showSaveDialog(graphPanel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File svgFile = fileChooser.getSelectedFile();
+        if (svgFile.exists()) {
+            JOptionPane.showConfirmDialog(graphPanel, "File already exists!", "Error", JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        SvgExporter exporter = new SvgExporter(graphPanel.getViewport(), graphPanel.getFormulas(), graphPanel.getParametricEquations());
+        new ExportWorker(graphPanel, exporter, svgFile, "Exporting SVG").execute();
+    }
+
     @Override
     public void actionPerformed(ActionEvent e) {
         switch (e.getActionCommand()) {
+            case "Open workspace":
+                openWorkspace();
+                break;
+            case "Save workspace":
+                saveWorkspace();
+                break;
+            case "Import data series":
+                importDataSeries();
+                break;
+            case "Stream from port":
+                streamFromPort();
+                break;
+            case "Stream from file":
+                streamFromFile();
+                break;
+            case "Remove data series":
+                removeDataSeries();
+                break;
             case "Save":
                 saveImage();
                 break;
+            case "Export high resolution":
+                exportImage();
+                break;
+            case "Export SVG":
+                exportSvg();
+                break;
+            case "Derivatives from samples":
+                graphPanel.derivativeFromSamples(((JCheckBoxMenuItem) e.getSource()).isSelected());
+                break;
+            case "Software renderer":
+                graphPanel.softwareRendering(((JCheckBoxMenuItem) e.getSource()).isSelected());
+                break;
+            case "Progressive refinement":
+                graphPanel.progressive(((JCheckBoxMenuItem) e.getSource()).isSelected());
+                break;
+            case "Double-double sampling":
+                graphPanel.arithmetic(((JCheckBoxMenuItem) e.getSource()).isSelected() ? Arithmetic.DOUBLE_DOUBLE : Arithmetic.BIG_DECIMAL);
+                break;
             case "Quit":
                 new WindowEventDispatcher(graphPanel).windowClosing(null);
                 break;
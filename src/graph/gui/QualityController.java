@@ -0,0 +1,167 @@
+package graph.gui;
+
+import javax.swing.*;
+
+/**
+ * This class selects the quality tier of the renderer. While the viewport
+ * is changed by the user, the tier is chosen from the measured frame times
+ * against a frame budget: slow frames lower the quality, fast frames raise
+ * it again. The time the graphs are sampled in the background counts
+ * towards the frame, so expensive formulas lower the quality as well. Once the input settles, the graphs are refined to full quality.
+ * The tier of the last interaction is remembered, so heavy scenes start
+ * the next interaction at a cheap tier right away. All methods must be
+ * called on the event dispatch thread.
+ */
+class QualityController {
+
+    /**
+     * The default frame budget in milliseconds
+     */
+    static final int DEFAULT_FRAME_BUDGET = 33;
+
+    /**
+     * The time without input in milliseconds after which the graphs are refined
+     */
+    private static final int SETTLE_DELAY = 250;
+
+    /**
+     * Timer that fires when the input settled
+     */
+    private final Timer settleTimer;
+
+    /**
+     * The frame budget in nanoseconds
+     */
+    private long frameBudget;
+
+    /**
+     * Whether the user is changing the viewport
+     */
+    private boolean interacting;
+
+    /**
+     * The tier used while the user is changing the viewport
+     */
+    private QualityTier interactiveTier = QualityTier.FULL;
+
+    /**
+     * The time in nanoseconds the graphs of the last interaction were sampled in
+     */
+    private long samplingTime;
+
+    /**
+     * The tier the graphs of the last interaction were sampled at
+     */
+    private QualityTier samplingTier = QualityTier.FULL;
+
+    /**
+     * Creates a {@link QualityController} object.
+     *
+     * @param refine      called when the input settled and the graphs have to be refined
+     * @param frameBudget the frame budget in milliseconds
+     */
+    QualityController(Runnable refine, int frameBudget) {
+        settleTimer = new Timer(SETTLE_DELAY, e -> {
+            interacting = false;
+            samplingTime = 0;
+            refine.run();
+        });
+        settleTimer.setRepeats(false);
+        setFrameBudget(frameBudget);
+    }
+
+    /**
+     * Changes the frame budget.
+     *
+     * @param frameBudget the frame budget in milliseconds
+     */
+    void setFrameBudget(int frameBudget) {
+        if (frameBudget <= 0) {
+            throw new IllegalArgumentException("The frame budget must be positive");
+        }
+        this.frameBudget = frameBudget * 1_000_000L;
+    }
+
+    /**
+     * Returns the frame budget.
+     *
+     * @return the frame budget in nanoseconds
+     */
+    long getFrameBudget() {
+        return frameBudget;
+    }
+
+    /**
+     * Notifies the controller that the user changed the viewport.
+     */
+    void interaction() {
+        interacting = true;
+        settleTimer.restart();
+    }
+
+    /**
+     * Records the time of a rendered frame. Only frames rendered during an
+     * interaction change the tier. The estimated time of sampling the graphs
+     * at the current tier is added to the frame. Every lower tier roughly
+     * halves the cost of a frame, so a frame far above the budget skips
+     * several tiers. The settle delay starts again after the frame, so a
+     * slow frame is not followed by a refinement right away.
+     *
+     * @param nanos the time of the frame in nanoseconds
+     */
+    void frameRendered(long nanos) {
+        if (!interacting) {
+            return;
+        }
+        settleTimer.restart();
+        long time = nanos + samplingTime * samplingTier.getStepFactor() / interactiveTier.getStepFactor();
+        if (time > frameBudget) {
+            lowerTier(time);
+        } else if (time < frameBudget / 3) {
+            interactiveTier = interactiveTier.higher();
+        }
+    }
+
+    /**
+     * Records the time the graphs were sampled in the background. Only
+     * samples computed during an interaction are recorded. Sampling that
+     * takes longer than the frame budget lowers the tier right away, the
+     * tier is only raised by fast frames.
+     *
+     * @param tier  the tier the graphs were sampled at
+     * @param nanos the time of the sampling in nanoseconds
+     */
+    void samplesComputed(QualityTier tier, long nanos) {
+        if (!interacting) {
+            return;
+        }
+        samplingTime = nanos;
+        samplingTier = tier;
+        long time = nanos * tier.getStepFactor() / interactiveTier.getStepFactor();
+        if (time > frameBudget) {
+            lowerTier(time);
+        }
+    }
+
+    /**
+     * Lowers the tier by one step for every doubling of the time above the
+     * frame budget.
+     *
+     * @param nanos the time of the frame in nanoseconds
+     */
+    private void lowerTier(long nanos) {
+        for (long time = nanos; time > frameBudget && interactiveTier != QualityTier.DRAFT; time /= 2) {
+            interactiveTier = interactiveTier.lower();
+        }
+    }
+
+    /**
+     * Returns the tier for the next frame.
+     *
+     * @return the current tier
+     */
+    QualityTier getTier() {
+        return interacting ? interactiveTier : QualityTier.FULL;
+    }
+
+}
@@ -0,0 +1,103 @@
+package graph.gui;
+
+/**
+ * This enum contains the quality tiers of the renderer. The tiers are
+ * ordered from the highest to the lowest quality, every tier samples the
+ * graphs at half the density of the previous one.
+ */
+enum QualityTier {
+
+    /**
+     * Full sampling density with anti-aliasing and derivatives
+     */
+    FULL(1, true, true),
+
+    /**
+     * Half the sampling density without anti-aliasing
+     */
+    REDUCED(2, false, true),
+
+    /**
+     * A quarter of the sampling density without anti-aliasing and derivatives
+     */
+    FAST(4, false, false),
+
+    /**
+     * An eighth of the sampling density without anti-aliasing and derivatives
+     */
+    DRAFT(8, false, false);
+
+    /**
+     * The factor the step size is multiplied with
+     */
+    private final int stepFactor;
+
+    /**
+     * Whether the graphs may be anti-aliased
+     */
+    private final boolean antialiasing;
+
+    /**
+     * Whether the derivatives are drawn
+     */
+    private final boolean derivatives;
+
+    /**
+     * Creates a quality tier.
+     *
+     * @param stepFactor   the factor the step size is multiplied with
+     * @param antialiasing whether the graphs may be anti-aliased
+     * @param derivatives  whether the derivatives are drawn
+     */
+    QualityTier(int stepFactor, boolean antialiasing, boolean derivatives) {
+        this.stepFactor = stepFactor;
+        this.antialiasing = antialiasing;
+        this.derivatives = derivatives;
+    }
+
+    /**
+     * Returns the factor the step size is multiplied with.
+     *
+     * @return the step factor
+     */
+    int getStepFactor() {
+        return stepFactor;
+    }
+
+    /**
+     * Determines whether the graphs may be anti-aliased.
+     *
+     * @return true if anti-aliasing is allowed
+     */
+    boolean antialiasing() {
+        return antialiasing;
+    }
+
+    /**
+     * Determines whether the derivatives are drawn.
+     *
+     * @return true if the derivatives are drawn
+     */
+    boolean derivatives() {
+        return derivatives;
+    }
+
+    /**
+     * Returns the next tier with a lower quality.
+     *
+     * @return the next lower tier or this tier if it is the lowest
+     */
+    QualityTier lower() {
+        return this == DRAFT ? this : values()[ordinal() + 1];
+    }
+
+    /**
+     * Returns the next tier with a higher quality.
+     *
+     * @return the next higher tier or this tier if it is the highest
+     */
+    QualityTier higher() {
+        return this == FULL ? this : values()[ordinal() - 1];
+    }
+
+}
@@ -0,0 +1,440 @@
+package graph.gui;
+
+import graph.function.GraphFormula;
+import graph.function.ParametricEquation;
+import graph.function.concurrent.Cancellation;
+import graph.function.concurrent.CoordinateSet;
+import graph.render.Viewport;
+
+import javax.swing.*;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * This class samples the formulas and parametric equations of the graph
+ * panel in the background, so the event dispatch thread keeps handling input
+ * and showing the previous samples in the meantime. The graphs without
+ * samples are sampled first and the samples of moved formulas are extended
+ * to the new domain, then all graphs are refined pass by pass from the
+ * coarsest tier on. The derivatives that are drawn are computed together
+ * with the samples. Every pass is published as soon as it is computed.
+ * The worker is stopped when the zoom, the graphs or the tier change; the
+ * running calculation stops within one chunk of samples, the results of a
+ * stopped worker are discarded. The time the graphs took to reach each
+ * tier is reported to the graph panel, so it can lower the quality tier.
+ */
+final class SamplingWorker extends SwingWorker<Void, SamplingWorker.Samples> {
+
+    /**
+     * A graph of the panel that has to be sampled, extended or refined.
+     */
+    static final class Request {
+
+        /**
+         * The formula, null for a parametric equation
+         */
+        private final GraphFormula formula;
+
+        /**
+         * The parametric equation, null for a formula
+         */
+        private final ParametricEquation parametricEquation;
+
+        /**
+         * The identity of the sampled formulas and their sampling properties
+         */
+        private final Object[] key;
+
+        /**
+         * The quality tier of the samples
+         */
+        private QualityTier tier;
+
+        /**
+         * The samples to refine or to extend, null if the graph has to be sampled first
+         */
+        private CoordinateSet samples;
+
+        /**
+         * Whether the derivative of the graph is drawn
+         */
+        private final boolean derivative;
+
+        /**
+         * The derivative of the samples, null if it has to be computed
+         */
+        private final CoordinateSet derivativeSet;
+
+        /**
+         * Creates a {@link Request} for a formula.
+         *
+         * @param formula       the formula
+         * @param key           the identity of the formula and its sampling properties
+         * @param tier          the quality tier of the samples
+         * @param samples       the samples to refine or to extend, null to sample the formula first
+         * @param derivative    whether the derivative of the formula is drawn
+         * @param derivativeSet the derivative of the samples, null to compute it
+         */
+        Request(GraphFormula formula, Object[] key, QualityTier tier, CoordinateSet samples, boolean derivative, CoordinateSet derivativeSet) {
+            this(formula, null, key, tier, samples, derivative, derivativeSet);
+        }
+
+        /**
+         * Creates a {@link Request} for a parametric equation.
+         *
+         * @param parametricEquation the parametric equation
+         * @param key                the identity of the formulas and their sampling properties
+         * @param tier               the quality tier of the samples
+         * @param samples            the samples to refine, null to sample the equation first
+         * @param derivative         whether the derivative of the equation is drawn
+         * @param derivativeSet      the derivative of the samples, null to compute it
+         */
+        Request(ParametricEquation parametricEquation, Object[] key, QualityTier tier, CoordinateSet samples, boolean derivative,
+                CoordinateSet derivativeSet) {
+            this(null, parametricEquation, key, tier, samples, derivative, derivativeSet);
+        }
+
+        /**
+         * Creates a {@link Request} object.
+         *
+         * @param formula            the formula or null
+         * @param parametricEquation the parametric equation or null
+         * @param key                the identity of the formulas and their sampling properties
+         * @param tier               the quality tier of the samples
+         * @param samples            the samples to refine or null
+         * @param derivative         whether the derivative is drawn
+         * @param derivativeSet      the derivative of the samples or null
+         */
+        private Request(GraphFormula formula, ParametricEquation parametricEquation, Object[] key, QualityTier tier, CoordinateSet samples,
+                        boolean derivative, CoordinateSet derivativeSet) {
+            this.formula = formula;
+            this.parametricEquation = parametricEquation;
+            this.key = key;
+            this.tier = tier;
+            this.samples = samples;
+            this.derivative = derivative;
+            this.derivativeSet = derivativeSet;
+        }
+
+        /**
+         * Returns the name of the layer of the graph.
+         *
+         * @return the name of the layer
+         */
+        String getLayerName() {
+            return formula != null ? "f:" + formula.getName() : "p:" + parametricEquation.getName();
+        }
+
+    }
+
+    /**
+     * The samples of a graph computed by one pass.
+     */
+    static final class Samples {
+
+        /**
+         * The name of the layer of the graph
+         */
+        final String layerName;
+
+        /**
+         * The identity of the sampled formulas and their sampling properties
+         */
+        final Object[] key;
+
+        /**
+         * The quality tier of the refined samples, null if the graph was
+         * sampled first, {@link #tier} if the samples were extended
+         */
+        final QualityTier refinedTier;
+
+        /**
+         * The quality tier of the computed samples
+         */
+        final QualityTier tier;
+
+        /**
+         * The computed coordinates
+         */
+        final CoordinateSet coordinateSet;
+
+        /**
+         * The computed coordinates of the derivative, null if it is not drawn at the tier
+         */
+        final CoordinateSet derivativeSet;
+
+        /**
+         * Creates a {@link Samples} object.
+         *
+         * @param layerName     the name of the layer of the graph
+         * @param key           the identity of the formulas and their sampling properties
+         * @param refinedTier   the tier of the refined or extended samples or null
+         * @param tier          the tier of the computed samples
+         * @param coordinateSet the computed coordinates
+         * @param derivativeSet the computed coordinates of the derivative or null
+         */
+        private Samples(String layerName, Object[] key, QualityTier refinedTier, QualityTier tier, CoordinateSet coordinateSet,
+                        CoordinateSet derivativeSet) {
+            this.layerName = layerName;
+            this.key = key;
+            this.refinedTier = refinedTier;
+            this.tier = tier;
+            this.coordinateSet = coordinateSet;
+            this.derivativeSet = derivativeSet;
+        }
+
+    }
+
+    /**
+     * The {@link GraphPanel} instance
+     */
+    private final GraphPanel graphPanel;
+
+    /**
+     * The viewport the graphs are sampled at
+     */
+    private final Viewport viewport;
+
+    /**
+     * The version of the zoom of the viewport
+     */
+    private final long zoomVersion;
+
+    /**
+     * The tier the graphs without samples are sampled at first
+     */
+    private final QualityTier start;
+
+    /**
+     * The tier the graphs are refined to
+     */
+    private final QualityTier target;
+
+    /**
+     * Whether the derivatives are derived from the samples
+     */
+    private final boolean derivativeFromSamples;
+
+    /**
+     * The graphs to sample by the names of their layers
+     */
+    private final Map<String, Request> requests = new LinkedHashMap<>();
+
+    /**
+     * Stops the running calculation when the worker is replaced
+     */
+    private final Cancellation cancellation = new Cancellation();
+
+    /**
+     * Creates a {@link SamplingWorker} object. Must be called on the event
+     * dispatch thread.
+     *
+     * @param graphPanel  the graph panel
+     * @param viewport    the viewport the graphs are sampled at
+     * @param zoomVersion the version of the zoom of the viewport
+     * @param start       the tier the graphs without samples are sampled at first
+     * @param target                the tier the graphs are refined to
+     * @param derivativeFromSamples whether the derivatives are derived from the samples
+     * @param requests              the graphs to sample
+     */
+    SamplingWorker(GraphPanel graphPanel, Viewport viewport, long zoomVersion, QualityTier start, QualityTier target, boolean derivativeFromSamples,
+                   List<Request> requests) {
+        this.graphPanel = graphPanel;
+        this.viewport = viewport;
+        this.zoomVersion = zoomVersion;
+        this.start = start;
+        this.target = target;
+        this.derivativeFromSamples = derivativeFromSamples;
+        for (Request request : requests) {
+            this.requests.put(request.getLayerName(), request);
+        }
+    }
+
+    /**
+     * Determines whether this worker samples the given graphs and their
+     * derivatives at the given zoom and tiers, so it does not have to be replaced.
+     *
+     * @param zoomVersion           the current version of the zoom
+     * @param start                 the tier the graphs without samples are sampled at first
+     * @param target                the tier the graphs are refined to
+     * @param derivativeFromSamples whether the derivatives are derived from the samples
+     * @param requests              the graphs that have to be sampled
+     * @return true if this worker samples all the graphs
+     */
+    boolean covers(long zoomVersion, QualityTier start, QualityTier target, boolean derivativeFromSamples, List<Request> requests) {
+        if (zoomVersion != this.zoomVersion || start != this.start || target != this.target || derivativeFromSamples != this.derivativeFromSamples) {
+            return false;
+        }
+        for (Request request : requests) {
+            Request covered = this.requests.get(request.getLayerName());
+            if (covered == null || !Arrays.equals(covered.key, request.key) || request.derivative && !covered.derivative) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops the worker. The worker is cancelled without interrupting it,
+     * because an interrupt closes the file of the {@link graph.function.concurrent.SampleCache},
+     * and the running calculation stops at its next chunk of samples.
+     */
+    void stop() {
+        cancel(false);
+        cancellation.cancel();
+    }
+
+    /**
+     * Returns the viewport the graphs are sampled at.
+     *
+     * @return the viewport
+     */
+    Viewport getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Determines whether the derivatives are derived from the samples.
+     *
+     * @return true if the derivatives are derived from the samples
+     */
+    boolean derivativeFromSamples() {
+        return derivativeFromSamples;
+    }
+
+    /**
+     * Returns the version of the zoom the graphs are sampled at.
+     *
+     * @return the version of the zoom
+     */
+    long getZoomVersion() {
+        return zoomVersion;
+    }
+
+    /**
+     * Samples the graphs without samples and extends the samples of the
+     * graphs at the target tier to the domain of the viewport, then refines
+     * all graphs pass by pass until the target tier is reached or the worker
+     * is cancelled. Extended samples are published even if the domain did
+     * not change, so the graph panel knows they cover the viewport. The
+     * derivatives are computed for every published pass they are drawn at.
+     *
+     * @return nothing
+     */
+    @Override
+    protected Void doInBackground() {
+        long startTime = System.nanoTime();
+        QualityTier sampled = null;
+        for (Request request : requests.values()) {
+            if (isCancelled()) {
+                return null;
+            }
+            if (request.samples == null) {
+                request.tier = start;
+                request.samples = request.formula != null
+                        ? graphPanel.computeCoordinateSet(request.formula, viewport, start, null, cancellation)
+                        : graphPanel.computeCoordinateSet(request.parametricEquation, viewport, start, cancellation);
+                publish(new Samples(request.getLayerName(), request.key, null, start, request.samples, differentiate(request)));
+            } else if (request.tier.compareTo(target) <= 0) {
+                // only the exposed samples of a formula are computed
+                CoordinateSet previous = request.samples;
+                if (request.formula != null) {
+                    request.samples = graphPanel.computeCoordinateSet(request.formula, viewport, request.tier, previous, cancellation);
+                }
+                CoordinateSet derivativeSet = request.samples == previous && request.derivativeSet != null ? request.derivativeSet : differentiate(request);
+                publish(new Samples(request.getLayerName(), request.key, request.tier, request.tier, request.samples, derivativeSet));
+            } else {
+                continue;
+            }
+            sampled = sampled == null || request.tier.compareTo(sampled) < 0 ? request.tier : sampled;
+        }
+        if (sampled != null) {
+            report(sampled, System.nanoTime() - startTime);
+        }
+        // the coarsest graphs are refined first
+        for (QualityTier pass = QualityTier.DRAFT; pass.compareTo(target) > 0; pass = pass.higher()) {
+            boolean refined = false;
+            for (Request request : requests.values()) {
+                if (isCancelled()) {
+                    return null;
+                }
+                if (request.tier == pass) {
+                    request.tier = pass.higher();
+                    request.samples = request.formula != null
+                            ? graphPanel.getEngine().refine(request.formula, request.samples, viewport, cancellation)
+                            : graphPanel.getEngine().refine(request.parametricEquation, request.samples, viewport, cancellation);
+                    publish(new Samples(request.getLayerName(), request.key, pass, request.tier, request.samples, differentiate(request)));
+                    refined = true;
+                }
+            }
+            if (refined) {
+                report(pass.higher(), System.nanoTime() - startTime);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Computes the derivative of the samples of a graph if it is drawn at
+     * the tier of the samples.
+     *
+     * @param request the graph
+     * @return the computed coordinates of the derivative, null if it is not drawn
+     */
+    private CoordinateSet differentiate(Request request) {
+        if (!request.derivative || !request.tier.derivatives()) {
+            return null;
+        }
+        return request.formula != null
+                ? graphPanel.computeDerivativeCoordinateSet(request.formula, request.samples, viewport, request.tier, derivativeFromSamples, cancellation)
+                : graphPanel.computeDerivativeCoordinateSet(request.parametricEquation, request.samples, viewport, request.tier, derivativeFromSamples,
+                cancellation);
+    }
+
+    /**
+     * Reports the time the graphs took to reach a tier to the graph panel
+     * on the event dispatch thread.
+     *
+     * @param tier  the tier the graphs reached
+     * @param nanos the time since the worker started in nanoseconds
+     */
+    private void report(QualityTier tier, long nanos) {
+        SwingUtilities.invokeLater(() -> graphPanel.samplesComputed(this, tier, nanos));
+    }
+
+    /**
+     * Hands the computed samples to the graph panel unless the worker was
+     * cancelled in the meantime.
+     *
+     * @param chunks the computed samples
+     */
+    @Override
+    protected void process(List<Samples> chunks) {
+        if (isCancelled()) {
+            return;
+        }
+        for (Samples samples : chunks) {
+            graphPanel.applySamples(this, samples);
+        }
+    }
+
+    /**
+     * Reports a failure of the sampling and notifies the graph panel.
+     */
+    @Override
+    protected void done() {
+        try {
+            get();
+        } catch (CancellationException | InterruptedException e) {
+            // the worker was replaced
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        }
+        graphPanel.samplingFinished(this);
+    }
+
+}
@@ -5,23 +5,36 @@ import graph.MathUtil;
 
 import java.awt.*;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.math.MathContext;
 
 /**
- * This class controls all the zoom elements.
+ * This class controls all the zoom elements. Every zoom step multiplies the
+ * stretch by a constant factor, so zooming is equally fast at every depth.
  */
 public class ZoomHandler {
 
     /**
-     * Limit for zooming in
+     * Limit for zooming in. The formulas are evaluated with
+     * {@link MathUtil#FLOATING_POINT_PRECISION} digits, deeper views would
+     * only show rounding errors.
      */
-    private static final BigDecimal ZOOM_IN_LIMIT = new BigDecimal("400");
+    private static final BigDecimal ZOOM_IN_LIMIT = new BigDecimal("1E24");
 
     /**
      * Limit for zooming out
      */
     private static final BigDecimal ZOOM_OUT_LIMIT = new BigDecimal("4");
 
+    /**
+     * Factor the stretch is multiplied with per zoom step
+     */
+    private static final BigDecimal ZOOM_FACTOR = new BigDecimal("1.25");
+
+    /**
+     * Precision of the stretch and the field of view
+     */
+    private static final MathContext PRECISION = new MathContext(MathUtil.FLOATING_POINT_PRECISION);
+
 
     /**
      * Size of the graph panel
@@ -65,8 +78,8 @@ public class ZoomHandler {
      * @return {@code true} if the action was successful, else {@code false}
      */
     boolean zoomIn() {
-        BigDecimal newHorizontalStretch = horizontalStretch.add(BigDecimal.ONE);
-        BigDecimal newVerticalStretch = verticalStretch.add(BigDecimal.ONE);
+        BigDecimal newHorizontalStretch = horizontalStretch.multiply(ZOOM_FACTOR, PRECISION);
+        BigDecimal newVerticalStretch = verticalStretch.multiply(ZOOM_FACTOR, PRECISION);
         if (newHorizontalStretch.compareTo(ZOOM_IN_LIMIT) == -1 && newVerticalStretch.compareTo(ZOOM_IN_LIMIT) == -1) {
             horizontalStretch = newHorizontalStretch;
             verticalStretch = newVerticalStretch;
@@ -82,8 +95,8 @@ public class ZoomHandler {
      * @return {@code true} if the action was successful, else {@code false}
      */
     boolean zoomOut() {
-        BigDecimal newHorizontalStretch = horizontalStretch.subtract(BigDecimal.ONE);
-        BigDecimal newVerticalStretch = verticalStretch.subtract(BigDecimal.ONE);
+        BigDecimal newHorizontalStretch = horizontalStretch.divide(ZOOM_FACTOR, PRECISION);
+        BigDecimal newVerticalStretch = verticalStretch.divide(ZOOM_FACTOR, PRECISION);
         if (newHorizontalStretch.compareTo(ZOOM_OUT_LIMIT) == 1 && newVerticalStretch.compareTo(ZOOM_OUT_LIMIT) == 1) {
             horizontalStretch = newHorizontalStretch;
             verticalStretch = newVerticalStretch;
@@ -93,16 +106,37 @@ public class ZoomHandler {
         return false;
     }
 
+    /**
+     * Sets the stretch, e.g. of a loaded workspace.
+     *
+     * @param horizontalStretch the horizontal stretch
+     * @param verticalStretch   the vertical stretch
+     */
+    void setStretch(BigDecimal horizontalStretch, BigDecimal verticalStretch) {
+        if (!withinLimits(horizontalStretch) || !withinLimits(verticalStretch)) {
+            throw new IllegalArgumentException("The stretch exceeds the zoom limits");
+        }
+        this.horizontalStretch = horizontalStretch;
+        this.verticalStretch = verticalStretch;
+        updateFieldOfView();
+    }
+
+    /**
+     * Tests if a stretch lies between the zoom limits.
+     *
+     * @param stretch the stretch
+     * @return {@code true} if the stretch can be reached by zooming
+     */
+    private static boolean withinLimits(BigDecimal stretch) {
+        return stretch.compareTo(ZOOM_OUT_LIMIT) >= 0 && stretch.compareTo(ZOOM_IN_LIMIT) <= 0;
+    }
+
     /**
      * Updates the field of view.
      */
     private void updateFieldOfView() {
-        currentWidth = BigDecimal.valueOf(panelSize.width / 2).multiply(
-                BigDecimal.valueOf(1).divide(horizontalStretch, MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP)
-        );
-        currentHeight = BigDecimal.valueOf(panelSize.height / 2).multiply(
-                BigDecimal.valueOf(1).divide(verticalStretch, MathUtil.FLOATING_POINT_PRECISION, RoundingMode.HALF_UP)
-        );
+        currentWidth = BigDecimal.valueOf(panelSize.width / 2).divide(horizontalStretch, PRECISION);
+        currentHeight = BigDecimal.valueOf(panelSize.height / 2).divide(verticalStretch, PRECISION);
     }
 
     /**
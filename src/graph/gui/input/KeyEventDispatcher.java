@@ -1,8 +1,8 @@
 package graph.gui.input;
 
 import graph.gui.GraphPanel;
-import graph.gui.axis.XAxis;
-import graph.gui.axis.YAxis;
+import graph.render.axis.XAxis;
+import graph.render.axis.YAxis;
 
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
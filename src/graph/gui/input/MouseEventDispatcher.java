@@ -3,6 +3,8 @@ package graph.gui.input;
 import graph.gui.GraphFrame;
 import graph.gui.GraphPanel;
 
+import javax.swing.*;
+import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
@@ -40,11 +42,8 @@ public final class MouseEventDispatcher extends MouseAdapter {
 
     @Override
     public void mouseWheelMoved(MouseWheelEvent e) {
-        if (e.getWheelRotation() == 1) {
-            panel.zoomOut();
-        } else {
-            panel.zoomIn();
-        }
+        Point anchor = SwingUtilities.convertPoint(e.getComponent(), e.getPoint(), panel);
+        panel.zoom(e.getWheelRotation() == 1 ? -1 : 1, anchor);
     }
 
 }
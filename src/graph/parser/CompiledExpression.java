@@ -0,0 +1,278 @@
+package graph.parser;
+
+import graph.DoubleDouble;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class evaluates an expression of one variable with {@link DoubleDouble}
+ * numbers. The expression is parsed once into a program of operations in
+ * reverse polish notation, the constants are converted once, so an
+ * evaluation only runs the operations on a small stack. A compiled
+ * expression is immutable and can be evaluated by many threads at once.
+ */
+final class CompiledExpression {
+
+    /**
+     * Pushes a constant
+     */
+    private static final int CONSTANT = 0;
+
+    /**
+     * Pushes the variable
+     */
+    private static final int VARIABLE = 1;
+
+    /**
+     * Operators of two operands
+     */
+    private static final int ADD = 2, SUBTRACT = 3, MULTIPLY = 4, DIVIDE = 5, POWER = 6;
+
+    /**
+     * Functions of one parameter
+     */
+    private static final int SIN = 7, COS = 8, TAN = 9, ASIN = 10, ACOS = 11, ATAN = 12, SINH = 13, COSH = 14, TANH = 15,
+            ABS = 16, LN = 17, LOG = 18, SQRT = 19;
+
+    /**
+     * Pushes a random number between zero and one
+     */
+    private static final int RANDOM = 20;
+
+    /**
+     * The operations in reverse polish notation
+     */
+    private final int[] operations;
+
+    /**
+     * The constants of the {@link #CONSTANT} operations at the same index
+     */
+    private final DoubleDouble[] constants;
+
+    /**
+     * The maximum size of the stack
+     */
+    private final int depth;
+
+    /**
+     * Creates a {@link CompiledExpression} object.
+     *
+     * @param operations the operations in reverse polish notation
+     * @param constants  the constants of the operations
+     * @param depth      the maximum size of the stack
+     */
+    private CompiledExpression(int[] operations, DoubleDouble[] constants, int depth) {
+        this.operations = operations;
+        this.constants = constants;
+        this.depth = depth;
+    }
+
+    /**
+     * Compiles an expression of one variable.
+     *
+     * @param expression   the expression
+     * @param variableName the name of the variable
+     * @return the compiled expression
+     * @throws InvalidExpressionException if the expression is invalid or
+     *                                    contains an unsupported function
+     */
+    static CompiledExpression compile(String expression, String variableName) {
+        Expression parsed = new Expression(expression).setVariable(variableName, BigDecimal.ZERO);
+        List<String> rpn = parsed.getRPN();
+        int[] operations = new int[rpn.size()];
+        DoubleDouble[] constants = new DoubleDouble[rpn.size()];
+        int count = 0;
+        int size = 0;
+        int depth = 0;
+        for (String token : rpn) {
+            if ("(".equals(token)) {
+                // the parameter count of every function is fixed and validated
+                continue;
+            }
+            int operation = operation(token, variableName, parsed);
+            if (operation == CONSTANT) {
+                constants[count] = constant(token);
+            }
+            operations[count++] = operation;
+            size += operation <= VARIABLE || operation == RANDOM ? 1 : operation <= POWER ? -1 : 0;
+            depth = Math.max(depth, size);
+        }
+        int[] program = new int[count];
+        System.arraycopy(operations, 0, program, 0, count);
+        DoubleDouble[] values = new DoubleDouble[count];
+        System.arraycopy(constants, 0, values, 0, count);
+        return new CompiledExpression(program, values, depth);
+    }
+
+    /**
+     * Returns the operation of a token.
+     *
+     * @param token        the token
+     * @param variableName the name of the variable
+     * @param expression   the parsed expression
+     * @return the operation
+     */
+    private static int operation(String token, String variableName, Expression expression) {
+        if (token.equalsIgnoreCase(variableName)) {
+            return VARIABLE;
+        }
+        if (expression.getDeclaredOperators().contains(token)) {
+            switch (token) {
+                case "+":
+                    return ADD;
+                case "-":
+                    return SUBTRACT;
+                case "*":
+                    return MULTIPLY;
+                case "/":
+                    return DIVIDE;
+                case "^":
+                    return POWER;
+            }
+        } else if (expression.getDeclaredFunctions().contains(token)) {
+            switch (token.toUpperCase(Locale.ROOT)) {
+                case "SIN":
+                    return SIN;
+                case "COS":
+                    return COS;
+                case "TAN":
+                    return TAN;
+                case "ASIN":
+                    return ASIN;
+                case "ACOS":
+                    return ACOS;
+                case "ATAN":
+                    return ATAN;
+                case "SINH":
+                    return SINH;
+                case "COSH":
+                    return COSH;
+                case "TANH":
+                    return TANH;
+                case "ABS":
+                    return ABS;
+                case "LN":
+                    return LN;
+                case "LOG":
+                    return LOG;
+                case "SQRT":
+                    return SQRT;
+                case "RANDOM":
+                    return RANDOM;
+            }
+        } else {
+            return CONSTANT;
+        }
+        throw new InvalidExpressionException("Unsupported operator or function: " + token);
+    }
+
+    /**
+     * Converts a number or a constant of the expression.
+     *
+     * @param token the token
+     * @return the value of the token
+     */
+    private static DoubleDouble constant(String token) {
+        if (token.equalsIgnoreCase("PI")) {
+            return DoubleDouble.PI;
+        }
+        if (token.equalsIgnoreCase("e")) {
+            return DoubleDouble.E;
+        }
+        try {
+            return DoubleDouble.valueOf(new BigDecimal(token));
+        } catch (NumberFormatException e) {
+            throw new InvalidExpressionException("Invalid variable: " + token);
+        }
+    }
+
+    /**
+     * Evaluates the expression.
+     *
+     * @param x the value of the variable
+     * @return the value of the expression
+     * @throws ArithmeticException if the expression divides by zero or
+     *                             takes the square root of a negative number
+     */
+    DoubleDouble evaluate(DoubleDouble x) {
+        DoubleDouble[] stack = new DoubleDouble[depth];
+        int top = 0;
+        for (int i = 0; i < operations.length; i++) {
+            switch (operations[i]) {
+                case CONSTANT:
+                    stack[top++] = constants[i];
+                    break;
+                case VARIABLE:
+                    stack[top++] = x;
+                    break;
+                case RANDOM:
+                    stack[top++] = DoubleDouble.valueOf(Math.random());
+                    break;
+                case ADD:
+                    top--;
+                    stack[top - 1] = stack[top - 1].add(stack[top]);
+                    break;
+                case SUBTRACT:
+                    top--;
+                    stack[top - 1] = stack[top - 1].subtract(stack[top]);
+                    break;
+                case MULTIPLY:
+                    top--;
+                    stack[top - 1] = stack[top - 1].multiply(stack[top]);
+                    break;
+                case DIVIDE:
+                    top--;
+                    stack[top - 1] = stack[top - 1].divide(stack[top]);
+                    break;
+                case POWER:
+                    top--;
+                    stack[top - 1] = stack[top - 1].pow(stack[top]);
+                    break;
+                default:
+                    stack[top - 1] = function(operations[i], stack[top - 1]);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Applies a function of one parameter.
+     *
+     * @param operation the function
+     * @param x         the parameter
+     * @return the value of the function
+     */
+    private static DoubleDouble function(int operation, DoubleDouble x) {
+        switch (operation) {
+            case SIN:
+                return x.sin();
+            case COS:
+                return x.cos();
+            case TAN:
+                return x.tan();
+            case ASIN:
+                return x.asin();
+            case ACOS:
+                return x.acos();
+            case ATAN:
+                return x.atan();
+            case SINH:
+                return x.sinh();
+            case COSH:
+                return x.cosh();
+            case TANH:
+                return x.tanh();
+            case ABS:
+                return x.abs();
+            case LN:
+                return x.log();
+            case LOG:
+                return x.log10();
+            default:
+                return x.sqrt();
+        }
+    }
+
+}
@@ -1070,7 +1070,7 @@ final class Expression {
      *
      * @return The cached RPN instance.
      */
-    private List<String> getRPN() {
+    List<String> getRPN() {
         if (rpn == null) {
             rpn = shuntingYard(this.expression);
             validate(rpn);
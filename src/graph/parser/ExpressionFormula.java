@@ -0,0 +1,501 @@
+package graph.parser;
+
+import graph.DoubleDouble;
+import graph.MathUtil;
+import graph.function.Formula;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class is a {@link Formula} that remembers where it comes from: the
+ * expression, the name of its variable and the transformations that were
+ * applied to it. That is enough to store the formula and to create it
+ * again. The expression is compiled on the first evaluation, so formulas
+ * can be restored in bulk without parsing a single expression. The
+ * transformations are folded into at most four, see {@link #fold(List)},
+ * so neither the stored formula nor its evaluation grows with the amount
+ * of edits. A formula is immutable and can be evaluated by many threads at once.
+ */
+public final class ExpressionFormula implements Formula {
+
+    /**
+     * The precision of folded transformations, the products of many
+     * stretches are rounded to it
+     */
+    private static final MathContext TRANSFORM_PRECISION = new MathContext(2 * MathUtil.FLOATING_POINT_PRECISION);
+
+    /**
+     * The expression
+     */
+    private final String expression;
+
+    /**
+     * The name of the variable
+     */
+    private final String variableName;
+
+    /**
+     * The folded transformations in the order they are applied
+     */
+    private final List<Transform> transforms;
+
+    /**
+     * The compiled expression without the transformations, {@code null}
+     * until the first evaluation
+     */
+    private volatile Formula base;
+
+    /**
+     * The compiled expression with the transformations applied, {@code null}
+     * until the first evaluation
+     */
+    private volatile Formula compiled;
+
+    /**
+     * The structural key, {@code null} until it is first requested and
+     * empty if the formula has none
+     */
+    private volatile String structuralKey;
+
+    /**
+     * Creates an {@link ExpressionFormula} object. The expression is not
+     * validated, an invalid expression fails on every evaluation. The
+     * transformations are folded.
+     *
+     * @param expression   the expression
+     * @param variableName the name of the variable
+     * @param transforms   the transformations in the order they are applied
+     */
+    public ExpressionFormula(String expression, String variableName, List<Transform> transforms) {
+        this(expression, variableName, transforms, null);
+    }
+
+    /**
+     * Creates an {@link ExpressionFormula} object.
+     *
+     * @param expression   the expression
+     * @param variableName the name of the variable
+     * @param transforms   the transformations in the order they are applied
+     * @param base         the compiled expression without the transformations or {@code null}
+     */
+    private ExpressionFormula(String expression, String variableName, List<Transform> transforms, Formula base) {
+        if (expression == null || variableName == null) {
+            throw new IllegalArgumentException("The expression and the variable cannot be null");
+        }
+        this.expression = expression;
+        this.variableName = variableName;
+        this.transforms = Collections.unmodifiableList(fold(transforms));
+        this.base = base;
+    }
+
+    /**
+     * Returns the expression.
+     *
+     * @return the expression
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * Returns the name of the variable.
+     *
+     * @return the name of the variable
+     */
+    public String getVariableName() {
+        return variableName;
+    }
+
+    /**
+     * Returns the folded transformations in the order they are applied.
+     *
+     * @return the transformations
+     */
+    public List<Transform> getTransforms() {
+        return transforms;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param x {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public BigDecimal calculate(BigDecimal x) {
+        return compiled().calculate(x);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param x {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public DoubleDouble calculate(DoubleDouble x) {
+        return compiled().calculate(x);
+    }
+
+    /**
+     * Returns the tokens of the expression in reverse polish notation
+     * followed by the transformations. White space, redundant parentheses,
+     * the case of names and the name of the variable do not change the key.
+     * Invalid expressions and expressions with random numbers have no key.
+     *
+     * @return the structural key or {@code null}
+     */
+    @Override
+    public String getStructuralKey() {
+        String key = structuralKey;
+        if (key == null) {
+            key = createStructuralKey();
+            structuralKey = key;
+        }
+        return key.isEmpty() ? null : key;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Formula negateHorizontal() {
+        return multiplyYAxis(BigDecimal.valueOf(-1));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Formula negateVertical() {
+        return multiplyXAxis(BigDecimal.valueOf(-1));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param dx {@inheritDoc}
+     * @param dy {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Formula translate(BigDecimal dx, BigDecimal dy) {
+        return with(new Transform(Transform.Kind.TRANSLATE, dx, dy));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param multiplicand {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Formula multiplyXAxis(BigDecimal multiplicand) {
+        return with(new Transform(Transform.Kind.MULTIPLY_X_AXIS, multiplicand));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @param multiplicand {@inheritDoc}
+     * @return {@inheritDoc}
+     */
+    @Override
+    public Formula multiplyYAxis(BigDecimal multiplicand) {
+        return with(new Transform(Transform.Kind.MULTIPLY_Y_AXIS, multiplicand));
+    }
+
+    /**
+     * Compiles the expression if it has not been compiled yet.
+     *
+     * @return this formula
+     */
+    ExpressionFormula compile() {
+        compiled();
+        return this;
+    }
+
+    /**
+     * Returns a copy of this formula with one more transformation, folded
+     * into the others. The copy shares the compiled expression of this formula.
+     *
+     * @param transform the transformation
+     * @return the transformed formula
+     */
+    private ExpressionFormula with(Transform transform) {
+        List<Transform> list = new ArrayList<>(transforms);
+        list.add(transform);
+        return new ExpressionFormula(expression, variableName, list, base);
+    }
+
+    /**
+     * Folds transformations into the form {@code a * f((x + dx) / m) + d}.
+     * Translations, multiplications of the values and stretches compose
+     * exactly in this form:
+     * <ul>
+     * <li>{@code translate(tx, ty)} adds {@code tx} to {@code dx} and {@code ty} to {@code d}</li>
+     * <li>{@code multiplyXAxis(k)} multiplies {@code a} and {@code d} by {@code k}</li>
+     * <li>{@code multiplyYAxis(k)} multiplies {@code m} and {@code dx} by {@code k}</li>
+     * </ul>
+     * The result is {@code MULTIPLY_Y_AXIS(m), TRANSLATE(dx, d)} if {@code a}
+     * is one, otherwise {@code MULTIPLY_Y_AXIS(m), TRANSLATE(dx, 0),
+     * MULTIPLY_X_AXIS(a), TRANSLATE(0, d)}. Transformations that change
+     * nothing are left out.
+     *
+     * @param transforms the transformations in the order they are applied
+     * @return the folded transformations
+     */
+    static List<Transform> fold(List<Transform> transforms) {
+        BigDecimal a = BigDecimal.ONE;
+        BigDecimal m = BigDecimal.ONE;
+        BigDecimal dx = BigDecimal.ZERO;
+        BigDecimal d = BigDecimal.ZERO;
+        for (Transform transform : transforms) {
+            BigDecimal[] arguments = transform.arguments;
+            switch (transform.kind) {
+                case TRANSLATE:
+                    dx = dx.add(arguments[0], TRANSFORM_PRECISION);
+                    d = d.add(arguments[1], TRANSFORM_PRECISION);
+                    break;
+                case MULTIPLY_X_AXIS:
+                    a = a.multiply(arguments[0], TRANSFORM_PRECISION);
+                    d = d.multiply(arguments[0], TRANSFORM_PRECISION);
+                    break;
+                default:
+                    m = m.multiply(arguments[0], TRANSFORM_PRECISION);
+                    dx = dx.multiply(arguments[0], TRANSFORM_PRECISION);
+            }
+        }
+
+        List<Transform> folded = new ArrayList<>(4);
+        if (m.compareTo(BigDecimal.ONE) != 0) {
+            folded.add(new Transform(Transform.Kind.MULTIPLY_Y_AXIS, m));
+        }
+        boolean scaled = a.compareTo(BigDecimal.ONE) != 0;
+        if (dx.signum() != 0 || !scaled && d.signum() != 0) {
+            folded.add(new Transform(Transform.Kind.TRANSLATE, dx, scaled ? BigDecimal.ZERO : d));
+        }
+        if (scaled) {
+            folded.add(new Transform(Transform.Kind.MULTIPLY_X_AXIS, a));
+            if (d.signum() != 0) {
+                folded.add(new Transform(Transform.Kind.TRANSLATE, BigDecimal.ZERO, d));
+            }
+        }
+        return folded;
+    }
+
+    /**
+     * Creates the structural key.
+     *
+     * @return the structural key, empty if the formula has none
+     */
+    private String createStructuralKey() {
+        List<String> rpn;
+        try {
+            rpn = new Expression(expression).setVariable(variableName, BigDecimal.ZERO).getRPN();
+        } catch (RuntimeException e) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder();
+        for (String token : rpn) {
+            String name = token.toUpperCase(Locale.ROOT);
+            if ("RANDOM".equals(name)) {
+                return "";
+            }
+            key.append(token.equalsIgnoreCase(variableName) ? "$" : name).append(' ');
+        }
+        for (Transform transform : transforms) {
+            key.append('|').append(transform.getKind());
+            for (BigDecimal argument : transform.arguments) {
+                key.append(' ').append(argument);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the compiled formula and compiles it on the first call. An
+     * invalid expression is compiled to a formula that always fails, so it
+     * is parsed only once. A compiled expression of a formula this formula
+     * was derived from is reused.
+     *
+     * @return the compiled formula
+     */
+    private Formula compiled() {
+        Formula formula = compiled;
+        if (formula == null) {
+            synchronized (this) {
+                formula = compiled;
+                if (formula == null) {
+                    if (base == null) {
+                        base = compileExpression();
+                    }
+                    formula = base;
+                    for (Transform transform : transforms) {
+                        formula = transform.apply(formula);
+                    }
+                    compiled = formula;
+                }
+            }
+        }
+        return formula;
+    }
+
+    /**
+     * Compiles the expression without the transformations. Double-doubles
+     * are evaluated with the compiled expression, {@link BigDecimal}
+     * numbers with the interpreter.
+     *
+     * @return the compiled expression
+     */
+    private Formula compileExpression() {
+        CompiledExpression program;
+        try {
+            program = CompiledExpression.compile(expression, variableName);
+        } catch (RuntimeException e) {
+            String message = e.getMessage();
+            return x -> {
+                throw new InvalidExpressionException(message);
+            };
+        }
+        return new Formula() {
+            @Override
+            public BigDecimal calculate(BigDecimal x) {
+                return new Expression(expression).setVariable(variableName, x).eval();
+            }
+
+            @Override
+            public DoubleDouble calculate(DoubleDouble x) {
+                return program.evaluate(x);
+            }
+        };
+    }
+
+    /**
+     * A transformation of a formula, i.e. a call of one of the transforming
+     * methods of {@link Formula} and its arguments.
+     */
+    public static final class Transform {
+
+        /**
+         * The kinds of transformations.
+         */
+        public enum Kind {
+
+            /**
+             * {@link Formula#translate(BigDecimal, BigDecimal)}
+             */
+            TRANSLATE(2),
+
+            /**
+             * {@link Formula#multiplyXAxis(BigDecimal)}
+             */
+            MULTIPLY_X_AXIS(1),
+
+            /**
+             * {@link Formula#multiplyYAxis(BigDecimal)}
+             */
+            MULTIPLY_Y_AXIS(1);
+
+            /**
+             * The amount of arguments
+             */
+            private final int arguments;
+
+            /**
+             * Creates a kind of transformation.
+             *
+             * @param arguments the amount of arguments
+             */
+            Kind(int arguments) {
+                this.arguments = arguments;
+            }
+
+            /**
+             * Returns the amount of arguments.
+             *
+             * @return the amount of arguments
+             */
+            public int getArguments() {
+                return arguments;
+            }
+
+        }
+
+        /**
+         * The kind of the transformation
+         */
+        private final Kind kind;
+
+        /**
+         * The arguments
+         */
+        private final BigDecimal[] arguments;
+
+        /**
+         * Creates a {@link Transform} object.
+         *
+         * @param kind      the kind of the transformation
+         * @param arguments the arguments
+         */
+        public Transform(Kind kind, BigDecimal... arguments) {
+            if (arguments.length != kind.getArguments()) {
+                throw new IllegalArgumentException(kind + " takes " + kind.getArguments() + " arguments");
+            }
+            for (BigDecimal argument : arguments) {
+                if (argument == null) {
+                    throw new IllegalArgumentException("The arguments of a transformation cannot be null");
+                }
+            }
+            this.kind = kind;
+            this.arguments = arguments.clone();
+        }
+
+        /**
+         * Returns the kind of the transformation.
+         *
+         * @return the kind
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns the arguments.
+         *
+         * @return the arguments
+         */
+        public List<BigDecimal> getArguments() {
+            return Collections.unmodifiableList(Arrays.asList(arguments));
+        }
+
+        /**
+         * Applies the transformation to a formula.
+         *
+         * @param formula the formula
+         * @return the transformed formula
+         */
+        private Formula apply(Formula formula) {
+            switch (kind) {
+                case TRANSLATE:
+                    return formula.translate(arguments[0], arguments[1]);
+                case MULTIPLY_X_AXIS:
+                    return formula.multiplyXAxis(arguments[0]);
+                default:
+                    return formula.multiplyYAxis(arguments[0]);
+            }
+        }
+
+    }
+
+}
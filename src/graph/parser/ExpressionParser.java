@@ -1,8 +1,10 @@
 package graph.parser;
 
+import graph.DoubleDouble;
 import graph.function.Formula;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 
 /**
  * This class parses strings to expressions.
@@ -10,7 +12,9 @@ import java.math.BigDecimal;
 public class ExpressionParser {
 
     /**
-     * Creates a {@link Formula} from an expression.
+     * Creates a {@link Formula} from an expression. The formula evaluates
+     * {@link DoubleDouble} arguments with a compiled expression and is an
+     * {@link ExpressionFormula}, so it can be stored.
      *
      * @param expression   the expression
      * @param variableName the name of the variable
@@ -18,7 +22,7 @@ public class ExpressionParser {
      */
     public static Formula createFormula(String expression, String variableName) {
         if (validExpression(expression, variableName)) {
-            return x -> new Expression(expression).setVariable(variableName, x).eval();
+            return new ExpressionFormula(expression, variableName, Collections.emptyList()).compile();
         }
         return null;
     }
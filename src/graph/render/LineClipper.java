@@ -0,0 +1,170 @@
+package graph.render;
+
+/**
+ * This class clips lines to a rectangle with the Liang-Barsky algorithm.
+ * The result of the last clipped line is kept in the clipper, so an
+ * instance must not be shared between threads.
+ */
+public final class LineClipper {
+
+    /**
+     * The bounds of the rectangle
+     */
+    private final double minX, minY, maxX, maxY;
+
+    /**
+     * The clipped line
+     */
+    private double x0, y0, x1, y1;
+
+    /**
+     * The visible parameter range of the current line
+     */
+    private double t0, t1;
+
+    /**
+     * Whether the start or the end of the last line was clipped
+     */
+    private boolean startClipped, endClipped;
+
+    /**
+     * Creates a {@link LineClipper} object.
+     *
+     * @param minX the left bound of the rectangle
+     * @param minY the upper bound of the rectangle
+     * @param maxX the right bound of the rectangle
+     * @param maxY the lower bound of the rectangle
+     */
+    public LineClipper(double minX, double minY, double maxX, double maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Clips the line from ({@code ax}, {@code ay}) to ({@code bx}, {@code by}).
+     *
+     * @param ax the x-coordinate of the start
+     * @param ay the y-coordinate of the start
+     * @param bx the x-coordinate of the end
+     * @param by the y-coordinate of the end
+     * @return true if a part of the line is inside the rectangle
+     */
+    public boolean clip(double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        t0 = 0;
+        t1 = 1;
+        if (!clipEdge(-dx, ax - minX) || !clipEdge(dx, maxX - ax)
+                || !clipEdge(-dy, ay - minY) || !clipEdge(dy, maxY - ay)) {
+            return false;
+        }
+
+        startClipped = t0 > 0;
+        endClipped = t1 < 1;
+        x0 = startClipped ? ax + t0 * dx : ax;
+        y0 = startClipped ? ay + t0 * dy : ay;
+        x1 = endClipped ? ax + t1 * dx : bx;
+        y1 = endClipped ? ay + t1 * dy : by;
+        return true;
+    }
+
+    /**
+     * Clips the parameter range of the line against one edge of the rectangle.
+     *
+     * @param p the direction of the line relative to the edge
+     * @param q the distance of the start to the edge
+     * @return false if the line is completely outside of the edge
+     */
+    private boolean clipEdge(double p, double q) {
+        if (p == 0) {
+            return q >= 0; // parallel to the edge
+        }
+        double r = q / p;
+        if (p < 0) {
+            if (r > t1) {
+                return false;
+            }
+            if (r > t0) {
+                t0 = r;
+            }
+        } else {
+            if (r < t0) {
+                return false;
+            }
+            if (r < t1) {
+                t1 = r;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a rectangle intersects the clipping rectangle.
+     *
+     * @param minX the left bound of the rectangle
+     * @param minY the upper bound of the rectangle
+     * @param maxX the right bound of the rectangle
+     * @param maxY the lower bound of the rectangle
+     * @return true if the rectangles intersect
+     */
+    public boolean intersects(double minX, double minY, double maxX, double maxY) {
+        return maxX >= this.minX && minX <= this.maxX && maxY >= this.minY && minY <= this.maxY;
+    }
+
+    /**
+     * Returns the x-coordinate of the start of the clipped line.
+     *
+     * @return the x-coordinate of the start
+     */
+    public double getX0() {
+        return x0;
+    }
+
+    /**
+     * Returns the y-coordinate of the start of the clipped line.
+     *
+     * @return the y-coordinate of the start
+     */
+    public double getY0() {
+        return y0;
+    }
+
+    /**
+     * Returns the x-coordinate of the end of the clipped line.
+     *
+     * @return the x-coordinate of the end
+     */
+    public double getX1() {
+        return x1;
+    }
+
+    /**
+     * Returns the y-coordinate of the end of the clipped line.
+     *
+     * @return the y-coordinate of the end
+     */
+    public double getY1() {
+        return y1;
+    }
+
+    /**
+     * Determines whether the start of the last line was clipped.
+     *
+     * @return true if the start was clipped
+     */
+    public boolean isStartClipped() {
+        return startClipped;
+    }
+
+    /**
+     * Determines whether the end of the last line was clipped.
+     *
+     * @return true if the end was clipped
+     */
+    public boolean isEndClipped() {
+        return endClipped;
+    }
+
+}
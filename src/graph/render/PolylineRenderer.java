@@ -0,0 +1,178 @@
+package graph.render;
+
+import graph.function.concurrent.Segment;
+
+import java.awt.*;
+
+/**
+ * This class draws the segments of a graph as polylines. A segment is
+ * transformed to screen coordinates in one pass and every continuous run
+ * of points is drawn with a single {@link Graphics2D#drawPolyline} call.
+ * The buffers are reused, so an instance must not be shared between threads.
+ */
+public final class PolylineRenderer {
+
+    /**
+     * Distance in pixels that lines are drawn beyond the visible area
+     */
+    private static final int CLIP_MARGIN = 1 << 14;
+
+    /**
+     * The screen x-coordinates of the current segment
+     */
+    private double[] screenX = new double[0];
+
+    /**
+     * The screen y-coordinates of the current segment
+     */
+    private double[] screenY = new double[0];
+
+    /**
+     * The rounded x-coordinates of the current run
+     */
+    private int[] runX = new int[0];
+
+    /**
+     * The rounded y-coordinates of the current run
+     */
+    private int[] runY = new int[0];
+
+    /**
+     * Draws a segment. The segment is clipped to the visible area in double
+     * precision before it is rasterized, invisible parts are skipped.
+     *
+     * @param g         graphics
+     * @param segment   the segment to draw
+     * @param transform the transformation to screen coordinates
+     * @param width     the width of the visible area
+     * @param height    the height of the visible area
+     */
+    public void draw(Graphics2D g, Segment segment, ScreenTransform transform, int width, int height) {
+        draw(g, segment, transform, new Rectangle(width, height));
+    }
+
+    /**
+     * Draws a segment clipped to the given bounds. The bounds may be larger
+     * than the image of {@code g}, the remaining clipping is left to the
+     * graphics. Coordinates are rounded down, so translating the transform
+     * and the bounds by whole pixels translates the drawn pixels exactly.
+     *
+     * @param g         graphics
+     * @param segment   the segment to draw
+     * @param transform the transformation to screen coordinates
+     * @param bounds    the visible area
+     */
+    public void draw(Graphics2D g, Segment segment, ScreenTransform transform, Rectangle bounds) {
+        draw(g, segment, 0, segment.size(), transform, bounds);
+    }
+
+    /**
+     * Draws the points of a segment in an index range clipped to the given
+     * bounds, e.g. only the points near a region of the screen.
+     *
+     * @param g         graphics
+     * @param segment   the segment to draw
+     * @param from      the index of the first point, inclusive
+     * @param to        the index of the last point, exclusive
+     * @param transform the transformation to screen coordinates
+     * @param bounds    the visible area
+     * @see #draw(Graphics2D, Segment, ScreenTransform, Rectangle)
+     */
+    public void draw(Graphics2D g, Segment segment, int from, int to, ScreenTransform transform, Rectangle bounds) {
+        int n = to - from;
+        ensureCapacity(n);
+        // work relative to the whole pixel of the origin, so moving the origin
+        // by whole pixels cannot change the rounding
+        int baseX = (int) Math.floor(transform.getOriginX());
+        int baseY = (int) Math.floor(transform.getOriginY());
+        ScreenTransform local = transform.translate(-baseX, -baseY);
+        local.toScreenX(segment.getX(), from, screenX, n);
+        local.toScreenY(segment.getY(), from, screenY, n);
+
+        LineClipper clipper = new LineClipper(bounds.x - baseX - CLIP_MARGIN, bounds.y - baseY - CLIP_MARGIN,
+                bounds.x - baseX + bounds.width + CLIP_MARGIN, bounds.y - baseY + bounds.height + CLIP_MARGIN);
+        if (!clipper.intersects(min(screenX, n), min(screenY, n), max(screenX, n), max(screenY, n))) {
+            return;
+        }
+
+        int run = 0;
+        for (int i = 0; i < n - 1; i++) {
+            if (!clipper.clip(screenX[i], screenY[i], screenX[i + 1], screenY[i + 1])) {
+                flush(g, run);
+                run = 0;
+                continue;
+            }
+            if (run == 0 || clipper.isStartClipped()) {
+                flush(g, run);
+                runX[0] = baseX + (int) Math.floor(clipper.getX0());
+                runY[0] = baseY + (int) Math.floor(clipper.getY0());
+                run = 1;
+            }
+            runX[run] = baseX + (int) Math.floor(clipper.getX1());
+            runY[run] = baseY + (int) Math.floor(clipper.getY1());
+            run++;
+            if (clipper.isEndClipped()) {
+                flush(g, run);
+                run = 0;
+            }
+        }
+        flush(g, run);
+    }
+
+    /**
+     * Returns the minimum of the first {@code n} values.
+     *
+     * @param values the values
+     * @param n      the amount of values
+     * @return the minimum
+     */
+    private static double min(double[] values, int n) {
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    /**
+     * Returns the maximum of the first {@code n} values.
+     *
+     * @param values the values
+     * @param n      the amount of values
+     * @return the maximum
+     */
+    private static double max(double[] values, int n) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Draws the current run.
+     *
+     * @param g      graphics
+     * @param length the amount of points in the run
+     */
+    private void flush(Graphics2D g, int length) {
+        if (length > 1) {
+            g.drawPolyline(runX, runY, length);
+        }
+    }
+
+    /**
+     * Grows the buffers if needed.
+     *
+     * @param n the amount of points
+     */
+    private void ensureCapacity(int n) {
+        if (screenX.length < n) {
+            screenX = new double[n];
+            screenY = new double[n];
+            runX = new int[n];
+            runY = new int[n];
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package graph.render;
+
+import graph.function.concurrent.Segment;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+/**
+ * This class compares the renderers on a scene of many curves. The scene
+ * is drawn repeatedly with Java2D, with anti-aliased Java2D and with the
+ * {@link SoftwareRasterizer}, the average time per frame is printed.
+ * Usage: {@code RendererBenchmark [curves] [points] [frames]}
+ */
+public final class RendererBenchmark {
+
+    /**
+     * The width of the rendered image
+     */
+    private static final int WIDTH = 1000;
+
+    /**
+     * The height of the rendered image
+     */
+    private static final int HEIGHT = 600;
+
+    /**
+     * Creates no instance, the class only contains the benchmark.
+     */
+    private RendererBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the amount of curves, the points per curve and the amount of frames
+     */
+    public static void main(String[] args) {
+        int curves = args.length > 0 ? Integer.parseInt(args[0]) : 150;
+        int points = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int frames = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        ArrayList<Segment> segments = new ArrayList<>();
+        ArrayList<Color> colors = new ArrayList<>();
+        for (int c = 0; c < curves; c++) {
+            double[] x = new double[points];
+            double[] y = new double[points];
+            for (int i = 0; i < points; i++) {
+                x[i] = -50 + 100.0 * i / (points - 1);
+                y[i] = (1 + c % 25) * Math.sin(x[i] / (1 + c % 7) + c);
+            }
+            segments.add(new Segment(x, y));
+            colors.add(Color.getHSBColor((float) c / curves, 0.8f, 0.8f));
+        }
+        ScreenTransform transform = new ScreenTransform(WIDTH / 2.0, HEIGHT / 2.0, 10, 10);
+
+        System.out.printf("%d curves, %d points per curve, %d frames, %d processors%n",
+                curves, points, frames, Runtime.getRuntime().availableProcessors());
+
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+        PolylineRenderer polylineRenderer = new PolylineRenderer();
+        for (boolean antialiasing : new boolean[]{false, true}) {
+            long time = measure(frames, () -> {
+                Graphics2D g = image.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing
+                        ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+                for (int c = 0; c < curves; c++) {
+                    g.setColor(colors.get(c));
+                    polylineRenderer.draw(g, segments.get(c), transform, WIDTH, HEIGHT);
+                }
+                g.dispose();
+            });
+            System.out.printf("Java2D%s: %.2f ms per frame%n", antialiasing ? " (anti-aliased)" : "", time / 1e6);
+        }
+
+        BufferedImage raster = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB_PRE);
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer();
+        long time = measure(frames, () -> {
+            rasterizer.begin(raster);
+            for (int c = 0; c < curves; c++) {
+                rasterizer.add(colors.get(c), segments.get(c), transform);
+            }
+            rasterizer.finish();
+        });
+        System.out.printf("Software rasterizer (anti-aliased): %.2f ms per frame%n", time / 1e6);
+    }
+
+    /**
+     * Measures the average time of a frame after a warm-up.
+     *
+     * @param frames the amount of measured frames
+     * @param frame  renders one frame
+     * @return the average time per frame in nanoseconds
+     */
+    private static long measure(int frames, Runnable frame) {
+        for (int i = 0; i < Math.max(3, frames / 4); i++) {
+            frame.run();
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            frame.run();
+        }
+        return (System.nanoTime() - startTime) / frames;
+    }
+
+}
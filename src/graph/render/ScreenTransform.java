@@ -0,0 +1,172 @@
+package graph.render;
+
+/**
+ * This class represents the transformation from graph coordinates to
+ * screen coordinates. The y-axis of the screen points downwards.
+ */
+public final class ScreenTransform {
+
+    /**
+     * The screen x-coordinate of the origin
+     */
+    private final double originX;
+
+    /**
+     * The screen y-coordinate of the origin
+     */
+    private final double originY;
+
+    /**
+     * Pixels per unit in the horizontal direction
+     */
+    private final double scaleX;
+
+    /**
+     * Pixels per unit in the vertical direction
+     */
+    private final double scaleY;
+
+    /**
+     * Creates a {@link ScreenTransform} object.
+     *
+     * @param originX the screen x-coordinate of the origin
+     * @param originY the screen y-coordinate of the origin
+     * @param scaleX  pixels per unit in the horizontal direction
+     * @param scaleY  pixels per unit in the vertical direction
+     */
+    public ScreenTransform(double originX, double originY, double scaleX, double scaleY) {
+        this.originX = originX;
+        this.originY = originY;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+    }
+
+    /**
+     * Transforms a graph x-coordinate to a screen x-coordinate.
+     *
+     * @param x the graph x-coordinate
+     * @return the screen x-coordinate
+     */
+    public double toScreenX(double x) {
+        return originX + x * scaleX;
+    }
+
+    /**
+     * Transforms a graph y-coordinate to a screen y-coordinate.
+     *
+     * @param y the graph y-coordinate
+     * @return the screen y-coordinate
+     */
+    public double toScreenY(double y) {
+        return originY - y * scaleY;
+    }
+
+    /**
+     * Transforms a column of graph x-coordinates to screen x-coordinates.
+     *
+     * @param x      the graph x-coordinates
+     * @param screen the array to store the screen x-coordinates in
+     * @param n      the amount of coordinates to transform
+     */
+    public void toScreenX(double[] x, double[] screen, int n) {
+        toScreenX(x, 0, screen, n);
+    }
+
+    /**
+     * Transforms a part of a column of graph x-coordinates to screen x-coordinates.
+     *
+     * @param x      the graph x-coordinates
+     * @param from   the index of the first coordinate to transform
+     * @param screen the array to store the screen x-coordinates in, starting at 0
+     * @param n      the amount of coordinates to transform
+     */
+    public void toScreenX(double[] x, int from, double[] screen, int n) {
+        for (int i = 0; i < n; i++) {
+            screen[i] = originX + x[from + i] * scaleX;
+        }
+    }
+
+    /**
+     * Transforms a column of graph y-coordinates to screen y-coordinates.
+     *
+     * @param y      the graph y-coordinates
+     * @param screen the array to store the screen y-coordinates in
+     * @param n      the amount of coordinates to transform
+     */
+    public void toScreenY(double[] y, double[] screen, int n) {
+        toScreenY(y, 0, screen, n);
+    }
+
+    /**
+     * Transforms a part of a column of graph y-coordinates to screen y-coordinates.
+     *
+     * @param y      the graph y-coordinates
+     * @param from   the index of the first coordinate to transform
+     * @param screen the array to store the screen y-coordinates in, starting at 0
+     * @param n      the amount of coordinates to transform
+     */
+    public void toScreenY(double[] y, int from, double[] screen, int n) {
+        for (int i = 0; i < n; i++) {
+            screen[i] = originY - y[from + i] * scaleY;
+        }
+    }
+
+    /**
+     * Transforms a screen x-coordinate to a graph x-coordinate.
+     *
+     * @param screenX the screen x-coordinate
+     * @return the graph x-coordinate
+     */
+    public double toGraphX(double screenX) {
+        return (screenX - originX) / scaleX;
+    }
+
+    /**
+     * Returns a transformation whose screen coordinates are moved by an offset,
+     * e.g. to draw into an image that covers only a part of the screen.
+     *
+     * @param x the horizontal offset in pixels
+     * @param y the vertical offset in pixels
+     * @return the moved transformation
+     */
+    public ScreenTransform translate(double x, double y) {
+        return new ScreenTransform(originX + x, originY + y, scaleX, scaleY);
+    }
+
+    /**
+     * Returns the screen x-coordinate of the origin.
+     *
+     * @return the screen x-coordinate of the origin
+     */
+    public double getOriginX() {
+        return originX;
+    }
+
+    /**
+     * Returns the screen y-coordinate of the origin.
+     *
+     * @return the screen y-coordinate of the origin
+     */
+    public double getOriginY() {
+        return originY;
+    }
+
+    /**
+     * Returns the pixels per unit in the horizontal direction.
+     *
+     * @return the pixels per unit in the horizontal direction
+     */
+    public double getScaleX() {
+        return scaleX;
+    }
+
+    /**
+     * Returns the pixels per unit in the vertical direction.
+     *
+     * @return the pixels per unit in the vertical direction
+     */
+    public double getScaleY() {
+        return scaleY;
+    }
+
+}
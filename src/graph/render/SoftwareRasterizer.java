@@ -0,0 +1,324 @@
+package graph.render;
+
+import graph.function.concurrent.Segment;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * This class draws anti-aliased lines with the algorithm of Xiaolin Wu
+ * directly into the pixels of a {@link BufferedImage}. The lines of a
+ * frame are collected first, then the image is split into tiles that are
+ * rasterized in parallel. Every tile only writes its own pixels, so no
+ * synchronization is needed. The buffers are reused, so an instance must
+ * not be shared between threads.
+ */
+public final class SoftwareRasterizer {
+
+    /**
+     * Width and height of a tile in pixels
+     */
+    private static final int TILE_SIZE = 64;
+
+    /**
+     * Distance in pixels that lines are drawn beyond the image
+     */
+    private static final int CLIP_MARGIN = 2;
+
+    /**
+     * The pixels of the target image
+     */
+    private int[] pixels;
+
+    /**
+     * The width of the target image
+     */
+    private int width;
+
+    /**
+     * The height of the target image
+     */
+    private int height;
+
+    /**
+     * The collected lines, four coordinates per line
+     */
+    private float[] lines = new float[1024];
+
+    /**
+     * The color of every collected line
+     */
+    private int[] colors = new int[256];
+
+    /**
+     * The amount of collected lines
+     */
+    private int lineCount;
+
+    /**
+     * The screen coordinates of the current segment
+     */
+    private double[] screenX = new double[0], screenY = new double[0];
+
+    /**
+     * Starts a new frame on a target image. The image has to be of the type
+     * {@link BufferedImage#TYPE_INT_ARGB_PRE} or {@link BufferedImage#TYPE_INT_RGB}.
+     *
+     * @param target the target image
+     */
+    public void begin(BufferedImage target) {
+        if (target.getType() != BufferedImage.TYPE_INT_ARGB_PRE && target.getType() != BufferedImage.TYPE_INT_RGB) {
+            throw new IllegalArgumentException("The target image must be of the type TYPE_INT_ARGB_PRE or TYPE_INT_RGB");
+        }
+        pixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+        width = target.getWidth();
+        height = target.getHeight();
+        lineCount = 0;
+    }
+
+    /**
+     * Adds a segment to the frame. The segment is transformed to screen
+     * coordinates and clipped to the target image.
+     *
+     * @param color     the color of the segment
+     * @param segment   the segment
+     * @param transform the transformation to screen coordinates
+     */
+    public void add(Color color, Segment segment, ScreenTransform transform) {
+        add(color, segment, 0, segment.size(), transform);
+    }
+
+    /**
+     * Adds the points of a segment in an index range to the frame, e.g. only
+     * the points near the target image.
+     *
+     * @param color     the color of the segment
+     * @param segment   the segment
+     * @param from      the index of the first point, inclusive
+     * @param to        the index of the last point, exclusive
+     * @param transform the transformation to screen coordinates
+     */
+    public void add(Color color, Segment segment, int from, int to, ScreenTransform transform) {
+        int n = to - from;
+        if (screenX.length < n) {
+            screenX = new double[n];
+            screenY = new double[n];
+        }
+        transform.toScreenX(segment.getX(), from, screenX, n);
+        transform.toScreenY(segment.getY(), from, screenY, n);
+
+        LineClipper clipper = new LineClipper(-CLIP_MARGIN, -CLIP_MARGIN, width + CLIP_MARGIN, height + CLIP_MARGIN);
+        int argb = color.getRGB();
+        for (int i = 0; i < n - 1; i++) {
+            if (clipper.clip(screenX[i], screenY[i], screenX[i + 1], screenY[i + 1])) {
+                addLine((float) clipper.getX0(), (float) clipper.getY0(), (float) clipper.getX1(), (float) clipper.getY1(), argb);
+            }
+        }
+    }
+
+    /**
+     * Adds a line to the frame.
+     *
+     * @param x0   the x-coordinate of the start
+     * @param y0   the y-coordinate of the start
+     * @param x1   the x-coordinate of the end
+     * @param y1   the y-coordinate of the end
+     * @param argb the color of the line
+     */
+    private void addLine(float x0, float y0, float x1, float y1, int argb) {
+        if (lineCount == colors.length) {
+            colors = Arrays.copyOf(colors, lineCount * 2);
+            lines = Arrays.copyOf(lines, lineCount * 8);
+        }
+        int i = lineCount * 4;
+        lines[i] = x0;
+        lines[i + 1] = y0;
+        lines[i + 2] = x1;
+        lines[i + 3] = y1;
+        colors[lineCount++] = argb;
+    }
+
+    /**
+     * Rasterizes all the lines of the frame into the target image. The lines
+     * are sorted into tiles first, the tiles are rasterized in parallel.
+     */
+    public void finish() {
+        int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        int tileCount = tilesX * tilesY;
+
+        // sort the lines into the tiles they overlap (compressed rows)
+        int[] offsets = new int[tileCount + 1];
+        for (int pass = 0; pass < 2; pass++) {
+            int[] tileLines = pass == 0 ? null : new int[offsets[tileCount]];
+            int[] fill = pass == 0 ? null : Arrays.copyOf(offsets, tileCount);
+            for (int line = 0; line < lineCount; line++) {
+                int i = line * 4;
+                int fromX = tile(Math.min(lines[i], lines[i + 2]) - 1, tilesX);
+                int toX = tile(Math.max(lines[i], lines[i + 2]) + 1, tilesX);
+                int fromY = tile(Math.min(lines[i + 1], lines[i + 3]) - 1, tilesY);
+                int toY = tile(Math.max(lines[i + 1], lines[i + 3]) + 1, tilesY);
+                for (int ty = fromY; ty <= toY; ty++) {
+                    for (int tx = fromX; tx <= toX; tx++) {
+                        int tile = ty * tilesX + tx;
+                        if (pass == 0) {
+                            offsets[tile + 1]++;
+                        } else {
+                            tileLines[fill[tile]++] = line;
+                        }
+                    }
+                }
+            }
+            if (pass == 0) {
+                for (int tile = 0; tile < tileCount; tile++) {
+                    offsets[tile + 1] += offsets[tile];
+                }
+            } else {
+                IntStream.range(0, tileCount).parallel().forEach(tile -> {
+                    int minX = tile % tilesX * TILE_SIZE;
+                    int minY = tile / tilesX * TILE_SIZE;
+                    int maxX = Math.min(minX + TILE_SIZE, width) - 1;
+                    int maxY = Math.min(minY + TILE_SIZE, height) - 1;
+                    for (int j = offsets[tile]; j < offsets[tile + 1]; j++) {
+                        int line = tileLines[j];
+                        drawLine(line * 4, colors[line], minX, minY, maxX, maxY);
+                    }
+                });
+            }
+        }
+        lineCount = 0;
+    }
+
+    /**
+     * Returns the index of the tile that contains a coordinate.
+     *
+     * @param coordinate the coordinate
+     * @param tiles      the amount of tiles in the direction of the coordinate
+     * @return the index of the tile
+     */
+    private static int tile(float coordinate, int tiles) {
+        return Math.max(0, Math.min(tiles - 1, (int) coordinate / TILE_SIZE));
+    }
+
+    /**
+     * Draws the part of an anti-aliased line that lies within a tile.
+     *
+     * @param i    the index of the line in the line buffer
+     * @param argb the color of the line
+     * @param minX the left bound of the tile (inclusive)
+     * @param minY the upper bound of the tile (inclusive)
+     * @param maxX the right bound of the tile (inclusive)
+     * @param maxY the lower bound of the tile (inclusive)
+     */
+    private void drawLine(int i, int argb, int minX, int minY, int maxX, int maxY) {
+        // move the pixel centers to integer coordinates
+        float x0 = lines[i] - 0.5f, y0 = lines[i + 1] - 0.5f;
+        float x1 = lines[i + 2] - 0.5f, y1 = lines[i + 3] - 0.5f;
+
+        boolean steep = Math.abs(y1 - y0) > Math.abs(x1 - x0);
+        if (steep) {
+            float t = x0; x0 = y0; y0 = t;
+            t = x1; x1 = y1; y1 = t;
+        }
+        if (x0 > x1) {
+            float t = x0; x0 = x1; x1 = t;
+            t = y0; y0 = y1; y1 = t;
+        }
+        float dx = x1 - x0;
+        float gradient = dx == 0 ? 1 : (y1 - y0) / dx;
+        int minMajor = steep ? minY : minX;
+        int maxMajor = steep ? maxY : maxX;
+
+        // first end point
+        int xStart = Math.round(x0);
+        float yEnd = y0 + gradient * (xStart - x0);
+        float gap = 1 - fraction(x0 + 0.5f);
+        plotPair(steep, xStart, yEnd, gap, argb, minX, minY, maxX, maxY);
+
+        // second end point
+        int xEnd = Math.round(x1);
+        float yEnd2 = y1 + gradient * (xEnd - x1);
+        float gap2 = fraction(x1 + 0.5f);
+        if (xEnd != xStart) {
+            plotPair(steep, xEnd, yEnd2, gap2, argb, minX, minY, maxX, maxY);
+        }
+
+        // the pixels between the end points that lie within the tile
+        int from = Math.max(xStart + 1, minMajor);
+        int to = Math.min(xEnd - 1, maxMajor);
+        float y = yEnd + gradient * (from - xStart);
+        for (int x = from; x <= to; x++) {
+            plotPair(steep, x, y, 1, argb, minX, minY, maxX, maxY);
+            y += gradient;
+        }
+    }
+
+    /**
+     * Plots the two pixels that cover a point of a line.
+     *
+     * @param steep    whether the coordinates are swapped
+     * @param x        the major coordinate
+     * @param y        the minor coordinate
+     * @param coverage the coverage of both pixels together
+     * @param argb     the color of the line
+     * @param minX     the left bound of the tile (inclusive)
+     * @param minY     the upper bound of the tile (inclusive)
+     * @param maxX     the right bound of the tile (inclusive)
+     * @param maxY     the lower bound of the tile (inclusive)
+     */
+    private void plotPair(boolean steep, int x, float y, float coverage, int argb, int minX, int minY, int maxX, int maxY) {
+        int yFloor = (int) Math.floor(y);
+        float f = y - yFloor;
+        if (steep) {
+            plot(yFloor, x, (1 - f) * coverage, argb, minX, minY, maxX, maxY);
+            plot(yFloor + 1, x, f * coverage, argb, minX, minY, maxX, maxY);
+        } else {
+            plot(x, yFloor, (1 - f) * coverage, argb, minX, minY, maxX, maxY);
+            plot(x, yFloor + 1, f * coverage, argb, minX, minY, maxX, maxY);
+        }
+    }
+
+    /**
+     * Blends a color into a pixel of the tile.
+     *
+     * @param x        the x-coordinate of the pixel
+     * @param y        the y-coordinate of the pixel
+     * @param coverage the coverage of the pixel
+     * @param argb     the color
+     * @param minX     the left bound of the tile (inclusive)
+     * @param minY     the upper bound of the tile (inclusive)
+     * @param maxX     the right bound of the tile (inclusive)
+     * @param maxY     the lower bound of the tile (inclusive)
+     */
+    private void plot(int x, int y, float coverage, int argb, int minX, int minY, int maxX, int maxY) {
+        if (x < minX || x > maxX || y < minY || y > maxY) {
+            return;
+        }
+        int alpha = (int) (coverage * (argb >>> 24) + 0.5f);
+        if (alpha <= 0) {
+            return;
+        }
+        int inverse = 255 - alpha;
+        int index = y * width + x;
+        int dst = pixels[index];
+        int a = alpha + ((dst >>> 24) * inverse + 127) / 255;
+        int r = (((argb >> 16) & 0xff) * alpha + ((dst >> 16) & 0xff) * inverse + 127) / 255;
+        int g = (((argb >> 8) & 0xff) * alpha + ((dst >> 8) & 0xff) * inverse + 127) / 255;
+        int b = ((argb & 0xff) * alpha + (dst & 0xff) * inverse + 127) / 255;
+        pixels[index] = (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Returns the fractional part of a value.
+     *
+     * @param value the value
+     * @return the fractional part
+     */
+    private static float fraction(float value) {
+        return value - (float) Math.floor(value);
+    }
+
+}
@@ -0,0 +1,277 @@
+package graph.render;
+
+import graph.Arithmetic;
+
+import java.math.BigDecimal;
+
+/**
+ * This class represents the visible part of the graph on a panel of a fixed
+ * size. Graph coordinates are split into an anchor in arbitrary precision and
+ * local coordinates relative to the anchor in double precision, so deep zooms
+ * are rendered as fast and as precise as shallow ones. The transformation
+ * from local coordinates to screen coordinates and back is computed once. A
+ * viewport is immutable, a changed view is represented by a new viewport, so
+ * it can be shared with worker threads without synchronization. The
+ * viewport also determines the number type the samples are computed with.
+ */
+public final class Viewport {
+
+    /**
+     * The width of the panel in pixels
+     */
+    private final int width;
+
+    /**
+     * The height of the panel in pixels
+     */
+    private final int height;
+
+    /**
+     * The graph x-coordinate of the anchor
+     */
+    private final BigDecimal anchorX;
+
+    /**
+     * The graph y-coordinate of the anchor
+     */
+    private final BigDecimal anchorY;
+
+    /**
+     * The transformation from local coordinates to screen coordinates
+     */
+    private final ScreenTransform transform;
+
+    /**
+     * The number type the formulas are sampled with
+     */
+    private final Arithmetic arithmetic;
+
+    /**
+     * Units per pixel in the horizontal direction
+     */
+    private final double inverseScaleX;
+
+    /**
+     * Units per pixel in the vertical direction
+     */
+    private final double inverseScaleY;
+
+    /**
+     * The local x-coordinate at the left edge of the panel
+     */
+    private final double minX;
+
+    /**
+     * The local x-coordinate at the right edge of the panel
+     */
+    private final double maxX;
+
+    /**
+     * The local y-coordinate at the bottom edge of the panel
+     */
+    private final double minY;
+
+    /**
+     * The local y-coordinate at the top edge of the panel
+     */
+    private final double maxY;
+
+    /**
+     * Creates a {@link Viewport} object.
+     *
+     * @param width   the width of the panel in pixels
+     * @param height  the height of the panel in pixels
+     * @param anchorX the graph x-coordinate of the anchor
+     * @param anchorY the graph y-coordinate of the anchor
+     * @param originX the screen x-coordinate of the anchor
+     * @param originY the screen y-coordinate of the anchor
+     * @param scaleX  pixels per unit in the horizontal direction
+     * @param scaleY  pixels per unit in the vertical direction
+     */
+    public Viewport(int width, int height, BigDecimal anchorX, BigDecimal anchorY,
+                    double originX, double originY, double scaleX, double scaleY) {
+        this(width, height, anchorX, anchorY, originX, originY, scaleX, scaleY, Arithmetic.BIG_DECIMAL);
+    }
+
+    /**
+     * Creates a {@link Viewport} object whose formulas are sampled with the
+     * given number type.
+     *
+     * @param width      the width of the panel in pixels
+     * @param height     the height of the panel in pixels
+     * @param anchorX    the graph x-coordinate of the anchor
+     * @param anchorY    the graph y-coordinate of the anchor
+     * @param originX    the screen x-coordinate of the anchor
+     * @param originY    the screen y-coordinate of the anchor
+     * @param scaleX     pixels per unit in the horizontal direction
+     * @param scaleY     pixels per unit in the vertical direction
+     * @param arithmetic the number type the formulas are sampled with
+     */
+    public Viewport(int width, int height, BigDecimal anchorX, BigDecimal anchorY,
+                    double originX, double originY, double scaleX, double scaleY, Arithmetic arithmetic) {
+        if (width <= 0 || height <= 0 || !(scaleX > 0) || !(scaleY > 0)) {
+            throw new IllegalArgumentException("The size and the scale of a viewport must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.anchorX = anchorX;
+        this.anchorY = anchorY;
+        transform = new ScreenTransform(originX, originY, scaleX, scaleY);
+        this.arithmetic = arithmetic;
+        inverseScaleX = 1 / scaleX;
+        inverseScaleY = 1 / scaleY;
+        minX = -originX / scaleX;
+        maxX = (width - originX) / scaleX;
+        minY = (originY - height) / scaleY;
+        maxY = originY / scaleY;
+    }
+
+    /**
+     * Returns the graph x-coordinate of the anchor.
+     *
+     * @return the graph x-coordinate of the anchor
+     */
+    public BigDecimal getAnchorX() {
+        return anchorX;
+    }
+
+    /**
+     * Returns the graph y-coordinate of the anchor.
+     *
+     * @return the graph y-coordinate of the anchor
+     */
+    public BigDecimal getAnchorY() {
+        return anchorY;
+    }
+
+    /**
+     * Returns the transformation from local coordinates to screen coordinates.
+     *
+     * @return the transformation to screen coordinates
+     */
+    public ScreenTransform getTransform() {
+        return transform;
+    }
+
+    /**
+     * Returns the number type the formulas are sampled with.
+     *
+     * @return the number type of the samples
+     */
+    public Arithmetic getArithmetic() {
+        return arithmetic;
+    }
+
+    /**
+     * Returns the transformation to screen coordinates for coordinates that
+     * are local to another anchor, e.g. the anchor of a previous viewport.
+     *
+     * @param anchorX the graph x-coordinate of the other anchor
+     * @param anchorY the graph y-coordinate of the other anchor
+     * @return the transformation to screen coordinates
+     */
+    public ScreenTransform transformFor(BigDecimal anchorX, BigDecimal anchorY) {
+        if (anchorX.equals(this.anchorX) && anchorY.equals(this.anchorY)) {
+            return transform;
+        }
+        return transform.translate(
+                anchorX.subtract(this.anchorX).doubleValue() * transform.getScaleX(),
+                -anchorY.subtract(this.anchorY).doubleValue() * transform.getScaleY()
+        );
+    }
+
+    /**
+     * Transforms a screen x-coordinate to a local x-coordinate.
+     *
+     * @param x the screen x-coordinate
+     * @return the local x-coordinate
+     */
+    public double toGraphX(double x) {
+        return (x - transform.getOriginX()) * inverseScaleX;
+    }
+
+    /**
+     * Transforms a screen y-coordinate to a local y-coordinate.
+     *
+     * @param y the screen y-coordinate
+     * @return the local y-coordinate
+     */
+    public double toGraphY(double y) {
+        return (transform.getOriginY() - y) * inverseScaleY;
+    }
+
+    /**
+     * Returns the width of the panel in pixels.
+     *
+     * @return the width of the panel
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the panel in pixels.
+     *
+     * @return the height of the panel
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the local x-coordinate at the left edge of the panel.
+     *
+     * @return the smallest visible local x-coordinate
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * Returns the local x-coordinate at the right edge of the panel.
+     *
+     * @return the largest visible local x-coordinate
+     */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * Returns the local y-coordinate at the bottom edge of the panel.
+     *
+     * @return the smallest visible local y-coordinate
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * Returns the local y-coordinate at the top edge of the panel.
+     *
+     * @return the largest visible local y-coordinate
+     */
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Returns the current width of a graph, i.e. half of the visible width
+     * in graph units.
+     *
+     * @return the current width
+     */
+    public double getCurrentWidth() {
+        return (maxX - minX) / 2;
+    }
+
+    /**
+     * Returns the current height of a graph, i.e. half of the visible height
+     * in graph units.
+     *
+     * @return the current height
+     */
+    public double getCurrentHeight() {
+        return (maxY - minY) / 2;
+    }
+
+}
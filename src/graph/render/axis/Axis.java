@@ -0,0 +1,249 @@
+package graph.render.axis;
+
+import graph.MathUtil;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+
+/**
+ * This class contains the position and the stripes shared by the x-axis and
+ * the y-axis. The position of the axis is stored as an anchor, a graph
+ * coordinate in arbitrary precision, and the pixel the anchor is drawn at.
+ * Moving only changes the pixel of the anchor, zooming moves the anchor to
+ * the zoomed pixel, so the view can be zoomed to any depth without losing
+ * precision.
+ */
+abstract class Axis {
+
+    /**
+     * Precision of the anchor and the distance between two stripes
+     */
+    private static final MathContext PRECISION = new MathContext(MathUtil.FLOATING_POINT_PRECISION);
+
+    /**
+     * The length of the axis in pixels
+     */
+    private final int size;
+
+    /**
+     * The minimum distance between two stripes in pixels
+     */
+    private final int minimumDistance;
+
+    /**
+     * Whether the graph coordinates decrease with the pixels
+     */
+    private final boolean inverted;
+
+    /**
+     * The graph coordinate of the anchor
+     */
+    private BigDecimal anchor = BigDecimal.ZERO;
+
+    /**
+     * The pixel of the anchor
+     */
+    private int anchorPosition;
+
+    /**
+     * Pixels per unit
+     */
+    private BigDecimal stretch;
+
+    /**
+     * The distance between two stripes in graph units
+     */
+    private BigDecimal distance;
+
+    /**
+     * Deque that contains the visible stripes ordered by their position
+     */
+    private final ArrayDeque<Stripe> stripes = new ArrayDeque<>();
+
+    /**
+     * Creates an axis whose origin lies in the center.
+     *
+     * @param size         the length of the axis in pixels
+     * @param distribution the maximum amount of stripes on the axis
+     * @param inverted     whether the graph coordinates decrease with the pixels
+     * @param stretch      pixels per unit
+     */
+    Axis(int size, int distribution, boolean inverted, BigDecimal stretch) {
+        this(size, distribution, inverted, stretch, BigDecimal.ZERO, size / 2);
+    }
+
+    /**
+     * Creates an axis whose anchor lies at the given pixel.
+     *
+     * @param size           the length of the axis in pixels
+     * @param distribution   the maximum amount of stripes on the axis
+     * @param inverted       whether the graph coordinates decrease with the pixels
+     * @param stretch        pixels per unit
+     * @param anchor         the graph coordinate of the anchor
+     * @param anchorPosition the pixel of the anchor
+     */
+    Axis(int size, int distribution, boolean inverted, BigDecimal stretch, BigDecimal anchor, int anchorPosition) {
+        this.size = size;
+        this.minimumDistance = size / distribution;
+        this.inverted = inverted;
+        this.anchor = anchor;
+        this.anchorPosition = anchorPosition;
+        zoom(stretch, anchorPosition);
+    }
+
+    /**
+     * Moves the axis by a distance in pixels. Only the stripes that become
+     * visible are computed.
+     *
+     * @param pixels the distance in pixels
+     */
+    void shift(int pixels) {
+        anchorPosition += pixels;
+        for (Stripe stripe : stripes) {
+            stripe.incrementPosition(pixels);
+        }
+        while (!stripes.isEmpty() && stripes.getFirst().getPosition() < 0) {
+            stripes.removeFirst();
+        }
+        while (!stripes.isEmpty() && stripes.getLast().getPosition() >= size) {
+            stripes.removeLast();
+        }
+        if (stripes.isEmpty()) {
+            createStripes();
+            return;
+        }
+        BigDecimal step = inverted ? distance.negate() : distance;
+        for (Stripe stripe = stripe(stripes.getFirst().getValue().subtract(step)); stripe.getPosition() >= 0;
+             stripe = stripe(stripe.getValue().subtract(step))) {
+            stripes.addFirst(stripe);
+        }
+        for (Stripe stripe = stripe(stripes.getLast().getValue().add(step)); stripe.getPosition() < size;
+             stripe = stripe(stripe.getValue().add(step))) {
+            stripes.addLast(stripe);
+        }
+    }
+
+    /**
+     * Changes the stretch of the axis. The graph coordinate at
+     * {@code position} stays at the same pixel.
+     *
+     * @param stretch  pixels per unit
+     * @param position the pixel to zoom at
+     */
+    public void zoom(BigDecimal stretch, int position) {
+        if (this.stretch != null && position != anchorPosition) {
+            BigDecimal pixels = BigDecimal.valueOf(inverted ? anchorPosition - position : position - anchorPosition);
+            anchor = anchor.add(pixels.divide(this.stretch, PRECISION));
+            anchorPosition = position;
+        }
+        this.stretch = stretch;
+        distance = stripeDistance(BigDecimal.valueOf(minimumDistance).divide(stretch, PRECISION));
+        createStripes();
+    }
+
+    /**
+     * Places the axis anew, independent of its previous position.
+     *
+     * @param stretch        pixels per unit
+     * @param anchor         the graph coordinate of the anchor
+     * @param anchorPosition the pixel of the anchor
+     */
+    public void moveTo(BigDecimal stretch, BigDecimal anchor, int anchorPosition) {
+        this.anchor = anchor;
+        this.anchorPosition = anchorPosition;
+        this.stretch = null;
+        zoom(stretch, anchorPosition);
+    }
+
+    /**
+     * Returns the smallest distance of the form 1, 2 or 5 times a power of
+     * ten that is not smaller than {@code minimum}.
+     *
+     * @param minimum the minimum distance in graph units
+     * @return the distance between two stripes
+     */
+    private static BigDecimal stripeDistance(BigDecimal minimum) {
+        BigDecimal power = BigDecimal.ONE.scaleByPowerOfTen(minimum.precision() - minimum.scale() - 1);
+        for (int factor : new int[]{1, 2, 5}) {
+            BigDecimal distance = power.multiply(BigDecimal.valueOf(factor));
+            if (distance.compareTo(minimum) >= 0) {
+                return distance;
+            }
+        }
+        return power.scaleByPowerOfTen(1);
+    }
+
+    /**
+     * Computes the visible stripes from scratch.
+     */
+    private void createStripes() {
+        stripes.clear();
+        BigDecimal first = anchor.subtract(BigDecimal.valueOf(inverted ? -anchorPosition : anchorPosition).divide(stretch, PRECISION));
+        BigDecimal step = inverted ? distance.negate() : distance;
+        BigDecimal index = first.divide(step, 0, RoundingMode.CEILING);
+        for (Stripe stripe = stripe(index.multiply(step)); stripe.getPosition() < size; stripe = stripe(stripe.getValue().add(step))) {
+            if (stripe.getPosition() >= 0) {
+                stripes.addLast(stripe);
+            }
+        }
+    }
+
+    /**
+     * Creates the stripe at a graph coordinate.
+     *
+     * @param value the graph coordinate of the stripe
+     * @return the stripe
+     */
+    private Stripe stripe(BigDecimal value) {
+        BigDecimal pixels = value.subtract(anchor).multiply(stretch);
+        if (inverted) {
+            pixels = pixels.negate();
+        }
+        return new Stripe(anchorPosition + pixels.setScale(0, RoundingMode.FLOOR).intValue(), value.stripTrailingZeros());
+    }
+
+    /**
+     * Returns the graph coordinate of the anchor.
+     *
+     * @return the graph coordinate of the anchor
+     */
+    public BigDecimal getAnchor() {
+        return anchor;
+    }
+
+    /**
+     * Returns the pixel of the anchor.
+     *
+     * @return the pixel of the anchor
+     */
+    public int getAnchorPosition() {
+        return anchorPosition;
+    }
+
+    /**
+     * Returns the position of the other axis. This method returns -1 if
+     * the other axis is not visible.
+     *
+     * @return the position of the other axis
+     */
+    int getOriginPosition() {
+        for (Stripe stripe : stripes) {
+            if (stripe.isOrigin()) {
+                return stripe.getPosition();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the visible stripes ordered by their position.
+     *
+     * @return the visible stripes
+     */
+    public ArrayDeque<Stripe> getStripes() {
+        return stripes;
+    }
+
+}
@@ -1,4 +1,6 @@
-package graph.gui.axis;
+package graph.render.axis;
+
+import java.math.BigDecimal;
 
 /**
  * This class represents a stripe on the x-axis or y-axis.
@@ -6,9 +8,9 @@ package graph.gui.axis;
 public final class Stripe {
 
     /**
-     * id of the stripe
+     * the graph coordinate of the stripe
      */
-    private final int id;
+    private final BigDecimal value;
 
     /**
      * absolute x or y position
@@ -19,11 +21,11 @@ public final class Stripe {
      * Creates a {@link Stripe} object.
      *
      * @param position the absolute x or y position
-     * @param id       the id of the stripe
+     * @param value    the graph coordinate of the stripe
      */
-    Stripe(int position, int id) {
+    Stripe(int position, BigDecimal value) {
         this.position = position;
-        this.id = id;
+        this.value = value;
     }
 
     /**
@@ -46,12 +48,22 @@ public final class Stripe {
     }
 
     /**
-     * Returns the id of the stripe.
+     * Returns the graph coordinate of the stripe. The value is an exact
+     * multiple of the distance between two stripes.
+     *
+     * @return the graph coordinate of the stripe
+     */
+    public BigDecimal getValue() {
+        return value;
+    }
+
+    /**
+     * Determines whether the stripe lies on the other axis.
      *
-     * @return the id of the stripe
+     * @return true if the graph coordinate of the stripe is zero
      */
-    public int getId() {
-        return id;
+    public boolean isOrigin() {
+        return value.signum() == 0;
     }
 
 }
@@ -0,0 +1,84 @@
+package graph.render.axis;
+
+
+import graph.render.Viewport;
+
+import java.awt.*;
+import java.math.BigDecimal;
+
+/**
+ * This class represents the x-axis.
+ */
+public final class XAxis extends Axis {
+
+    /**
+     * Maximum amount of stripes on the x-axis
+     */
+    public static final int X_AXIS_DISTRIBUTION = 20;
+
+    /**
+     * Scrolling speed in the horizontal direction
+     */
+    private static final int HORIZONTAL_SCROLLING_SPEED = 5;
+
+    /**
+     * Creates a x-axis object.
+     *
+     * @param panelSize the absolute size of the graph canvas
+     * @param stretch   the horizontal stretch
+     */
+    public XAxis(Dimension panelSize, BigDecimal stretch) {
+        super(panelSize.width, X_AXIS_DISTRIBUTION, false, stretch);
+    }
+
+    /**
+     * Creates a x-axis object for a viewport. The anchor of the viewport is
+     * rounded down to a whole pixel.
+     *
+     * @param viewport the viewport
+     */
+    public XAxis(Viewport viewport) {
+        super(viewport.getWidth(), X_AXIS_DISTRIBUTION, false, BigDecimal.valueOf(viewport.getTransform().getScaleX()),
+                viewport.getAnchorX(), (int) Math.floor(viewport.getTransform().getOriginX()));
+    }
+
+    /**
+     * Moves the x-axis in a horizontal direction with a
+     * fixed speed. This updates the position of the
+     * stripes.
+     *
+     * @param direction the direction to move to
+     */
+    public void move(HorizontalDirection direction) {
+        shift(direction.equals(HorizontalDirection.RIGHT) ? -HORIZONTAL_SCROLLING_SPEED : HORIZONTAL_SCROLLING_SPEED);
+    }
+
+    /**
+     * Returns true if the y-axis is visible on the field
+     * of view.
+     *
+     * @return true if the y-axis is visible
+     */
+    public boolean yAxisIsVisible() {
+        return getOriginPosition() != -1;
+    }
+
+    /**
+     * Returns the absolute x coordinate of the y-axis.
+     * This method returns -1 if the y-axis is not
+     * visible.
+     *
+     * @return the absolute x coordinate of the y-axis
+     */
+    public int getYAxisPosition() {
+        return getOriginPosition();
+    }
+
+    /**
+     * A horizontal direction
+     */
+    public enum HorizontalDirection {
+        LEFT, RIGHT
+    }
+
+}
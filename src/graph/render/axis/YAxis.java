@@ -0,0 +1,84 @@
+package graph.render.axis;
+
+
+import graph.render.Viewport;
+
+import java.awt.*;
+import java.math.BigDecimal;
+
+/**
+ * This class represents the y-axis.
+ */
+public final class YAxis extends Axis {
+
+    /**
+     * Maximum amount of stripes on the y-axis
+     */
+    public static final int Y_AXIS_DISTRIBUTION = 12;
+
+    /**
+     * Scrolling speed in the vertical direction
+     */
+    private static final int VERTICAL_SCROLLING_SPEED = 5;
+
+    /**
+     * Creates a y-axis object.
+     *
+     * @param panelSize the absolute size of the graph canvas
+     * @param stretch   the vertical stretch
+     */
+    public YAxis(Dimension panelSize, BigDecimal stretch) {
+        super(panelSize.height, Y_AXIS_DISTRIBUTION, true, stretch);
+    }
+
+    /**
+     * Creates a y-axis object for a viewport. The anchor of the viewport is
+     * rounded down to a whole pixel.
+     *
+     * @param viewport the viewport
+     */
+    public YAxis(Viewport viewport) {
+        super(viewport.getHeight(), Y_AXIS_DISTRIBUTION, true, BigDecimal.valueOf(viewport.getTransform().getScaleY()),
+                viewport.getAnchorY(), (int) Math.floor(viewport.getTransform().getOriginY()));
+    }
+
+    /**
+     * Moves the y-axis in a vertical direction with a
+     * fixed speed. This updates the position of the
+     * stripes.
+     *
+     * @param direction the direction to move to
+     */
+    public void move(VerticalDirection direction) {
+        shift(direction.equals(VerticalDirection.UP) ? VERTICAL_SCROLLING_SPEED : -VERTICAL_SCROLLING_SPEED);
+    }
+
+    /**
+     * Returns true if the x-axis is visible on the field
+     * of view.
+     *
+     * @return true if the x-axis is visible
+     */
+    public boolean xAxisIsVisible() {
+        return getOriginPosition() != -1;
+    }
+
+    /**
+     * Returns the absolute y coordinate of the x-axis.
+     * This method returns -1 if the x-axis is not
+     * visible.
+     *
+     * @return the absolute y coordinate of the x-axis
+     */
+    public int getXAxisPosition() {
+        return getOriginPosition();
+    }
+
+    /**
+     * A vertical direction
+     */
+    public enum VerticalDirection {
+        UP, DOWN
+    }
+
+}
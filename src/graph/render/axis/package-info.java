@@ -1,4 +1,4 @@
 /**
  * Contains all of the classes for constructing axes.
  */
-package graph.gui.axis;
\ No newline at end of file
+package graph.render.axis;
\ No newline at end of file
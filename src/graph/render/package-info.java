@@ -0,0 +1,4 @@
+/**
+ * Contains all of the classes for rendering graphs.
+ */
+package graph.render;
\ No newline at end of file
@@ -0,0 +1,83 @@
+package graph.server;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class is a bounded map that evicts the least recently used entry.
+ * All methods are synchronized, so a cache can be shared by the workers.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class LruCache<K, V> {
+
+    /**
+     * The entries in the order of their last use
+     */
+    private final LinkedHashMap<K, V> entries;
+
+    /**
+     * The amount of lookups that found an entry
+     */
+    private long hits;
+
+    /**
+     * The amount of lookups that found no entry
+     */
+    private long misses;
+
+    /**
+     * Creates an empty {@link LruCache} object.
+     *
+     * @param capacity the maximum amount of entries
+     */
+    LruCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        entries = new LinkedHashMap<K, V>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key the key
+     * @return the value or null if the key is not cached
+     */
+    synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Caches a value.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    /**
+     * Describes the size and the hit rate of the cache.
+     *
+     * @return the statistics
+     */
+    @Override
+    public synchronized String toString() {
+        return entries.size() + " entries, " + hits + " hits, " + misses + " misses";
+    }
+
+}
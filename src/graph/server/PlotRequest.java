@@ -0,0 +1,234 @@
+package graph.server;
+
+import graph.Arithmetic;
+import graph.render.Viewport;
+
+import java.awt.*;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * This class holds the parameters of a request. The query contains one or
+ * more {@code f} parameters with the expressions of {@code x} and
+ * optionally {@code color}, {@code width}, {@code height}, the center
+ * {@code cx}, {@code cy}, the pixels per unit {@code sx}, {@code sy},
+ * {@code arithmetic} and {@code format}, e.g.
+ * {@code /plot?f=sin(x)&color=%23ff0000&width=400&height=300&sx=20}.
+ * The anchors of the viewport are the center rounded to a power of ten
+ * near the visible size, so the samples of panned requests have the same
+ * anchors and can be extended instead of computed again.
+ */
+final class PlotRequest {
+
+    /**
+     * The default size in pixels
+     */
+    private static final int DEFAULT_WIDTH = 640, DEFAULT_HEIGHT = 480;
+
+    /**
+     * The maximum width and height in pixels
+     */
+    private static final int MAX_SIZE = 4096;
+
+    /**
+     * The maximum amount of expressions of a request
+     */
+    private static final int MAX_FORMULAS = 16;
+
+    /**
+     * The colors of the graphs without a color parameter
+     */
+    private static final Color[] PALETTE = {
+            new Color(0xc0392b), new Color(0x2980b9), new Color(0x27ae60), new Color(0x8e44ad), new Color(0xd35400)
+    };
+
+    /**
+     * The expressions
+     */
+    private final List<String> expressions;
+
+    /**
+     * The colors of the expressions
+     */
+    private final List<Color> colors;
+
+    /**
+     * The requested format, lower case
+     */
+    private final String format;
+
+    /**
+     * The viewport
+     */
+    private final Viewport viewport;
+
+    /**
+     * Identifies the zoom and the anchors in the keys of the sample cache
+     */
+    private final String viewportKey;
+
+    /**
+     * Parses a request.
+     *
+     * @param query         the raw query of the URI, may be null
+     * @param defaultFormat the format if the query has none
+     * @throws IllegalArgumentException if a parameter is missing or invalid
+     */
+    PlotRequest(String query, String defaultFormat) {
+        Map<String, List<String>> parameters = parse(query);
+        expressions = parameters.getOrDefault("f", Collections.emptyList());
+        if (expressions.isEmpty() || expressions.size() > MAX_FORMULAS) {
+            throw new IllegalArgumentException("Expected 1 to " + MAX_FORMULAS + " f parameters");
+        }
+        List<String> colorValues = parameters.getOrDefault("color", Collections.emptyList());
+        colors = new ArrayList<>();
+        for (int i = 0; i < expressions.size(); i++) {
+            try {
+                colors.add(i < colorValues.size() ? Color.decode(colorValues.get(i)) : PALETTE[i % PALETTE.length]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid color: " + colorValues.get(i));
+            }
+        }
+        format = first(parameters, "format", defaultFormat).toLowerCase(Locale.ROOT);
+
+        int width = Integer.parseInt(first(parameters, "width", String.valueOf(DEFAULT_WIDTH)));
+        int height = Integer.parseInt(first(parameters, "height", String.valueOf(DEFAULT_HEIGHT)));
+        if (width <= 0 || height <= 0 || width > MAX_SIZE || height > MAX_SIZE) {
+            throw new IllegalArgumentException("The size must be between 1 and " + MAX_SIZE);
+        }
+        BigDecimal centerX = new BigDecimal(first(parameters, "cx", "0"));
+        BigDecimal centerY = new BigDecimal(first(parameters, "cy", "0"));
+        BigDecimal stretchX = new BigDecimal(first(parameters, "sx", "10"));
+        BigDecimal stretchY = new BigDecimal(first(parameters, "sy", stretchX.toString()));
+        if (stretchX.signum() <= 0 || stretchY.signum() <= 0) {
+            throw new IllegalArgumentException("The stretch must be positive");
+        }
+        Arithmetic arithmetic = Arithmetic.valueOf(first(parameters, "arithmetic", "big_decimal").toUpperCase(Locale.ROOT));
+        BigDecimal anchorX = anchor(centerX, width / stretchX.doubleValue());
+        BigDecimal anchorY = anchor(centerY, height / stretchY.doubleValue());
+        viewport = new Viewport(width, height, anchorX, anchorY,
+                width / 2 + anchorX.subtract(centerX).doubleValue() * stretchX.doubleValue(),
+                height / 2 - anchorY.subtract(centerY).doubleValue() * stretchY.doubleValue(),
+                stretchX.doubleValue(), stretchY.doubleValue(), arithmetic);
+        viewportKey = width + "x" + height + "@" + anchorX + "," + anchorY + "/" + stretchX + "," + stretchY + ":" + arithmetic;
+    }
+
+    /**
+     * Rounds a center to a multiple of the power of ten that is at least the
+     * visible size, so the anchor stays within a few screens of the center.
+     *
+     * @param center the graph coordinate of the center
+     * @param extent the visible size in graph units
+     * @return the anchor
+     */
+    private static BigDecimal anchor(BigDecimal center, double extent) {
+        int scale = -(int) Math.ceil(Math.log10(extent));
+        BigDecimal anchor = center.setScale(scale, RoundingMode.HALF_EVEN);
+        return scale < 0 ? anchor.setScale(0) : anchor;
+    }
+
+    /**
+     * Decodes the parameters of a query.
+     *
+     * @param query the raw query, may be null
+     * @return the values by parameter name in the order of the query
+     */
+    private static Map<String, List<String>> parse(String query) {
+        Map<String, List<String>> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            String name = decode(pair.substring(0, separator));
+            parameters.computeIfAbsent(name, k -> new ArrayList<>()).add(decode(pair.substring(separator + 1)));
+        }
+        return parameters;
+    }
+
+    /**
+     * Decodes a component of a query.
+     *
+     * @param value the encoded component
+     * @return the decoded component
+     */
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the first value of a parameter.
+     *
+     * @param parameters   the parameters
+     * @param name         the name of the parameter
+     * @param defaultValue the value if the parameter is missing
+     * @return the value
+     */
+    private static String first(Map<String, List<String>> parameters, String name, String defaultValue) {
+        List<String> values = parameters.get(name);
+        return values == null ? defaultValue : values.get(0);
+    }
+
+    /**
+     * Returns the expressions.
+     *
+     * @return the expressions
+     */
+    List<String> getExpressions() {
+        return expressions;
+    }
+
+    /**
+     * Returns the colors of the expressions.
+     *
+     * @return the colors
+     */
+    List<Color> getColors() {
+        return colors;
+    }
+
+    /**
+     * Returns the requested format.
+     *
+     * @return the format in lower case
+     */
+    String getFormat() {
+        return format;
+    }
+
+    /**
+     * Returns the viewport.
+     *
+     * @return the viewport
+     */
+    Viewport getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Returns the key of the samples of an expression at this zoom and
+     * these anchors. Panned requests share the key.
+     *
+     * @param expression the expression
+     * @return the key
+     */
+    String sampleKey(String expression) {
+        return viewportKey + "|" + expression;
+    }
+
+}
@@ -0,0 +1,471 @@
+package graph.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import graph.engine.PlotEngine;
+import graph.engine.SvgWriter;
+import graph.function.Formula;
+import graph.function.GraphFormula;
+import graph.function.concurrent.CoordinateSet;
+import graph.function.concurrent.SampleCache;
+import graph.function.concurrent.Segment;
+import graph.parser.ExpressionParser;
+import graph.render.Viewport;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class serves plots over HTTP on the loopback interface, see
+ * {@link PlotRequest} for the parameters:
+ * <ul>
+ * <li>{@code /plot} returns a PNG or, with {@code format=svg}, an SVG document</li>
+ * <li>{@code /samples} returns the sampled points as JSON or, with
+ * {@code format=binary}, as big-endian binary: the anchors as two
+ * modified UTF-8 strings, the amount of graphs, then for every graph the
+ * amount of segments and for every segment the amount of points, the
+ * x-coordinates and the y-coordinates as doubles</li>
+ * <li>{@code /status} returns the statistics of the caches</li>
+ * </ul>
+ * The points are local to the anchors of the viewport like all sampled
+ * coordinates, the graph coordinates are the anchor plus the point.
+ * Parsed formulas and sampled coordinates are cached across requests, the
+ * coordinates of a panned request extend the cached coordinates. The
+ * work is done by a fixed pool of workers behind a bounded queue, requests
+ * that do not fit into the queue are answered with 503. The exchanges are
+ * handled by a bounded pool as well; when it is busy, the thread that
+ * accepts the connections handles the exchange itself and stops accepting
+ * in the meantime.
+ * Usage: {@code PlotServer [port] [workers] [queue capacity]}
+ */
+public final class PlotServer {
+
+    /**
+     * The default port
+     */
+    private static final int DEFAULT_PORT = 8080;
+
+    /**
+     * The default amount of requests that wait for a worker
+     */
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    /**
+     * The amount of cached formulas
+     */
+    private static final int FORMULA_CACHE_SIZE = 256;
+
+    /**
+     * The amount of cached coordinate sets
+     */
+    private static final int SAMPLE_CACHE_SIZE = 64;
+
+    /**
+     * Time in seconds after which a waiting request is cancelled
+     */
+    private static final int REQUEST_TIMEOUT = 30;
+
+    /**
+     * The HTTP server
+     */
+    private final HttpServer server;
+
+    /**
+     * Time in seconds after which idle threads of the exchanges are stopped
+     */
+    private static final int EXCHANGE_KEEP_ALIVE = 60;
+
+    /**
+     * Handles the exchanges, parses the requests and waits for the workers
+     */
+    private final ThreadPoolExecutor exchanges;
+
+    /**
+     * Samples and encodes the plots
+     */
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * Samples and renders the graphs
+     */
+    private final PlotEngine engine = new PlotEngine(PlotEngine.DEFAULT_BACKGROUND, true, false, SampleCache.getDefault());
+
+    /**
+     * The parsed formulas by expression
+     */
+    private final LruCache<String, Formula> formulas = new LruCache<>(FORMULA_CACHE_SIZE);
+
+    /**
+     * The sampled coordinates by zoom, anchors and expression
+     */
+    private final LruCache<String, CoordinateSet> samples = new LruCache<>(SAMPLE_CACHE_SIZE);
+
+    /**
+     * Creates a {@link PlotServer} bound to the loopback interface.
+     *
+     * @param port          the port, 0 for any free port
+     * @param threads       the amount of workers
+     * @param queueCapacity the amount of requests that wait for a worker
+     * @throws IOException if the port cannot be bound
+     */
+    public PlotServer(int port, int threads, int queueCapacity) throws IOException {
+        if (threads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("The amount of workers and the queue capacity must be positive");
+        }
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+        // every request that a worker accepts waits on its own thread, the others are rejected quickly
+        exchanges = new ThreadPoolExecutor(threads + queueCapacity, threads + queueCapacity, EXCHANGE_KEEP_ALIVE, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.CallerRunsPolicy());
+        exchanges.allowCoreThreadTimeOut(true);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/plot", exchange -> handle(exchange, "png"));
+        server.createContext("/samples", exchange -> handle(exchange, "json"));
+        server.createContext("/status", exchange -> send(exchange, 200, "text/plain; charset=utf-8",
+                ("formulas: " + formulas + "\nsamples: " + samples + "\nqueued: " + workers.getQueue().size() + "\n")
+                        .getBytes(StandardCharsets.UTF_8)));
+        server.setExecutor(exchanges);
+    }
+
+    /**
+     * Starts the server.
+     *
+     * @param args the port, the amount of workers and the queue capacity
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_QUEUE_CAPACITY;
+        PlotServer server = new PlotServer(port, threads, queueCapacity);
+        server.start();
+        System.out.println("Serving plots on http://localhost:" + server.getPort() + "/plot");
+    }
+
+    /**
+     * Starts to accept requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server and the workers.
+     */
+    public void stop() {
+        server.stop(0);
+        workers.shutdownNow();
+        exchanges.shutdownNow();
+    }
+
+    /**
+     * Returns the bound port.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Handles a request of a plot or of samples.
+     *
+     * @param exchange      the exchange
+     * @param defaultFormat the format if the request has none
+     * @throws IOException if the response cannot be sent
+     */
+    private void handle(HttpExchange exchange, String defaultFormat) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                sendText(exchange, 405, "Only GET is supported");
+                return;
+            }
+            PlotRequest request;
+            try {
+                request = new PlotRequest(exchange.getRequestURI().getRawQuery(), defaultFormat);
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, 400, e.getMessage());
+                return;
+            }
+            String contentType = contentType(request.getFormat());
+            if (contentType == null || defaultFormat.equals("png") != (contentType.startsWith("image"))) {
+                sendText(exchange, 400, "Unsupported format: " + request.getFormat());
+                return;
+            }
+
+            Future<byte[]> response;
+            try {
+                response = workers.submit(() -> respond(request));
+            } catch (RejectedExecutionException e) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendText(exchange, 503, "Too many requests");
+                return;
+            }
+            try {
+                send(exchange, 200, contentType, response.get(REQUEST_TIMEOUT, TimeUnit.SECONDS));
+            } catch (TimeoutException e) {
+                response.cancel(true);
+                sendText(exchange, 503, "The request timed out");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IllegalArgumentException) {
+                    sendText(exchange, 400, e.getCause().getMessage());
+                } else {
+                    e.printStackTrace();
+                    sendText(exchange, 500, "The plot failed");
+                }
+            } catch (InterruptedException e) {
+                response.cancel(true);
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Returns the content type of a format.
+     *
+     * @param format the format
+     * @return the content type or null if the format is unknown
+     */
+    private static String contentType(String format) {
+        switch (format) {
+            case "png":
+                return "image/png";
+            case "svg":
+                return "image/svg+xml";
+            case "json":
+                return "application/json";
+            case "binary":
+                return "application/octet-stream";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Samples the graphs of a request and encodes the response. Runs on a worker.
+     *
+     * @param request the request
+     * @return the body of the response
+     * @throws IOException if the encoding fails
+     */
+    private byte[] respond(PlotRequest request) throws IOException {
+        Viewport viewport = request.getViewport();
+        List<CoordinateSet> coordinateSets = new ArrayList<>();
+        for (String expression : request.getExpressions()) {
+            coordinateSets.add(sample(expression, request));
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        switch (request.getFormat()) {
+            case "png": {
+                BufferedImage image = new BufferedImage(viewport.getWidth(), viewport.getHeight(), BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = image.createGraphics();
+                engine.drawBackground(g, viewport);
+                for (int i = 0; i < coordinateSets.size(); i++) {
+                    engine.drawGraph(g, viewport, request.getColors().get(i), coordinateSets.get(i));
+                }
+                g.dispose();
+                ImageIO.write(image, "png", body);
+                break;
+            }
+            case "svg": {
+                Writer out = new OutputStreamWriter(body, StandardCharsets.UTF_8);
+                SvgWriter svg = new SvgWriter(out, viewport);
+                svg.writeHeader(PlotEngine.DEFAULT_BACKGROUND, true);
+                for (int i = 0; i < coordinateSets.size(); i++) {
+                    svg.writeGraph(request.getColors().get(i), coordinateSets.get(i));
+                }
+                svg.writeFooter();
+                break;
+            }
+            case "json":
+                writeJson(body, viewport, request.getExpressions(), coordinateSets);
+                break;
+            default:
+                writeBinary(body, viewport, coordinateSets);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Returns the coordinates of an expression in the viewport of a request.
+     * The cached coordinates of the same zoom and anchors are reused, only
+     * the part of the domain they do not cover is sampled.
+     *
+     * @param expression the expression
+     * @param request    the request
+     * @return the coordinates
+     */
+    private CoordinateSet sample(String expression, PlotRequest request) {
+        String key = request.sampleKey(expression);
+        CoordinateSet previous = samples.get(key);
+        Formula f = formulas.get(expression);
+        if (f == null) {
+            f = ExpressionParser.createFormula(expression, "x");
+            if (f == null) {
+                throw new IllegalArgumentException("Invalid formula: " + expression);
+            }
+            formulas.put(expression, f);
+        }
+        Viewport viewport = request.getViewport();
+        CoordinateSet coordinateSet = engine.sample(new GraphFormula(expression, f, Color.BLACK), viewport,
+                PlotEngine.formulaStepSize(viewport), previous);
+        if (coordinateSet != previous) {
+            samples.put(key, coordinateSet);
+        }
+        return coordinateSet;
+    }
+
+    /**
+     * Writes the coordinates as JSON.
+     *
+     * @param out            the output
+     * @param viewport       the viewport
+     * @param expressions    the expressions
+     * @param coordinateSets the coordinates of the expressions
+     * @throws IOException if the output fails
+     */
+    private static void writeJson(OutputStream out, Viewport viewport, List<String> expressions,
+                                  List<CoordinateSet> coordinateSets) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"anchorX\":\"").append(viewport.getAnchorX().toString())
+                .append("\",\"anchorY\":\"").append(viewport.getAnchorY().toString()).append("\",\"graphs\":[");
+        for (int i = 0; i < coordinateSets.size(); i++) {
+            json.append(i > 0 ? "," : "").append("{\"expression\":");
+            appendString(json, expressions.get(i));
+            json.append(",\"segments\":[");
+            List<Segment> segments = coordinateSets.get(i).getSegments();
+            for (int j = 0; j < segments.size(); j++) {
+                json.append(j > 0 ? "," : "").append("{\"x\":");
+                appendArray(json, segments.get(j).getX());
+                json.append(",\"y\":");
+                appendArray(json, segments.get(j).getY());
+                json.append('}');
+            }
+            json.append("]}");
+        }
+        json.append("]}");
+        out.write(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends a JSON string.
+     *
+     * @param json  the document
+     * @param value the string
+     */
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Appends a JSON array of numbers, values that are not finite are null.
+     *
+     * @param json   the document
+     * @param values the numbers
+     */
+    private static void appendArray(StringBuilder json, double[] values) {
+        json.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            if (Double.isNaN(values[i]) || Double.isInfinite(values[i])) {
+                json.append("null");
+            } else {
+                json.append(values[i]);
+            }
+        }
+        json.append(']');
+    }
+
+    /**
+     * Writes the coordinates as binary, see the class description.
+     *
+     * @param out            the output
+     * @param viewport       the viewport
+     * @param coordinateSets the coordinates of the expressions
+     * @throws IOException if the output fails
+     */
+    private static void writeBinary(OutputStream out, Viewport viewport, List<CoordinateSet> coordinateSets) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeUTF(viewport.getAnchorX().toString());
+        data.writeUTF(viewport.getAnchorY().toString());
+        data.writeInt(coordinateSets.size());
+        for (CoordinateSet coordinateSet : coordinateSets) {
+            data.writeInt(coordinateSet.getSegments().size());
+            for (Segment segment : coordinateSet.getSegments()) {
+                data.writeInt(segment.size());
+                for (int i = 0; i < segment.size(); i++) {
+                    data.writeDouble(segment.getX()[i]);
+                }
+                for (int i = 0; i < segment.size(); i++) {
+                    data.writeDouble(segment.getY()[i]);
+                }
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Sends a plain text response.
+     *
+     * @param exchange the exchange
+     * @param status   the status code
+     * @param message  the message
+     * @throws IOException if the response cannot be sent
+     */
+    private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "text/plain; charset=utf-8", (message + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a response.
+     *
+     * @param exchange    the exchange
+     * @param status      the status code
+     * @param contentType the content type
+     * @param body        the body
+     * @throws IOException if the response cannot be sent
+     */
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+}
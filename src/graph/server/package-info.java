@@ -0,0 +1,4 @@
+/**
+ * Contains all of the classes for serving plots over HTTP.
+ */
+package graph.server;